@@ -0,0 +1,76 @@
+package com.proteticos.ordermanagement.benchmark;
+
+import com.proteticos.ordermanagement.DTO.ProteticoSimplesDTO;
+import com.proteticos.ordermanagement.model.PoliticaExecucaoServico;
+import com.proteticos.ordermanagement.model.Protetico;
+import com.proteticos.ordermanagement.model.ServicoProtetico;
+import com.proteticos.ordermanagement.model.TipoServico;
+import com.proteticos.ordermanagement.repository.ServicoProteticoRepository;
+import com.proteticos.ordermanagement.service.IndiceTerceirizacaoService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Filtragem de candidatos à terceirização: índice em memória (IndiceTerceirizacaoService)
+ * contra a varredura de todos os serviços que o TerceirizacaoService fazia antes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CandidatosTerceirizacaoBenchmark {
+
+    private static final int TIPOS_POR_PROTETICO = 4;
+
+    @Param({"50", "2000"})
+    public int laboratorios;
+
+    private IndiceTerceirizacaoService indice;
+    private List<ServicoProtetico> servicos;
+    private final TipoServico[] tipos = TipoServico.values();
+    private int proximo;
+
+    @Setup
+    public void preparar() {
+        Random random = new Random(DadosSinteticos.SEMENTE);
+        List<Protetico> proteticos = DadosSinteticos.proteticos(laboratorios, random);
+
+        indice = new IndiceTerceirizacaoService();
+        DadosSinteticos.injetar(indice, "servicoProteticoRepository", DadosSinteticos.repositorio(
+                ServicoProteticoRepository.class,
+                Map.of("buscarTodosCandidatosTerceirizacao",
+                        DadosSinteticos.candidatos(proteticos, TIPOS_POR_PROTETICO, random))));
+        indice.carregar();
+
+        servicos = DadosSinteticos.servicos(proteticos, TIPOS_POR_PROTETICO, random);
+    }
+
+    @Benchmark
+    public List<ProteticoSimplesDTO> indiceEmMemoria() {
+        TipoServico tipo = tipos[(proximo++ & 0x7fffffff) % tipos.length];
+        return indice.listar(tipo, 1L);
+    }
+
+    // Referência: filtro linear sobre todos os serviços, como no código anterior ao índice
+    @Benchmark
+    public List<Protetico> varreduraLinear() {
+        TipoServico tipo = tipos[(proximo++ & 0x7fffffff) % tipos.length];
+        return servicos.stream()
+                .filter(s -> s.getTipoServico() == tipo)
+                .filter(ServicoProtetico::isAtivo)
+                .filter(s -> s.getPoliticaExecucao() == PoliticaExecucaoServico.TERCEIRIZADO
+                        || s.getPoliticaExecucao() == PoliticaExecucaoServico.PROPRIO_OU_TERCEIRIZADO)
+                .map(ServicoProtetico::getProtetico)
+                .filter(p -> !Objects.equals(p.getId(), 1L))
+                .distinct()
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,48 @@
+package com.proteticos.ordermanagement.benchmark;
+
+import com.proteticos.ordermanagement.DTO.PedidoResponseDTO;
+import com.proteticos.ordermanagement.model.Pedido;
+import com.proteticos.ordermanagement.service.PedidoService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// PedidoService.converterParaDTO / converterListaParaDTO sobre pedidos com dentista e protético carregados
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConversaoPedidoBenchmark {
+
+    @Param({"20", "500"})
+    public int tamanhoLista;
+
+    private PedidoService pedidoService;
+    private List<Pedido> pedidos;
+    private Pedido pedido;
+
+    @Setup
+    public void preparar() {
+        Random random = new Random(DadosSinteticos.SEMENTE);
+        pedidoService = new PedidoService();
+        pedidos = DadosSinteticos.pedidos(tamanhoLista,
+                DadosSinteticos.dentistas(200),
+                DadosSinteticos.proteticos(30, random),
+                random);
+        pedido = pedidos.get(0);
+    }
+
+    @Benchmark
+    public PedidoResponseDTO converterParaDTO() {
+        return pedidoService.converterParaDTO(pedido);
+    }
+
+    @Benchmark
+    public List<PedidoResponseDTO> converterListaParaDTO() {
+        return pedidoService.converterListaParaDTO(pedidos);
+    }
+}
@@ -0,0 +1,148 @@
+package com.proteticos.ordermanagement.benchmark;
+
+import com.proteticos.ordermanagement.DTO.CandidatoTerceirizacaoDTO;
+import com.proteticos.ordermanagement.model.*;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Grafos de entidades sintéticos e determinísticos (semente fixa) para os benchmarks,
+ * com proporções próximas às de produção: poucos laboratórios, muitos dentistas, muitos pedidos.
+ */
+final class DadosSinteticos {
+
+    static final long SEMENTE = 42L;
+
+    private static final TipoServico[] TIPOS = TipoServico.values();
+    private static final StatusPedido[] STATUS = StatusPedido.values();
+
+    private DadosSinteticos() {}
+
+    static List<Protetico> proteticos(int quantidade, Random random) {
+        List<Protetico> proteticos = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            Protetico protetico = new Protetico("Laboratório " + i, "lab" + i + "@bench.com", "x",
+                    "PRT" + i, "Especialização " + (i % 7));
+            protetico.setId((long) i + 1);
+            protetico.setNotaTerceirizacao(BigDecimal.valueOf(3 + random.nextInt(20) / 10.0));
+            protetico.setQuantidadeTerceirizacoes(random.nextInt(200));
+            protetico.setTaxaMinimaTerceirizacao(BigDecimal.valueOf(20 + random.nextInt(80)));
+            proteticos.add(protetico);
+        }
+        return proteticos;
+    }
+
+    static List<Dentista> dentistas(int quantidade) {
+        List<Dentista> dentistas = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            Dentista dentista = new Dentista("Dentista " + i, "dent" + i + "@bench.com", "x",
+                    "CRO" + i, "Especialidade " + (i % 5));
+            dentista.setId(100_000L + i);
+            dentistas.add(dentista);
+        }
+        return dentistas;
+    }
+
+    static List<Pedido> pedidos(int quantidade, List<Dentista> dentistas, List<Protetico> proteticos, Random random) {
+        List<Pedido> pedidos = new ArrayList<>(quantidade);
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 8, 0);
+        for (int i = 0; i < quantidade; i++) {
+            Pedido pedido = new Pedido(
+                    dentistas.get(random.nextInt(dentistas.size())),
+                    proteticos.get(random.nextInt(proteticos.size())),
+                    TIPOS[random.nextInt(TIPOS.length)]
+            );
+            pedido.setId((long) i + 1);
+            pedido.setCodigo("P2025010108000000" + i);
+            pedido.setInformacoesDetalhadas("Cor A2, elemento " + (11 + random.nextInt(37)));
+            pedido.setValorCobrado(BigDecimal.valueOf(100 + random.nextInt(2000)));
+            pedido.setDataEntrada(LocalDate.of(2025, 1, 1).plusDays(i % 365));
+            pedido.setDataPrevistaEntrega(pedido.getDataEntrada().plusDays(7));
+            pedido.setStatus(STATUS[random.nextInt(STATUS.length)]);
+            pedido.setDataCriacao(base.plusMinutes(i));
+            pedidos.add(pedido);
+        }
+        return pedidos;
+    }
+
+    /** Candidatos como vêm de ServicoProteticoRepository.buscarTodosCandidatosTerceirizacao. */
+    static List<CandidatoTerceirizacaoDTO> candidatos(List<Protetico> proteticos, int tiposPorProtetico, Random random) {
+        List<CandidatoTerceirizacaoDTO> candidatos = new ArrayList<>();
+        for (Protetico protetico : proteticos) {
+            int inicio = random.nextInt(TIPOS.length);
+            for (int t = 0; t < tiposPorProtetico; t++) {
+                candidatos.add(new CandidatoTerceirizacaoDTO(
+                        TIPOS[(inicio + t) % TIPOS.length],
+                        protetico.getId(),
+                        protetico.getNome(),
+                        protetico.getEmail(),
+                        protetico.getRegistroProfissional(),
+                        protetico.getEspecializacao(),
+                        protetico.getNotaTerceirizacao(),
+                        protetico.getQuantidadeTerceirizacoes(),
+                        protetico.getTaxaMinimaTerceirizacao(),
+                        BigDecimal.valueOf(80 + random.nextInt(700)),
+                        4 + random.nextInt(120)
+                ));
+            }
+        }
+        return candidatos;
+    }
+
+    /** Serviços como eram varridos antes do índice (findAll + filtro em memória). */
+    static List<ServicoProtetico> servicos(List<Protetico> proteticos, int servicosPorProtetico, Random random) {
+        PoliticaExecucaoServico[] politicas = PoliticaExecucaoServico.values();
+        List<ServicoProtetico> servicos = new ArrayList<>();
+        long id = 1;
+        for (Protetico protetico : proteticos) {
+            int inicio = random.nextInt(TIPOS.length);
+            for (int t = 0; t < servicosPorProtetico; t++) {
+                ServicoProtetico servico = new ServicoProtetico();
+                servico.setId(id++);
+                servico.setProtetico(protetico);
+                servico.setTipoServico(TIPOS[(inicio + t) % TIPOS.length]);
+                servico.setPreco(BigDecimal.valueOf(100 + random.nextInt(900)));
+                servico.setAtivo(random.nextInt(10) != 0);
+                servico.setPoliticaExecucao(politicas[random.nextInt(politicas.length)]);
+                servicos.add(servico);
+            }
+        }
+        return servicos;
+    }
+
+    /**
+     * Implementação mínima de uma interface de repositório: responde os métodos mapeados
+     * e falha em qualquer outro, para o benchmark não depender de banco.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T repositorio(Class<T> tipo, Map<String, Object> respostas) {
+        return (T) Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo}, (proxy, metodo, args) -> {
+            if (respostas.containsKey(metodo.getName())) {
+                return respostas.get(metodo.getName());
+            }
+            if (metodo.getDeclaringClass() == Object.class) {
+                return metodo.invoke(respostas, args);
+            }
+            throw new UnsupportedOperationException(metodo.getName());
+        });
+    }
+
+    /** Equivalente ao @Autowired de campo, sem subir o contexto Spring. */
+    static void injetar(Object alvo, String campo, Object valor) {
+        try {
+            Field field = alvo.getClass().getDeclaredField(campo);
+            field.setAccessible(true);
+            field.set(alvo, valor);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Não foi possível injetar " + campo, e);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.proteticos.ordermanagement.benchmark;
+
+import com.proteticos.ordermanagement.DTO.CandidatoRankeadoDTO;
+import com.proteticos.ordermanagement.model.Protetico;
+import com.proteticos.ordermanagement.model.TipoServico;
+import com.proteticos.ordermanagement.repository.ServicoProteticoRepository;
+import com.proteticos.ordermanagement.service.IndiceTerceirizacaoService;
+import com.proteticos.ordermanagement.service.RankingTerceirizacaoService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ranking top-K de candidatos à terceirização (RankingTerceirizacaoService) sobre o índice em memória.
+ * Meta: abaixo de 1 ms por consulta com 10 mil laboratórios.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RankingTerceirizacaoBenchmark {
+
+    private static final int TIPOS_POR_PROTETICO = 4;
+
+    @Param({"2000", "10000"})
+    public int laboratorios;
+
+    @Param({"3", "10"})
+    public int k;
+
+    private RankingTerceirizacaoService ranking;
+    private final TipoServico[] tipos = TipoServico.values();
+    private int proximo;
+
+    @Setup
+    public void preparar() {
+        Random random = new Random(DadosSinteticos.SEMENTE);
+        List<Protetico> proteticos = DadosSinteticos.proteticos(laboratorios, random);
+
+        IndiceTerceirizacaoService indice = new IndiceTerceirizacaoService();
+        DadosSinteticos.injetar(indice, "servicoProteticoRepository", DadosSinteticos.repositorio(
+                ServicoProteticoRepository.class,
+                Map.of("buscarTodosCandidatosTerceirizacao",
+                        DadosSinteticos.candidatos(proteticos, TIPOS_POR_PROTETICO, random))));
+        indice.carregar();
+
+        ranking = new RankingTerceirizacaoService(0.35, 0.15, 0.20, 0.15, 0.15, 0.25, 20);
+        DadosSinteticos.injetar(ranking, "indiceTerceirizacaoService", indice);
+
+        // Cerca de um terço dos laboratórios com terceirizações em andamento
+        Map<Long, Integer> carga = new HashMap<>();
+        for (Protetico protetico : proteticos) {
+            if (random.nextInt(3) == 0) {
+                carga.put(protetico.getId(), 1 + random.nextInt(8));
+            }
+        }
+        ranking.substituirCarga(carga);
+    }
+
+    @Benchmark
+    public List<CandidatoRankeadoDTO> rankearTopK() {
+        TipoServico tipo = tipos[(proximo++ & 0x7fffffff) % tipos.length];
+        return ranking.rankear(tipo, 1L, 2L, k);
+    }
+}
@@ -0,0 +1,63 @@
+package com.proteticos.ordermanagement.benchmark;
+
+import com.proteticos.ordermanagement.DTO.EtapaTemplate;
+import com.proteticos.ordermanagement.model.TemplateEtapa;
+import com.proteticos.ordermanagement.model.TipoServico;
+import com.proteticos.ordermanagement.repository.TemplateEtapaRepository;
+import com.proteticos.ordermanagement.service.RegistroTemplatesEtapaService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Geração do fluxo de etapas (antigo EtapaService.obterEtapasPorTipoServico) via RegistroTemplatesEtapaService
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TemplatesEtapaBenchmark {
+
+    private static final int LABORATORIOS_COM_OVERRIDE = 50;
+
+    private RegistroTemplatesEtapaService registro;
+    private final TipoServico[] tipos = TipoServico.values();
+    private int proximo;
+
+    @Setup
+    public void preparar() {
+        // Overrides de IMPLANTE para 50 laboratórios, como viriam da tabela template_etapa
+        List<TemplateEtapa> linhas = new ArrayList<>();
+        for (long lab = 1; lab <= LABORATORIOS_COM_OVERRIDE; lab++) {
+            for (int ordem = 1; ordem <= 6; ordem++) {
+                linhas.add(new TemplateEtapa(TipoServico.IMPLANTE, lab, ordem, "Etapa " + ordem, 8 * ordem));
+            }
+        }
+
+        registro = new RegistroTemplatesEtapaService();
+        DadosSinteticos.injetar(registro, "templateEtapaRepository", DadosSinteticos.repositorio(
+                TemplateEtapaRepository.class,
+                Map.of("findByAtivoTrueOrderByTipoServicoAscProteticoIdAscOrdemAsc", linhas)));
+        registro.recarregar();
+    }
+
+    @Benchmark
+    public EtapaTemplate[] templatePadrao() {
+        TipoServico tipo = tipos[(proximo++ & 0x7fffffff) % tipos.length];
+        return registro.obterTemplate(tipo, null);
+    }
+
+    @Benchmark
+    public EtapaTemplate[] templateComOverride() {
+        long lab = 1 + (proximo++ & 0x7fffffff) % (LABORATORIOS_COM_OVERRIDE * 2);
+        return registro.obterTemplate(TipoServico.IMPLANTE, lab);
+    }
+
+    @Benchmark
+    public Integer duracaoEstimada() {
+        return registro.obterDuracaoEstimadaHoras(TipoServico.COROA, 7L, 1 + (proximo++ & 7));
+    }
+}
@@ -0,0 +1,53 @@
+package com.proteticos.ordermanagement.benchmark;
+
+import com.proteticos.ordermanagement.model.StatusPedido;
+import com.proteticos.ordermanagement.model.StatusTerceirizacao;
+import com.proteticos.ordermanagement.model.TipoServico;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// TipoServico.fromValue e as matrizes de transição de StatusPedido / StatusTerceirizacao
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransicoesStatusBenchmark {
+
+    // Valores válidos, maiúsculos (nome do enum) e desconhecidos, como chegam da API
+    private final String[] valoresTipo = {
+            "coroa", "zirconia", "IMPLANTE", "protese_total", "desconhecido", "resina", "", "ponte_fixa"
+    };
+
+    private final StatusPedido[] statusPedido = StatusPedido.values();
+    private final StatusTerceirizacao[] statusTerceirizacao = StatusTerceirizacao.values();
+
+    @Benchmark
+    public void tipoServicoFromValue(Blackhole bh) {
+        for (String valor : valoresTipo) {
+            bh.consume(TipoServico.fromValue(valor));
+        }
+    }
+
+    // Todas as combinações origem x destino
+    @Benchmark
+    public void statusPedidoPodeMudarPara(Blackhole bh) {
+        for (StatusPedido origem : statusPedido) {
+            for (StatusPedido destino : statusPedido) {
+                bh.consume(origem.podeMudarPara(destino));
+            }
+        }
+    }
+
+    @Benchmark
+    public void statusTerceirizacaoPodeMudarPara(Blackhole bh) {
+        for (StatusTerceirizacao origem : statusTerceirizacao) {
+            for (StatusTerceirizacao destino : statusTerceirizacao) {
+                bh.consume(origem.podeMudarPara(destino));
+            }
+        }
+    }
+}
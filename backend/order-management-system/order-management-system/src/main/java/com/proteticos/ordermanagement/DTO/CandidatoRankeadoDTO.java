@@ -0,0 +1,31 @@
+package com.proteticos.ordermanagement.DTO;
+
+import java.math.BigDecimal;
+
+// Candidato à terceirização com a pontuação calculada pelo RankingTerceirizacaoService
+public final class CandidatoRankeadoDTO {
+    private final ProteticoSimplesDTO protetico;
+    private final double pontuacao;
+    private final BigDecimal precoTerceirizado;
+    private final Integer prazoTerceirizadoHoras;
+    private final int terceirizacoesAbertas;
+    private final boolean preferido;
+
+    public CandidatoRankeadoDTO(ProteticoSimplesDTO protetico, double pontuacao,
+                                BigDecimal precoTerceirizado, Integer prazoTerceirizadoHoras,
+                                int terceirizacoesAbertas, boolean preferido) {
+        this.protetico = protetico;
+        this.pontuacao = pontuacao;
+        this.precoTerceirizado = precoTerceirizado;
+        this.prazoTerceirizadoHoras = prazoTerceirizadoHoras;
+        this.terceirizacoesAbertas = terceirizacoesAbertas;
+        this.preferido = preferido;
+    }
+
+    public ProteticoSimplesDTO getProtetico() { return protetico; }
+    public double getPontuacao() { return pontuacao; }
+    public BigDecimal getPrecoTerceirizado() { return precoTerceirizado; }
+    public Integer getPrazoTerceirizadoHoras() { return prazoTerceirizadoHoras; }
+    public int getTerceirizacoesAbertas() { return terceirizacoesAbertas; }
+    public boolean isPreferido() { return preferido; }
+}
@@ -0,0 +1,72 @@
+package com.proteticos.ordermanagement.DTO;
+
+import com.proteticos.ordermanagement.model.TipoServico;
+import java.math.BigDecimal;
+
+/**
+ * Snapshot imutável de um protético apto a receber terceirização para um tipo de serviço.
+ * Guardado em memória pelo IndiceTerceirizacaoService.
+ */
+public final class CandidatoTerceirizacaoDTO {
+    private final TipoServico tipoServico;
+    private final Long proteticoId;
+    private final String nome;
+    private final String email;
+    private final String registroProfissional;
+    private final String especializacao;
+    private final BigDecimal notaTerceirizacao;
+    private final Integer quantidadeTerceirizacoes;
+    private final BigDecimal taxaMinimaTerceirizacao;
+    private final BigDecimal precoTerceirizado;     // preço do serviço para terceirização (ou o preço base)
+    private final Integer prazoTerceirizadoHoras;   // prazo para terceirização (ou o tempo médio)
+
+    // Pré-calculados para o RankingTerceirizacaoService (sem BigDecimal no laço de pontuação);
+    // NaN quando o valor não foi informado
+    private final double notaNumerica;
+    private final double precoNumerico;
+    private final double prazoHorasNumerico;
+
+    // Construtor usado nas consultas JPQL (SELECT new ...)
+    public CandidatoTerceirizacaoDTO(TipoServico tipoServico, Long proteticoId, String nome, String email,
+                                     String registroProfissional, String especializacao,
+                                     BigDecimal notaTerceirizacao, Integer quantidadeTerceirizacoes,
+                                     BigDecimal taxaMinimaTerceirizacao,
+                                     BigDecimal precoTerceirizado, Integer prazoTerceirizadoHoras) {
+        this.tipoServico = tipoServico;
+        this.proteticoId = proteticoId;
+        this.nome = nome;
+        this.email = email;
+        this.registroProfissional = registroProfissional;
+        this.especializacao = especializacao;
+        this.notaTerceirizacao = notaTerceirizacao;
+        this.quantidadeTerceirizacoes = quantidadeTerceirizacoes;
+        this.taxaMinimaTerceirizacao = taxaMinimaTerceirizacao;
+        this.precoTerceirizado = precoTerceirizado;
+        this.prazoTerceirizadoHoras = prazoTerceirizadoHoras;
+
+        this.notaNumerica = notaTerceirizacao != null ? notaTerceirizacao.doubleValue() : 0.0;
+        this.precoNumerico = precoTerceirizado != null ? precoTerceirizado.doubleValue() : Double.NaN;
+        this.prazoHorasNumerico = prazoTerceirizadoHoras != null ? prazoTerceirizadoHoras : Double.NaN;
+    }
+
+    public TipoServico getTipoServico() { return tipoServico; }
+    public Long getProteticoId() { return proteticoId; }
+    public String getNome() { return nome; }
+    public String getEmail() { return email; }
+    public String getRegistroProfissional() { return registroProfissional; }
+    public String getEspecializacao() { return especializacao; }
+    public BigDecimal getNotaTerceirizacao() { return notaTerceirizacao; }
+    public Integer getQuantidadeTerceirizacoes() { return quantidadeTerceirizacoes; }
+    public BigDecimal getTaxaMinimaTerceirizacao() { return taxaMinimaTerceirizacao; }
+    public BigDecimal getPrecoTerceirizado() { return precoTerceirizado; }
+    public Integer getPrazoTerceirizadoHoras() { return prazoTerceirizadoHoras; }
+    public double getNotaNumerica() { return notaNumerica; }
+    public double getPrecoNumerico() { return precoNumerico; }
+    public double getPrazoHorasNumerico() { return prazoHorasNumerico; }
+
+    // Converte para o DTO usado nas respostas (nova instância a cada chamada, o snapshot não muda)
+    public ProteticoSimplesDTO toProteticoSimplesDTO() {
+        return new ProteticoSimplesDTO(proteticoId, nome, email, registroProfissional, especializacao,
+                notaTerceirizacao, quantidadeTerceirizacoes, taxaMinimaTerceirizacao);
+    }
+}
@@ -0,0 +1,18 @@
+package com.proteticos.ordermanagement.DTO;
+
+// Etapa de um template já compilado no registro; imutável e compartilhada entre pedidos
+public final class EtapaTemplate {
+    private final int ordem;
+    private final String nome;
+    private final int duracaoEstimadaHoras;
+
+    public EtapaTemplate(int ordem, String nome, int duracaoEstimadaHoras) {
+        this.ordem = ordem;
+        this.nome = nome;
+        this.duracaoEstimadaHoras = duracaoEstimadaHoras;
+    }
+
+    public int getOrdem() { return ordem; }
+    public String getNome() { return nome; }
+    public int getDuracaoEstimadaHoras() { return duracaoEstimadaHoras; }
+}
@@ -0,0 +1,39 @@
+package com.proteticos.ordermanagement.DTO;
+
+import com.proteticos.ordermanagement.model.StatusPedido;
+import com.proteticos.ordermanagement.model.TipoServico;
+import java.time.LocalDate;
+
+/**
+ * Filtros combináveis da listagem paginada de pedidos.
+ * Campos nulos são ignorados. O intervalo de datas se aplica a dataCriacao (inclusivo).
+ */
+public class FiltroPedidoDTO {
+    private StatusPedido status;
+    private TipoServico tipoServico;
+    private Long dentistaId;
+    private Long proteticoId;
+    private LocalDate dataInicio;
+    private LocalDate dataFim;
+
+    public FiltroPedidoDTO() {}
+
+    // Getters e Setters
+    public StatusPedido getStatus() { return status; }
+    public void setStatus(StatusPedido status) { this.status = status; }
+
+    public TipoServico getTipoServico() { return tipoServico; }
+    public void setTipoServico(TipoServico tipoServico) { this.tipoServico = tipoServico; }
+
+    public Long getDentistaId() { return dentistaId; }
+    public void setDentistaId(Long dentistaId) { this.dentistaId = dentistaId; }
+
+    public Long getProteticoId() { return proteticoId; }
+    public void setProteticoId(Long proteticoId) { this.proteticoId = proteticoId; }
+
+    public LocalDate getDataInicio() { return dataInicio; }
+    public void setDataInicio(LocalDate dataInicio) { this.dataInicio = dataInicio; }
+
+    public LocalDate getDataFim() { return dataFim; }
+    public void setDataFim(LocalDate dataFim) { this.dataFim = dataFim; }
+}
@@ -22,6 +22,9 @@ public class LoginResponseDTO {
     private String cro;
     private String especialidade;
 
+    // Token de sessão assinado (enviar em Authorization: Bearer <token>)
+    private String token;
+
     public LoginResponseDTO() {}
 
     public LoginResponseDTO(Usuario usuario) {
@@ -83,4 +86,7 @@ public class LoginResponseDTO {
 
     public String getEspecialidade() { return especialidade; }
     public void setEspecialidade(String especialidade) { this.especialidade = especialidade; }
+
+    public String getToken() { return token; }
+    public void setToken(String token) { this.token = token; }
 }
\ No newline at end of file
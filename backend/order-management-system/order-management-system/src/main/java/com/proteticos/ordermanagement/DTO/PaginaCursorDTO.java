@@ -0,0 +1,31 @@
+package com.proteticos.ordermanagement.DTO;
+
+import java.util.List;
+
+/**
+ * Página de uma listagem por cursor (keyset).
+ * Para a próxima página, envie proximoCursor de volta no parâmetro "cursor".
+ */
+public class PaginaCursorDTO<T> {
+    private List<T> itens;
+    private String proximoCursor;
+    private boolean temMais;
+
+    public PaginaCursorDTO() {}
+
+    public PaginaCursorDTO(List<T> itens, String proximoCursor, boolean temMais) {
+        this.itens = itens;
+        this.proximoCursor = proximoCursor;
+        this.temMais = temMais;
+    }
+
+    // Getters e Setters
+    public List<T> getItens() { return itens; }
+    public void setItens(List<T> itens) { this.itens = itens; }
+
+    public String getProximoCursor() { return proximoCursor; }
+    public void setProximoCursor(String proximoCursor) { this.proximoCursor = proximoCursor; }
+
+    public boolean isTemMais() { return temMais; }
+    public void setTemMais(boolean temMais) { this.temMais = temMais; }
+}
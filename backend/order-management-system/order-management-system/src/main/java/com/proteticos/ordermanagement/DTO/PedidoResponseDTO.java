@@ -19,10 +19,46 @@ public class PedidoResponseDTO {
     private LocalDate dataEntrega;
     private StatusPedido status;
     private LocalDateTime dataCriacao;
+    private long versao; // usada pelo cliente no If-Match das transições de status
 
     // Construtor vazio
     public PedidoResponseDTO() {}
 
+    // Construtor "achatado" para consultas JPQL (SELECT new ...): pedido + resumo de dentista e protético
+    public PedidoResponseDTO(Long id, String codigo, TipoServico tipoServico, String informacoesDetalhadas,
+                             BigDecimal valorCobrado, LocalDate dataEntrada, LocalDate dataPrevistaEntrega,
+                             LocalDate dataEntrega, StatusPedido status, LocalDateTime dataCriacao, long versao,
+                             Long dentistaId, String dentistaNome, String dentistaEmail,
+                             String dentistaCro, String dentistaEspecialidade,
+                             Long proteticoId, String proteticoNome, String proteticoEmail,
+                             String proteticoRegistroProfissional, String proteticoEspecializacao) {
+        this.id = id;
+        this.codigo = codigo;
+        this.tipoServico = tipoServico;
+        this.informacoesDetalhadas = informacoesDetalhadas;
+        this.valorCobrado = valorCobrado;
+        this.dataEntrada = dataEntrada;
+        this.dataPrevistaEntrega = dataPrevistaEntrega;
+        this.dataEntrega = dataEntrega;
+        this.status = status;
+        this.dataCriacao = dataCriacao;
+        this.versao = versao;
+
+        this.dentista = new DentistaSimplesDTO();
+        this.dentista.setId(dentistaId);
+        this.dentista.setNome(dentistaNome);
+        this.dentista.setEmail(dentistaEmail);
+        this.dentista.setCro(dentistaCro);
+        this.dentista.setEspecialidade(dentistaEspecialidade);
+
+        this.protetico = new ProteticoSimplesDTO();
+        this.protetico.setId(proteticoId);
+        this.protetico.setNome(proteticoNome);
+        this.protetico.setEmail(proteticoEmail);
+        this.protetico.setRegistroProfissional(proteticoRegistroProfissional);
+        this.protetico.setEspecializacao(proteticoEspecializacao);
+    }
+
     // Getters e Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -59,4 +95,7 @@ public class PedidoResponseDTO {
 
     public LocalDateTime getDataCriacao() { return dataCriacao; }
     public void setDataCriacao(LocalDateTime dataCriacao) { this.dataCriacao = dataCriacao; }
-}
\ No newline at end of file
+
+    public long getVersao() { return versao; }
+    public void setVersao(long versao) { this.versao = versao; }
+}
@@ -0,0 +1,17 @@
+package com.proteticos.ordermanagement.DTO;
+
+import java.time.LocalDate;
+
+// Projeção mínima (id + data prevista) usada para montar o monitor de atrasos
+public class PrazoAbertoDTO {
+    private final Long id;
+    private final LocalDate dataPrevista;
+
+    public PrazoAbertoDTO(Long id, LocalDate dataPrevista) {
+        this.id = id;
+        this.dataPrevista = dataPrevista;
+    }
+
+    public Long getId() { return id; }
+    public LocalDate getDataPrevista() { return dataPrevista; }
+}
@@ -0,0 +1,44 @@
+package com.proteticos.ordermanagement.DTO;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Previsão de conclusão de um pedido aberto, a partir do histórico de duração das etapas
+public final class PrevisaoEntregaDTO {
+    private final Long pedidoId;
+    private final String codigo;
+    private final LocalDate dataPrevistaEntrega;
+    private final LocalDateTime previsaoConclusao;      // mediana
+    private final LocalDateTime previsaoConclusaoP90;   // 90% de chance de terminar até aqui
+    private final Double probabilidadeNoPrazo;          // null sem dataPrevistaEntrega ou sem histórico
+    private final int etapasRestantes;
+    private final long amostras;                        // menor histórico usado entre as etapas restantes (0 = template)
+
+    public PrevisaoEntregaDTO(Long pedidoId, String codigo, LocalDate dataPrevistaEntrega,
+                              LocalDateTime previsaoConclusao, LocalDateTime previsaoConclusaoP90,
+                              Double probabilidadeNoPrazo, int etapasRestantes, long amostras) {
+        this.pedidoId = pedidoId;
+        this.codigo = codigo;
+        this.dataPrevistaEntrega = dataPrevistaEntrega;
+        this.previsaoConclusao = previsaoConclusao;
+        this.previsaoConclusaoP90 = previsaoConclusaoP90;
+        this.probabilidadeNoPrazo = probabilidadeNoPrazo;
+        this.etapasRestantes = etapasRestantes;
+        this.amostras = amostras;
+    }
+
+    public Long getPedidoId() { return pedidoId; }
+    public String getCodigo() { return codigo; }
+    public LocalDate getDataPrevistaEntrega() { return dataPrevistaEntrega; }
+    public LocalDateTime getPrevisaoConclusao() { return previsaoConclusao; }
+    public LocalDateTime getPrevisaoConclusaoP90() { return previsaoConclusaoP90; }
+    public Double getProbabilidadeNoPrazo() { return probabilidadeNoPrazo; }
+    public int getEtapasRestantes() { return etapasRestantes; }
+    public long getAmostras() { return amostras; }
+
+    // Mediana prevista depois do dia combinado com o dentista
+    public boolean isEmRisco() {
+        return dataPrevistaEntrega != null && previsaoConclusao != null
+                && previsaoConclusao.toLocalDate().isAfter(dataPrevistaEntrega);
+    }
+}
@@ -17,6 +17,21 @@ public class ProteticoSimplesDTO {
 
     public ProteticoSimplesDTO() {}
 
+    // Construtor usado nas consultas JPQL (SELECT new ...) de candidatos à terceirização
+    public ProteticoSimplesDTO(Long id, String nome, String email,
+                               String registroProfissional, String especializacao,
+                               BigDecimal notaTerceirizacao, Integer quantidadeTerceirizacoes,
+                               BigDecimal taxaMinimaTerceirizacao) {
+        this.id = id;
+        this.nome = nome;
+        this.email = email;
+        this.registroProfissional = registroProfissional;
+        this.especializacao = especializacao;
+        this.notaTerceirizacao = notaTerceirizacao;
+        this.quantidadeTerceirizacoes = quantidadeTerceirizacoes;
+        this.taxaMinimaTerceirizacao = taxaMinimaTerceirizacao;
+    }
+
     // ============ GETTERS E SETTERS BÁSICOS ============
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
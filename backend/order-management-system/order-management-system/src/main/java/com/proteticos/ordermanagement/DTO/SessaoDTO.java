@@ -0,0 +1,26 @@
+package com.proteticos.ordermanagement.DTO;
+
+import com.proteticos.ordermanagement.model.UserTipo;
+
+import java.time.Instant;
+
+// Sessão autenticada extraída do token; imutável para poder ficar em cache
+public final class SessaoDTO {
+    private final Long usuarioId;
+    private final UserTipo tipo;
+    private final Instant expiraEm;
+
+    public SessaoDTO(Long usuarioId, UserTipo tipo, Instant expiraEm) {
+        this.usuarioId = usuarioId;
+        this.tipo = tipo;
+        this.expiraEm = expiraEm;
+    }
+
+    public boolean isExpirada(Instant agora) {
+        return !agora.isBefore(expiraEm);
+    }
+
+    public Long getUsuarioId() { return usuarioId; }
+    public UserTipo getTipo() { return tipo; }
+    public Instant getExpiraEm() { return expiraEm; }
+}
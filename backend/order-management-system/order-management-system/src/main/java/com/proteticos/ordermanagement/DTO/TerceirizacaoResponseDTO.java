@@ -3,6 +3,7 @@ package com.proteticos.ordermanagement.DTO;
 import com.proteticos.ordermanagement.model.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 
 public class TerceirizacaoResponseDTO {
     private Long id;
@@ -19,6 +20,8 @@ public class TerceirizacaoResponseDTO {
     private LocalDateTime dataSolicitacao;
     private LocalDateTime dataResposta;
     private LocalDateTime dataConclusao;
+    private Long versao; // versão do pedido, para o If-Match da próxima transição
+    private List<ProteticoSimplesDTO> ofertas; // laboratórios que receberam a oferta (só no broadcast)
 
     // Construtor
     public TerceirizacaoResponseDTO() {}
@@ -28,6 +31,7 @@ public class TerceirizacaoResponseDTO {
         if (pedido == null) return;
 
         this.pedidoId = pedido.getId();
+        this.versao = pedido.getVersao();
         this.codigoPedido = pedido.getCodigo();
         this.valorTerceirizado = pedido.getValorTerceirizado();
         this.percentualTerceirizado = pedido.getPercentualTerceirizado();
@@ -99,4 +103,10 @@ public class TerceirizacaoResponseDTO {
 
     public LocalDateTime getDataConclusao() { return dataConclusao; }
     public void setDataConclusao(LocalDateTime dataConclusao) { this.dataConclusao = dataConclusao; }
-}
\ No newline at end of file
+
+    public Long getVersao() { return versao; }
+    public void setVersao(Long versao) { this.versao = versao; }
+
+    public List<ProteticoSimplesDTO> getOfertas() { return ofertas; }
+    public void setOfertas(List<ProteticoSimplesDTO> ofertas) { this.ofertas = ofertas; }
+}
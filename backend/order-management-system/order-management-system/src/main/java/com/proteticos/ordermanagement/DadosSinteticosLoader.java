@@ -0,0 +1,21 @@
+package com.proteticos.ordermanagement;
+
+import com.proteticos.ordermanagement.service.GeradorDadosSinteticosService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+// Substitui o DataLoader em testes de carga: --spring.profiles.active=sintetico
+@Component
+@Profile("sintetico")
+public class DadosSinteticosLoader implements CommandLineRunner {
+
+    @Autowired
+    private GeradorDadosSinteticosService geradorDadosSinteticosService;
+
+    @Override
+    public void run(String... args) throws Exception {
+        geradorDadosSinteticosService.gerar();
+    }
+}
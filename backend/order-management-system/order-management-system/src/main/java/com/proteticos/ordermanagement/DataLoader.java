@@ -7,12 +7,15 @@ import com.proteticos.ordermanagement.repository.DentistaRepository;
 import com.proteticos.ordermanagement.repository.ProteticoRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.util.HashSet;
 
+// Dados mínimos de desenvolvimento; no profile "sintetico" quem carrega é o DadosSinteticosLoader
 @Component
+@Profile("!sintetico")
 public class DataLoader implements CommandLineRunner {
 
     @Autowired
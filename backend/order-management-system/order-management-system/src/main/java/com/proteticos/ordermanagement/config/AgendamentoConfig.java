@@ -0,0 +1,13 @@
+package com.proteticos.ordermanagement.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Habilita tarefas @Scheduled (recarga do monitor de atrasos, etc.) e métodos @Async.
+// Com spring.threads.virtual.enabled=true, ambos rodam em virtual threads (ver application.properties)
+@Configuration
+@EnableScheduling
+@EnableAsync
+public class AgendamentoConfig {
+}
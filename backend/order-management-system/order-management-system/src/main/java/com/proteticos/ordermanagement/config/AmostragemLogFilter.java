@@ -0,0 +1,77 @@
+package com.proteticos.ordermanagement.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Amostragem de log por categoria (prefixo do nome do logger), configurada em logback-spring.xml.
+ *
+ * Formato: "prefixo:N,prefixo:N" - mantém em média 1 de cada N eventos INFO/DEBUG/TRACE da
+ * categoria; o prefixo mais específico vence. WARN e ERROR nunca são descartados.
+ *
+ * Roda antes de o evento ser criado (TurboFilter), então um evento descartado não formata
+ * mensagem nem aloca. O sorteio usa ThreadLocalRandom para não haver contenção entre threads.
+ */
+public class AmostragemLogFilter extends TurboFilter {
+
+    private static final int SEM_AMOSTRAGEM = 1;
+
+    private final Map<String, Integer> taxaPorPrefixo = new LinkedHashMap<>();
+
+    // Taxa resolvida por logger: o casamento de prefixos acontece uma vez por nome
+    private final Map<String, Integer> taxaPorLogger = new ConcurrentHashMap<>();
+
+    public void setAmostragem(String configuracao) {
+        taxaPorPrefixo.clear();
+        taxaPorLogger.clear();
+        if (configuracao == null || configuracao.isBlank()) {
+            return;
+        }
+        for (String item : configuracao.split(",")) {
+            int separador = item.lastIndexOf(':');
+            if (separador <= 0) {
+                addWarn("Amostragem ignorada (esperado prefixo:N): " + item);
+                continue;
+            }
+            try {
+                int taxa = Integer.parseInt(item.substring(separador + 1).trim());
+                taxaPorPrefixo.put(item.substring(0, separador).trim(), Math.max(SEM_AMOSTRAGEM, taxa));
+            } catch (NumberFormatException e) {
+                addWarn("Amostragem ignorada (taxa inválida): " + item);
+            }
+        }
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (taxaPorPrefixo.isEmpty() || level == null || level.isGreaterOrEqual(Level.WARN)) {
+            return FilterReply.NEUTRAL;
+        }
+        int taxa = taxaPorLogger.computeIfAbsent(logger.getName(), this::resolverTaxa);
+        if (taxa == SEM_AMOSTRAGEM || ThreadLocalRandom.current().nextInt(taxa) == 0) {
+            return FilterReply.NEUTRAL;
+        }
+        return FilterReply.DENY;
+    }
+
+    private int resolverTaxa(String nomeLogger) {
+        int taxa = SEM_AMOSTRAGEM;
+        int maiorPrefixo = -1;
+        for (Map.Entry<String, Integer> entrada : taxaPorPrefixo.entrySet()) {
+            String prefixo = entrada.getKey();
+            if (nomeLogger.startsWith(prefixo) && prefixo.length() > maiorPrefixo) {
+                maiorPrefixo = prefixo.length();
+                taxa = entrada.getValue();
+            }
+        }
+        return taxa;
+    }
+}
@@ -0,0 +1,90 @@
+package com.proteticos.ordermanagement.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache de segundo nível do Hibernate (JCache + Caffeine) para as entidades de referência,
+ * que mudam pouco e são relidas por id em quase toda requisição.
+ *
+ * Cada região tem tamanho máximo e TTL (app.cache.*) e estatísticas expostas no Micrometer
+ * (cache.gets{result=hit|miss}, cache.puts, cache.removals com tag cache=<região>).
+ * READ_WRITE: alterações via Hibernate (save/delete, JPQL em massa) atualizam ou invalidam a região
+ * no commit; escritas por JDBC direto precisam chamar evictAllRegions (ver GeradorDadosSinteticosService).
+ */
+@Configuration
+public class CacheSegundoNivelConfig {
+
+    // Usuario é a raiz da herança JOINED: Protetico e Dentista ficam na mesma região
+    public static final String REGIAO_USUARIO = "usuario";
+    public static final String REGIAO_ESPECIALIDADES = "protetico.especialidadesTerceirizacao";
+    public static final String REGIAO_SERVICO_PROTETICO = "servicoProtetico";
+
+    // Regiões padrão do cache de consultas
+    private static final String REGIAO_CONSULTAS = "default-query-results-region";
+    private static final String REGIAO_TIMESTAMPS = "default-update-timestamps-region";
+
+    @Bean
+    public CacheManager cacheSegundoNivel(
+            MeterRegistry meterRegistry,
+            @Value("${app.cache.entidades.maximo:20000}") long maximoEntidades,
+            @Value("${app.cache.entidades.ttl-minutos:30}") long ttlEntidades,
+            @Value("${app.cache.consultas.maximo:5000}") long maximoConsultas,
+            @Value("${app.cache.consultas.ttl-minutos:10}") long ttlConsultas) {
+
+        CacheManager cacheManager = Caching
+                .getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager();
+
+        criar(cacheManager, meterRegistry, REGIAO_USUARIO, maximoEntidades, ttlEntidades);
+        criar(cacheManager, meterRegistry, REGIAO_ESPECIALIDADES, maximoEntidades, ttlEntidades);
+        criar(cacheManager, meterRegistry, REGIAO_SERVICO_PROTETICO, maximoEntidades, ttlEntidades);
+        criar(cacheManager, meterRegistry, REGIAO_CONSULTAS, maximoConsultas, ttlConsultas);
+        // Um registro por tabela; sem limite nem expiração, senão consultas em cache viram obsoletas
+        criar(cacheManager, meterRegistry, REGIAO_TIMESTAMPS, 0, 0);
+
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer cacheSegundoNivelCustomizer(CacheManager cacheSegundoNivel) {
+        return propriedades -> {
+            propriedades.put("hibernate.cache.region.factory_class", ConfigSettings.SIMPLE_FACTORY_NAME);
+            propriedades.put(ConfigSettings.CACHE_MANAGER, cacheSegundoNivel);
+            propriedades.put("hibernate.cache.use_second_level_cache", "true");
+            propriedades.put("hibernate.cache.use_query_cache", "true");
+        };
+    }
+
+    // maximo/ttl = 0: sem limite
+    private static void criar(CacheManager cacheManager, MeterRegistry meterRegistry, String regiao,
+                              long maximo, long ttlMinutos) {
+        CaffeineConfiguration<Object, Object> configuracao = new CaffeineConfiguration<>();
+        if (maximo > 0) {
+            configuracao.setMaximumSize(OptionalLong.of(maximo));
+        }
+        if (ttlMinutos > 0) {
+            configuracao.setExpireAfterWrite(OptionalLong.of(TimeUnit.MINUTES.toNanos(ttlMinutos)));
+        }
+        // As entradas do Hibernate já são cópias desmontadas e imutáveis: sem cópia por serialização
+        configuracao.setStoreByValue(false);
+        configuracao.setStatisticsEnabled(true);
+
+        Cache<Object, Object> cache = cacheManager.createCache(regiao, configuracao);
+        JCacheMetrics.monitor(meterRegistry, cache, Tags.of("camada", "hibernate-l2"));
+    }
+}
@@ -0,0 +1,103 @@
+package com.proteticos.ordermanagement.config;
+
+import com.proteticos.ordermanagement.service.GeradorCodigoPedido;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Define o identificador deste nó para os códigos de pedido.
+ *
+ * Usa app.pedido.codigo.no se configurado; caso contrário arrenda uma linha livre de
+ * no_codigo_pedido (migração V4): renovada a cada app.pedido.codigo.renovacao-ms, liberada no
+ * desligamento e dada como livre após app.pedido.codigo.validade-ms sem renovação (instância que caiu).
+ * Sem nó disponível a inicialização falha: um nó aleatório ou repetido geraria códigos duplicados.
+ */
+@Configuration
+public class CodigoPedidoConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(CodigoPedidoConfig.class);
+
+    // Linha livre ou vencida; SKIP LOCKED: instâncias subindo juntas não disputam a mesma linha
+    private static final String ARRENDAR =
+            "UPDATE no_codigo_pedido SET instancia = ?, renovado_em = now() WHERE numero = (" +
+            "SELECT numero FROM no_codigo_pedido " +
+            "WHERE renovado_em IS NULL OR renovado_em < now() - ? * interval '1 millisecond' " +
+            "ORDER BY renovado_em NULLS FIRST, numero LIMIT 1 FOR UPDATE SKIP LOCKED) " +
+            "RETURNING numero";
+
+    private static final String RENOVAR =
+            "UPDATE no_codigo_pedido SET renovado_em = now() WHERE numero = ? AND instancia = ?";
+
+    private static final String LIBERAR =
+            "UPDATE no_codigo_pedido SET instancia = NULL, renovado_em = NULL WHERE numero = ? AND instancia = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.pedido.codigo.no:-1}")
+    private int noConfigurado;
+
+    @Value("${app.pedido.codigo.validade-ms:300000}")
+    private long validadeMs;
+
+    // Dono da linha arrendada: a renovação só vale enquanto a linha continua desta instância
+    private final String instancia = UUID.randomUUID().toString();
+    private volatile boolean arrendado;
+
+    @PostConstruct
+    public void definirNo() {
+        if (noConfigurado >= 0) {
+            GeradorCodigoPedido.definirNo(noConfigurado);
+        } else {
+            GeradorCodigoPedido.definirNo(arrendarNo());
+            arrendado = true;
+        }
+        log.atInfo()
+                .addKeyValue("no", GeradorCodigoPedido.getNo())
+                .addKeyValue("arrendado", arrendado)
+                .log("Nó dos códigos de pedido definido");
+    }
+
+    @Scheduled(fixedDelayString = "${app.pedido.codigo.renovacao-ms:60000}",
+            initialDelayString = "${app.pedido.codigo.renovacao-ms:60000}")
+    public void renovar() {
+        if (!arrendado) {
+            return;
+        }
+        int no = GeradorCodigoPedido.getNo();
+        if (jdbcTemplate.update(RENOVAR, no, instancia) == 0) {
+            // Ficou além da validade sem renovar e outra instância assumiu a linha: arrenda outra
+            GeradorCodigoPedido.definirNo(arrendarNo());
+            log.atWarn()
+                    .addKeyValue("noAnterior", no)
+                    .addKeyValue("no", GeradorCodigoPedido.getNo())
+                    .log("Arrendamento do nó dos códigos de pedido perdido; novo nó arrendado");
+        }
+    }
+
+    @PreDestroy
+    public void liberar() {
+        if (arrendado) {
+            jdbcTemplate.update(LIBERAR, GeradorCodigoPedido.getNo(), instancia);
+        }
+    }
+
+    private int arrendarNo() {
+        List<Integer> nos = jdbcTemplate.queryForList(ARRENDAR, Integer.class, instancia, validadeMs);
+        if (nos.isEmpty()) {
+            throw new RuntimeException("Nenhum identificador de nó livre para códigos de pedido: os "
+                    + GeradorCodigoPedido.MAXIMO_NOS + " estão arrendados; defina app.pedido.codigo.no");
+        }
+        return nos.get(0);
+    }
+}
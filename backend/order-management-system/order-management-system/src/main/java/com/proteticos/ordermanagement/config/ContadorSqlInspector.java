@@ -0,0 +1,28 @@
+package com.proteticos.ordermanagement.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Conta os comandos SQL preparados pela thread atual. Não altera o SQL.
+ *
+ * Hibernate Statistics só dá totais globais; este contador por thread permite
+ * atribuir as consultas à requisição HTTP que as gerou.
+ */
+public class ContadorSqlInspector implements StatementInspector {
+
+    private static final ThreadLocal<int[]> CONTADOR = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Override
+    public String inspect(String sql) {
+        CONTADOR.get()[0]++;
+        return sql;
+    }
+
+    public static void zerar() {
+        CONTADOR.get()[0] = 0;
+    }
+
+    public static int total() {
+        return CONTADOR.get()[0];
+    }
+}
@@ -0,0 +1,96 @@
+package com.proteticos.ordermanagement.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Detecta virtual threads presas ao carrier (pinning) via JFR, evento jdk.VirtualThreadPinned.
+ *
+ * Pinning acontece ao bloquear (JDBC, I/O, lock) dentro de synchronized ou de código nativo:
+ * a carrier thread fica ocupada e a vantagem das virtual threads some. Por isso o código da
+ * aplicação usa ReentrantLock em vez de synchronized.
+ *
+ * Cada ocorrência acima do limite incrementa threads.virtuais.fixadas (testes de carga devem
+ * terminar com zero) e loga as primeiras frames da pilha. Ligado por
+ * app.threads.diagnostico-pinning=true. No build, PinningVirtualThreadsIT grava o mesmo evento
+ * sem limite de duração e falha com qualquer ocorrência.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.threads.diagnostico-pinning", havingValue = "true")
+public class DiagnosticoPinningConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(DiagnosticoPinningConfig.class);
+
+    private static final String EVENTO_PINNING = "jdk.VirtualThreadPinned";
+    private static final int FRAMES_NO_LOG = 12;
+
+    private final Counter fixadas;
+    private final Duration limite;
+    private RecordingStream stream;
+
+    public DiagnosticoPinningConfig(MeterRegistry registry,
+                                    @Value("${app.threads.diagnostico-pinning-limite-ms:20}") long limiteMs) {
+        this.fixadas = Counter.builder("threads.virtuais.fixadas")
+                .description("Virtual threads que bloquearam presas à carrier thread (JFR jdk.VirtualThreadPinned)")
+                .register(registry);
+        this.limite = Duration.ofMillis(limiteMs);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        stream = new RecordingStream();
+        stream.enable(EVENTO_PINNING).withThreshold(limite).withStackTrace();
+        stream.onEvent(EVENTO_PINNING, this::registrar);
+        stream.startAsync();
+        log.atInfo().addKeyValue("limiteMs", limite.toMillis()).log("Diagnóstico de pinning de virtual threads ativo");
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void registrar(RecordedEvent evento) {
+        fixadas.increment();
+        log.atWarn()
+                .addKeyValue("duracaoMs", evento.getDuration().toMillis())
+                .addKeyValue("thread", () -> evento.getThread() != null ? evento.getThread().getJavaName() : null)
+                .log("Virtual thread presa à carrier thread:\n{}", formatarPilha(evento.getStackTrace()));
+    }
+
+    private static String formatarPilha(RecordedStackTrace pilha) {
+        if (pilha == null) {
+            return "    (sem pilha)";
+        }
+        StringBuilder texto = new StringBuilder();
+        List<RecordedFrame> frames = pilha.getFrames();
+        for (int i = 0; i < Math.min(FRAMES_NO_LOG, frames.size()); i++) {
+            RecordedFrame frame = frames.get(i);
+            texto.append("    at ")
+                    .append(frame.getMethod().getType().getName())
+                    .append('.')
+                    .append(frame.getMethod().getName())
+                    .append(':')
+                    .append(frame.getLineNumber())
+                    .append('\n');
+        }
+        return texto.toString();
+    }
+}
@@ -0,0 +1,42 @@
+package com.proteticos.ordermanagement.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Identifica o cliente da requisição para o RoteamentoLeituraDataSource, que manda as leituras
+ * de quem acabou de escrever para o primário (read-your-writes).
+ *
+ * Cliente = token de sessão (Authorization), senão o header usuarioId, senão o IP. Clientes
+ * diferentes atrás do mesmo IP só perdem leituras na réplica, nunca leem dado velho.
+ */
+public class LeituraPropriaFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RoteamentoLeituraDataSource.definirCliente(cliente(request));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RoteamentoLeituraDataSource.limparCliente();
+        }
+    }
+
+    private static String cliente(HttpServletRequest request) {
+        String autorizacao = request.getHeader("Authorization");
+        if (autorizacao != null && !autorizacao.isBlank()) {
+            return "token:" + autorizacao;
+        }
+        String usuarioId = request.getHeader("usuarioId");
+        if (usuarioId != null && !usuarioId.isBlank()) {
+            return "usuario:" + usuarioId;
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
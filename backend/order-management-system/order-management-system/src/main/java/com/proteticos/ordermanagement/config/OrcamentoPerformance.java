@@ -0,0 +1,32 @@
+package com.proteticos.ordermanagement.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Orçamento de performance declarado no endpoint (valores negativos = sem limite).
+ *
+ * Verificado pelo OrcamentoPerformanceInterceptor quando app.perf.orcamentos.habilitado=true;
+ * violações aparecem em GET /api/perf/orcamentos.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface OrcamentoPerformance {
+
+    /** Máximo de comandos SQL por requisição (inclui lazy loading durante a serialização). */
+    int maxSql() default -1;
+
+    /** p95 máximo de latência, em milissegundos. */
+    long p95Ms() default -1;
+
+    /**
+     * p95 só relatado, sem contar para {@code dentroDoOrcamento}: para listagens sem limite, cuja
+     * latência cresce com a base; o orçamento de latência fica no endpoint paginado equivalente.
+     */
+    boolean p95Informativo() default false;
+
+    /** Máximo de bytes alocados pela thread da requisição. */
+    long maxBytes() default -1;
+}
@@ -0,0 +1,44 @@
+package com.proteticos.ordermanagement.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Verificação de orçamentos de performance por endpoint (ver {@link OrcamentoPerformance}).
+ *
+ * Desligada por padrão. No build, OrcamentoPerformanceIT liga a verificação (profile "teste"),
+ * exercita os endpoints contra a massa sintética e faz o mvn verify falhar se algum ficar com
+ * dentroDoOrcamento=false; em outro ambiente o mesmo relatório sai em GET /api/perf/orcamentos.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.perf.orcamentos.habilitado", havingValue = "true")
+public class OrcamentoPerformanceConfig {
+
+    @Bean
+    public RegistroOrcamentos registroOrcamentos(
+            @Value("${app.perf.orcamentos.estrito:false}") boolean estrito) {
+        return new RegistroOrcamentos(estrito);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer contadorSqlCustomizer() {
+        return propriedades -> propriedades.put(
+                "hibernate.session_factory.statement_inspector", new ContadorSqlInspector());
+    }
+
+    @Bean
+    public WebMvcConfigurer orcamentoPerformanceWebConfigurer(RegistroOrcamentos registro) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(new OrcamentoPerformanceInterceptor(registro))
+                        .addPathPatterns("/api/**");
+            }
+        };
+    }
+}
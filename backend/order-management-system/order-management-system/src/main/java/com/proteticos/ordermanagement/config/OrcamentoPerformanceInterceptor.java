@@ -0,0 +1,81 @@
+package com.proteticos.ordermanagement.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Mede comandos SQL, latência e bytes alocados de cada requisição a endpoints com
+ * {@link OrcamentoPerformance} e registra o resultado no RegistroOrcamentos.
+ */
+public class OrcamentoPerformanceInterceptor implements HandlerInterceptor {
+
+    private static final String ATRIBUTO_INICIO = OrcamentoPerformanceInterceptor.class.getName() + ".inicio";
+    private static final String ATRIBUTO_BYTES = OrcamentoPerformanceInterceptor.class.getName() + ".bytes";
+
+    // Alocação por thread é extensão da HotSpot e não existe para virtual threads; sem ela a medição
+    // é -1 e o RegistroOrcamentos marca o orçamento de bytes como não medido
+    private static final com.sun.management.ThreadMXBean THREADS = threadMXBean();
+
+    private final RegistroOrcamentos registro;
+
+    public OrcamentoPerformanceInterceptor(RegistroOrcamentos registro) {
+        this.registro = registro;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (orcamento(handler) != null) {
+            ContadorSqlInspector.zerar();
+            request.setAttribute(ATRIBUTO_BYTES, bytesAlocados());
+            request.setAttribute(ATRIBUTO_INICIO, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+                                Object handler, Exception ex) {
+        OrcamentoPerformance orcamento = orcamento(handler);
+        Long inicio = (Long) request.getAttribute(ATRIBUTO_INICIO);
+        if (orcamento == null || inicio == null) {
+            return;
+        }
+
+        long nanos = System.nanoTime() - inicio;
+        int sql = ContadorSqlInspector.total();
+        Long bytesInicio = (Long) request.getAttribute(ATRIBUTO_BYTES);
+        long bytes = bytesInicio != null && bytesInicio >= 0 ? bytesAlocados() - bytesInicio : -1;
+
+        String padrao = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String endpoint = request.getMethod() + " " + (padrao != null ? padrao : request.getRequestURI());
+
+        registro.registrar(endpoint, orcamento, nanos, sql, bytes);
+    }
+
+    private static OrcamentoPerformance orcamento(Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return null;
+        }
+        return ((HandlerMethod) handler).getMethodAnnotation(OrcamentoPerformance.class);
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            if (bean.isThreadAllocatedMemorySupported()) {
+                return bean;
+            }
+        }
+        return null;
+    }
+
+    private static long bytesAlocados() {
+        Thread atual = Thread.currentThread();
+        return THREADS != null && !atual.isVirtual() ? THREADS.getThreadAllocatedBytes(atual.threadId()) : -1;
+    }
+}
@@ -0,0 +1,148 @@
+package com.proteticos.ordermanagement.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Acumula as medições por endpoint e compara com o orçamento declarado.
+ *
+ * Latência: janela circular das últimas {@value #JANELA} requisições, p95 calculado sob demanda
+ * (só relatado quando o orçamento é {@code p95Informativo}).
+ * SQL e bytes: cada requisição acima do limite conta como violação.
+ *
+ * Bytes alocados só são medidos em threads de plataforma: em virtual threads a medição volta -1
+ * e o orçamento de bytes fica sem verificação, indicado por {@code bytesMedidos=false} no relatório.
+ */
+public class RegistroOrcamentos {
+
+    private static final Logger log = LoggerFactory.getLogger(RegistroOrcamentos.class);
+
+    static final int JANELA = 1024;
+
+    // Abaixo disso o p95 ainda não é representativo e não é cobrado
+    private static final int AMOSTRAS_MINIMAS_P95 = 20;
+
+    private final boolean estrito;
+    private final Map<String, Estatistica> porEndpoint = new ConcurrentHashMap<>();
+    private final AtomicBoolean avisoBytesNaoMedidos = new AtomicBoolean();
+
+    public RegistroOrcamentos(boolean estrito) {
+        this.estrito = estrito;
+    }
+
+    void registrar(String endpoint, OrcamentoPerformance orcamento, long nanos, int sql, long bytes) {
+        Estatistica estatistica = porEndpoint.computeIfAbsent(endpoint, e -> new Estatistica(orcamento));
+        boolean violou = estatistica.registrar(nanos, sql, bytes);
+
+        if (violou && estrito) {
+            log.atWarn()
+                    .addKeyValue("endpoint", endpoint)
+                    .addKeyValue("sql", sql)
+                    .addKeyValue("maxSql", orcamento.maxSql())
+                    .addKeyValue("bytes", bytes)
+                    .addKeyValue("maxBytes", orcamento.maxBytes())
+                    .log("Orçamento de performance estourado");
+        }
+        if (bytes < 0 && orcamento.maxBytes() >= 0 && avisoBytesNaoMedidos.compareAndSet(false, true)) {
+            log.atWarn()
+                    .addKeyValue("endpoint", endpoint)
+                    .log("Alocação por thread indisponível (virtual threads?): orçamentos maxBytes não são verificados");
+        }
+    }
+
+    /** Relatório por endpoint; {@code dentroDoOrcamento=false} deve falhar a verificação no CI. */
+    public Map<String, Map<String, Object>> relatorio() {
+        Map<String, Map<String, Object>> relatorio = new TreeMap<>();
+        porEndpoint.forEach((endpoint, estatistica) -> relatorio.put(endpoint, estatistica.resumo()));
+        return relatorio;
+    }
+
+    public void limpar() {
+        porEndpoint.clear();
+    }
+
+    private static final class Estatistica {
+        private final OrcamentoPerformance orcamento;
+        private final long[] latencias = new long[JANELA];
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private long chamadas;
+        private int maxSql;
+        private long maxBytes = -1;
+        private long violacoesSql;
+        private long violacoesBytes;
+        private long bytesNaoMedidos;
+
+        Estatistica(OrcamentoPerformance orcamento) {
+            this.orcamento = orcamento;
+        }
+
+        boolean registrar(long nanos, int sql, long bytes) {
+            boolean violouSql = orcamento.maxSql() >= 0 && sql > orcamento.maxSql();
+            boolean violouBytes = orcamento.maxBytes() >= 0 && bytes > orcamento.maxBytes();
+            boolean semMedicaoBytes = orcamento.maxBytes() >= 0 && bytes < 0;
+
+            lock.lock();
+            try {
+                latencias[(int) (chamadas % JANELA)] = nanos;
+                chamadas++;
+                maxSql = Math.max(maxSql, sql);
+                maxBytes = Math.max(maxBytes, bytes);
+                if (violouSql) violacoesSql++;
+                if (violouBytes) violacoesBytes++;
+                if (semMedicaoBytes) bytesNaoMedidos++;
+            } finally {
+                lock.unlock();
+            }
+            return violouSql || violouBytes;
+        }
+
+        Map<String, Object> resumo() {
+            long[] amostras;
+            Map<String, Object> resumo = new LinkedHashMap<>();
+
+            lock.lock();
+            try {
+                amostras = Arrays.copyOf(latencias, (int) Math.min(chamadas, JANELA));
+                resumo.put("chamadas", chamadas);
+                resumo.put("maxSql", maxSql);
+                resumo.put("maxBytes", maxBytes);
+                resumo.put("violacoesSql", violacoesSql);
+                resumo.put("violacoesBytes", violacoesBytes);
+                // Orçamento de bytes declarado mas não verificado em alguma requisição
+                resumo.put("bytesMedidos", bytesNaoMedidos == 0);
+            } finally {
+                lock.unlock();
+            }
+
+            Arrays.sort(amostras);
+            double p95Ms = amostras.length == 0
+                    ? 0
+                    : amostras[(int) Math.ceil(amostras.length * 0.95) - 1] / 1_000_000.0;
+            boolean p95Acima = orcamento.p95Ms() >= 0
+                    && amostras.length >= AMOSTRAS_MINIMAS_P95
+                    && p95Ms > orcamento.p95Ms();
+            // Informativo: fica visível no relatório, mas não tira o endpoint do orçamento
+            boolean p95Estourado = p95Acima && !orcamento.p95Informativo();
+
+            resumo.put("p95Ms", p95Ms);
+            resumo.put("p95AcimaDoOrcamento", p95Acima);
+            resumo.put("orcamento", Map.of(
+                    "maxSql", orcamento.maxSql(),
+                    "p95Ms", orcamento.p95Ms(),
+                    "p95Informativo", orcamento.p95Informativo(),
+                    "maxBytes", orcamento.maxBytes()));
+            resumo.put("dentroDoOrcamento",
+                    (long) resumo.get("violacoesSql") == 0 && (long) resumo.get("violacoesBytes") == 0 && !p95Estourado);
+            return resumo;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.proteticos.ordermanagement.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Réplicas de leitura: transações @Transactional(readOnly = true) vão para as réplicas de
+ * app.datasource.replicas.urls, o resto para o primário de spring.datasource.* (ver RoteamentoLeituraDataSource).
+ *
+ * Desligado por padrão; sem ele o Spring Boot cria o DataSource único de sempre.
+ * Para testar local: uma segunda instância PostgreSQL (standby ou não) em outra porta.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replicas.habilitado", havingValue = "true")
+public class ReplicaLeituraConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLeituraConfig.class);
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSourcePrimario(DataSourceProperties propriedades, MeterRegistry meterRegistry) {
+        HikariDataSource primario = propriedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primario.setPoolName("primario");
+        primario.setMetricRegistry(meterRegistry);
+        return primario;
+    }
+
+    @Bean
+    public RoteamentoLeituraDataSource roteamentoLeitura(
+            HikariDataSource dataSourcePrimario,
+            DataSourceProperties propriedades,
+            MeterRegistry meterRegistry,
+            @Value("${app.datasource.replicas.urls}") List<String> urls,
+            @Value("${app.datasource.replicas.usuario:${spring.datasource.username}}") String usuario,
+            @Value("${app.datasource.replicas.senha:${spring.datasource.password}}") String senha,
+            @Value("${app.datasource.replicas.tamanho-pool:10}") int tamanhoPool,
+            @Value("${app.datasource.replicas.atraso-maximo-ms:1000}") long atrasoMaximoMs,
+            @Value("${app.datasource.replicas.leitura-propria-ms:5000}") long leituraPropriaMs) {
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (String url : urls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setJdbcUrl(url.trim());
+            replica.setDriverClassName(propriedades.determineDriverClassName());
+            replica.setUsername(usuario);
+            replica.setPassword(senha);
+            replica.setMaximumPoolSize(tamanhoPool);
+            replica.setReadOnly(true);
+            replica.setMetricRegistry(meterRegistry);
+            replicas.put(replica.getPoolName(), replica);
+        }
+
+        log.atInfo()
+                .addKeyValue("replicas", replicas.size())
+                .addKeyValue("atrasoMaximoMs", atrasoMaximoMs)
+                .addKeyValue("leituraPropriaMs", leituraPropriaMs)
+                .log("Roteamento de leitura configurado");
+        return new RoteamentoLeituraDataSource(dataSourcePrimario, replicas, atrasoMaximoMs, leituraPropriaMs,
+                meterRegistry);
+    }
+
+    // DataSource usado por JPA, JdbcTemplate e transações. A conexão real só é obtida no primeiro
+    // comando, depois de o JpaTransactionManager marcar a transação como readOnly
+    @Bean
+    @Primary
+    public DataSource dataSource(RoteamentoLeituraDataSource roteamentoLeitura) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy();
+        proxy.setTargetDataSource(roteamentoLeitura);
+        // Padrões do Hikari/PostgreSQL: sem eles o proxy abriria uma conexão só para descobri-los
+        proxy.setDefaultAutoCommit(true);
+        proxy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        return proxy;
+    }
+
+    // Com open-in-view a sessão dura a requisição inteira; segurando a conexão até o fim dela, uma
+    // transação de escrita depois de uma readOnly reaproveitaria a conexão da réplica
+    @Bean
+    public HibernatePropertiesCustomizer liberacaoConexaoCustomizer() {
+        return propriedades -> propriedades.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Bean
+    public FilterRegistrationBean<LeituraPropriaFilter> leituraPropriaFilter() {
+        FilterRegistrationBean<LeituraPropriaFilter> registro = new FilterRegistrationBean<>(new LeituraPropriaFilter());
+        registro.addUrlPatterns("/api/*");
+        registro.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registro;
+    }
+}
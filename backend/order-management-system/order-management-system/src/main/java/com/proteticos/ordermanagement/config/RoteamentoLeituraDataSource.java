@@ -0,0 +1,228 @@
+package com.proteticos.ordermanagement.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Envia as transações readOnly para uma réplica de leitura e todo o resto para o primário.
+ *
+ * A decisão é tomada quando a conexão física é obtida: por isso fica atrás de um
+ * LazyConnectionDataSourceProxy (ver ReplicaLeituraConfig), que só busca a conexão no primeiro
+ * comando, quando o flag readOnly da transação já está definido.
+ *
+ * Leitura vai para o primário quando:
+ * - nenhuma réplica está dentro do atraso máximo (verificado a cada app.datasource.replicas.verificacao-ms);
+ * - o cliente da requisição (LeituraPropriaFilter) fez commit de uma escrita há menos de
+ *   app.datasource.replicas.leitura-propria-ms, para que ele leia o que acabou de gravar.
+ */
+public class RoteamentoLeituraDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RoteamentoLeituraDataSource.class);
+
+    static final String PRIMARIO = "primario";
+
+    // Atraso em ms; 0 quando a réplica já aplicou tudo o que recebeu (primário ocioso) ou não é
+    // standby (instância local usada como réplica em teste); null se ainda não aplicou transação alguma
+    private static final String SQL_ATRASO =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0 " +
+            "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000 END";
+
+    // Cliente da requisição atual (definido pelo LeituraPropriaFilter)
+    private static final ThreadLocal<String> CLIENTE = new ThreadLocal<>();
+
+    private final List<Replica> replicas;
+    private final long atrasoMaximoMs;
+    private final long leituraPropriaNanos;
+
+    // Snapshot imutável das réplicas dentro do atraso máximo; vazio até a primeira verificação
+    private volatile Replica[] disponiveis = new Replica[0];
+    private final AtomicInteger proxima = new AtomicInteger();
+
+    // cliente -> System.nanoTime() do último commit de escrita
+    private final Map<String, Long> ultimaEscrita = new ConcurrentHashMap<>();
+
+    private final Counter leiturasReplica;
+    private final Counter leiturasLeituraPropria;
+    private final Counter leiturasSemReplica;
+
+    public RoteamentoLeituraDataSource(DataSource primario, Map<String, DataSource> replicas,
+                                       long atrasoMaximoMs, long leituraPropriaMs, MeterRegistry registry) {
+        this.atrasoMaximoMs = atrasoMaximoMs;
+        this.leituraPropriaNanos = TimeUnit.MILLISECONDS.toNanos(leituraPropriaMs);
+
+        Map<Object, Object> destinos = new HashMap<>();
+        destinos.put(PRIMARIO, primario);
+        List<Replica> lista = new ArrayList<>(replicas.size());
+        for (Map.Entry<String, DataSource> entrada : replicas.entrySet()) {
+            Replica replica = new Replica(entrada.getKey(), entrada.getValue());
+            lista.add(replica);
+            destinos.put(replica.nome, replica.dataSource);
+            Gauge.builder("db.replica.atraso", replica, r -> r.atrasoMs >= 0 ? r.atrasoMs : Double.NaN)
+                    .description("Atraso de replicação da réplica em ms (NaN: indisponível)")
+                    .baseUnit("milliseconds")
+                    .tag("replica", replica.nome)
+                    .register(registry);
+        }
+        this.replicas = List.copyOf(lista);
+        setTargetDataSources(destinos);
+        setDefaultTargetDataSource(primario);
+
+        this.leiturasReplica = contador(registry, "replica", "disponivel");
+        this.leiturasLeituraPropria = contador(registry, PRIMARIO, "leitura-propria");
+        this.leiturasSemReplica = contador(registry, PRIMARIO, "sem-replica");
+    }
+
+    private static Counter contador(MeterRegistry registry, String destino, String motivo) {
+        return Counter.builder("db.leituras.roteadas")
+                .description("Conexões de transações readOnly por destino")
+                .tag("destino", destino)
+                .tag("motivo", motivo)
+                .register(registry);
+    }
+
+    // ============ CLIENTE DA REQUISIÇÃO ============
+
+    public static void definirCliente(String cliente) {
+        CLIENTE.set(cliente);
+    }
+
+    public static void limparCliente() {
+        CLIENTE.remove();
+    }
+
+    // ============ ROTEAMENTO ============
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String cliente = CLIENTE.get();
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            registrarEscrita(cliente);
+            return PRIMARIO;
+        }
+
+        if (cliente != null && escreveuRecentemente(cliente)) {
+            leiturasLeituraPropria.increment();
+            return PRIMARIO;
+        }
+
+        Replica[] atuais = disponiveis;
+        if (atuais.length == 0) {
+            leiturasSemReplica.increment();
+            return PRIMARIO;
+        }
+        leiturasReplica.increment();
+        return atuais[Math.floorMod(proxima.getAndIncrement(), atuais.length)].nome;
+    }
+
+    // Conservador: qualquer transação de escrita que chegou a usar o banco conta, mesmo sem alterar nada
+    private void registrarEscrita(String cliente) {
+        if (cliente == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                ultimaEscrita.put(cliente, System.nanoTime());
+            }
+        });
+    }
+
+    private boolean escreveuRecentemente(String cliente) {
+        Long instante = ultimaEscrita.get(cliente);
+        if (instante == null) {
+            return false;
+        }
+        if (System.nanoTime() - instante > leituraPropriaNanos) {
+            ultimaEscrita.remove(cliente, instante);
+            return false;
+        }
+        return true;
+    }
+
+    // ============ VERIFICAÇÃO DE ATRASO ============
+
+    @Scheduled(fixedDelayString = "${app.datasource.replicas.verificacao-ms:1000}")
+    public void verificarReplicas() {
+        List<Replica> dentroDoLimite = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            long anterior = replica.atrasoMs;
+            replica.atrasoMs = medirAtraso(replica);
+
+            boolean disponivel = replica.atrasoMs >= 0 && replica.atrasoMs <= atrasoMaximoMs;
+            boolean estavaDisponivel = anterior >= 0 && anterior <= atrasoMaximoMs;
+            if (disponivel) {
+                dentroDoLimite.add(replica);
+            }
+            if (disponivel != estavaDisponivel) {
+                log.atWarn()
+                        .addKeyValue("replica", replica.nome)
+                        .addKeyValue("atrasoMs", replica.atrasoMs)
+                        .addKeyValue("atrasoMaximoMs", atrasoMaximoMs)
+                        .log(disponivel ? "Réplica de leitura disponível" : "Réplica de leitura fora do roteamento");
+            }
+        }
+        disponiveis = dentroDoLimite.toArray(new Replica[0]);
+
+        long agora = System.nanoTime();
+        ultimaEscrita.values().removeIf(instante -> agora - instante > leituraPropriaNanos);
+    }
+
+    // -1: réplica inacessível ou atraso desconhecido
+    private static long medirAtraso(Replica replica) {
+        try (Connection conexao = replica.dataSource.getConnection();
+             Statement comando = conexao.createStatement();
+             ResultSet resultado = comando.executeQuery(SQL_ATRASO)) {
+            if (!resultado.next()) {
+                return -1;
+            }
+            double atraso = resultado.getDouble(1);
+            return resultado.wasNull() ? -1 : Math.max(0, Math.round(atraso));
+        } catch (SQLException e) {
+            log.atDebug().addKeyValue("replica", replica.nome).log("Falha ao medir atraso: {}", e.getMessage());
+            return -1;
+        }
+    }
+
+    // O pool do primário é um bean e é fechado pelo Spring; os das réplicas pertencem a esta classe
+    @Override
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable fechavel) {
+                fechavel.close();
+            }
+        }
+    }
+
+    private static final class Replica {
+        private final String nome;
+        private final DataSource dataSource;
+        private volatile long atrasoMs = -1;
+
+        private Replica(String nome, DataSource dataSource) {
+            this.nome = nome;
+            this.dataSource = dataSource;
+        }
+    }
+}
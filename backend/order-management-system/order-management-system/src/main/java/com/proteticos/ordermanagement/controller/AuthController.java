@@ -1,36 +1,50 @@
 // src/main/java/com/proteticos/ordermanagement/controller/AuthController.java
 package com.proteticos.ordermanagement.controller;
 
+import com.proteticos.ordermanagement.DTO.LoginResponseDTO;
+import com.proteticos.ordermanagement.DTO.SessaoDTO;
 import com.proteticos.ordermanagement.model.Usuario;
-import com.proteticos.ordermanagement.repository.UsuarioRepository;
+import com.proteticos.ordermanagement.service.AutenticacaoService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Optional;
+
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
 
     @Autowired
-    private UsuarioRepository usuarioRepository;
+    private AutenticacaoService autenticacaoService;
 
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest) {
-        // CORREÇÃO AQUI: Use orElseThrow() para converter Optional<Usuario> para Usuario
-        Usuario usuario = usuarioRepository.findByEmail(loginRequest.getEmail())
-                .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
-
-        // Ou se preferir com tratamento de null:
-        // Usuario usuario = usuarioRepository.findByEmail(loginRequest.getEmail())
-        //         .orElse(null);
+        Optional<Usuario> usuarioOpt = autenticacaoService.autenticar(
+                loginRequest.getEmail(), loginRequest.getSenha());
 
-        if (usuario == null || !usuario.getSenha().equals(loginRequest.getSenha())) {
+        if (usuarioOpt.isEmpty()) {
             return ResponseEntity.badRequest().body("Credenciais inválidas");
         }
 
-        // ... resto do código de autenticação
+        Usuario usuario = usuarioOpt.get();
+        LoginResponseDTO resposta = new LoginResponseDTO(usuario);
+        resposta.setToken(autenticacaoService.emitirToken(usuario));
+        return ResponseEntity.ok(resposta);
+    }
 
-        return ResponseEntity.ok("Login bem-sucedido");
+    // Valida o token de sessão sem consultar o banco
+    @GetMapping("/sessao")
+    public ResponseEntity<?> sessao(@RequestHeader(value = "Authorization", required = false) String authorization) {
+        String token = authorization != null && authorization.startsWith("Bearer ")
+                ? authorization.substring(7)
+                : authorization;
+
+        Optional<SessaoDTO> sessao = autenticacaoService.validarToken(token);
+        if (sessao.isEmpty()) {
+            return ResponseEntity.status(401).body("Sessão inválida ou expirada");
+        }
+        return ResponseEntity.ok(sessao.get());
     }
 
     // Classe interna para a requisição de login
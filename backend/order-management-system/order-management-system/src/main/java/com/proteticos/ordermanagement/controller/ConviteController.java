@@ -11,6 +11,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -151,6 +152,48 @@ public class ConviteController {
         }
     }
 
+    // ✅ 3b. Gerar convites em lote (onboarding de uma rede de clínicas)
+    @PostMapping("/lote")
+    public ResponseEntity<?> criarConvitesEmLote(
+            @RequestBody CriarConvitesLoteRequest request,
+            @RequestHeader("usuarioId") Long usuarioId) {
+        try {
+            Optional<Usuario> usuarioOpt = usuarioRepository.findById(usuarioId);
+            if (usuarioOpt.isEmpty()) {
+                return ResponseEntity.badRequest().body(
+                        Map.of("error", "Usuário não encontrado")
+                );
+            }
+
+            List<Convite> convites = conviteService.criarConvitesEmLote(
+                    request.getTipo(),
+                    request.getEmails(),
+                    request.getQuantidade() != null ? request.getQuantidade() : 0,
+                    usuarioOpt.get()
+            );
+
+            List<Map<String, Object>> itens = new ArrayList<>(convites.size());
+            for (Convite convite : convites) {
+                Map<String, Object> item = new HashMap<>();
+                item.put("codigo", convite.getCodigo());
+                item.put("emailConvidado", convite.getEmailConvidado());
+                item.put("expiraEm", convite.getExpiraEm());
+                item.put("linkCadastro", "http://localhost:3000/cadastro/" + convite.getCodigo());
+                itens.add(item);
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", convites.size() + " convites gerados com sucesso!");
+            response.put("convites", itens);
+            return ResponseEntity.ok(response);
+
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(
+                    Map.of("error", e.getMessage())
+            );
+        }
+    }
+
     // ✅ 4. Validar convite (para página de cadastro)
     @GetMapping("/{codigo}/validar")
     public ResponseEntity<?> validarConvite(@PathVariable String codigo) {
@@ -236,4 +279,19 @@ public class ConviteController {
         public String getEmailConvidado() { return emailConvidado; }
         public void setEmailConvidado(String emailConvidado) { this.emailConvidado = emailConvidado; }
     }
+
+    public static class CriarConvitesLoteRequest {
+        private UserTipo tipo;
+        private List<String> emails;
+        private Integer quantidade;
+
+        public UserTipo getTipo() { return tipo; }
+        public void setTipo(UserTipo tipo) { this.tipo = tipo; }
+
+        public List<String> getEmails() { return emails; }
+        public void setEmails(List<String> emails) { this.emails = emails; }
+
+        public Integer getQuantidade() { return quantidade; }
+        public void setQuantidade(Integer quantidade) { this.quantidade = quantidade; }
+    }
 }
\ No newline at end of file
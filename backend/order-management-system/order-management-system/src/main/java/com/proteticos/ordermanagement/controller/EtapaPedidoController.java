@@ -1,12 +1,17 @@
 package com.proteticos.ordermanagement.controller;
 
 import com.proteticos.ordermanagement.model.EtapaPedido;
+import com.proteticos.ordermanagement.service.AgendaProducaoService;
+import com.proteticos.ordermanagement.service.ConflitoConcorrenciaException;
 import com.proteticos.ordermanagement.service.EtapaService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/etapas")
@@ -15,12 +20,27 @@ public class EtapaPedidoController {
     @Autowired
     private EtapaService etapaService;
 
+    @Autowired
+    private AgendaProducaoService agendaProducao;
+
     // Buscar todas etapas de um pedido
     @GetMapping("/pedido/{pedidoId}")
     public List<EtapaPedido> buscarEtapasPorPedido(@PathVariable Long pedidoId) {
         return etapaService.buscarEtapasPorPedido(pedidoId);
     }
 
+    // Etapas abertas com prazo vencido (dashboard de atrasos)
+    @GetMapping("/atrasadas")
+    public List<EtapaPedido> buscarEtapasAtrasadas() {
+        return etapaService.buscarEtapasAtrasadas();
+    }
+
+    // Horas de bancada já comprometidas por dia (agenda em memória do protético)
+    @GetMapping("/agenda/{proteticoId}")
+    public Map<LocalDate, Integer> consultarAgenda(@PathVariable Long proteticoId) {
+        return agendaProducao.consultarAgenda(proteticoId);
+    }
+
     // Buscar etapa atual do pedido
     @GetMapping("/pedido/{pedidoId}/atual")
     public ResponseEntity<EtapaPedido> buscarEtapaAtual(@PathVariable Long pedidoId) {
@@ -34,10 +54,14 @@ public class EtapaPedidoController {
     @PostMapping("/{etapaId}/concluir")
     public ResponseEntity<EtapaPedido> concluirEtapa(
             @PathVariable Long etapaId,
-            @RequestParam Long proteticoId) {
+            @RequestParam Long proteticoId,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         try {
-            EtapaPedido etapaConcluida = etapaService.concluirEtapa(etapaId, proteticoId);
-            return ResponseEntity.ok(etapaConcluida);
+            EtapaPedido etapaConcluida = etapaService.concluirEtapa(
+                    etapaId, proteticoId, VersaoHttp.versaoEsperada(ifMatch));
+            return ResponseEntity.ok().eTag(VersaoHttp.etag(etapaConcluida.getVersao())).body(etapaConcluida);
+        } catch (ConflitoConcorrenciaException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().build();
         }
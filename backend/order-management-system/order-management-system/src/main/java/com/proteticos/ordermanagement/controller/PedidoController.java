@@ -1,17 +1,28 @@
 package com.proteticos.ordermanagement.controller;
 
+import com.proteticos.ordermanagement.config.OrcamentoPerformance;
 import com.proteticos.ordermanagement.DTO.CriarPedidoRequest;
+import com.proteticos.ordermanagement.DTO.FiltroPedidoDTO;
+import com.proteticos.ordermanagement.DTO.PaginaCursorDTO;
 import com.proteticos.ordermanagement.DTO.PedidoResponseDTO;
+import com.proteticos.ordermanagement.DTO.PrevisaoEntregaDTO;
 import com.proteticos.ordermanagement.model.Pedido;
 import com.proteticos.ordermanagement.model.StatusPedido;
+import com.proteticos.ordermanagement.model.TipoServico;
 import com.proteticos.ordermanagement.model.Dentista;
 import com.proteticos.ordermanagement.model.Protetico;
 import com.proteticos.ordermanagement.repository.DentistaRepository;
 import com.proteticos.ordermanagement.repository.PedidoRepository;
 import com.proteticos.ordermanagement.repository.ProteticoRepository;
-import com.proteticos.ordermanagement.service.EtapaService;
+import com.proteticos.ordermanagement.service.ConflitoConcorrenciaException;
+import com.proteticos.ordermanagement.service.EstatisticasEtapaService;
+import com.proteticos.ordermanagement.service.MetricasService;
 import com.proteticos.ordermanagement.service.PedidoService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -26,6 +37,8 @@ import java.util.stream.Collectors;
 @CrossOrigin(origins = "http://localhost:3000")
 public class PedidoController {
 
+    private static final Logger log = LoggerFactory.getLogger(PedidoController.class);
+
     @Autowired
     private PedidoRepository pedidoRepository;
 
@@ -36,10 +49,13 @@ public class PedidoController {
     private ProteticoRepository proteticoRepository;
 
     @Autowired
-    private EtapaService etapaService;
+    private PedidoService pedidoService;
 
     @Autowired
-    private PedidoService pedidoService;
+    private MetricasService metricasService;
+
+    @Autowired
+    private EstatisticasEtapaService estatisticasEtapa;
 
     // ============ MÉTODOS DE TESTE SIMPLES (mantidos como estão) ============
     // ... (métodos ping, count-simple, ids, limit, debug-simple permanecem iguais) ...
@@ -47,39 +63,104 @@ public class PedidoController {
     // ============ MÉTODOS PRINCIPAIS ATUALIZADOS ============
 
     // Listar todos os pedidos - RETORNA DTO
+    // Sem paginação: latência e alocação crescem com a base (bytes medidos com 20 mil pedidos); o p95 só é
+    // relatado, o orçamento de latência fica em /pagina, usado pelas telas
+    @OrcamentoPerformance(maxSql = 1, p95Ms = 300, p95Informativo = true, maxBytes = 130_000_000)
     @GetMapping
     public ResponseEntity<List<PedidoResponseDTO>> listarTodos() {
-        List<Pedido> pedidos = pedidoRepository.findAll();
-        List<PedidoResponseDTO> dtos = pedidoService.converterListaParaDTO(pedidos);
+        List<PedidoResponseDTO> dtos = pedidoRepository.listarTodosDTO();
         return ResponseEntity.ok(dtos);
     }
 
+    // Listagem paginada por cursor com filtros combináveis - RETORNA DTO
+    // GET /api/pedidos/pagina?status=APROVADO&proteticoId=1&dataInicio=2025-01-01&limite=20&cursor=...
+    @OrcamentoPerformance(maxSql = 1, p95Ms = 100, maxBytes = 2_000_000)
+    @GetMapping("/pagina")
+    public ResponseEntity<?> listarPaginado(
+            @RequestParam(required = false) StatusPedido status,
+            @RequestParam(required = false) String tipoServico,
+            @RequestParam(required = false) Long dentistaId,
+            @RequestParam(required = false) Long proteticoId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFim,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite) {
+        try {
+            FiltroPedidoDTO filtro = new FiltroPedidoDTO();
+            filtro.setStatus(status);
+            filtro.setTipoServico(TipoServico.fromValue(tipoServico));
+            filtro.setDentistaId(dentistaId);
+            filtro.setProteticoId(proteticoId);
+            filtro.setDataInicio(dataInicio);
+            filtro.setDataFim(dataFim);
+
+            PaginaCursorDTO<PedidoResponseDTO> pagina = pedidoService.listarPaginado(filtro, cursor, limite);
+            return ResponseEntity.ok(pagina);
+
+        } catch (RuntimeException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    // Pedidos abertos com prazo vencido (dashboard de atrasos) - RETORNA DTO
+    @OrcamentoPerformance(maxSql = 1, p95Ms = 100, maxBytes = 8_000_000)
+    @GetMapping("/atrasados")
+    public ResponseEntity<List<PedidoResponseDTO>> listarAtrasados() {
+        return ResponseEntity.ok(pedidoService.buscarAtrasados());
+    }
+
+    // Previsão de conclusão dos pedidos abertos pelo histórico de duração das etapas
+    @OrcamentoPerformance(maxSql = 1, p95Ms = 200, p95Informativo = true, maxBytes = 4_000_000)
+    @GetMapping("/previsoes")
+    public ResponseEntity<List<PrevisaoEntregaDTO>> listarPrevisoes() {
+        return ResponseEntity.ok(estatisticasEtapa.preverPedidosAbertos());
+    }
+
+    @OrcamentoPerformance(maxSql = 1, p95Ms = 50, maxBytes = 500_000)
+    @GetMapping("/{id}/previsao")
+    public ResponseEntity<PrevisaoEntregaDTO> buscarPrevisao(@PathVariable Long id) {
+        PrevisaoEntregaDTO previsao = estatisticasEtapa.preverPedido(id);
+        return previsao != null ? ResponseEntity.ok(previsao) : ResponseEntity.notFound().build();
+    }
+
     // TESTE DIRETO - RETORNA DTO
+    @OrcamentoPerformance(maxSql = 1, p95Ms = 50, maxBytes = 200_000)
     @GetMapping("/teste/{id}")
     public ResponseEntity<PedidoResponseDTO> testePedido(@PathVariable Long id) {
         Optional<Pedido> pedidoOpt = pedidoRepository.findById(id);
-        return pedidoOpt.map(pedido -> ResponseEntity.ok(pedidoService.converterParaDTO(pedido)))
+        return pedidoOpt.map(pedido -> ResponseEntity.ok()
+                        .eTag(VersaoHttp.etag(pedido.getVersao()))
+                        .body(pedidoService.converterParaDTO(pedido)))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     // Buscar pedido por ID - RETORNA DTO
+    @OrcamentoPerformance(maxSql = 1, p95Ms = 50, maxBytes = 200_000)
     @GetMapping("/{id}")
     public ResponseEntity<PedidoResponseDTO> buscarPorId(@PathVariable Long id) {
         Optional<Pedido> pedidoOpt = pedidoRepository.findById(id);
-        return pedidoOpt.map(pedido -> ResponseEntity.ok(pedidoService.converterParaDTO(pedido)))
+        return pedidoOpt.map(pedido -> ResponseEntity.ok()
+                        .eTag(VersaoHttp.etag(pedido.getVersao()))
+                        .body(pedidoService.converterParaDTO(pedido)))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     // Buscar pedido por código - RETORNA DTO
+    @OrcamentoPerformance(maxSql = 1, p95Ms = 50, maxBytes = 300_000)
     @GetMapping("/codigo/{codigo}")
     public ResponseEntity<PedidoResponseDTO> buscarPorCodigo(@PathVariable String codigo) {
         Optional<Pedido> pedidoOpt = pedidoRepository.findByCodigo(codigo);
-        return pedidoOpt.map(pedido -> ResponseEntity.ok(pedidoService.converterParaDTO(pedido)))
+        return pedidoOpt.map(pedido -> ResponseEntity.ok()
+                        .eTag(VersaoHttp.etag(pedido.getVersao()))
+                        .body(pedidoService.converterParaDTO(pedido)))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     // ============ CRIAÇÃO DE PEDIDOS ============
 
+    @OrcamentoPerformance(maxSql = 5, p95Ms = 150, maxBytes = 500_000)
     @PostMapping
     public ResponseEntity<Pedido> criarPedido(@RequestBody Pedido pedido) {
         if (!dentistaRepository.existsById(pedido.getDentista().getId())) {
@@ -89,17 +170,18 @@ public class PedidoController {
             return ResponseEntity.badRequest().build();
         }
 
-        Pedido salvo = pedidoRepository.save(pedido);
-        etapaService.criarEtapasPadrao(salvo);
+        // Pelo serviço: registra o prazo no monitor de atrasos e cria as etapas na mesma transação
+        Pedido salvo = pedidoService.criarPedido(pedido);
         return ResponseEntity.ok(salvo);
     }
 
     // ✅ NOVO MÉTODO SIMPLIFICADO DE CRIAÇÃO
+    @OrcamentoPerformance(maxSql = 4, p95Ms = 150, maxBytes = 500_000)
     @PostMapping("/novo")
     public ResponseEntity<?> criarPedidoNovo(@RequestBody CriarPedidoRequest request) {
         try {
             // Usa o PedidoService para criar (já tem validação e lógica)
-            Pedido pedidoCriado = pedidoService.criarPedido(request);
+            Pedido pedidoCriado = metricasService.cronometrarCriacaoPedido(() -> pedidoService.criarPedido(request));
 
             return ResponseEntity.ok(pedidoCriado);
 
@@ -117,17 +199,20 @@ public class PedidoController {
     // ============ MÉTODOS DE STATUS E ATUALIZAÇÃO (ATUALIZADOS) ============
 
     // ✅ MÉTODO ATUALIZADO - Agora valida transições usando o PedidoService
+    @OrcamentoPerformance(maxSql = 2, p95Ms = 60, maxBytes = 200_000)
     @PutMapping("/{id}/status")
-    public ResponseEntity<?> atualizarStatus(@PathVariable Long id, @RequestParam String status) {
+    public ResponseEntity<?> atualizarStatus(@PathVariable Long id, @RequestParam String status,
+                                             @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         try {
-            System.out.println("=== ATUALIZANDO STATUS ===");
-            System.out.println("Pedido ID: " + id + " | Status recebido: '" + status + "'");
+            Long versaoEsperada = VersaoHttp.versaoEsperada(ifMatch);
+            log.atDebug().addKeyValue("pedidoId", id).addKeyValue("status", status).log("Atualizando status");
 
             // Converte string para enum
             StatusPedido novoStatus;
             try {
                 novoStatus = StatusPedido.valueOf(status.toUpperCase().trim());
             } catch (IllegalArgumentException e) {
+                log.atWarn().addKeyValue("pedidoId", id).addKeyValue("status", status).log("Status inválido");
                 Map<String, Object> error = new HashMap<>();
                 error.put("error", "Status inválido: '" + status + "'");
                 error.put("valid_values", Arrays.toString(StatusPedido.values()));
@@ -135,20 +220,24 @@ public class PedidoController {
             }
 
             // Usa o PedidoService para atualizar (já tem validação)
-            Pedido pedidoAtualizado = pedidoService.atualizarStatus(id, novoStatus);
+            Pedido pedidoAtualizado = pedidoService.atualizarStatus(id, novoStatus, versaoEsperada);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "Status atualizado com sucesso");
             response.put("pedido", pedidoService.converterParaDTO(pedidoAtualizado));
 
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(VersaoHttp.etag(pedidoAtualizado.getVersao())).body(response);
 
+        } catch (ConflitoConcorrenciaException e) {
+            return respostaConflito(id, e);
         } catch (RuntimeException e) {
+            log.atWarn().addKeyValue("pedidoId", id).log("Falha ao atualizar status: {}", e.getMessage());
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
             return ResponseEntity.badRequest().body(error);
         } catch (Exception e) {
+            log.atError().addKeyValue("pedidoId", id).setCause(e).log("Erro interno ao atualizar status");
             Map<String, String> error = new HashMap<>();
             error.put("error", "Erro interno: " + e.getMessage());
             return ResponseEntity.internalServerError().body(error);
@@ -156,18 +245,23 @@ public class PedidoController {
     }
 
     // ✅ NOVO MÉTODO: Aprovar pedido (usa método específico do service)
+    @OrcamentoPerformance(maxSql = 2, p95Ms = 60, maxBytes = 200_000)
     @PutMapping("/{id}/aprovar")
-    public ResponseEntity<?> aprovarPedido(@PathVariable Long id) {
+    public ResponseEntity<?> aprovarPedido(@PathVariable Long id,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         try {
-            Pedido pedidoAprovado = pedidoService.aprovarPedido(id);
+            Long versaoEsperada = VersaoHttp.versaoEsperada(ifMatch);
+            Pedido pedidoAprovado = pedidoService.aprovarPedido(id, versaoEsperada);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "Pedido aprovado com sucesso!");
             response.put("pedido", pedidoService.converterParaDTO(pedidoAprovado));
 
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(VersaoHttp.etag(pedidoAprovado.getVersao())).body(response);
 
+        } catch (ConflitoConcorrenciaException e) {
+            return respostaConflito(id, e);
         } catch (RuntimeException e) {
             Map<String, Object> error = new HashMap<>();
             error.put("success", false);
@@ -182,18 +276,23 @@ public class PedidoController {
     }
 
     // ✅ NOVO MÉTODO: Iniciar produção
+    @OrcamentoPerformance(maxSql = 2, p95Ms = 60, maxBytes = 200_000)
     @PutMapping("/{id}/iniciar-producao")
-    public ResponseEntity<?> iniciarProducao(@PathVariable Long id) {
+    public ResponseEntity<?> iniciarProducao(@PathVariable Long id,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         try {
-            Pedido pedido = pedidoService.iniciarProducao(id);
+            Long versaoEsperada = VersaoHttp.versaoEsperada(ifMatch);
+            Pedido pedido = pedidoService.iniciarProducao(id, versaoEsperada);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "Produção iniciada com sucesso!");
             response.put("pedido", pedidoService.converterParaDTO(pedido));
 
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(VersaoHttp.etag(pedido.getVersao())).body(response);
 
+        } catch (ConflitoConcorrenciaException e) {
+            return respostaConflito(id, e);
         } catch (RuntimeException e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -206,18 +305,23 @@ public class PedidoController {
     }
 
     // ✅ NOVO MÉTODO: Finalizar pedido (usando método específico)
+    @OrcamentoPerformance(maxSql = 4, p95Ms = 120, maxBytes = 600_000)
     @PutMapping("/{id}/finalizar")
-    public ResponseEntity<?> finalizarPedido(@PathVariable Long id) {
+    public ResponseEntity<?> finalizarPedido(@PathVariable Long id,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         try {
-            Pedido pedido = pedidoService.finalizarPedido(id);
+            Long versaoEsperada = VersaoHttp.versaoEsperada(ifMatch);
+            Pedido pedido = pedidoService.finalizarPedido(id, versaoEsperada);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "Pedido finalizado com sucesso!");
             response.put("pedido", pedidoService.converterParaDTO(pedido));
 
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(VersaoHttp.etag(pedido.getVersao())).body(response);
 
+        } catch (ConflitoConcorrenciaException e) {
+            return respostaConflito(id, e);
         } catch (RuntimeException e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -230,18 +334,23 @@ public class PedidoController {
     }
 
     // ✅ NOVO MÉTODO: Cancelar pedido
+    @OrcamentoPerformance(maxSql = 4, p95Ms = 120, maxBytes = 600_000)
     @PutMapping("/{id}/cancelar")
-    public ResponseEntity<?> cancelarPedido(@PathVariable Long id) {
+    public ResponseEntity<?> cancelarPedido(@PathVariable Long id,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         try {
-            Pedido pedido = pedidoService.cancelarPedido(id);
+            Long versaoEsperada = VersaoHttp.versaoEsperada(ifMatch);
+            Pedido pedido = pedidoService.cancelarPedido(id, versaoEsperada);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "Pedido cancelado com sucesso!");
             response.put("pedido", pedidoService.converterParaDTO(pedido));
 
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(VersaoHttp.etag(pedido.getVersao())).body(response);
 
+        } catch (ConflitoConcorrenciaException e) {
+            return respostaConflito(id, e);
         } catch (RuntimeException e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -253,7 +362,19 @@ public class PedidoController {
         }
     }
 
+    // 409: outra requisição mudou o pedido antes (ou o If-Match não bate com a versão atual)
+    private ResponseEntity<Map<String, Object>> respostaConflito(Long id, ConflitoConcorrenciaException e) {
+        log.atWarn().addKeyValue("pedidoId", id).log("Conflito de concorrência: {}", e.getMessage());
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", e.getMessage());
+        if (e.getVersaoAtual() != null) {
+            error.put("versaoAtual", e.getVersaoAtual());
+        }
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+
     // ✅ MÉTODO: Obter próximos status possíveis
+    @OrcamentoPerformance(maxSql = 1, p95Ms = 50, maxBytes = 100_000)
     @GetMapping("/{id}/proximos-status")
     public ResponseEntity<?> getProximosStatus(@PathVariable Long id) {
         try {
@@ -280,50 +401,47 @@ public class PedidoController {
 
     // ============ MÉTODOS DE ATUALIZAÇÃO GERAL ============
 
+    @OrcamentoPerformance(maxSql = 5, p95Ms = 100, maxBytes = 800_000)
     @PutMapping("/{id}")
     public ResponseEntity<?> atualizarPedido(@PathVariable Long id, @RequestBody Map<String, Object> updates) {
         try {
-            Optional<Pedido> pedidoOpt = pedidoRepository.findById(id);
-            if (pedidoOpt.isEmpty()) {
+            if (!pedidoRepository.existsById(id)) {
                 return ResponseEntity.notFound().build();
             }
 
-            Pedido pedido = pedidoOpt.get();
-
-            // Só permite editar se não estiver finalizado ou cancelado
-            if (pedido.getStatus().isEstadoFinal()) {
-                Map<String, String> error = new HashMap<>();
-                error.put("error", "Não é possível editar um pedido finalizado ou cancelado");
-                return ResponseEntity.badRequest().body(error);
-            }
-
             // Atualiza valor
+            BigDecimal valor = null;
             if (updates.containsKey("valorCobrado")) {
                 Object valorObj = updates.get("valorCobrado");
                 if (valorObj instanceof Number) {
-                    BigDecimal valor = BigDecimal.valueOf(((Number) valorObj).doubleValue());
-                    pedido.setValorCobrado(valor);
+                    valor = BigDecimal.valueOf(((Number) valorObj).doubleValue());
                 }
             }
 
             // Atualiza data prevista
+            LocalDate dataPrevista = null;
             if (updates.containsKey("dataPrevistaEntrega")) {
                 String dataStr = updates.get("dataPrevistaEntrega").toString();
                 try {
-                    pedido.setDataPrevistaEntrega(LocalDate.parse(dataStr));
+                    dataPrevista = LocalDate.parse(dataStr);
                 } catch (Exception e) {
                     // Ignora data inválida
                 }
             }
 
             // Atualiza informações detalhadas
-            if (updates.containsKey("informacoesDetalhadas")) {
-                pedido.setInformacoesDetalhadas(updates.get("informacoesDetalhadas").toString());
-            }
+            String informacoes = updates.containsKey("informacoesDetalhadas")
+                    ? updates.get("informacoesDetalhadas").toString() : null;
 
-            Pedido pedidoSalvo = pedidoRepository.save(pedido);
+            // Pelo serviço: a nova data prevista chega ao monitor de atrasos (PrazoAlteradoEvent)
+            Pedido pedidoSalvo = pedidoService.atualizarPedido(id, valor, dataPrevista, informacoes);
             return ResponseEntity.ok(pedidoSalvo);
 
+        } catch (RuntimeException e) {
+            // Pedido finalizado ou cancelado não pode ser editado
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Erro: " + e.getMessage());
@@ -332,26 +450,27 @@ public class PedidoController {
     }
 
     // ============ MÉTODOS DE BUSCA POR RELACIONAMENTO ============
+    // Usam projeção direta em DTO (um SELECT por chamada, sem N+1 em dentista/protético)
 
+    @OrcamentoPerformance(maxSql = 1, p95Ms = 200, p95Informativo = true, maxBytes = 8_000_000)
     @GetMapping("/dentista/{dentistaId}")
     public ResponseEntity<List<PedidoResponseDTO>> listarPorDentista(@PathVariable Long dentistaId) {
-        List<Pedido> pedidos = pedidoRepository.findByDentistaId(dentistaId);
-        List<PedidoResponseDTO> dtos = pedidoService.converterListaParaDTO(pedidos);
+        List<PedidoResponseDTO> dtos = pedidoRepository.listarDTOPorDentista(dentistaId);
         return ResponseEntity.ok(dtos);
     }
 
+    @OrcamentoPerformance(maxSql = 1, p95Ms = 200, p95Informativo = true, maxBytes = 40_000_000)
     @GetMapping("/protetico/{proteticoId}")
     public ResponseEntity<List<PedidoResponseDTO>> listarPorProtetico(@PathVariable Long proteticoId) {
-        List<Pedido> pedidos = pedidoRepository.findByProteticoId(proteticoId);
-        List<PedidoResponseDTO> dtos = pedidoService.converterListaParaDTO(pedidos);
+        List<PedidoResponseDTO> dtos = pedidoRepository.listarDTOPorProtetico(proteticoId);
         return ResponseEntity.ok(dtos);
     }
 
+    @OrcamentoPerformance(maxSql = 1, p95Ms = 200, p95Informativo = true, maxBytes = 6_000_000)
     @GetMapping("/status/{status}")
     public ResponseEntity<List<PedidoResponseDTO>> listarPorStatus(
             @PathVariable StatusPedido status) {
-        List<Pedido> pedidos = pedidoRepository.findByStatusPedido(status); // ← CORREÇÃO
-        List<PedidoResponseDTO> dtos = pedidoService.converterListaParaDTO(pedidos);
+        List<PedidoResponseDTO> dtos = pedidoRepository.listarDTOPorStatus(status);
         return ResponseEntity.ok(dtos);
     }
 
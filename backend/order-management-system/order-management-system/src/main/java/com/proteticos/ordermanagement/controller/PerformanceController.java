@@ -0,0 +1,32 @@
+package com.proteticos.ordermanagement.controller;
+
+import com.proteticos.ordermanagement.config.RegistroOrcamentos;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+// Só existe com app.perf.orcamentos.habilitado=true
+@RestController
+@RequestMapping("/api/perf")
+@ConditionalOnProperty(name = "app.perf.orcamentos.habilitado", havingValue = "true")
+public class PerformanceController {
+
+    @Autowired
+    private RegistroOrcamentos registroOrcamentos;
+
+    // Medições por endpoint x orçamento declarado
+    @GetMapping("/orcamentos")
+    public Map<String, Map<String, Object>> relatorio() {
+        return registroOrcamentos.relatorio();
+    }
+
+    // Zera as medições (ex.: entre o aquecimento e a rodada medida)
+    @DeleteMapping("/orcamentos")
+    public ResponseEntity<?> limpar() {
+        registroOrcamentos.limpar();
+        return ResponseEntity.ok(Map.of("message", "Medições zeradas"));
+    }
+}
@@ -1,5 +1,6 @@
 package com.proteticos.ordermanagement.controller;
 
+import com.proteticos.ordermanagement.config.OrcamentoPerformance;
 import com.proteticos.ordermanagement.DTO.ProteticoDTO;
 import com.proteticos.ordermanagement.model.Protetico;
 import com.proteticos.ordermanagement.service.ProteticoService;
@@ -23,6 +24,7 @@ public class ProteticoController {
      * Lista todos os protéticos
      * GET /api/proteticos
      */
+    @OrcamentoPerformance(maxSql = 1, p95Ms = 60, maxBytes = 1_000_000)
     @GetMapping
     public ResponseEntity<List<ProteticoDTO>> listarTodos() {
         List<ProteticoDTO> proteticos = proteticoService.listarTodos();
@@ -33,6 +35,7 @@ public class ProteticoController {
      * Busca protético por ID
      * GET /api/proteticos/{id}
      */
+    @OrcamentoPerformance(maxSql = 1, p95Ms = 30, maxBytes = 100_000)
     @GetMapping("/{id}")
     public ResponseEntity<ProteticoDTO> buscarPorId(@PathVariable Long id) {
         ProteticoDTO protetico = proteticoService.buscarPorId(id);
@@ -48,6 +51,7 @@ public class ProteticoController {
      * Cria um novo protético
      * POST /api/proteticos
      */
+    @OrcamentoPerformance(maxSql = 4, p95Ms = 500, maxBytes = 20_000_000)
     @PostMapping
     public ResponseEntity<?> criarProtetico(@RequestBody Protetico protetico) {
         try {
@@ -70,6 +74,7 @@ public class ProteticoController {
      * Atualiza um protético existente
      * PUT /api/proteticos/{id}
      */
+    @OrcamentoPerformance(maxSql = 3, p95Ms = 60, maxBytes = 400_000)
     @PutMapping("/{id}")
     public ResponseEntity<?> atualizarProtetico(
             @PathVariable Long id,
@@ -91,6 +96,7 @@ public class ProteticoController {
      * Exclui um protético
      * DELETE /api/proteticos/{id}
      */
+    @OrcamentoPerformance(maxSql = 6, p95Ms = 80, maxBytes = 400_000)
     @DeleteMapping("/{id}")
     public ResponseEntity<?> excluirProtetico(@PathVariable Long id) {
         try {
@@ -110,6 +116,7 @@ public class ProteticoController {
      * Busca protéticos por especialização
      * GET /api/proteticos/buscar?especializacao=Zircônia
      */
+    @OrcamentoPerformance(maxSql = 1, p95Ms = 60, maxBytes = 200_000)
     @GetMapping("/buscar")
     public ResponseEntity<?> buscarPorEspecializacao(
             @RequestParam String especializacao) {
@@ -128,6 +135,7 @@ public class ProteticoController {
      * Busca protéticos por nome
      * GET /api/proteticos/buscar/nome?nome=Carlos
      */
+    @OrcamentoPerformance(maxSql = 1, p95Ms = 60, maxBytes = 300_000)
     @GetMapping("/buscar/nome")
     public ResponseEntity<?> buscarPorNome(@RequestParam String nome) {
         try {
@@ -145,6 +153,7 @@ public class ProteticoController {
      * Busca protéticos que aceitam terceirização
      * GET /api/proteticos/aceitam-terceirizacao
      */
+    @OrcamentoPerformance(maxSql = 1, p95Ms = 60, maxBytes = 1_000_000)
     @GetMapping("/aceitam-terceirizacao")
     public ResponseEntity<?> listarQueAceitamTerceirizacao() {
         try {
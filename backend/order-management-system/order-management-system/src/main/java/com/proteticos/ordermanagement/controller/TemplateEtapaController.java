@@ -0,0 +1,50 @@
+package com.proteticos.ordermanagement.controller;
+
+import com.proteticos.ordermanagement.DTO.EtapaTemplate;
+import com.proteticos.ordermanagement.model.TemplateEtapa;
+import com.proteticos.ordermanagement.model.TipoServico;
+import com.proteticos.ordermanagement.service.RegistroTemplatesEtapaService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/templates-etapa")
+public class TemplateEtapaController {
+
+    @Autowired
+    private RegistroTemplatesEtapaService registroTemplates;
+
+    // Template efetivo para um tipo de serviço (com override do laboratório, se houver)
+    @GetMapping("/{tipoServico}")
+    public List<EtapaTemplate> obterTemplate(
+            @PathVariable String tipoServico,
+            @RequestParam(required = false) Long proteticoId) {
+        return Arrays.asList(registroTemplates.obterTemplate(TipoServico.fromValue(tipoServico), proteticoId));
+    }
+
+    // Define (ou remove, com lista vazia) o override do laboratório para o tipo de serviço
+    @PutMapping("/protetico/{proteticoId}/{tipoServico}")
+    public ResponseEntity<?> salvarOverride(
+            @PathVariable Long proteticoId,
+            @PathVariable String tipoServico,
+            @RequestBody List<TemplateEtapa> etapas) {
+        try {
+            registroTemplates.salvarOverride(proteticoId, TipoServico.fromValue(tipoServico), etapas);
+            return ResponseEntity.ok(Map.of("message", "Template atualizado com sucesso"));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Relê a tabela template_etapa sem reiniciar a aplicação
+    @PostMapping("/recarregar")
+    public ResponseEntity<?> recarregar() {
+        registroTemplates.recarregar();
+        return ResponseEntity.ok(Map.of("message", "Templates recarregados"));
+    }
+}
@@ -1,9 +1,13 @@
 package com.proteticos.ordermanagement.controller;
 
+import com.proteticos.ordermanagement.config.OrcamentoPerformance;
 import com.proteticos.ordermanagement.DTO.*;
 import com.proteticos.ordermanagement.model.TipoServico;
+import com.proteticos.ordermanagement.service.ConflitoConcorrenciaException;
+import com.proteticos.ordermanagement.service.MetricasService;
 import com.proteticos.ordermanagement.service.TerceirizacaoService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -18,20 +22,26 @@ public class TerceirizacaoController {
     @Autowired
     private TerceirizacaoService terceirizacaoService;
 
+    @Autowired
+    private MetricasService metricasService;
+
     // ============ SOLICITAÇÃO DE TERCEIRIZAÇÃO ============
 
     /**
      * Solicita terceirização de um pedido
      * POST /api/terceirizacoes/pedido/{pedidoId}/solicitar
      */
+    @OrcamentoPerformance(maxSql = 5, p95Ms = 120, maxBytes = 600_000)
     @PostMapping("/pedido/{pedidoId}/solicitar")
     public ResponseEntity<?> solicitarTerceirizacao(
             @PathVariable Long pedidoId,
             @RequestParam Long proteticoId, // ID do protético que está solicitando
-            @RequestBody SolicitarTerceirizacaoRequest request) {
+            @RequestBody SolicitarTerceirizacaoRequest request,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         try {
+            Long versaoEsperada = VersaoHttp.versaoEsperada(ifMatch);
             TerceirizacaoResponseDTO response = terceirizacaoService.solicitarTerceirizacao(
-                    pedidoId, proteticoId, request
+                    pedidoId, proteticoId, request, versaoEsperada
             );
 
             Map<String, Object> successResponse = new HashMap<>();
@@ -39,8 +49,45 @@ public class TerceirizacaoController {
             successResponse.put("message", "Terceirização solicitada com sucesso!");
             successResponse.put("data", response);
 
-            return ResponseEntity.ok(successResponse);
+            return ResponseEntity.ok().eTag(VersaoHttp.etag(response.getVersao())).body(successResponse);
+
+        } catch (ConflitoConcorrenciaException e) {
+            return respostaConflito(e);
+        } catch (RuntimeException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    /**
+     * Oferta o pedido a vários laboratórios ao mesmo tempo; o primeiro aceite leva
+     * POST /api/terceirizacoes/pedido/{pedidoId}/ofertar?proteticoId=1&quantidade=3
+     */
+    @OrcamentoPerformance(maxSql = 5, p95Ms = 120, maxBytes = 800_000)
+    @PostMapping("/pedido/{pedidoId}/ofertar")
+    public ResponseEntity<?> ofertarTerceirizacao(
+            @PathVariable Long pedidoId,
+            @RequestParam Long proteticoId, // ID do protético dono do pedido
+            @RequestParam(required = false) Integer quantidade,
+            @RequestBody SolicitarTerceirizacaoRequest request,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        try {
+            Long versaoEsperada = VersaoHttp.versaoEsperada(ifMatch);
+            TerceirizacaoResponseDTO response = terceirizacaoService.ofertarTerceirizacao(
+                    pedidoId, proteticoId, request, quantidade, versaoEsperada
+            );
+
+            Map<String, Object> successResponse = new HashMap<>();
+            successResponse.put("success", true);
+            successResponse.put("message", "Terceirização ofertada a " + response.getOfertas().size() + " laboratórios!");
+            successResponse.put("data", response);
+
+            return ResponseEntity.ok().eTag(VersaoHttp.etag(response.getVersao())).body(successResponse);
 
+        } catch (ConflitoConcorrenciaException e) {
+            return respostaConflito(e);
         } catch (RuntimeException e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("success", false);
@@ -55,20 +102,26 @@ public class TerceirizacaoController {
      * Aceita uma terceirização (protético terceirizado)
      * PUT /api/terceirizacoes/pedido/{pedidoId}/aceitar
      */
+    @OrcamentoPerformance(maxSql = 4, p95Ms = 120, maxBytes = 800_000)
     @PutMapping("/pedido/{pedidoId}/aceitar")
     public ResponseEntity<?> aceitarTerceirizacao(
             @PathVariable Long pedidoId,
-            @RequestParam Long proteticoId) {
+            @RequestParam Long proteticoId,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         try {
-            TerceirizacaoResponseDTO response = terceirizacaoService.aceitarTerceirizacao(pedidoId, proteticoId);
+            Long versaoEsperada = VersaoHttp.versaoEsperada(ifMatch);
+            TerceirizacaoResponseDTO response = metricasService.cronometrarAceiteTerceirizacao(
+                    () -> terceirizacaoService.aceitarTerceirizacao(pedidoId, proteticoId, versaoEsperada));
 
             Map<String, Object> successResponse = new HashMap<>();
             successResponse.put("success", true);
             successResponse.put("message", "Terceirização aceita com sucesso!");
             successResponse.put("data", response);
 
-            return ResponseEntity.ok(successResponse);
+            return ResponseEntity.ok().eTag(VersaoHttp.etag(response.getVersao())).body(successResponse);
 
+        } catch (ConflitoConcorrenciaException e) {
+            return respostaConflito(e);
         } catch (RuntimeException e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("success", false);
@@ -81,21 +134,26 @@ public class TerceirizacaoController {
      * Recusa uma terceirização (protético terceirizado)
      * PUT /api/terceirizacoes/pedido/{pedidoId}/recusar
      */
+    @OrcamentoPerformance(maxSql = 6, p95Ms = 150, maxBytes = 1_300_000)
     @PutMapping("/pedido/{pedidoId}/recusar")
     public ResponseEntity<?> recusarTerceirizacao(
             @PathVariable Long pedidoId,
             @RequestParam Long proteticoId,
-            @RequestParam(required = false) String motivo) {
+            @RequestParam(required = false) String motivo,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         try {
-            TerceirizacaoResponseDTO response = terceirizacaoService.recusarTerceirizacao(pedidoId, proteticoId, motivo);
+            Long versaoEsperada = VersaoHttp.versaoEsperada(ifMatch);
+            TerceirizacaoResponseDTO response = terceirizacaoService.recusarTerceirizacao(pedidoId, proteticoId, motivo, versaoEsperada);
 
             Map<String, Object> successResponse = new HashMap<>();
             successResponse.put("success", true);
             successResponse.put("message", "Terceirização recusada com sucesso!");
             successResponse.put("data", response);
 
-            return ResponseEntity.ok(successResponse);
+            return ResponseEntity.ok().eTag(VersaoHttp.etag(response.getVersao())).body(successResponse);
 
+        } catch (ConflitoConcorrenciaException e) {
+            return respostaConflito(e);
         } catch (RuntimeException e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("success", false);
@@ -110,20 +168,25 @@ public class TerceirizacaoController {
      * Inicia a execução da terceirização (protético terceirizado)
      * PUT /api/terceirizacoes/pedido/{pedidoId}/iniciar
      */
+    @OrcamentoPerformance(maxSql = 4, p95Ms = 120, maxBytes = 800_000)
     @PutMapping("/pedido/{pedidoId}/iniciar")
     public ResponseEntity<?> iniciarTerceirizacao(
             @PathVariable Long pedidoId,
-            @RequestParam Long proteticoId) {
+            @RequestParam Long proteticoId,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         try {
-            TerceirizacaoResponseDTO response = terceirizacaoService.iniciarTerceirizacao(pedidoId, proteticoId);
+            Long versaoEsperada = VersaoHttp.versaoEsperada(ifMatch);
+            TerceirizacaoResponseDTO response = terceirizacaoService.iniciarTerceirizacao(pedidoId, proteticoId, versaoEsperada);
 
             Map<String, Object> successResponse = new HashMap<>();
             successResponse.put("success", true);
             successResponse.put("message", "Execução da terceirização iniciada!");
             successResponse.put("data", response);
 
-            return ResponseEntity.ok(successResponse);
+            return ResponseEntity.ok().eTag(VersaoHttp.etag(response.getVersao())).body(successResponse);
 
+        } catch (ConflitoConcorrenciaException e) {
+            return respostaConflito(e);
         } catch (RuntimeException e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("success", false);
@@ -136,20 +199,25 @@ public class TerceirizacaoController {
      * Conclui a terceirização (protético terceirizado)
      * PUT /api/terceirizacoes/pedido/{pedidoId}/concluir
      */
+    @OrcamentoPerformance(maxSql = 4, p95Ms = 120, maxBytes = 800_000)
     @PutMapping("/pedido/{pedidoId}/concluir")
     public ResponseEntity<?> concluirTerceirizacao(
             @PathVariable Long pedidoId,
-            @RequestParam Long proteticoId) {
+            @RequestParam Long proteticoId,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         try {
-            TerceirizacaoResponseDTO response = terceirizacaoService.concluirTerceirizacao(pedidoId, proteticoId);
+            Long versaoEsperada = VersaoHttp.versaoEsperada(ifMatch);
+            TerceirizacaoResponseDTO response = terceirizacaoService.concluirTerceirizacao(pedidoId, proteticoId, versaoEsperada);
 
             Map<String, Object> successResponse = new HashMap<>();
             successResponse.put("success", true);
             successResponse.put("message", "Terceirização concluída com sucesso!");
             successResponse.put("data", response);
 
-            return ResponseEntity.ok(successResponse);
+            return ResponseEntity.ok().eTag(VersaoHttp.etag(response.getVersao())).body(successResponse);
 
+        } catch (ConflitoConcorrenciaException e) {
+            return respostaConflito(e);
         } catch (RuntimeException e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("success", false);
@@ -162,21 +230,26 @@ public class TerceirizacaoController {
      * Cancela uma terceirização (qualquer protético envolvido)
      * PUT /api/terceirizacoes/pedido/{pedidoId}/cancelar
      */
+    @OrcamentoPerformance(maxSql = 3, p95Ms = 100, maxBytes = 400_000)
     @PutMapping("/pedido/{pedidoId}/cancelar")
     public ResponseEntity<?> cancelarTerceirizacao(
             @PathVariable Long pedidoId,
             @RequestParam Long proteticoId,
-            @RequestParam(required = false) String motivo) {
+            @RequestParam(required = false) String motivo,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         try {
-            TerceirizacaoResponseDTO response = terceirizacaoService.cancelarTerceirizacao(pedidoId, proteticoId, motivo);
+            Long versaoEsperada = VersaoHttp.versaoEsperada(ifMatch);
+            TerceirizacaoResponseDTO response = terceirizacaoService.cancelarTerceirizacao(pedidoId, proteticoId, motivo, versaoEsperada);
 
             Map<String, Object> successResponse = new HashMap<>();
             successResponse.put("success", true);
             successResponse.put("message", "Terceirização cancelada com sucesso!");
             successResponse.put("data", response);
 
-            return ResponseEntity.ok(successResponse);
+            return ResponseEntity.ok().eTag(VersaoHttp.etag(response.getVersao())).body(successResponse);
 
+        } catch (ConflitoConcorrenciaException e) {
+            return respostaConflito(e);
         } catch (RuntimeException e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("success", false);
@@ -191,6 +264,7 @@ public class TerceirizacaoController {
      * Busca terceirização por ID do pedido
      * GET /api/terceirizacoes/pedido/{pedidoId}
      */
+    @OrcamentoPerformance(maxSql = 2, p95Ms = 60, maxBytes = 300_000)
     @GetMapping("/pedido/{pedidoId}")
     public ResponseEntity<?> buscarTerceirizacaoPorPedido(@PathVariable Long pedidoId) {
         try {
@@ -209,6 +283,7 @@ public class TerceirizacaoController {
      * Lista todas terceirizações de um protético
      * GET /api/terceirizacoes/protetico/{proteticoId}
      */
+    @OrcamentoPerformance(maxSql = 3, p95Ms = 200, maxBytes = 25_000_000)
     @GetMapping("/protetico/{proteticoId}")
     public ResponseEntity<?> listarTerceirizacoesPorProtetico(@PathVariable Long proteticoId) {
         try {
@@ -223,10 +298,29 @@ public class TerceirizacaoController {
         }
     }
 
+    /**
+     * Ofertas aguardando resposta de um laboratório
+     * GET /api/terceirizacoes/ofertas/protetico/{proteticoId}
+     */
+    @OrcamentoPerformance(maxSql = 1, p95Ms = 80, maxBytes = 400_000)
+    @GetMapping("/ofertas/protetico/{proteticoId}")
+    public ResponseEntity<?> listarOfertasAbertas(@PathVariable Long proteticoId) {
+        try {
+            return ResponseEntity.ok(terceirizacaoService.listarOfertasAbertas(proteticoId));
+
+        } catch (RuntimeException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
     /**
      * Lista protéticos disponíveis para terceirização
      * GET /api/terceirizacoes/disponiveis?pedidoId=1&tipoServico=COROA
      */
+    @OrcamentoPerformance(maxSql = 2, p95Ms = 50, maxBytes = 100_000)
     @GetMapping("/disponiveis")
     public ResponseEntity<?> listarProteticosDisponiveis(
             @RequestParam(required = false) Long pedidoId,
@@ -267,6 +361,7 @@ public class TerceirizacaoController {
      *
      * Para terceirização: mostra quem pode executar este serviço
      */
+    @OrcamentoPerformance(maxSql = 1, p95Ms = 50, maxBytes = 100_000)
     @GetMapping("/disponiveis-por-servico")
     public ResponseEntity<?> listarProteticosPorServico(
             @RequestParam String tipoServico,
@@ -304,4 +399,40 @@ public class TerceirizacaoController {
         }
     }
 
-}
\ No newline at end of file
+    // Ranking dos melhores laboratórios para terceirizar o serviço (em memória; 1 consulta para a preferência)
+    @OrcamentoPerformance(maxSql = 1, p95Ms = 50, maxBytes = 400_000)
+    @GetMapping("/ranking")
+    public ResponseEntity<?> rankearCandidatos(
+            @RequestParam String tipoServico,
+            @RequestParam(required = false) Long proteticoId,
+            @RequestParam(defaultValue = "10") int k) {
+
+        try {
+            List<CandidatoRankeadoDTO> ranking = terceirizacaoService.rankearCandidatos(tipoServico, proteticoId, k);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("data", ranking);
+            response.put("total", ranking.size());
+            return ResponseEntity.ok(response);
+
+        } catch (RuntimeException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
+    // 409: outra requisição alterou o pedido antes (ou o If-Match não bate com a versão atual)
+    private ResponseEntity<Map<String, Object>> respostaConflito(ConflitoConcorrenciaException e) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("message", e.getMessage());
+        if (e.getVersaoAtual() != null) {
+            errorResponse.put("versaoAtual", e.getVersaoAtual());
+        }
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(errorResponse);
+    }
+
+}
@@ -1,19 +1,29 @@
 package com.proteticos.ordermanagement.controller;
 
+import com.proteticos.ordermanagement.config.OrcamentoPerformance;
+import com.proteticos.ordermanagement.DTO.LoginResponseDTO;
 import com.proteticos.ordermanagement.model.*;
 import com.proteticos.ordermanagement.repository.*;
+import com.proteticos.ordermanagement.service.AutenticacaoService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import com.proteticos.ordermanagement.model.LoginRequest;
 import com.proteticos.ordermanagement.model.Usuario;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/usuarios")
 public class UsuarioController {
 
+    private static final Logger log = LoggerFactory.getLogger(UsuarioController.class);
+
     @Autowired
     private UsuarioRepository usuarioRepository;
 
@@ -23,45 +33,45 @@ public class UsuarioController {
     @Autowired
     private ProteticoRepository proteticoRepository;
 
+    @Autowired
+    private AutenticacaoService autenticacaoService;
+
     // Listar todos os usuários
+    @OrcamentoPerformance(maxSql = 2, p95Ms = 200, maxBytes = 7_000_000)
     @GetMapping
-    public List<?> listarTodos() {
-        return usuarioRepository.findAll();
+    public List<Usuario> listarTodos() {
+        // Duas consultas já com tudo o que a serialização lê, sem depender do open-in-view
+        List<Usuario> usuarios = new ArrayList<>(usuarioRepository.listarExcetoProteticos());
+        usuarios.addAll(proteticoRepository.listarComServicos());
+        usuarios.sort(Comparator.comparing(Usuario::getId));
+        return usuarios;
     }
 
-    // Login de usuário
+    // Login de usuário: busca indexada por email + verificação de hash
+    @OrcamentoPerformance(maxSql = 2, p95Ms = 500, maxBytes = 20_000_000)
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest) {
         try {
-            System.out.println("🔐 Tentativa de login: " + loginRequest.getEmail());
-
-            // Buscar todos os usuários
-            List<Usuario> usuarios = usuarioRepository.findAll();
-            System.out.println("📊 Total de usuários: " + usuarios.size());
-
-            // Encontrar usuário pelo email e senha
-            Usuario usuarioEncontrado = usuarios.stream()
-                    .filter(usuario ->
-                            usuario.getEmail().equals(loginRequest.getEmail()) &&
-                                    usuario.getSenha().equals(loginRequest.getSenha())
-                    )
-                    .findFirst()
-                    .orElse(null);
-
-            if (usuarioEncontrado != null) {
-                System.out.println("✅ Login bem-sucedido: " + usuarioEncontrado.getNome());
-                return ResponseEntity.ok(usuarioEncontrado);
-            } else {
-                System.out.println("❌ Credenciais inválidas");
+            Optional<Usuario> usuarioOpt = autenticacaoService.autenticar(
+                    loginRequest.getEmail(), loginRequest.getSenha());
+
+            if (usuarioOpt.isEmpty()) {
                 return ResponseEntity.status(401).body("Credenciais inválidas");
             }
+
+            Usuario usuario = usuarioOpt.get();
+            LoginResponseDTO resposta = new LoginResponseDTO(usuario);
+            resposta.setToken(autenticacaoService.emitirToken(usuario));
+            return ResponseEntity.ok(resposta);
         } catch (Exception e) {
-            System.out.println("💥 Erro no login: " + e.getMessage());
+            // Sem email/senha no log; a causa vai junto para diagnóstico
+            log.atError().setCause(e).log("Erro no login");
             return ResponseEntity.status(500).body("Erro interno no servidor");
         }
     }
 
     // Criar um dentista
+    @OrcamentoPerformance(maxSql = 2, p95Ms = 500, maxBytes = 20_000_000)
     @PostMapping("/dentistas")
     public ResponseEntity<Dentista> criarDentista(@RequestBody Dentista dentista) {
         dentista.setTipo(UserTipo.DENTISTA);
@@ -70,6 +80,7 @@ public class UsuarioController {
     }
 
     // Criar um protético
+    @OrcamentoPerformance(maxSql = 2, p95Ms = 500, maxBytes = 20_000_000)
     @PostMapping("/proteticos")
     public ResponseEntity<Protetico> criarProtetico(@RequestBody Protetico protetico) {
         protetico.setTipo(UserTipo.PROTETICO);
@@ -78,16 +89,19 @@ public class UsuarioController {
     }
 
     // Listar todos os dentistas
+    @OrcamentoPerformance(maxSql = 1, p95Ms = 100, maxBytes = 4_000_000)
     @GetMapping("/dentistas")
     public List<Dentista> listarDentistas() {
         return dentistaRepository.findAll();
     }
 
     // Listar todos os protéticos
+    @OrcamentoPerformance(maxSql = 1, p95Ms = 100, maxBytes = 3_000_000)
     @GetMapping("/proteticos")
     public List<Protetico> listarProteticos() {
-        return proteticoRepository.findAll();
+        return proteticoRepository.listarComServicos();
     }
+    @OrcamentoPerformance(maxSql = 0, p95Ms = 30, maxBytes = 50_000)
     @GetMapping("/teste")
     public String teste() {
         return "✅ UsuarioController funcionando!";
@@ -0,0 +1,29 @@
+package com.proteticos.ordermanagement.controller;
+
+// Conversão entre a versão otimista das entidades e os cabeçalhos ETag / If-Match
+final class VersaoHttp {
+
+    private VersaoHttp() {}
+
+    static String etag(long versao) {
+        return "\"" + versao + "\"";
+    }
+
+    // If-Match ausente ou "*" = sem verificação (o service tenta de novo em caso de conflito).
+    // Aceita ETag fraca (W/"3") e valor sem aspas
+    static Long versaoEsperada(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String valor = ifMatch.trim();
+        if (valor.startsWith("W/")) {
+            valor = valor.substring(2);
+        }
+        valor = valor.replace("\"", "").trim();
+        try {
+            return Long.valueOf(valor);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("If-Match inválido: " + ifMatch);
+        }
+    }
+}
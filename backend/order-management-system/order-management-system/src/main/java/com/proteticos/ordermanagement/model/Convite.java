@@ -7,9 +7,11 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "convites")
 public class Convite {
+    // Sequence pooled para permitir INSERT em batch na geração de convites em lote
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY) // Mude para IDENTITY
-    private Long id; // Mude para Long
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "convites_seq")
+    @SequenceGenerator(name = "convites_seq", sequenceName = "convites_seq", allocationSize = 50)
+    private Long id;
 
     @Column(unique = true, nullable = false)
     private String codigo;
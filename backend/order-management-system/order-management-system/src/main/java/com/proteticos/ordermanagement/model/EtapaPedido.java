@@ -8,10 +8,18 @@ import java.time.LocalDate;
 @Table(name = "etapa_pedido")
 public class EtapaPedido {
 
+    // Sequence com otimizador pooled: o Hibernate reserva blocos de 50 ids,
+    // o que permite agrupar os INSERTs das etapas em batch JDBC (IDENTITY desliga o batch)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "etapa_pedido_seq")
+    @SequenceGenerator(name = "etapa_pedido_seq", sequenceName = "etapa_pedido_seq", allocationSize = 50)
     private Long id;
 
+    // Controle otimista: conclusões simultâneas da mesma etapa não passam as duas
+    @Version
+    @Column(name = "versao", nullable = false, columnDefinition = "bigint default 0")
+    private long versao;
+
     @ManyToOne
     @JoinColumn(name = "pedido_id", nullable = false)
     private Pedido pedido;
@@ -42,12 +50,20 @@ public class EtapaPedido {
     @Column(name = "prazo_estimado")
     private LocalDateTime prazoEstimado;
 
+    // Quando a etapa passou a EM_ANDAMENTO (base das estatísticas de duração)
+    @Column(name = "data_inicio")
+    private LocalDateTime dataInicio;
+
     @Column(name = "data_conclusao")
     private LocalDateTime dataConclusao;
 
     @Column(name = "data_prevista")
     private LocalDate dataPrevista;
 
+    // Horas de bancada reservadas na agenda do responsável (AgendaProducaoService)
+    @Column(name = "horas_estimadas")
+    private Integer horasEstimadas;
+
     // ============ MÉTODOS DE CALLBACK ============
 
     @PrePersist
@@ -115,7 +131,8 @@ public class EtapaPedido {
     public void iniciar() {
         if (this.status == StatusEtapa.PENDENTE) {
             this.status = StatusEtapa.EM_ANDAMENTO;
-            this.dataAtualizacao = LocalDateTime.now();
+            this.dataInicio = LocalDateTime.now();
+            this.dataAtualizacao = this.dataInicio;
         }
     }
 
@@ -226,6 +243,22 @@ public class EtapaPedido {
         this.prazoEstimado = prazoEstimado;
     }
 
+    public LocalDateTime getDataInicio() {
+        return dataInicio;
+    }
+
+    public void setDataInicio(LocalDateTime dataInicio) {
+        this.dataInicio = dataInicio;
+    }
+
+    public Integer getHorasEstimadas() {
+        return horasEstimadas;
+    }
+
+    public void setHorasEstimadas(Integer horasEstimadas) {
+        this.horasEstimadas = horasEstimadas;
+    }
+
     public LocalDateTime getDataConclusao() {
         return dataConclusao;
     }
@@ -286,4 +319,8 @@ public class EtapaPedido {
     public int hashCode() {
         return id != null ? id.hashCode() : 0;
     }
-}
\ No newline at end of file
+
+    public long getVersao() {
+        return versao;
+    }
+}
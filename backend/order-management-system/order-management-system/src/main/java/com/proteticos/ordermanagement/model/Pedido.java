@@ -2,6 +2,7 @@ package com.proteticos.ordermanagement.model;
 
 import jakarta.persistence.*;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.proteticos.ordermanagement.service.GeradorCodigoPedido;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -9,13 +10,26 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "pedidos")
+@Table(name = "pedidos",
+        indexes = {
+                // Paginação por cursor (dataCriacao DESC, id DESC), com e sem filtro
+                @Index(name = "idx_pedidos_data_criacao_id", columnList = "dataCriacao, id"),
+                @Index(name = "idx_pedidos_protetico_data_criacao", columnList = "protetico_id, dataCriacao, id"),
+                @Index(name = "idx_pedidos_dentista_data_criacao", columnList = "dentista_id, dataCriacao, id"),
+                @Index(name = "idx_pedidos_status_data_criacao", columnList = "status_pedido, dataCriacao, id")
+        })
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Pedido {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Versão para controle otimista de concorrência: UPDATE ... WHERE versao = ? falha se outro
+    // request alterou a linha antes (o default 0 cobre linhas já existentes)
+    @Version
+    @Column(name = "versao", nullable = false, columnDefinition = "bigint default 0")
+    private long versao;
+
     @Column(unique = true)
     private String codigo;
 
@@ -102,7 +116,8 @@ public class Pedido {
     @PreUpdate
     public void gerarCodigoEAtualizar() {
         if (this.codigo == null) {
-            this.codigo = "P" + LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
+            // Único mesmo com vários pedidos no mesmo segundo e vários nós (ver GeradorCodigoPedido)
+            this.codigo = GeradorCodigoPedido.proximoCodigo();
         }
         if (this.dataEntrada == null) {
             this.dataEntrada = LocalDate.now();
@@ -322,4 +337,8 @@ public class Pedido {
         this.statusTerceirizacao = StatusTerceirizacao.CANCELADO;
         this.proteticoTerceirizado = null; // Limpa o protético terceirizado
     }
-}
\ No newline at end of file
+
+    public long getVersao() {
+        return versao;
+    }
+}
@@ -2,6 +2,9 @@ package com.proteticos.ordermanagement.model;
 
 import jakarta.persistence.*;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.proteticos.ordermanagement.config.CacheSegundoNivelConfig;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.math.BigDecimal;
 import java.util.HashSet;
 import java.util.Set;
@@ -39,6 +42,7 @@ public class Protetico extends Usuario {
     private Integer quantidadeTerceirizacoes = 0;
 
     @ElementCollection
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheSegundoNivelConfig.REGIAO_ESPECIALIDADES)
     @CollectionTable(
             name = "protetico_especialidades_terceirizacao",
             joinColumns = @JoinColumn(name = "protetico_id")
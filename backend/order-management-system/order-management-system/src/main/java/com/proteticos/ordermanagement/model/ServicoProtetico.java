@@ -4,13 +4,23 @@ import jakarta.persistence.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.proteticos.ordermanagement.config.CacheSegundoNivelConfig;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name = "servicos_protetico",
         uniqueConstraints = {
                 @UniqueConstraint(columnNames = {"protetico_id", "tipo_servico"})
+        },
+        indexes = {
+                // Busca de candidatos à terceirização (tipo + política + ativo)
+                @Index(name = "idx_servicos_protetico_candidatos",
+                        columnList = "tipo_servico, politica_execucao, ativo, protetico_id")
         })
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheSegundoNivelConfig.REGIAO_SERVICO_PROTETICO)
 public class ServicoProtetico {
 
     @Id
@@ -0,0 +1,75 @@
+package com.proteticos.ordermanagement.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Linha de template do fluxo de etapas.
+ * proteticoId nulo = template padrão do sistema; preenchido = override do laboratório.
+ */
+@Entity
+@Table(name = "template_etapa",
+        uniqueConstraints = {
+                @UniqueConstraint(columnNames = {"tipo_servico", "protetico_id", "ordem"})
+        },
+        indexes = {
+                @Index(name = "idx_template_etapa_tipo_protetico",
+                        columnList = "tipo_servico, protetico_id, ordem")
+        })
+public class TemplateEtapa {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "tipo_servico", nullable = false)
+    private TipoServico tipoServico;
+
+    @Column(name = "protetico_id")
+    private Long proteticoId;
+
+    @Column(name = "ordem", nullable = false)
+    private int ordem;
+
+    @Column(name = "nome_etapa", nullable = false)
+    private String nomeEtapa;
+
+    @Column(name = "duracao_estimada_horas", nullable = false)
+    private int duracaoEstimadaHoras;
+
+    @Column(columnDefinition = "boolean default true")
+    private boolean ativo = true;
+
+    public TemplateEtapa() {}
+
+    public TemplateEtapa(TipoServico tipoServico, Long proteticoId, int ordem,
+                         String nomeEtapa, int duracaoEstimadaHoras) {
+        this.tipoServico = tipoServico;
+        this.proteticoId = proteticoId;
+        this.ordem = ordem;
+        this.nomeEtapa = nomeEtapa;
+        this.duracaoEstimadaHoras = duracaoEstimadaHoras;
+    }
+
+    // GETTERS E SETTERS
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public TipoServico getTipoServico() { return tipoServico; }
+    public void setTipoServico(TipoServico tipoServico) { this.tipoServico = tipoServico; }
+
+    public Long getProteticoId() { return proteticoId; }
+    public void setProteticoId(Long proteticoId) { this.proteticoId = proteticoId; }
+
+    public int getOrdem() { return ordem; }
+    public void setOrdem(int ordem) { this.ordem = ordem; }
+
+    public String getNomeEtapa() { return nomeEtapa; }
+    public void setNomeEtapa(String nomeEtapa) { this.nomeEtapa = nomeEtapa; }
+
+    public int getDuracaoEstimadaHoras() { return duracaoEstimadaHoras; }
+    public void setDuracaoEstimadaHoras(int duracaoEstimadaHoras) { this.duracaoEstimadaHoras = duracaoEstimadaHoras; }
+
+    public boolean isAtivo() { return ativo; }
+    public void setAtivo(boolean ativo) { this.ativo = ativo; }
+}
@@ -11,6 +11,11 @@ public class Terceirizacao {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Controle otimista de concorrência (mesmo esquema de Pedido.versao)
+    @Version
+    @Column(name = "versao", nullable = false, columnDefinition = "bigint default 0")
+    private long versao;
+
     @ManyToOne
     @JoinColumn(name = "protetico_origem_id")
     private Protetico proteticoOrigem;
@@ -81,4 +86,6 @@ public class Terceirizacao {
 
     public LocalDateTime getConcluidoEm() { return concluidoEm; }
     public void setConcluidoEm(LocalDateTime concluidoEm) { this.concluidoEm = concluidoEm; }
-}
\ No newline at end of file
+
+    public long getVersao() { return versao; }
+}
@@ -4,8 +4,15 @@ package com.proteticos.ordermanagement.model;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.proteticos.ordermanagement.config.CacheSegundoNivelConfig;
+import com.proteticos.ordermanagement.service.SenhaHasher;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheSegundoNivelConfig.REGIAO_USUARIO) // vale para Protetico e Dentista
 @Inheritance(strategy = InheritanceType.JOINED)
 @Table(name = "usuarios")
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
@@ -20,6 +27,8 @@ public class Usuario {
     @Column(unique = true, nullable = false)
     private String email;
 
+    // Armazenada sempre como hash PBKDF2; nunca serializada nas respostas
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     @Column(nullable = false)
     private String senha;
 
@@ -45,9 +54,22 @@ public class Usuario {
         this.tipo = tipo;
     }
 
+    @PrePersist
+    protected void onCreate() {
+        aplicarHashSenha();
+    }
+
     @PreUpdate
     protected void onUpdate() {
         this.dataAtualizacao = LocalDateTime.now();
+        aplicarHashSenha();
+    }
+
+    // Senha recebida em texto puro (cadastro, DataLoader, setSenha) vira hash antes de ir ao banco
+    private void aplicarHashSenha() {
+        if (senha != null && !SenhaHasher.isHash(senha)) {
+            this.senha = SenhaHasher.gerarHash(senha);
+        }
     }
 
     // GETTERS E SETTERS
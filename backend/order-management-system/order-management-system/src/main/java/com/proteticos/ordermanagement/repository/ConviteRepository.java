@@ -3,7 +3,11 @@ package com.proteticos.ordermanagement.repository;
 
 import com.proteticos.ordermanagement.model.Convite;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,6 +17,12 @@ public interface ConviteRepository extends JpaRepository<Convite, Long> {
     boolean existsByCodigo(String codigo);
     long countByCriadoPorIdAndUtilizadoFalse(Long usuarioId);
 
+    // Emails (em minúsculas) que já têm convite não utilizado e ainda válido
+    @Query("SELECT DISTINCT LOWER(c.emailConvidado) FROM Convite c WHERE c.utilizado = false " +
+            "AND c.expiraEm > :agora AND LOWER(c.emailConvidado) IN :emails")
+    List<String> listarEmailsComConviteAberto(@Param("emails") Collection<String> emails,
+                                              @Param("agora") LocalDateTime agora);
+
     // ✅ ADICIONE ESTE MÉTODO - para o endpoint listarPorCriador()
     List<Convite> findByCriadoPorId(Long usuarioId);
 }
\ No newline at end of file
@@ -1,12 +1,15 @@
 package com.proteticos.ordermanagement.repository;
 
+import com.proteticos.ordermanagement.DTO.PrazoAbertoDTO;
 import com.proteticos.ordermanagement.model.EtapaPedido;
 import com.proteticos.ordermanagement.model.StatusEtapa;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,10 +25,51 @@ public interface EtapaPedidoRepository extends JpaRepository<EtapaPedido, Long>
     // Buscar etapas por status
     List<EtapaPedido> findByStatus(StatusEtapa status);
 
+    List<EtapaPedido> findByPedidoIdAndStatusIn(Long pedidoId, List<StatusEtapa> statuses);
+
     // Buscar etapas atrasadas
     @Query("SELECT e FROM EtapaPedido e WHERE e.dataPrevista < CURRENT_DATE AND e.status != com.proteticos.ordermanagement.model.StatusEtapa.CONCLUIDA")
     List<EtapaPedido> findEtapasAtrasadas();
 
+    // Etapas abertas com prazo: predicado igual ao do índice parcial idx_etapa_pedido_abertas_prazo
+    @Query("SELECT new com.proteticos.ordermanagement.DTO.PrazoAbertoDTO(e.id, e.dataPrevista) " +
+            "FROM EtapaPedido e WHERE e.dataPrevista IS NOT NULL " +
+            "AND e.status NOT IN (com.proteticos.ordermanagement.model.StatusEtapa.CONCLUIDA, " +
+            "com.proteticos.ordermanagement.model.StatusEtapa.CANCELADA)")
+    List<PrazoAbertoDTO> listarPrazosAbertos();
+
+    // Reservas abertas para reconstruir a agenda de produção: [etapaId, responsavelId, horasEstimadas].
+    // Só de pedidos abertos: etapas deixadas em andamento num pedido já encerrado não ocupam a agenda
+    @Query("SELECT e.id, e.responsavel.id, e.horasEstimadas FROM EtapaPedido e JOIN e.pedido p " +
+            "WHERE e.status = com.proteticos.ordermanagement.model.StatusEtapa.EM_ANDAMENTO " +
+            "AND e.responsavel IS NOT NULL AND e.horasEstimadas IS NOT NULL " +
+            "AND p.statusPedido NOT IN (com.proteticos.ordermanagement.model.StatusPedido.FINALIZADO, " +
+            "com.proteticos.ordermanagement.model.StatusPedido.CANCELADO) " +
+            "ORDER BY e.prazoEstimado, e.id")
+    List<Object[]> listarReservasAbertas();
+
+    // Histórico para as estatísticas de duração, em ordem de pedido/etapa (o início de etapas antigas,
+    // sem data_inicio, é a conclusão da anterior):
+    // [pedidoId, ordem, laboratorioId, tipoServico, nomeEtapa, dataCriacao, dataInicio, dataConclusao, status]
+    @Query("SELECT p.id, e.ordem, lab.id, p.tipoServico, e.nomeEtapa, e.dataCriacao, e.dataInicio, " +
+            "e.dataConclusao, e.status FROM EtapaPedido e JOIN e.pedido p LEFT JOIN p.protetico lab " +
+            "WHERE p.dataCriacao >= :desde " +
+            "AND e.status <> com.proteticos.ordermanagement.model.StatusEtapa.CANCELADA " +
+            "ORDER BY p.id, e.ordem")
+    List<Object[]> listarHistoricoDuracoes(@Param("desde") LocalDateTime desde);
+
+    // Etapas ainda não concluídas de pedidos abertos (todos, ou só :pedidoId):
+    // [pedidoId, codigo, laboratorioId, tipoServico, dataPrevistaEntrega, ordem, nomeEtapa, status, dataInicio]
+    @Query("SELECT p.id, p.codigo, lab.id, p.tipoServico, p.dataPrevistaEntrega, e.ordem, e.nomeEtapa, " +
+            "e.status, e.dataInicio FROM EtapaPedido e JOIN e.pedido p LEFT JOIN p.protetico lab " +
+            "WHERE (:pedidoId IS NULL OR p.id = :pedidoId) " +
+            "AND p.statusPedido NOT IN (com.proteticos.ordermanagement.model.StatusPedido.FINALIZADO, " +
+            "com.proteticos.ordermanagement.model.StatusPedido.CANCELADO) " +
+            "AND e.status IN (com.proteticos.ordermanagement.model.StatusEtapa.PENDENTE, " +
+            "com.proteticos.ordermanagement.model.StatusEtapa.EM_ANDAMENTO) " +
+            "ORDER BY p.id, e.ordem")
+    List<Object[]> listarEtapasRestantes(@Param("pedidoId") Long pedidoId);
+
     // Buscar etapas para hoje
     List<EtapaPedido> findByDataPrevistaAndStatusNot(LocalDate data, StatusEtapa status);
 
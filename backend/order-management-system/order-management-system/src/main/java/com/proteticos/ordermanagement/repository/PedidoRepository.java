@@ -1,19 +1,58 @@
 package com.proteticos.ordermanagement.repository;
 
+import com.proteticos.ordermanagement.DTO.PedidoResponseDTO;
+import com.proteticos.ordermanagement.DTO.PrazoAbertoDTO;
 import com.proteticos.ordermanagement.model.Pedido;
+import com.proteticos.ordermanagement.model.Protetico;
 import com.proteticos.ordermanagement.model.StatusPedido;
+import com.proteticos.ordermanagement.model.StatusTerceirizacao;
 import com.proteticos.ordermanagement.model.TipoServico;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface PedidoRepository extends JpaRepository<Pedido, Long> {
+public interface PedidoRepository extends JpaRepository<Pedido, Long>, PedidoRepositoryCustom {
+
+    // Projeção de listagem: pedido + resumo de dentista e protético em um único SELECT
+    // (evita os dois SELECTs extras por pedido ao converter entidades com proxies LAZY)
+    String SELECT_PEDIDO_DTO =
+            "SELECT new com.proteticos.ordermanagement.DTO.PedidoResponseDTO(" +
+            "p.id, p.codigo, p.tipoServico, p.informacoesDetalhadas, p.valorCobrado, " +
+            "p.dataEntrada, p.dataPrevistaEntrega, p.dataEntrega, p.statusPedido, p.dataCriacao, p.versao, " +
+            "d.id, d.nome, d.email, d.cro, d.especialidade, " +
+            "pr.id, pr.nome, pr.email, pr.registroProfissional, pr.especializacao) " +
+            "FROM Pedido p JOIN p.dentista d JOIN p.protetico pr";
+
+    @Query(SELECT_PEDIDO_DTO + " ORDER BY p.id")
+    List<PedidoResponseDTO> listarTodosDTO();
+
+    @Query(SELECT_PEDIDO_DTO + " WHERE d.id = :dentistaId ORDER BY p.id")
+    List<PedidoResponseDTO> listarDTOPorDentista(@Param("dentistaId") Long dentistaId);
+
+    @Query(SELECT_PEDIDO_DTO + " WHERE pr.id = :proteticoId ORDER BY p.id")
+    List<PedidoResponseDTO> listarDTOPorProtetico(@Param("proteticoId") Long proteticoId);
+
+    @Query(SELECT_PEDIDO_DTO + " WHERE p.statusPedido = :status ORDER BY p.id")
+    List<PedidoResponseDTO> listarDTOPorStatus(@Param("status") StatusPedido status);
+
+    @Query(SELECT_PEDIDO_DTO + " WHERE p.id IN :ids")
+    List<PedidoResponseDTO> listarDTOPorIds(@Param("ids") List<Long> ids);
+
+    // Pedidos abertos com prazo: predicado igual ao do índice parcial idx_pedidos_abertos_prazo
+    @Query("SELECT new com.proteticos.ordermanagement.DTO.PrazoAbertoDTO(p.id, p.dataPrevistaEntrega) " +
+            "FROM Pedido p WHERE p.dataPrevistaEntrega IS NOT NULL " +
+            "AND p.statusPedido NOT IN (com.proteticos.ordermanagement.model.StatusPedido.FINALIZADO, " +
+            "com.proteticos.ordermanagement.model.StatusPedido.CANCELADO)")
+    List<PrazoAbertoDTO> listarPrazosAbertos();
 
     // CONSULTA PERSONALIZADA COM JOIN FETCH
     @Query("SELECT p FROM Pedido p JOIN FETCH p.dentista JOIN FETCH p.protetico")
@@ -56,6 +95,107 @@ public interface PedidoRepository extends JpaRepository<Pedido, Long> {
     @Query("SELECT p FROM Pedido p WHERE p.statusTerceirizacao IS NOT NULL AND p.statusTerceirizacao != 'NAO_TERCEIRIZADO'")
     List<Pedido> findComTerceirizacao();
 
+    // Pedidos terceirizados em que o protético é titular ou executor, com os dois protéticos
+    // já carregados (evita o N+1 de p.protetico / p.proteticoTerceirizado)
+    @Query("SELECT p FROM Pedido p JOIN FETCH p.protetico pr LEFT JOIN FETCH p.proteticoTerceirizado pt " +
+            "WHERE (pr.id = :proteticoId OR pt.id = :proteticoId) " +
+            "AND (p.statusTerceirizacao IS NULL OR p.statusTerceirizacao <> " +
+            "com.proteticos.ordermanagement.model.StatusTerceirizacao.NAO_TERCEIRIZADO) " +
+            "ORDER BY p.id")
+    List<Pedido> listarTerceirizadosPorProtetico(@Param("proteticoId") Long proteticoId);
+
     // ✅ NOVO: Buscar pedidos por status de terceirização
     List<Pedido> findByStatusTerceirizacao(com.proteticos.ordermanagement.model.StatusTerceirizacao status);
-}
\ No newline at end of file
+
+    long countByStatusTerceirizacao(com.proteticos.ordermanagement.model.StatusTerceirizacao status);
+
+    // ============ TRANSIÇÕES DE TERCEIRIZAÇÃO (COMPARE-AND-SET) ============
+    // Um único UPDATE condicional por transição: o WHERE confere executor, status esperado e
+    // (com If-Match) a versão; 0 linhas afetadas = transição recusada, sem lock e sem leitura prévia.
+    // versao = null dispensa a verificação de versão. Datas e notas anuláveis vão com CAST: nulas, o
+    // Hibernate não infere o tipo delas no SET e o PostgreSQL as recebe como bytea
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Pedido p SET p.statusTerceirizacao = :novo, " +
+            "p.dataRespostaTerceirizacao = COALESCE(CAST(:dataResposta AS LocalDateTime), p.dataRespostaTerceirizacao), " +
+            "p.dataConclusaoTerceirizacao = COALESCE(CAST(:dataConclusao AS LocalDateTime), p.dataConclusaoTerceirizacao), " +
+            "p.versao = p.versao + 1 " +
+            "WHERE p.id = :pedidoId AND p.proteticoTerceirizado.id = :proteticoId " +
+            "AND p.statusTerceirizacao = :esperado AND p.versao = COALESCE(:versao, p.versao)")
+    int avancarTerceirizacao(@Param("pedidoId") Long pedidoId,
+                             @Param("proteticoId") Long proteticoId,
+                             @Param("esperado") StatusTerceirizacao esperado,
+                             @Param("novo") StatusTerceirizacao novo,
+                             @Param("dataResposta") LocalDateTime dataResposta,
+                             @Param("dataConclusao") LocalDateTime dataConclusao,
+                             @Param("versao") Long versao);
+
+    // Recusa: além do status, anexa a nota ao motivo e libera o executor (como Pedido.recusarTerceirizacao)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Pedido p SET p.statusTerceirizacao = com.proteticos.ordermanagement.model.StatusTerceirizacao.RECUSADO, " +
+            "p.dataRespostaTerceirizacao = :agora, " +
+            "p.motivoTerceirizacao = CASE WHEN CAST(:nota AS String) IS NULL THEN p.motivoTerceirizacao " +
+            "WHEN p.motivoTerceirizacao IS NULL THEN CAST(:nota AS String) " +
+            "ELSE CONCAT(p.motivoTerceirizacao, ' | ', CAST(:nota AS String)) END, " +
+            "p.proteticoTerceirizado = NULL, " +
+            "p.versao = p.versao + 1 " +
+            "WHERE p.id = :pedidoId AND p.proteticoTerceirizado.id = :proteticoId " +
+            "AND p.statusTerceirizacao = com.proteticos.ordermanagement.model.StatusTerceirizacao.SOLICITADO " +
+            "AND p.versao = COALESCE(:versao, p.versao)")
+    int recusarTerceirizacao(@Param("pedidoId") Long pedidoId,
+                             @Param("proteticoId") Long proteticoId,
+                             @Param("agora") LocalDateTime agora,
+                             @Param("nota") String nota,
+                             @Param("versao") Long versao);
+
+    // Pedido com os dois protéticos carregados, para montar o TerceirizacaoResponseDTO numa consulta
+    @Query("SELECT p FROM Pedido p JOIN FETCH p.protetico LEFT JOIN FETCH p.proteticoTerceirizado WHERE p.id = :id")
+    Optional<Pedido> buscarComProteticos(@Param("id") Long id);
+
+    // ============ OFERTA EM BROADCAST ============
+    // Pedido ofertado a vários laboratórios fica com statusTerceirizacao = SOLICITADO e sem executor;
+    // o primeiro aceite ocupa a vaga com este compare-and-set (vaga vazia + oferta aberta para ele)
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Pedido p SET p.proteticoTerceirizado = :protetico, " +
+            "p.statusTerceirizacao = com.proteticos.ordermanagement.model.StatusTerceirizacao.ACEITO, " +
+            "p.dataRespostaTerceirizacao = :agora, " +
+            "p.versao = p.versao + 1 " +
+            "WHERE p.id = :pedidoId AND p.proteticoTerceirizado IS NULL " +
+            "AND p.statusTerceirizacao = com.proteticos.ordermanagement.model.StatusTerceirizacao.SOLICITADO " +
+            "AND p.versao = COALESCE(:versao, p.versao) " +
+            "AND EXISTS (SELECT 1 FROM Terceirizacao t WHERE t.pedido.id = :pedidoId " +
+            "AND t.proteticoDestino = :protetico " +
+            "AND t.status = com.proteticos.ordermanagement.model.StatusTerceirizacao.SOLICITADO)")
+    int aceitarOfertaAberta(@Param("pedidoId") Long pedidoId,
+                            @Param("protetico") Protetico protetico,
+                            @Param("agora") LocalDateTime agora,
+                            @Param("versao") Long versao);
+
+    // Trava a linha do pedido (e avança a versão) antes de mexer numa oferta aberta: mantém a ordem
+    // de locks pedidos -> terceirizacoes igual à do aceite, evitando deadlock entre aceite e recusa
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Pedido p SET p.versao = p.versao + 1 " +
+            "WHERE p.id = :pedidoId AND p.proteticoTerceirizado IS NULL " +
+            "AND p.statusTerceirizacao = com.proteticos.ordermanagement.model.StatusTerceirizacao.SOLICITADO " +
+            "AND p.versao = COALESCE(:versao, p.versao)")
+    int travarOfertaAberta(@Param("pedidoId") Long pedidoId, @Param("versao") Long versao);
+
+    // Todas as ofertas recusadas: o pedido sai de SOLICITADO e pode ser ofertado de novo
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Pedido p SET p.statusTerceirizacao = com.proteticos.ordermanagement.model.StatusTerceirizacao.RECUSADO, " +
+            "p.dataRespostaTerceirizacao = :agora " +
+            "WHERE p.id = :pedidoId AND p.proteticoTerceirizado IS NULL " +
+            "AND p.statusTerceirizacao = com.proteticos.ordermanagement.model.StatusTerceirizacao.SOLICITADO " +
+            "AND NOT EXISTS (SELECT 1 FROM Terceirizacao t WHERE t.pedido.id = :pedidoId " +
+            "AND t.status = com.proteticos.ordermanagement.model.StatusTerceirizacao.SOLICITADO)")
+    int encerrarOfertaSemAceite(@Param("pedidoId") Long pedidoId, @Param("agora") LocalDateTime agora);
+
+    // Carga atual de cada laboratório executor: [proteticoId, terceirizações ACEITO/EM_ANDAMENTO]
+    @Query("SELECT p.proteticoTerceirizado.id, COUNT(p) FROM Pedido p " +
+            "WHERE p.proteticoTerceirizado IS NOT NULL " +
+            "AND p.statusTerceirizacao IN (com.proteticos.ordermanagement.model.StatusTerceirizacao.ACEITO, " +
+            "com.proteticos.ordermanagement.model.StatusTerceirizacao.EM_ANDAMENTO) " +
+            "GROUP BY p.proteticoTerceirizado.id")
+    List<Object[]> contarTerceirizacoesAbertasPorExecutor();
+}
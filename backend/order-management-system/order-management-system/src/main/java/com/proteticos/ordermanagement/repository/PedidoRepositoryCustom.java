@@ -0,0 +1,20 @@
+package com.proteticos.ordermanagement.repository;
+
+import com.proteticos.ordermanagement.DTO.FiltroPedidoDTO;
+import com.proteticos.ordermanagement.DTO.PedidoResponseDTO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface PedidoRepositoryCustom {
+
+    /**
+     * Página de pedidos ordenada por (dataCriacao DESC, id DESC), já projetada em DTO.
+     * Com cursor nulo, retorna a primeira página; caso contrário, os pedidos
+     * estritamente "depois" de (cursorDataCriacao, cursorId) nessa ordem.
+     */
+    List<PedidoResponseDTO> buscarPaginaPorCursor(FiltroPedidoDTO filtro,
+                                                  LocalDateTime cursorDataCriacao,
+                                                  Long cursorId,
+                                                  int limite);
+}
@@ -0,0 +1,70 @@
+package com.proteticos.ordermanagement.repository;
+
+import com.proteticos.ordermanagement.DTO.FiltroPedidoDTO;
+import com.proteticos.ordermanagement.DTO.PedidoResponseDTO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Implementação do fragmento PedidoRepositoryCustom (detectada pelo sufixo Impl)
+public class PedidoRepositoryImpl implements PedidoRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<PedidoResponseDTO> buscarPaginaPorCursor(FiltroPedidoDTO filtro,
+                                                         LocalDateTime cursorDataCriacao,
+                                                         Long cursorId,
+                                                         int limite) {
+        StringBuilder jpql = new StringBuilder(PedidoRepository.SELECT_PEDIDO_DTO).append(" WHERE 1 = 1");
+        Map<String, Object> parametros = new LinkedHashMap<>();
+
+        // Só entram no SQL os filtros informados, para o planner usar o índice certo
+        if (filtro != null) {
+            if (filtro.getStatus() != null) {
+                jpql.append(" AND p.statusPedido = :status");
+                parametros.put("status", filtro.getStatus());
+            }
+            if (filtro.getTipoServico() != null) {
+                jpql.append(" AND p.tipoServico = :tipoServico");
+                parametros.put("tipoServico", filtro.getTipoServico());
+            }
+            if (filtro.getDentistaId() != null) {
+                jpql.append(" AND d.id = :dentistaId");
+                parametros.put("dentistaId", filtro.getDentistaId());
+            }
+            if (filtro.getProteticoId() != null) {
+                jpql.append(" AND pr.id = :proteticoId");
+                parametros.put("proteticoId", filtro.getProteticoId());
+            }
+            if (filtro.getDataInicio() != null) {
+                jpql.append(" AND p.dataCriacao >= :dataInicio");
+                parametros.put("dataInicio", filtro.getDataInicio().atStartOfDay());
+            }
+            if (filtro.getDataFim() != null) {
+                jpql.append(" AND p.dataCriacao < :dataFimExclusiva");
+                parametros.put("dataFimExclusiva", filtro.getDataFim().plusDays(1).atStartOfDay());
+            }
+        }
+
+        // Keyset: continua exatamente depois do último item da página anterior
+        if (cursorDataCriacao != null && cursorId != null) {
+            jpql.append(" AND (p.dataCriacao < :cursorData OR (p.dataCriacao = :cursorData AND p.id < :cursorId))");
+            parametros.put("cursorData", cursorDataCriacao);
+            parametros.put("cursorId", cursorId);
+        }
+
+        jpql.append(" ORDER BY p.dataCriacao DESC, p.id DESC");
+
+        TypedQuery<PedidoResponseDTO> query = entityManager.createQuery(jpql.toString(), PedidoResponseDTO.class);
+        parametros.forEach(query::setParameter);
+        query.setMaxResults(limite);
+        return query.getResultList();
+    }
+}
@@ -1,7 +1,12 @@
 package com.proteticos.ordermanagement.repository;
 
 import com.proteticos.ordermanagement.model.Protetico;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,6 +16,7 @@ import java.util.Optional;
 public interface ProteticoRepository extends JpaRepository<Protetico, Long> {
 
     // Método para buscar por email (herdado de Usuario)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Protetico> findByEmail(String email);
 
     // Método para verificar se registro profissional existe
@@ -22,5 +28,9 @@ public interface ProteticoRepository extends JpaRepository<Protetico, Long> {
     // Buscar por nome
     List<Protetico> findByNomeContaining(String nome);
 
+    // Todos com serviços e especialidades já carregados: a serialização da entidade não volta ao banco por laboratório
+    @EntityGraph(attributePaths = {"servicosProtetico", "especialidadesTerceirizacao"})
+    @Query("SELECT p FROM Protetico p")
+    List<Protetico> listarComServicos();
 
 }
\ No newline at end of file
@@ -1,10 +1,15 @@
 package com.proteticos.ordermanagement.repository;
 
+import com.proteticos.ordermanagement.DTO.CandidatoTerceirizacaoDTO;
+import com.proteticos.ordermanagement.DTO.ProteticoSimplesDTO;
 import com.proteticos.ordermanagement.model.ServicoProtetico;
 import com.proteticos.ordermanagement.model.TipoServico;
 import com.proteticos.ordermanagement.model.PoliticaExecucaoServico; // NOVO IMPORT AQUI
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -15,6 +20,8 @@ import java.util.Optional;
 public interface ServicoProteticoRepository extends JpaRepository<ServicoProtetico, Long> {
 
     // Métodos existentes
+    // Relida a cada etapa iniciada (horas da agenda): em cache de consultas
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<ServicoProtetico> findByProteticoIdAndTipoServico(Long proteticoId, TipoServico tipoServico);
     List<ServicoProtetico> findByProteticoId(Long proteticoId);
     List<ServicoProtetico> findByProteticoIdAndAtivoTrue(Long proteticoId);
@@ -41,4 +48,43 @@ public interface ServicoProteticoRepository extends JpaRepository<ServicoProteti
     // NOVO: Busca terceirizado preferido por ID
     @Query("SELECT s FROM ServicoProtetico s WHERE s.terceirizadoPreferidoId = :terceirizadoId AND s.ativo = true")
     List<ServicoProtetico> findByTerceirizadoPreferidoId(@Param("terceirizadoId") Long terceirizadoId);
-}
\ No newline at end of file
+
+    // NOVO: Candidatos à terceirização em uma única consulta (usa idx_servicos_protetico_candidatos)
+    // Projeta direto no DTO, sem carregar Protetico nem a coleção de serviços
+    @Query("SELECT new com.proteticos.ordermanagement.DTO.ProteticoSimplesDTO(" +
+            "p.id, p.nome, p.email, p.registroProfissional, p.especializacao, " +
+            "p.notaTerceirizacao, p.quantidadeTerceirizacoes, p.taxaMinimaTerceirizacao) " +
+            "FROM ServicoProtetico s JOIN s.protetico p " +
+            "WHERE s.tipoServico = :tipoServico AND s.politicaExecucao IN :politicas AND s.ativo = true " +
+            "AND (:excluirProteticoId IS NULL OR p.id <> :excluirProteticoId) " +
+            "ORDER BY p.id")
+    List<ProteticoSimplesDTO> buscarCandidatosTerceirizacao(
+            @Param("tipoServico") TipoServico tipoServico,
+            @Param("politicas") List<PoliticaExecucaoServico> politicas,
+            @Param("excluirProteticoId") Long excluirProteticoId
+    );
+
+    // NOVO: Carga completa do índice em memória de terceirização (todos os tipos de serviço)
+    @Query("SELECT new com.proteticos.ordermanagement.DTO.CandidatoTerceirizacaoDTO(" +
+            "s.tipoServico, p.id, p.nome, p.email, p.registroProfissional, p.especializacao, " +
+            "p.notaTerceirizacao, p.quantidadeTerceirizacoes, p.taxaMinimaTerceirizacao, " +
+            "COALESCE(s.precoTerceirizado, s.preco), COALESCE(s.prazoTerceirizadoHoras, s.tempoMedioHoras)) " +
+            "FROM ServicoProtetico s JOIN s.protetico p " +
+            "WHERE s.politicaExecucao IN :politicas AND s.ativo = true " +
+            "ORDER BY p.id")
+    List<CandidatoTerceirizacaoDTO> buscarTodosCandidatosTerceirizacao(
+            @Param("politicas") List<PoliticaExecucaoServico> politicas
+    );
+
+    // NOVO: Recarga incremental do índice para um único protético
+    @Query("SELECT new com.proteticos.ordermanagement.DTO.CandidatoTerceirizacaoDTO(" +
+            "s.tipoServico, p.id, p.nome, p.email, p.registroProfissional, p.especializacao, " +
+            "p.notaTerceirizacao, p.quantidadeTerceirizacoes, p.taxaMinimaTerceirizacao, " +
+            "COALESCE(s.precoTerceirizado, s.preco), COALESCE(s.prazoTerceirizadoHoras, s.tempoMedioHoras)) " +
+            "FROM ServicoProtetico s JOIN s.protetico p " +
+            "WHERE p.id = :proteticoId AND s.politicaExecucao IN :politicas AND s.ativo = true")
+    List<CandidatoTerceirizacaoDTO> buscarCandidatosTerceirizacaoPorProtetico(
+            @Param("proteticoId") Long proteticoId,
+            @Param("politicas") List<PoliticaExecucaoServico> politicas
+    );
+}
@@ -0,0 +1,25 @@
+package com.proteticos.ordermanagement.repository;
+
+import com.proteticos.ordermanagement.model.TemplateEtapa;
+import com.proteticos.ordermanagement.model.TipoServico;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface TemplateEtapaRepository extends JpaRepository<TemplateEtapa, Long> {
+
+    // Carga completa do registro (padrões + overrides), já na ordem de montagem
+    List<TemplateEtapa> findByAtivoTrueOrderByTipoServicoAscProteticoIdAscOrdemAsc();
+
+    boolean existsByProteticoIdIsNull();
+
+    @Modifying
+    @Query("DELETE FROM TemplateEtapa t WHERE t.tipoServico = :tipoServico AND t.proteticoId = :proteticoId")
+    void removerOverride(@Param("tipoServico") TipoServico tipoServico,
+                         @Param("proteticoId") Long proteticoId);
+}
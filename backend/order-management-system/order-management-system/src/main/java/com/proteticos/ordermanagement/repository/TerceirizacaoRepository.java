@@ -3,9 +3,12 @@ package com.proteticos.ordermanagement.repository;
 import com.proteticos.ordermanagement.model.Terceirizacao;
 import com.proteticos.ordermanagement.model.StatusTerceirizacao;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,17 +21,90 @@ public interface TerceirizacaoRepository extends JpaRepository<Terceirizacao, Lo
     List<Terceirizacao> findByProteticoDestinoId(Long proteticoDestinoId);
     List<Terceirizacao> findByPedidoId(Long pedidoId);
     List<Terceirizacao> findByPedidoIdIn(List<Long> pedidoIds);
+
+    // Id da terceirização atual de cada pedido: [pedidoId, terceirizacaoId]. Com executor definido é o
+    // registro dele (não uma oferta retirada do mesmo broadcast); sem executor, o mais recente do pedido
+    @Query("SELECT p.id, MAX(t.id) FROM Terceirizacao t JOIN t.pedido p WHERE p.id IN :pedidoIds " +
+            "AND (p.proteticoTerceirizado.id IS NULL OR t.proteticoDestino.id = p.proteticoTerceirizado.id) " +
+            "GROUP BY p.id")
+    List<Object[]> buscarTerceirizacaoAtualIdPorPedido(@Param("pedidoIds") List<Long> pedidoIds);
     List<Terceirizacao> findByStatus(StatusTerceirizacao status);
+    long countByStatus(StatusTerceirizacao status);
     List<Terceirizacao> findByPedidoIdAndStatus(Long pedidoId, StatusTerceirizacao status);
     List<Terceirizacao> findByStatusIn(List<StatusTerceirizacao> statuses);
 
-    // Métodos que retornam Optional (CRITICAIS - ADICIONE ESTES)
-    Optional<Terceirizacao> findByPedidoIdAndProteticoDestinoId(Long pedidoId, Long proteticoDestinoId);
+    // Um laboratório pode ter vários registros no mesmo pedido (recusou e recebeu nova oferta):
+    // a verificação de duplicata olha só os que ainda estão em aberto
+    boolean existsByPedidoIdAndProteticoDestinoIdAndStatusIn(Long pedidoId, Long proteticoDestinoId,
+                                                             List<StatusTerceirizacao> statuses);
+
+    // Registro mais recente do laboratório no pedido (o atual, se ele é o executor)
+    Optional<Terceirizacao> findFirstByPedidoIdAndProteticoDestinoIdOrderByIdDesc(Long pedidoId, Long proteticoDestinoId);
+
+    // Laboratórios que já recusaram o pedido: ficam fora de uma nova oferta em broadcast
+    @Query("SELECT DISTINCT t.proteticoDestino.id FROM Terceirizacao t WHERE t.pedido.id = :pedidoId " +
+            "AND t.status = com.proteticos.ordermanagement.model.StatusTerceirizacao.RECUSADO")
+    List<Long> listarDestinosQueRecusaram(@Param("pedidoId") Long pedidoId);
+
+    // Compare-and-set do registro de terceirização: só muda se ainda estiver no status esperado.
+    // Datas e nota nulas mantêm o valor atual (CAST: parâmetros nulos sem tipo, ver PedidoRepository)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Terceirizacao t SET t.status = :novo, " +
+            "t.aceitoEm = COALESCE(CAST(:aceitoEm AS LocalDateTime), t.aceitoEm), " +
+            "t.concluidoEm = COALESCE(CAST(:concluidoEm AS LocalDateTime), t.concluidoEm), " +
+            "t.observacoes = CASE WHEN CAST(:nota AS String) IS NULL THEN t.observacoes " +
+            "WHEN t.observacoes IS NULL THEN CAST(:nota AS String) " +
+            "ELSE CONCAT(t.observacoes, ' | ', CAST(:nota AS String)) END, " +
+            "t.versao = t.versao + 1 " +
+            "WHERE t.id = :id AND t.status = :esperado")
+    int transicionarStatus(@Param("id") Long id,
+                           @Param("esperado") StatusTerceirizacao esperado,
+                           @Param("novo") StatusTerceirizacao novo,
+                           @Param("aceitoEm") LocalDateTime aceitoEm,
+                           @Param("concluidoEm") LocalDateTime concluidoEm,
+                           @Param("nota") String nota);
+
+    // ============ OFERTA EM BROADCAST ============
+
+    boolean existsByPedidoIdAndProteticoDestinoId(Long pedidoId, Long proteticoDestinoId);
+
+    @Query("SELECT MAX(t.id) FROM Terceirizacao t WHERE t.pedido.id = :pedidoId AND t.proteticoDestino.id = :proteticoId")
+    Long buscarUltimaIdPorPedidoEDestino(@Param("pedidoId") Long pedidoId, @Param("proteticoId") Long proteticoId);
+
+    // Compare-and-set da oferta de um laboratório específico
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Terceirizacao t SET t.status = :novo, " +
+            "t.aceitoEm = COALESCE(CAST(:aceitoEm AS LocalDateTime), t.aceitoEm), " +
+            "t.observacoes = CASE WHEN CAST(:nota AS String) IS NULL THEN t.observacoes " +
+            "WHEN t.observacoes IS NULL THEN CAST(:nota AS String) " +
+            "ELSE CONCAT(t.observacoes, ' | ', CAST(:nota AS String)) END, " +
+            "t.versao = t.versao + 1 " +
+            "WHERE t.pedido.id = :pedidoId AND t.proteticoDestino.id = :proteticoId AND t.status = :esperado")
+    int transicionarOferta(@Param("pedidoId") Long pedidoId,
+                           @Param("proteticoId") Long proteticoId,
+                           @Param("esperado") StatusTerceirizacao esperado,
+                           @Param("novo") StatusTerceirizacao novo,
+                           @Param("aceitoEm") LocalDateTime aceitoEm,
+                           @Param("nota") String nota);
 
-    // Adicione este método para resolver o erro da linha 390
-    @Query("SELECT t FROM Terceirizacao t WHERE t.pedido.id = :pedidoId ORDER BY t.id DESC LIMIT 1")
-    Optional<Terceirizacao> findTopByPedidoId(Long pedidoId);
+    // Retira (CANCELADO) as ofertas ainda abertas do pedido, exceto a do laboratório informado
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Terceirizacao t SET t.status = com.proteticos.ordermanagement.model.StatusTerceirizacao.CANCELADO, " +
+            "t.observacoes = CASE WHEN t.observacoes IS NULL THEN :nota " +
+            "ELSE CONCAT(t.observacoes, ' | ', :nota) END, " +
+            "t.versao = t.versao + 1 " +
+            "WHERE t.pedido.id = :pedidoId " +
+            "AND t.status = com.proteticos.ordermanagement.model.StatusTerceirizacao.SOLICITADO " +
+            "AND t.proteticoDestino.id <> COALESCE(:excetoProteticoId, -1)")
+    int retirarOfertasAbertas(@Param("pedidoId") Long pedidoId,
+                              @Param("excetoProteticoId") Long excetoProteticoId,
+                              @Param("nota") String nota);
 
-    // Ou se preferir sem @Query:
-    Optional<Terceirizacao> findFirstByPedidoIdOrderByIdDesc(Long pedidoId);
-}
\ No newline at end of file
+    // Ofertas abertas para um laboratório, com pedido e protéticos já carregados
+    @Query("SELECT t FROM Terceirizacao t JOIN FETCH t.pedido p JOIN FETCH p.protetico " +
+            "JOIN FETCH t.proteticoOrigem JOIN FETCH t.proteticoDestino " +
+            "WHERE t.proteticoDestino.id = :proteticoId " +
+            "AND t.status = com.proteticos.ordermanagement.model.StatusTerceirizacao.SOLICITADO " +
+            "ORDER BY t.id")
+    List<Terceirizacao> listarOfertasAbertas(@Param("proteticoId") Long proteticoId);
+}
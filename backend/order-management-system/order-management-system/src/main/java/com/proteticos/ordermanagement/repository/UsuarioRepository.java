@@ -2,7 +2,11 @@ package com.proteticos.ordermanagement.repository;
 
 import com.proteticos.ordermanagement.model.Usuario;
 import com.proteticos.ordermanagement.model.UserTipo;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,7 +15,8 @@ import java.util.Optional;
 @Repository
 public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
 
-    // Buscar por email
+    // Buscar por email (login): resultado no cache de consultas, entidade no cache de segundo nível
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Usuario> findByEmail(String email);
 
     // Buscar por tipo de usuário
@@ -22,4 +27,8 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
 
     // Buscar usuários ativos
     List<Usuario> findByAtivoTrue();
+
+    // Dentistas e demais usuários; os protéticos vêm com as coleções por ProteticoRepository.listarComServicos
+    @Query("SELECT u FROM Usuario u WHERE TYPE(u) <> Protetico")
+    List<Usuario> listarExcetoProteticos();
 }
\ No newline at end of file
@@ -0,0 +1,302 @@
+package com.proteticos.ordermanagement.service;
+
+import com.proteticos.ordermanagement.repository.EtapaPedidoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Agenda de produção em memória: horas de bancada comprometidas por dia, por protético
+ * (cada protético é o laboratório e o técnico responsável pelas suas etapas).
+ *
+ * Cada etapa iniciada reserva suas horas nos primeiros dias com capacidade livre
+ * (app.agenda.horas-por-dia, a partir de app.agenda.inicio-expediente); o prazo da etapa
+ * é o fim da última hora reservada. Entre vários responsáveis possíveis, fica o que termina antes.
+ *
+ * Carregada uma vez na inicialização; depois muda só de forma incremental:
+ * reserva ao iniciar a etapa (desfeita se a transação fizer rollback) e
+ * devolução das horas após o commit da conclusão/cancelamento (PrazoAlteradoEvent).
+ */
+@Service
+public class AgendaProducaoService {
+
+    private static final Logger log = LoggerFactory.getLogger(AgendaProducaoService.class);
+
+    @Autowired
+    private EtapaPedidoRepository etapaPedidoRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private final int horasPorDia;
+    private final int inicioExpediente;
+    private final boolean trabalhaFimDeSemana;
+
+    // proteticoId -> (dia -> horas comprometidas); dias sem reserva não aparecem
+    private final Map<Long, TreeMap<LocalDate, Integer>> agendas = new HashMap<>();
+
+    // Reserva ativa de cada etapa em andamento
+    private final Map<Long, Reserva> porEtapa = new HashMap<>();
+
+    // Escolher o responsável e reservar precisa ver a agenda de todos os candidatos de uma vez
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public AgendaProducaoService(@Value("${app.agenda.horas-por-dia:8}") int horasPorDia,
+                                 @Value("${app.agenda.inicio-expediente:8}") int inicioExpediente,
+                                 @Value("${app.agenda.fim-de-semana:false}") boolean trabalhaFimDeSemana) {
+        if (horasPorDia < 1 || inicioExpediente < 0 || inicioExpediente + horasPorDia > 24) {
+            throw new IllegalArgumentException("Expediente inválido: início " + inicioExpediente +
+                    "h com " + horasPorDia + " horas por dia");
+        }
+        this.horasPorDia = horasPorDia;
+        this.inicioExpediente = inicioExpediente;
+        this.trabalhaFimDeSemana = trabalhaFimDeSemana;
+    }
+
+    // ============ RESERVA ============
+
+    /**
+     * Reserva {@code horas} na agenda do candidato que termina primeiro (empate: o primeiro da lista).
+     * Dentro de uma transação, a reserva é devolvida se ela fizer rollback.
+     */
+    public Reserva reservar(List<Long> candidatos, int horas) {
+        return reservar(candidatos, horas, LocalDateTime.now());
+    }
+
+    Reserva reservar(List<Long> candidatos, int horas, LocalDateTime agora) {
+        int horasReserva = Math.max(1, horas);
+        Reserva melhor = null;
+
+        lock.lock();
+        try {
+            for (Long proteticoId : candidatos) {
+                if (proteticoId == null) {
+                    continue;
+                }
+                Reserva simulada = simular(proteticoId, horasReserva, agora);
+                if (melhor == null || simulada.termino.isBefore(melhor.termino)) {
+                    melhor = simulada;
+                }
+            }
+            if (melhor == null) {
+                throw new RuntimeException("Nenhum responsável disponível para agendar a etapa");
+            }
+            aplicar(melhor);
+        } finally {
+            lock.unlock();
+        }
+
+        eventPublisher.publishEvent(new AgendaReservadaEvent(melhor));
+        return melhor;
+    }
+
+    /** Associa a reserva à etapa salva; uma reserva anterior da mesma etapa é devolvida. */
+    public void vincular(Long etapaId, Reserva reserva) {
+        lock.lock();
+        try {
+            reserva.etapaId = etapaId;
+            Reserva anterior = porEtapa.put(etapaId, reserva);
+            if (anterior != null && anterior != reserva) {
+                devolver(anterior);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Devolve à agenda as horas da etapa (concluída ou cancelada). */
+    public void liberarEtapa(Long etapaId) {
+        lock.lock();
+        try {
+            Reserva reserva = porEtapa.remove(etapaId);
+            if (reserva != null) {
+                devolver(reserva);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ============ CONSULTA ============
+
+    /** Horas comprometidas por dia a partir de hoje. */
+    public Map<LocalDate, Integer> consultarAgenda(Long proteticoId) {
+        lock.lock();
+        try {
+            TreeMap<LocalDate, Integer> agenda = agendas.get(proteticoId);
+            if (agenda == null) {
+                return Collections.emptyMap();
+            }
+            return new LinkedHashMap<>(agenda.tailMap(LocalDate.now(), true));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ============ EVENTOS ============
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_ROLLBACK)
+    public void onReservaDesfeita(AgendaReservadaEvent event) {
+        lock.lock();
+        try {
+            Reserva reserva = event.getReserva();
+            if (reserva.etapaId != null) {
+                porEtapa.remove(reserva.etapaId, reserva);
+            }
+            devolver(reserva);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPrazoAlterado(PrazoAlteradoEvent event) {
+        if (event.getTipo() == PrazoAlteradoEvent.Tipo.ETAPA && !event.isAberto()) {
+            liberarEtapa(event.getId());
+        }
+    }
+
+    // ============ CARGA ============
+
+    // Reconstrói a agenda a partir das etapas em andamento, reservando do mais antigo para o mais novo
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregar() {
+        List<Object[]> abertas = etapaPedidoRepository.listarReservasAbertas();
+        LocalDateTime agora = LocalDateTime.now();
+
+        lock.lock();
+        try {
+            agendas.clear();
+            porEtapa.clear();
+            for (Object[] linha : abertas) {
+                Reserva reserva = simular((Long) linha[1], Math.max(1, (Integer) linha[2]), agora);
+                aplicar(reserva);
+                reserva.etapaId = (Long) linha[0];
+                porEtapa.put(reserva.etapaId, reserva);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        log.atInfo()
+                .addKeyValue("etapasEmAndamento", abertas.size())
+                .log("Agenda de produção carregada");
+    }
+
+    // ============ ALOCAÇÃO (sob lock) ============
+
+    // Preenche os primeiros dias úteis com capacidade livre, sem alterar a agenda
+    private Reserva simular(Long proteticoId, int horas, LocalDateTime agora) {
+        TreeMap<LocalDate, Integer> agenda = agendas.get(proteticoId);
+        int fimExpediente = inicioExpediente + horasPorDia;
+        // Hoje só conta o que resta do expediente (hora cheia seguinte)
+        int horaAtual = agora.getHour() + (agora.getMinute() > 0 || agora.getSecond() > 0 ? 1 : 0);
+
+        List<LocalDate> dias = new ArrayList<>();
+        List<Integer> alocadas = new ArrayList<>();
+        int restante = horas;
+        LocalDate dia = agora.toLocalDate();
+        LocalDateTime termino = null;
+
+        while (restante > 0) {
+            if (isDiaUtil(dia)) {
+                Integer comprometidas = agenda != null ? agenda.get(dia) : null;
+                int inicio = inicioExpediente + (comprometidas != null ? comprometidas : 0);
+                if (dia.equals(agora.toLocalDate())) {
+                    inicio = Math.max(inicio, horaAtual);
+                }
+                int livre = fimExpediente - inicio;
+                if (livre > 0) {
+                    int usar = Math.min(livre, restante);
+                    dias.add(dia);
+                    alocadas.add(usar);
+                    restante -= usar;
+                    termino = dia.atStartOfDay().plusHours(inicio + usar);
+                }
+            }
+            dia = dia.plusDays(1);
+        }
+
+        return new Reserva(proteticoId, horas, dias, alocadas, termino);
+    }
+
+    private void aplicar(Reserva reserva) {
+        TreeMap<LocalDate, Integer> agenda = agendas.computeIfAbsent(reserva.proteticoId, id -> new TreeMap<>());
+        // Dias que já passaram não influenciam novas reservas
+        agenda.headMap(LocalDate.now(), false).clear();
+        for (int i = 0; i < reserva.dias.size(); i++) {
+            agenda.merge(reserva.dias.get(i), reserva.alocadas.get(i), Integer::sum);
+        }
+    }
+
+    private void devolver(Reserva reserva) {
+        if (reserva.devolvida) {
+            return;
+        }
+        reserva.devolvida = true;
+
+        TreeMap<LocalDate, Integer> agenda = agendas.get(reserva.proteticoId);
+        if (agenda == null) {
+            return;
+        }
+        for (int i = 0; i < reserva.dias.size(); i++) {
+            int horas = reserva.alocadas.get(i);
+            agenda.computeIfPresent(reserva.dias.get(i), (d, atual) -> atual > horas ? atual - horas : null);
+        }
+        if (agenda.isEmpty()) {
+            agendas.remove(reserva.proteticoId);
+        }
+    }
+
+    private boolean isDiaUtil(LocalDate dia) {
+        DayOfWeek diaSemana = dia.getDayOfWeek();
+        return trabalhaFimDeSemana || (diaSemana != DayOfWeek.SATURDAY && diaSemana != DayOfWeek.SUNDAY);
+    }
+
+    // ============ ESTRUTURA ============
+
+    /** Horas reservadas para uma etapa na agenda de um protético. */
+    public static final class Reserva {
+        private final Long proteticoId;
+        private final int horas;
+        private final List<LocalDate> dias;
+        private final List<Integer> alocadas;
+        private final LocalDateTime termino;
+
+        // Mutáveis apenas sob o lock do serviço
+        private Long etapaId;
+        private boolean devolvida;
+
+        private Reserva(Long proteticoId, int horas, List<LocalDate> dias, List<Integer> alocadas,
+                        LocalDateTime termino) {
+            this.proteticoId = proteticoId;
+            this.horas = horas;
+            this.dias = dias;
+            this.alocadas = alocadas;
+            this.termino = termino;
+        }
+
+        public Long getProteticoId() { return proteticoId; }
+        public int getHoras() { return horas; }
+        public LocalDateTime getTermino() { return termino; }
+    }
+}
@@ -0,0 +1,16 @@
+package com.proteticos.ordermanagement.service;
+
+/**
+ * Publicado quando o AgendaProducaoService reserva horas dentro de uma transação.
+ * Se a transação fizer rollback, a reserva é devolvida à agenda.
+ */
+public class AgendaReservadaEvent {
+
+    private final AgendaProducaoService.Reserva reserva;
+
+    public AgendaReservadaEvent(AgendaProducaoService.Reserva reserva) {
+        this.reserva = reserva;
+    }
+
+    public AgendaProducaoService.Reserva getReserva() { return reserva; }
+}
@@ -0,0 +1,210 @@
+package com.proteticos.ordermanagement.service;
+
+import com.proteticos.ordermanagement.DTO.SessaoDTO;
+import com.proteticos.ordermanagement.model.UserTipo;
+import com.proteticos.ordermanagement.model.Usuario;
+import com.proteticos.ordermanagement.repository.UsuarioRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Login por email (lookup único pelo índice de usuarios.email) e emissão de
+ * tokens de sessão assinados com HMAC-SHA256.
+ *
+ * Token: base64url(usuarioId:tipo:expiraEmEpochSeg) + "." + base64url(assinatura).
+ * A validação não consulta o banco: sessões já verificadas ficam num cache LRU limitado,
+ * e um cache miss custa apenas um HMAC.
+ */
+@Service
+public class AutenticacaoService {
+
+    private static final String ALGORITMO_HMAC = "HmacSHA256";
+
+    // Usado quando o email não existe, para o tempo de resposta não denunciar contas válidas
+    private static final String HASH_FICTICIO = SenhaHasher.gerarHash("senha-ficticia");
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    private final SecretKeySpec chave;
+    private final Duration validade;
+    private final int maximoSessoesCache;
+
+    private final Map<String, SessaoDTO> cacheSessoes;
+    private final ReentrantLock lockCache = new ReentrantLock();
+
+    public AutenticacaoService(
+            @Value("${app.auth.token-secret:}") String segredo,
+            @Value("${app.auth.token-validade-horas:12}") long validadeHoras,
+            @Value("${app.auth.sessoes-cache-maximo:10000}") int maximoSessoesCache) {
+        byte[] bytesChave;
+        if (segredo == null || segredo.isBlank()) {
+            // Sem segredo configurado: chave aleatória por instância (tokens não sobrevivem a restart)
+            bytesChave = new byte[32];
+            new SecureRandom().nextBytes(bytesChave);
+        } else {
+            bytesChave = segredo.getBytes(StandardCharsets.UTF_8);
+        }
+        this.chave = new SecretKeySpec(bytesChave, ALGORITMO_HMAC);
+        this.validade = Duration.ofHours(validadeHoras);
+        this.maximoSessoesCache = maximoSessoesCache;
+        this.cacheSessoes = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SessaoDTO> eldest) {
+                return size() > AutenticacaoService.this.maximoSessoesCache;
+            }
+        };
+    }
+
+    // ============ LOGIN ============
+
+    /**
+     * Valida email/senha com uma única consulta indexada.
+     * Senhas legadas em texto puro são convertidas para hash no primeiro login válido.
+     */
+    @Transactional
+    public Optional<Usuario> autenticar(String email, String senha) {
+        if (email == null || senha == null) {
+            return Optional.empty();
+        }
+
+        Optional<Usuario> usuarioOpt = usuarioRepository.findByEmail(email.trim());
+        if (usuarioOpt.isEmpty()) {
+            SenhaHasher.verificar(senha, HASH_FICTICIO);
+            return Optional.empty();
+        }
+
+        Usuario usuario = usuarioOpt.get();
+        if (!SenhaHasher.verificar(senha, usuario.getSenha()) || !usuario.isAtivo()) {
+            return Optional.empty();
+        }
+
+        if (SenhaHasher.precisaRehash(usuario.getSenha())) {
+            usuario.setSenha(SenhaHasher.gerarHash(senha));
+            usuarioRepository.save(usuario);
+        }
+        return Optional.of(usuario);
+    }
+
+    // ============ TOKENS ============
+
+    public String emitirToken(Usuario usuario) {
+        Instant expiraEm = Instant.now().plus(validade);
+        String payload = usuario.getId() + ":" + usuario.getTipo().name() + ":" + expiraEm.getEpochSecond();
+
+        Base64.Encoder b64 = Base64.getUrlEncoder().withoutPadding();
+        String token = b64.encodeToString(payload.getBytes(StandardCharsets.UTF_8))
+                + "." + b64.encodeToString(assinar(payload));
+
+        guardarNoCache(token, new SessaoDTO(usuario.getId(), usuario.getTipo(), expiraEm));
+        return token;
+    }
+
+    /**
+     * Resolve o token sem acessar o banco. Retorna vazio se inválido ou expirado.
+     */
+    public Optional<SessaoDTO> validarToken(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        Instant agora = Instant.now();
+
+        SessaoDTO sessao = buscarNoCache(token);
+        if (sessao == null) {
+            sessao = decodificar(token);
+            if (sessao == null) {
+                return Optional.empty();
+            }
+            guardarNoCache(token, sessao);
+        }
+
+        if (sessao.isExpirada(agora)) {
+            removerDoCache(token);
+            return Optional.empty();
+        }
+        return Optional.of(sessao);
+    }
+
+    private SessaoDTO decodificar(String token) {
+        int ponto = token.indexOf('.');
+        if (ponto <= 0 || ponto == token.length() - 1) {
+            return null;
+        }
+        try {
+            Base64.Decoder b64 = Base64.getUrlDecoder();
+            String payload = new String(b64.decode(token.substring(0, ponto)), StandardCharsets.UTF_8);
+            byte[] assinatura = b64.decode(token.substring(ponto + 1));
+
+            if (!MessageDigest.isEqual(assinar(payload), assinatura)) {
+                return null;
+            }
+
+            String[] partes = payload.split(":");
+            if (partes.length != 3) {
+                return null;
+            }
+            return new SessaoDTO(
+                    Long.valueOf(partes[0]),
+                    UserTipo.valueOf(partes[1]),
+                    Instant.ofEpochSecond(Long.parseLong(partes[2]))
+            );
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private byte[] assinar(String payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITMO_HMAC);
+            mac.init(chave);
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Falha ao assinar token de sessão", e);
+        }
+    }
+
+    // ============ CACHE LRU ============
+
+    private SessaoDTO buscarNoCache(String token) {
+        lockCache.lock();
+        try {
+            return cacheSessoes.get(token);
+        } finally {
+            lockCache.unlock();
+        }
+    }
+
+    private void guardarNoCache(String token, SessaoDTO sessao) {
+        lockCache.lock();
+        try {
+            cacheSessoes.put(token, sessao);
+        } finally {
+            lockCache.unlock();
+        }
+    }
+
+    private void removerDoCache(String token) {
+        lockCache.lock();
+        try {
+            cacheSessoes.remove(token);
+        } finally {
+            lockCache.unlock();
+        }
+    }
+}
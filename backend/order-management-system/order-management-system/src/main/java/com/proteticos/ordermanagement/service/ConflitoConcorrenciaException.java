@@ -0,0 +1,21 @@
+package com.proteticos.ordermanagement.service;
+
+/**
+ * Lançada quando uma mudança de estado perde a corrida para outra requisição:
+ * a versão enviada no If-Match não é a atual, ou as novas tentativas se esgotaram.
+ * Os controllers traduzem para HTTP 409.
+ */
+public class ConflitoConcorrenciaException extends RuntimeException {
+
+    private final Long versaoAtual;
+
+    public ConflitoConcorrenciaException(String mensagem, Long versaoAtual) {
+        super(mensagem);
+        this.versaoAtual = versaoAtual;
+    }
+
+    // Versão vigente no momento do conflito (null quando desconhecida)
+    public Long getVersaoAtual() {
+        return versaoAtual;
+    }
+}
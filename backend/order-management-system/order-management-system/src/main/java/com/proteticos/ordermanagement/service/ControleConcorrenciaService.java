@@ -0,0 +1,85 @@
+package com.proteticos.ordermanagement.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Executa mudanças de estado sob controle otimista (@Version em Pedido, Terceirizacao e EtapaPedido).
+ *
+ * Cada tentativa roda numa transação própria: se o commit falhar porque outra requisição
+ * alterou a linha antes, a operação é repetida do zero (relendo a entidade e revalidando
+ * podeMudarPara), até app.concorrencia.tentativas vezes.
+ *
+ * Com If-Match (versaoEsperada != null) não há nova tentativa: o cliente decidiu com base
+ * numa versão específica, então qualquer conflito vira ConflitoConcorrenciaException (409).
+ */
+@Service
+public class ControleConcorrenciaService {
+
+    private static final Logger log = LoggerFactory.getLogger(ControleConcorrenciaService.class);
+
+    private final TransactionTemplate transactionTemplate;
+    private final int tentativas;
+    private final long esperaBaseMs;
+
+    public ControleConcorrenciaService(
+            PlatformTransactionManager transactionManager,
+            @Value("${app.concorrencia.tentativas:3}") int tentativas,
+            @Value("${app.concorrencia.espera-base-ms:10}") long esperaBaseMs) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tentativas = Math.max(1, tentativas);
+        this.esperaBaseMs = Math.max(0, esperaBaseMs);
+    }
+
+    public <T> T executar(String recurso, Long versaoEsperada, Supplier<T> operacao) {
+        int maximo = versaoEsperada != null ? 1 : tentativas;
+
+        for (int tentativa = 1; ; tentativa++) {
+            try {
+                return transactionTemplate.execute(status -> operacao.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (tentativa >= maximo) {
+                    log.atWarn()
+                            .addKeyValue("recurso", recurso)
+                            .addKeyValue("tentativas", tentativa)
+                            .log("Conflito de concorrência não resolvido");
+                    throw new ConflitoConcorrenciaException(
+                            recurso + " foi alterado por outra requisição. Recarregue e tente novamente.", null);
+                }
+                log.atDebug()
+                        .addKeyValue("recurso", recurso)
+                        .addKeyValue("tentativa", tentativa)
+                        .log("Conflito de versão, repetindo operação");
+                aguardar(tentativa);
+            }
+        }
+    }
+
+    // Confere o If-Match dentro da transação, antes de qualquer alteração
+    public static void verificarVersao(String recurso, long versaoAtual, Long versaoEsperada) {
+        if (versaoEsperada != null && versaoEsperada != versaoAtual) {
+            throw new ConflitoConcorrenciaException(
+                    recurso + " está na versão " + versaoAtual + ", não na " + versaoEsperada + " informada.",
+                    versaoAtual);
+        }
+    }
+
+    // Backoff exponencial com jitter, para as requisições concorrentes não colidirem de novo em sincronia
+    private void aguardar(int tentativa) {
+        if (esperaBaseMs == 0) {
+            return;
+        }
+        long teto = esperaBaseMs << Math.min(tentativa - 1, 6);
+        long esperaMs = ThreadLocalRandom.current().nextLong(teto / 2, teto + 1);
+        LockSupport.parkNanos(esperaMs * 1_000_000L);
+    }
+}
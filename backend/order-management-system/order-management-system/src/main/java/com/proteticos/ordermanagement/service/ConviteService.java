@@ -6,11 +6,19 @@ import com.proteticos.ordermanagement.model.UserTipo;
 import com.proteticos.ordermanagement.model.Usuario;
 import com.proteticos.ordermanagement.repository.ConviteRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
+import java.security.SecureRandom;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 @Service
 public class ConviteService {
@@ -18,25 +26,119 @@ public class ConviteService {
     @Autowired
     private ConviteRepository conviteRepository;
 
+    // 12 símbolos de um alfabeto de 32 = 60 bits: colisão é improvável o bastante para
+    // dispensar a consulta prévia; a unique constraint de codigo garante o resto
+    private static final char[] ALFABETO_CODIGO = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789".toCharArray();
+    private static final int TAMANHO_CODIGO = 12;
+    private static final int MAXIMO_TENTATIVAS = 3;
+    private static final int LIMITE_CONVITES_ATIVOS = 10;
+    public static final int LIMITE_LOTE = 500;
+    private static final Pattern FORMATO_EMAIL = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // Cota de convites ativos (não utilizados) de quem gera em lote, contando os que ele já tem
+    @Value("${app.convites.lote.limite-ativos:500}")
+    private int limiteAtivosLote;
+
     public Convite criarConvite(UserTipo tipo, String emailConvidado, Usuario criadoPor) {
         // Verificar limite de convites (ex: 10 por mês)
         long convitesAtivos = conviteRepository.countByCriadoPorIdAndUtilizadoFalse(criadoPor.getId());
-        if (convitesAtivos >= 10) {
+        if (convitesAtivos >= LIMITE_CONVITES_ATIVOS) {
             throw new RuntimeException("Limite de convites atingido");
         }
 
-        String codigo = gerarCodigoUnico(tipo);
+        // Insere direto; em colisão de código (violação da unique) tenta de novo com outro
+        for (int tentativa = 1; ; tentativa++) {
+            try {
+                return conviteRepository.saveAndFlush(novoConvite(tipo, emailConvidado, criadoPor));
+            } catch (DataIntegrityViolationException e) {
+                if (tentativa >= MAXIMO_TENTATIVAS) {
+                    throw new RuntimeException("Não foi possível gerar um código de convite único", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gera convites em lote (onboarding de uma rede de clínicas) numa única transação.
+     * Um convite por email informado; se não houver emails, {@code quantidade} convites sem email.
+     * Em vez do limite de {@value #LIMITE_CONVITES_ATIVOS} do convite avulso vale a cota
+     * app.convites.lote.limite-ativos: convites ativos do usuário + lote não podem passar dela.
+     * Emails são normalizados (minúsculas); inválidos, repetidos no lote ou com convite aberto recusam o lote.
+     */
+    public List<Convite> criarConvitesEmLote(UserTipo tipo, List<String> emails, int quantidade, Usuario criadoPor) {
+        List<String> emailsNormalizados = emails != null && !emails.isEmpty() ? validarEmails(emails) : null;
+        int total = emailsNormalizados != null ? emailsNormalizados.size() : quantidade;
+        if (total <= 0) {
+            throw new RuntimeException("Informe emails ou uma quantidade de convites");
+        }
+        if (total > LIMITE_LOTE) {
+            throw new RuntimeException("Lote máximo é de " + LIMITE_LOTE + " convites");
+        }
+
+        long convitesAtivos = conviteRepository.countByCriadoPorIdAndUtilizadoFalse(criadoPor.getId());
+        if (convitesAtivos + total > limiteAtivosLote) {
+            throw new RuntimeException("Limite de convites atingido: " + convitesAtivos + " ativos, " +
+                    "lote de " + total + ", máximo de " + limiteAtivosLote);
+        }
+
+        for (int tentativa = 1; ; tentativa++) {
+            List<Convite> convites = new ArrayList<>(total);
+            for (int i = 0; i < total; i++) {
+                String email = emailsNormalizados != null ? emailsNormalizados.get(i) : null;
+                convites.add(novoConvite(tipo, email, criadoPor));
+            }
+            try {
+                // saveAll é transacional: ou entra o lote todo, ou nenhum
+                return conviteRepository.saveAll(convites);
+            } catch (DataIntegrityViolationException e) {
+                if (tentativa >= MAXIMO_TENTATIVAS) {
+                    throw new RuntimeException("Não foi possível gerar códigos de convite únicos", e);
+                }
+            }
+        }
+    }
+
+    // Lote com qualquer email inválido ou duplicado é recusado inteiro, com a lista dos problemas
+    private List<String> validarEmails(List<String> emails) {
+        Set<String> normalizados = new LinkedHashSet<>(emails.size());
+        List<String> invalidos = new ArrayList<>();
+        Set<String> repetidos = new LinkedHashSet<>();
+        for (String email : emails) {
+            String normalizado = email != null ? email.trim().toLowerCase(Locale.ROOT) : "";
+            if (!FORMATO_EMAIL.matcher(normalizado).matches()) {
+                invalidos.add(email);
+            } else if (!normalizados.add(normalizado)) {
+                repetidos.add(normalizado);
+            }
+        }
+        if (!invalidos.isEmpty()) {
+            throw new RuntimeException("Emails inválidos: " + invalidos);
+        }
+        if (!repetidos.isEmpty()) {
+            throw new RuntimeException("Emails repetidos no lote: " + repetidos);
+        }
+
+        List<String> comConvite = conviteRepository.listarEmailsComConviteAberto(normalizados, LocalDateTime.now());
+        if (!comConvite.isEmpty()) {
+            throw new RuntimeException("Emails que já têm convite em aberto: " + comConvite);
+        }
+        return new ArrayList<>(normalizados);
+    }
+
+    private Convite novoConvite(UserTipo tipo, String emailConvidado, Usuario criadoPor) {
+        LocalDateTime agora = LocalDateTime.now();
 
         Convite convite = new Convite();
-        convite.setCodigo(codigo);
+        convite.setCodigo(gerarCodigo(tipo));
         convite.setTipo(tipo);
         convite.setEmailConvidado(emailConvidado);
         convite.setCriadoPor(criadoPor); // ← IMPORTANTE: setar o criadoPor
-        convite.setCriadoEm(LocalDateTime.now());
-        convite.setExpiraEm(LocalDateTime.now().plusDays(30));
+        convite.setCriadoEm(agora);
+        convite.setExpiraEm(agora.plusDays(30));
         convite.setUtilizado(false);
-
-        return conviteRepository.save(convite);
+        return convite;
     }
 
     public Optional<Convite> validarConvite(String codigo) {
@@ -57,24 +159,12 @@ public class ConviteService {
         conviteRepository.save(convite);
     }
 
-    private String gerarCodigoUnico(UserTipo tipo) {
-        String codigo;
-        do {
-            String prefixo = tipo == UserTipo.DENTISTA ? "DENT" : "PROT";
-            // Gera código sem usar UUID para o ID
-            String randomPart = generateRandomString(8);
-            codigo = "PTLAB-" + prefixo + "-" + randomPart;
-        } while (conviteRepository.existsByCodigo(codigo));
-
-        return codigo;
-    }
-
-    private String generateRandomString(int length) {
-        String characters = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
-        StringBuilder result = new StringBuilder();
-        for (int i = 0; i < length; i++) {
-            result.append(characters.charAt((int) (Math.random() * characters.length())));
+    private String gerarCodigo(UserTipo tipo) {
+        String prefixo = tipo == UserTipo.DENTISTA ? "DENT" : "PROT";
+        char[] aleatorio = new char[TAMANHO_CODIGO];
+        for (int i = 0; i < TAMANHO_CODIGO; i++) {
+            aleatorio[i] = ALFABETO_CODIGO[RANDOM.nextInt(ALFABETO_CODIGO.length)];
         }
-        return result.toString();
+        return "PTLAB-" + prefixo + "-" + new String(aleatorio);
     }
-}
\ No newline at end of file
+}
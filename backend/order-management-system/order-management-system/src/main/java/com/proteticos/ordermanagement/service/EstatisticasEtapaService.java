@@ -0,0 +1,269 @@
+package com.proteticos.ordermanagement.service;
+
+import com.proteticos.ordermanagement.DTO.PrevisaoEntregaDTO;
+import com.proteticos.ordermanagement.model.StatusEtapa;
+import com.proteticos.ordermanagement.model.TipoServico;
+import com.proteticos.ordermanagement.repository.EtapaPedidoRepository;
+import org.HdrHistogram.PackedConcurrentHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estatísticas de duração das etapas (início -> conclusão, em minutos de relógio) por
+ * (laboratório, tipo de serviço, nome da etapa), em histogramas HdrHistogram.
+ *
+ * Carregadas uma vez na inicialização (janela de app.estatisticas.etapas.janela-dias) e depois
+ * atualizadas a cada conclusão de etapa, sem reler o histórico. Histogramas "packed": a memória
+ * cresce com as faixas de duração observadas, não com a faixa máxima.
+ *
+ * A previsão de um pedido aberto soma as etapas restantes: mediana e dispersão (p50 -> p90) de cada
+ * uma, condicionadas ao tempo já decorrido na etapa em andamento. A probabilidade de cumprir
+ * dataPrevistaEntrega usa aproximação normal da soma. Com poucas amostras do laboratório, usa o
+ * histórico de todos os laboratórios para a mesma etapa; sem nenhum, a duração do template.
+ */
+@Service
+public class EstatisticasEtapaService {
+
+    private static final Logger log = LoggerFactory.getLogger(EstatisticasEtapaService.class);
+
+    // Um ano em minutos; durações maiores são registradas no limite
+    private static final long MAXIMO_MINUTOS = 365L * 24 * 60;
+    private static final int DIGITOS_SIGNIFICATIVOS = 2;
+    // z do percentil 90 da normal padrão
+    private static final double Z_P90 = 1.2816;
+
+    @Autowired
+    private EtapaPedidoRepository etapaPedidoRepository;
+
+    @Autowired
+    private RegistroTemplatesEtapaService registroTemplates;
+
+    @Value("${app.estatisticas.etapas.janela-dias:365}")
+    private int janelaDias;
+
+    @Value("${app.estatisticas.etapas.minimo-amostras:5}")
+    private int minimoAmostras;
+
+    // Chave com laboratório e chave geral (laboratorioId = null) para o fallback
+    private volatile Map<Chave, PackedConcurrentHistogram> histogramas = new ConcurrentHashMap<>();
+
+    // ============ CARGA / ATUALIZAÇÃO ============
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregar() {
+        Map<Chave, PackedConcurrentHistogram> novos = new ConcurrentHashMap<>();
+        List<Object[]> historico = etapaPedidoRepository.listarHistoricoDuracoes(
+                LocalDateTime.now().minusDays(janelaDias));
+
+        Long pedidoAnterior = null;
+        LocalDateTime conclusaoAnterior = null;
+        int amostras = 0;
+        for (Object[] linha : historico) {
+            Long pedidoId = (Long) linha[0];
+            if (!pedidoId.equals(pedidoAnterior)) {
+                pedidoAnterior = pedidoId;
+                conclusaoAnterior = null;
+            }
+            LocalDateTime criacao = (LocalDateTime) linha[5];
+            LocalDateTime inicio = (LocalDateTime) linha[6];
+            LocalDateTime conclusao = (LocalDateTime) linha[7];
+            StatusEtapa status = (StatusEtapa) linha[8];
+
+            if (status == StatusEtapa.CONCLUIDA && conclusao != null) {
+                LocalDateTime base = inicio != null ? inicio : conclusaoAnterior != null ? conclusaoAnterior : criacao;
+                if (base != null) {
+                    registrar(novos, (Long) linha[2], (TipoServico) linha[3], (String) linha[4],
+                            Duration.between(base, conclusao).toMinutes());
+                    amostras++;
+                }
+            }
+            conclusaoAnterior = conclusao;
+        }
+
+        this.histogramas = novos;
+        log.atInfo()
+                .addKeyValue("amostras", amostras)
+                .addKeyValue("histogramas", novos.size())
+                .log("Estatísticas de etapas carregadas");
+    }
+
+    // Só conta conclusões efetivadas (rollback/nova tentativa não geram amostra)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onEtapaConcluida(EtapaConcluidaEvent event) {
+        registrar(histogramas, event.getLaboratorioId(), event.getTipoServico(), event.getNomeEtapa(),
+                event.getDuracaoMinutos());
+    }
+
+    private static void registrar(Map<Chave, PackedConcurrentHistogram> destino, Long laboratorioId,
+                                  TipoServico tipoServico, String nomeEtapa, long minutos) {
+        if (tipoServico == null || nomeEtapa == null || minutos < 0) {
+            return;
+        }
+        long valor = Math.min(Math.max(minutos, 1), MAXIMO_MINUTOS);
+        if (laboratorioId != null) {
+            histograma(destino, new Chave(laboratorioId, tipoServico, nomeEtapa)).recordValue(valor);
+        }
+        histograma(destino, new Chave(null, tipoServico, nomeEtapa)).recordValue(valor);
+    }
+
+    private static PackedConcurrentHistogram histograma(Map<Chave, PackedConcurrentHistogram> destino, Chave chave) {
+        return destino.computeIfAbsent(chave, c -> new PackedConcurrentHistogram(MAXIMO_MINUTOS, DIGITOS_SIGNIFICATIVOS));
+    }
+
+    // ============ CONSULTA ============
+
+    /** Previsão para todos os pedidos abertos com etapas por concluir (uma consulta). */
+    public List<PrevisaoEntregaDTO> preverPedidosAbertos() {
+        return prever(etapaPedidoRepository.listarEtapasRestantes(null));
+    }
+
+    /** Previsão de um pedido; null se ele não estiver aberto ou não tiver etapas por concluir. */
+    public PrevisaoEntregaDTO preverPedido(Long pedidoId) {
+        List<PrevisaoEntregaDTO> previsoes = prever(etapaPedidoRepository.listarEtapasRestantes(pedidoId));
+        return previsoes.isEmpty() ? null : previsoes.get(0);
+    }
+
+    // ============ PREVISÃO ============
+
+    // Linhas ordenadas por pedido/ordem: [pedidoId, codigo, laboratorioId, tipoServico,
+    // dataPrevistaEntrega, ordem, nomeEtapa, status, dataInicio]
+    private List<PrevisaoEntregaDTO> prever(List<Object[]> linhas) {
+        List<PrevisaoEntregaDTO> previsoes = new ArrayList<>();
+        LocalDateTime agora = LocalDateTime.now();
+
+        int i = 0;
+        while (i < linhas.size()) {
+            Object[] primeira = linhas.get(i);
+            Long pedidoId = (Long) primeira[0];
+            Long laboratorioId = (Long) primeira[2];
+            TipoServico tipoServico = (TipoServico) primeira[3];
+
+            double medianaMinutos = 0;
+            double variancia = 0;
+            long menorAmostra = Long.MAX_VALUE;
+            int etapas = 0;
+            for (; i < linhas.size() && pedidoId.equals(linhas.get(i)[0]); i++) {
+                Object[] linha = linhas.get(i);
+                LocalDateTime inicio = (LocalDateTime) linha[8];
+                long decorridos = linha[7] == StatusEtapa.EM_ANDAMENTO && inicio != null
+                        ? Math.max(0, Duration.between(inicio, agora).toMinutes()) : 0;
+
+                double[] estimativa = estimarRestante(laboratorioId, tipoServico, (String) linha[6],
+                        (Integer) linha[5], decorridos);
+                medianaMinutos += estimativa[0];
+                double desvio = (estimativa[1] - estimativa[0]) / Z_P90;
+                variancia += desvio * desvio;
+                menorAmostra = Math.min(menorAmostra, (long) estimativa[2]);
+                etapas++;
+            }
+
+            double desvioTotal = Math.sqrt(variancia);
+            LocalDate prazo = (LocalDate) primeira[4];
+            Double probabilidade = null;
+            if (prazo != null && menorAmostra > 0) {
+                // Até o fim do dia combinado
+                double folga = Duration.between(agora, prazo.plusDays(1).atStartOfDay()).toMinutes() - medianaMinutos;
+                probabilidade = desvioTotal > 0 ? normalAcumulada(folga / desvioTotal) : (folga >= 0 ? 1.0 : 0.0);
+            }
+
+            previsoes.add(new PrevisaoEntregaDTO(pedidoId, (String) primeira[1], prazo,
+                    agora.plusMinutes(Math.round(medianaMinutos)),
+                    agora.plusMinutes(Math.round(medianaMinutos + Z_P90 * desvioTotal)),
+                    probabilidade, etapas, menorAmostra));
+        }
+        return previsoes;
+    }
+
+    // {mediana restante, p90 restante, amostras} em minutos; na etapa em andamento, condicionado a
+    // já ter durado 'decorridos' (percentis da cauda acima desse valor)
+    private double[] estimarRestante(Long laboratorioId, TipoServico tipoServico, String nomeEtapa,
+                                     int ordem, long decorridos) {
+        PackedConcurrentHistogram h = selecionar(laboratorioId, tipoServico, nomeEtapa);
+        if (h == null) {
+            Integer horas = registroTemplates.obterDuracaoEstimadaHoras(tipoServico, laboratorioId, ordem);
+            double minutos = Math.max(0, (horas != null ? horas : 0) * 60.0 - decorridos);
+            return new double[]{minutos, minutos, 0};
+        }
+
+        long amostras = h.getTotalCount();
+        if (decorridos == 0) {
+            return new double[]{h.getValueAtPercentile(50), h.getValueAtPercentile(90), amostras};
+        }
+
+        double jaSuperado = h.getPercentileAtOrBelowValue(decorridos);
+        if (jaSuperado >= 99.0) {
+            // Já passou de quase todo o histórico: termina a qualquer momento, com a dispersão usual
+            double dispersao = h.getValueAtPercentile(90) - h.getValueAtPercentile(50);
+            return new double[]{0, Math.max(0, dispersao), amostras};
+        }
+        double mediana = h.getValueAtPercentile(jaSuperado + (100 - jaSuperado) * 0.5) - decorridos;
+        double p90 = h.getValueAtPercentile(jaSuperado + (100 - jaSuperado) * 0.9) - decorridos;
+        return new double[]{Math.max(0, mediana), Math.max(0, p90), amostras};
+    }
+
+    private PackedConcurrentHistogram selecionar(Long laboratorioId, TipoServico tipoServico, String nomeEtapa) {
+        Map<Chave, PackedConcurrentHistogram> atual = histogramas;
+        if (laboratorioId != null) {
+            PackedConcurrentHistogram doLaboratorio = atual.get(new Chave(laboratorioId, tipoServico, nomeEtapa));
+            if (doLaboratorio != null && doLaboratorio.getTotalCount() >= minimoAmostras) {
+                return doLaboratorio;
+            }
+        }
+        PackedConcurrentHistogram geral = atual.get(new Chave(null, tipoServico, nomeEtapa));
+        return geral != null && geral.getTotalCount() > 0 ? geral : null;
+    }
+
+    // Φ(z) pela aproximação de Abramowitz-Stegun 7.1.26 para erf (erro < 1,5e-7)
+    private static double normalAcumulada(double z) {
+        double x = Math.abs(z) / Math.sqrt(2);
+        double t = 1 / (1 + 0.3275911 * x);
+        double erf = 1 - t * (0.254829592 + t * (-0.284496736 + t * (1.421413741
+                + t * (-1.453152027 + t * 1.061405429)))) * Math.exp(-x * x);
+        return z >= 0 ? 0.5 * (1 + erf) : 0.5 * (1 - erf);
+    }
+
+    // ============ ESTRUTURA ============
+
+    private static final class Chave {
+        final Long laboratorioId;
+        final TipoServico tipoServico;
+        final String nomeEtapa;
+
+        Chave(Long laboratorioId, TipoServico tipoServico, String nomeEtapa) {
+            this.laboratorioId = laboratorioId;
+            this.tipoServico = tipoServico;
+            this.nomeEtapa = nomeEtapa;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Chave)) return false;
+            Chave outra = (Chave) o;
+            return Objects.equals(laboratorioId, outra.laboratorioId)
+                    && tipoServico == outra.tipoServico
+                    && nomeEtapa.equals(outra.nomeEtapa);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(laboratorioId, tipoServico, nomeEtapa);
+        }
+    }
+}
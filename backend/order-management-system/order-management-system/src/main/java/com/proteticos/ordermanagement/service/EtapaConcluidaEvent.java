@@ -0,0 +1,27 @@
+package com.proteticos.ordermanagement.service;
+
+import com.proteticos.ordermanagement.model.TipoServico;
+
+/**
+ * Publicado na conclusão de uma etapa com a duração observada (início -> conclusão).
+ * O EstatisticasEtapaService registra a amostra após o commit.
+ */
+public class EtapaConcluidaEvent {
+
+    private final Long laboratorioId;
+    private final TipoServico tipoServico;
+    private final String nomeEtapa;
+    private final long duracaoMinutos;
+
+    public EtapaConcluidaEvent(Long laboratorioId, TipoServico tipoServico, String nomeEtapa, long duracaoMinutos) {
+        this.laboratorioId = laboratorioId;
+        this.tipoServico = tipoServico;
+        this.nomeEtapa = nomeEtapa;
+        this.duracaoMinutos = duracaoMinutos;
+    }
+
+    public Long getLaboratorioId() { return laboratorioId; }
+    public TipoServico getTipoServico() { return tipoServico; }
+    public String getNomeEtapa() { return nomeEtapa; }
+    public long getDuracaoMinutos() { return duracaoMinutos; }
+}
@@ -1,15 +1,21 @@
 package com.proteticos.ordermanagement.service;
 
+import com.proteticos.ordermanagement.DTO.EtapaTemplate;
 import com.proteticos.ordermanagement.model.*;
 import com.proteticos.ordermanagement.repository.EtapaPedidoRepository;
 import com.proteticos.ordermanagement.repository.ProteticoRepository;
+import com.proteticos.ordermanagement.repository.ServicoProteticoRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDate;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -21,130 +27,139 @@ public class EtapaService {
     @Autowired
     private ProteticoRepository proteticoRepository;
 
-    // Etapas padrão para cada tipo de serviço
+    @Autowired
+    private RegistroTemplatesEtapaService registroTemplates;
+
+    @Autowired
+    private MonitorAtrasosService monitorAtrasos;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ControleConcorrenciaService controleConcorrencia;
+
+    @Autowired
+    private AgendaProducaoService agendaProducao;
+
+    @Autowired
+    private ServicoProteticoRepository servicoProteticoRepository;
+
+    // Etapa fora do template (não deveria ocorrer): dois dias de bancada
+    private static final int DURACAO_PADRAO_HORAS = 16;
+
+    private static final List<StatusEtapa> STATUS_ABERTOS = List.of(StatusEtapa.PENDENTE, StatusEtapa.EM_ANDAMENTO);
+
+    // Etapas padrão para cada tipo de serviço (template do laboratório, se houver override).
+    // Transacional para que a reserva na agenda seja desfeita se o INSERT falhar
+    @Transactional
     public void criarEtapasPadrao(Pedido pedido) {
-        List<String> etapas = obterEtapasPorTipoServico(pedido.getTipoServico());
+        Long proteticoId = pedido.getProtetico() != null ? pedido.getProtetico().getId() : null;
+        EtapaTemplate[] template = registroTemplates.obterTemplate(pedido.getTipoServico(), proteticoId);
+        List<EtapaPedido> novasEtapas = new ArrayList<>(template.length);
+        LocalDateTime agora = LocalDateTime.now();
 
-        for (int i = 0; i < etapas.size(); i++) {
+        for (EtapaTemplate etapaTemplate : template) {
             EtapaPedido etapa = new EtapaPedido();
             etapa.setPedido(pedido);
-            etapa.setNomeEtapa(etapas.get(i));
-            etapa.setOrdem(i + 1);
+            etapa.setNomeEtapa(etapaTemplate.getNome());
+            etapa.setOrdem(etapaTemplate.getOrdem());
             etapa.setStatus(StatusEtapa.PENDENTE);
-            etapa.setDataCriacao(LocalDateTime.now());
-
-            // Definir responsável padrão para a primeira etapa
-            if (i == 0) { // Primeira etapa - Recebimento
-                etapa.setResponsavel(pedido.getProtetico());
-                etapa.setStatus(StatusEtapa.EM_ANDAMENTO); // Primeira etapa começa automaticamente
-                // Não temos dataInicio no modelo, então usamos dataPrevista como referência
-                etapa.setDataPrevista(LocalDate.now().plusDays(1)); // Previsão para amanhã
+            etapa.setDataCriacao(agora);
+            novasEtapas.add(etapa);
+        }
+
+        // A primeira etapa (Recebimento) começa automaticamente, agendada pela capacidade livre
+        AgendaProducaoService.Reserva reserva = null;
+        if (!novasEtapas.isEmpty()) {
+            EtapaPedido primeira = novasEtapas.get(0);
+            primeira.iniciar();
+            if (proteticoId != null) {
+                reserva = agendar(primeira, pedido, template);
             }
+        }
 
-            etapaRepository.save(etapa);
+        // Um único saveAll: os INSERTs saem num batch JDBC
+        List<EtapaPedido> salvas = etapaRepository.saveAll(novasEtapas);
+        if (reserva != null) {
+            agendaProducao.vincular(salvas.get(0).getId(), reserva);
+        }
+        for (EtapaPedido salva : salvas) {
+            publicarPrazo(salva);
         }
 
-        System.out.println("✅ " + etapas.size() + " etapas criadas para pedido " + pedido.getCodigo());
+        System.out.println("✅ " + template.length + " etapas criadas para pedido " + pedido.getCodigo());
     }
 
-    private List<String> obterEtapasPorTipoServico(TipoServico tipoServico) {
-        switch (tipoServico) {
-            case COROA:
-            case PONTE_FIXA:
-            case ZIRCONIA:
-                return Arrays.asList(
-                        "📥 Recebimento",
-                        "📷 Escaneamento",
-                        "🗺️ Planejamento",
-                        "⚙️ Usinagem",
-                        "🔍 Prova",
-                        "✨ Acabamento",
-                        "🎨 Glaze",
-                        "🚚 Entrega"
-                );
-
-            case PROVISORIO:
-            case RESINA:
-                return Arrays.asList(
-                        "📥 Recebimento",
-                        "🗺️ Planejamento",
-                        "⚙️ Confecção",
-                        "✨ Acabamento",
-                        "🚚 Entrega"
-                );
-
-            case PROTESE_TOTAL:
-            case PROTESE_PARCIAL:
-                return Arrays.asList(
-                        "📥 Recebimento",
-                        "📷 Moldagem",
-                        "🗺️ Planejamento",
-                        "⚙️ Confecção Base",
-                        "🔍 Prova Estrutural",
-                        "🎨 Aplicação Dentes",
-                        "✨ Acabamento",
-                        "🚚 Entrega"
-                );
-
-            case IMPLANTE:
-                return Arrays.asList(
-                        "📥 Recebimento",
-                        "📷 Escaneamento",
-                        "🗺️ Planejamento Cirúrgico",
-                        "⚙️ Prototipagem",
-                        "🔍 Prova Protótipo",
-                        "🎨 Confecção Definitiva",
-                        "✨ Acabamento",
-                        "🚚 Entrega"
-                );
-
-            default:
-                return Arrays.asList(
-                        "📥 Recebimento",
-                        "🗺️ Planejamento",
-                        "⚙️ Execução",
-                        "🚚 Entrega"
-                );
+    // Pedido encerrado (finalizado: etapas concluídas; cancelado ou excluído: canceladas). Após o commit,
+    // o PrazoAlteradoEvent de cada etapa devolve as horas reservadas na agenda e a tira do monitor de atrasos
+    @Transactional
+    public void encerrarEtapasAbertas(Long pedidoId, boolean pedidoFinalizado) {
+        List<EtapaPedido> abertas = etapaRepository.findByPedidoIdAndStatusIn(pedidoId, STATUS_ABERTOS);
+        for (EtapaPedido etapa : abertas) {
+            if (pedidoFinalizado) {
+                etapa.concluir();
+            } else {
+                etapa.cancelar();
+            }
+        }
+        for (EtapaPedido salva : etapaRepository.saveAll(abertas)) {
+            publicarPrazo(salva);
         }
     }
 
     public EtapaPedido concluirEtapa(Long etapaId, Long proteticoId) {
-        EtapaPedido etapa = etapaRepository.findById(etapaId)
-                .orElseThrow(() -> new RuntimeException("Etapa não encontrada"));
+        return concluirEtapa(etapaId, proteticoId, null);
+    }
 
-        // Verificar se o protético existe
-        Protetico protetico = proteticoRepository.findById(proteticoId)
-                .orElseThrow(() -> new RuntimeException("Protético não encontrado"));
+    // Conclusão + início da próxima etapa numa só transação, sob controle otimista:
+    // duas conclusões simultâneas da mesma etapa não avançam o pedido duas vezes
+    public EtapaPedido concluirEtapa(Long etapaId, Long proteticoId, Long versaoEsperada) {
+        return controleConcorrencia.executar("Etapa " + etapaId, versaoEsperada, () -> {
+            EtapaPedido etapa = etapaRepository.findById(etapaId)
+                    .orElseThrow(() -> new RuntimeException("Etapa não encontrada"));
+            ControleConcorrenciaService.verificarVersao("Etapa " + etapaId, etapa.getVersao(), versaoEsperada);
 
-        // Concluir a etapa atual usando o método do modelo
-        etapa.concluir(); // Isso já seta status CONCLUIDA e dataConclusao
-        etapa.setResponsavel(protetico);
+            if (etapa.isConcluida()) {
+                throw new RuntimeException("Etapa já concluída");
+            }
 
-        EtapaPedido etapaSalva = etapaRepository.save(etapa);
+            // Verificar se o protético existe
+            Protetico protetico = proteticoRepository.findById(proteticoId)
+                    .orElseThrow(() -> new RuntimeException("Protético não encontrado"));
+
+            // Concluir a etapa atual usando o método do modelo
+            etapa.concluir(); // Isso já seta status CONCLUIDA e dataConclusao
+            etapa.setResponsavel(protetico);
 
-        // Iniciar automaticamente a próxima etapa
-        iniciarProximaEtapa(etapa.getPedido().getId(), etapa.getOrdem(), proteticoId);
+            EtapaPedido etapaSalva = etapaRepository.saveAndFlush(etapa);
+            publicarPrazo(etapaSalva);
+            publicarDuracao(etapaSalva);
 
-        return etapaSalva;
+            // Iniciar automaticamente a próxima etapa
+            iniciarProximaEtapa(etapa.getPedido().getId(), etapa.getOrdem());
+
+            return etapaSalva;
+        });
     }
 
-    private void iniciarProximaEtapa(Long pedidoId, Integer ordemAtual, Long proteticoId) {
+    private void iniciarProximaEtapa(Long pedidoId, Integer ordemAtual) {
         // Buscar próxima etapa (ordem atual + 1)
         Optional<EtapaPedido> proximaEtapaOpt = etapaRepository
                 .findByPedidoIdAndOrdem(pedidoId, ordemAtual + 1);
 
         if (proximaEtapaOpt.isPresent()) {
             EtapaPedido proximaEtapa = proximaEtapaOpt.get();
-            Protetico protetico = proteticoRepository.findById(proteticoId)
-                    .orElseThrow(() -> new RuntimeException("Protético não encontrado"));
 
-            // Iniciar a próxima etapa
-            proximaEtapa.setStatus(StatusEtapa.EM_ANDAMENTO);
-            proximaEtapa.setResponsavel(protetico);
-            // Definir previsão para 2 dias a partir de hoje
-            proximaEtapa.setDataPrevista(LocalDate.now().plusDays(2));
+            // Iniciar a próxima etapa: responsável e prazo pela capacidade livre na agenda
+            proximaEtapa.iniciar();
+            Pedido pedido = proximaEtapa.getPedido();
+            AgendaProducaoService.Reserva reserva = agendar(proximaEtapa, pedido,
+                    registroTemplates.obterTemplate(pedido.getTipoServico(), pedido.getProtetico().getId()));
 
-            etapaRepository.save(proximaEtapa);
+            EtapaPedido salva = etapaRepository.save(proximaEtapa);
+            agendaProducao.vincular(salva.getId(), reserva);
+            publicarPrazo(salva);
 
             System.out.println("✅ Etapa " + proximaEtapa.getNomeEtapa() + " iniciada automaticamente");
         } else {
@@ -152,6 +167,115 @@ public class EtapaService {
         }
     }
 
+    // ============ AGENDAMENTO ============
+
+    // Reserva as horas da etapa na agenda de quem pode executá-la e define responsável e prazo
+    private AgendaProducaoService.Reserva agendar(EtapaPedido etapa, Pedido pedido, EtapaTemplate[] template) {
+        int horas = horasDaEtapa(pedido, template, etapa.getOrdem());
+        AgendaProducaoService.Reserva reserva = agendaProducao.reservar(responsaveisPossiveis(pedido), horas);
+
+        etapa.setResponsavel(proteticoRepository.getReferenceById(reserva.getProteticoId()));
+        etapa.setHorasEstimadas(reserva.getHoras());
+        etapa.setPrazoEstimado(reserva.getTermino());
+        etapa.setDataPrevista(reserva.getTermino().toLocalDate());
+        return reserva;
+    }
+
+    // Laboratório do pedido e, com terceirização em curso, o executor; na COMPLETA só o executor
+    private List<Long> responsaveisPossiveis(Pedido pedido) {
+        List<Long> candidatos = new ArrayList<>(2);
+        boolean terceirizado = pedido.getProteticoTerceirizado() != null &&
+                (pedido.getStatusTerceirizacao() == StatusTerceirizacao.ACEITO ||
+                        pedido.getStatusTerceirizacao() == StatusTerceirizacao.EM_ANDAMENTO);
+        if (terceirizado) {
+            candidatos.add(pedido.getProteticoTerceirizado().getId());
+        }
+        if (!terceirizado || pedido.getTipoTerceirizacao() != TipoTerceirizacao.COMPLETA) {
+            candidatos.add(pedido.getProtetico().getId());
+        }
+        return candidatos;
+    }
+
+    // tempoMedioHoras do serviço no laboratório, repartido pelo peso de cada etapa no template;
+    // sem serviço cadastrado, a duração estimada da própria etapa
+    private int horasDaEtapa(Pedido pedido, EtapaTemplate[] template, int ordem) {
+        int duracaoEtapa = ordem >= 1 && ordem <= template.length ?
+                template[ordem - 1].getDuracaoEstimadaHoras() : DURACAO_PADRAO_HORAS;
+
+        Integer tempoMedio = servicoProteticoRepository
+                .findByProteticoIdAndTipoServico(pedido.getProtetico().getId(), pedido.getTipoServico())
+                .map(ServicoProtetico::getTempoMedioHoras)
+                .orElse(null);
+        int totalTemplate = 0;
+        for (EtapaTemplate etapaTemplate : template) {
+            totalTemplate += etapaTemplate.getDuracaoEstimadaHoras();
+        }
+        if (tempoMedio == null || tempoMedio <= 0 || totalTemplate <= 0) {
+            return Math.max(1, duracaoEtapa);
+        }
+        return Math.max(1, (int) Math.round((double) tempoMedio * duracaoEtapa / totalTemplate));
+    }
+
+    // Amostra para o EstatisticasEtapaService (registrada após o commit). Etapas iniciadas antes
+    // de existir data_inicio começam na conclusão da anterior (ou na criação, se for a primeira)
+    private void publicarDuracao(EtapaPedido etapa) {
+        LocalDateTime inicio = etapa.getDataInicio();
+        if (inicio == null && etapa.getOrdem() > 1) {
+            inicio = etapaRepository.findByPedidoIdAndOrdem(etapa.getPedido().getId(), etapa.getOrdem() - 1)
+                    .map(EtapaPedido::getDataConclusao)
+                    .orElse(null);
+        }
+        if (inicio == null) {
+            inicio = etapa.getDataCriacao();
+        }
+        if (inicio == null || etapa.getDataConclusao() == null) {
+            return;
+        }
+
+        Pedido pedido = etapa.getPedido();
+        eventPublisher.publishEvent(new EtapaConcluidaEvent(
+                pedido.getProtetico() != null ? pedido.getProtetico().getId() : null,
+                pedido.getTipoServico(),
+                etapa.getNomeEtapa(),
+                Duration.between(inicio, etapa.getDataConclusao()).toMinutes()
+        ));
+    }
+
+    // Mantém o MonitorAtrasosService em dia (aplicado após o commit)
+    private void publicarPrazo(EtapaPedido etapa) {
+        if (etapa.getDataPrevista() == null && etapa.isPendente()) {
+            return; // etapa futura, ainda sem prazo: nada a monitorar
+        }
+        eventPublisher.publishEvent(new PrazoAlteradoEvent(
+                PrazoAlteradoEvent.Tipo.ETAPA,
+                etapa.getId(),
+                etapa.getDataPrevista(),
+                !etapa.isConcluida() && !etapa.isCancelada()
+        ));
+    }
+
+    // Etapas atrasadas a partir do monitor em memória; ordem: prazo mais antigo primeiro
+    public List<EtapaPedido> buscarEtapasAtrasadas() {
+        List<Long> ids = monitorAtrasos.listarEtapasAtrasadas();
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, EtapaPedido> porId = new HashMap<>(ids.size() * 2);
+        for (EtapaPedido etapa : etapaRepository.findAllById(ids)) {
+            porId.put(etapa.getId(), etapa);
+        }
+
+        List<EtapaPedido> atrasadas = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            EtapaPedido etapa = porId.get(id);
+            if (etapa != null) {
+                atrasadas.add(etapa);
+            }
+        }
+        return atrasadas;
+    }
+
     // Método para buscar etapas de um pedido
     public List<EtapaPedido> buscarEtapasPorPedido(Long pedidoId) {
         return etapaRepository.findByPedidoIdOrderByOrdemAsc(pedidoId);
@@ -0,0 +1,70 @@
+package com.proteticos.ordermanagement.service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gerador de códigos de pedido único entre threads e entre nós da aplicação, sem ida ao banco.
+ *
+ * Formato: P + yyyyMMddHHmmss em UTC + nó (3 dígitos) + contador no segundo (4 dígitos),
+ * ex.: P202510171432050070003. Ordenável pelo momento de criação; em UTC, nós com fusos
+ * diferentes e a volta do horário de verão não repetem nem desordenam o timestamp.
+ *
+ * O par (segundo, contador) é um relógio lógico num único AtomicLong avançado por CAS:
+ * nunca repete nem volta, mesmo com mais de 9999 pedidos no segundo (empresta o segundo
+ * seguinte) ou com ajuste do relógio do sistema para trás.
+ */
+public final class GeradorCodigoPedido {
+
+    public static final int MAXIMO_NOS = 1000;
+
+    private static final long POR_SEGUNDO = 10_000L;
+    private static final DateTimeFormatter FORMATO = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final ZoneOffset ZONA = ZoneOffset.UTC;
+
+    // segundoEpoch * POR_SEGUNDO + contador
+    private static final AtomicLong ultimoTick = new AtomicLong();
+
+    // Definido na inicialização por CodigoPedidoConfig; -1 até lá (nenhum código é gerado)
+    private static volatile int no = -1;
+
+    private GeradorCodigoPedido() {}
+
+    public static void definirNo(int identificadorNo) {
+        if (identificadorNo < 0 || identificadorNo >= MAXIMO_NOS) {
+            throw new RuntimeException("Identificador de nó deve estar entre 0 e " + (MAXIMO_NOS - 1));
+        }
+        no = identificadorNo;
+    }
+
+    public static int getNo() {
+        return no;
+    }
+
+    public static String proximoCodigo() {
+        int noAtual = no;
+        if (noAtual < 0) {
+            throw new RuntimeException("Identificador de nó dos códigos de pedido não definido");
+        }
+        long tick = proximoTick();
+        long segundo = tick / POR_SEGUNDO;
+        long contador = tick % POR_SEGUNDO;
+
+        String dataHora = LocalDateTime.ofInstant(Instant.ofEpochSecond(segundo), ZONA).format(FORMATO);
+        return "P" + dataHora + String.format("%03d%04d", noAtual, contador);
+    }
+
+    private static long proximoTick() {
+        long base = (System.currentTimeMillis() / 1000) * POR_SEGUNDO;
+        while (true) {
+            long atual = ultimoTick.get();
+            long proximo = Math.max(atual + 1, base);
+            if (ultimoTick.compareAndSet(atual, proximo)) {
+                return proximo;
+            }
+        }
+    }
+}
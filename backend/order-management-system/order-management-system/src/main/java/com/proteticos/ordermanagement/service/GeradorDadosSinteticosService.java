@@ -0,0 +1,724 @@
+package com.proteticos.ordermanagement.service;
+
+import com.proteticos.ordermanagement.DTO.EtapaTemplate;
+import com.proteticos.ordermanagement.model.PoliticaExecucaoServico;
+import com.proteticos.ordermanagement.model.StatusEtapa;
+import com.proteticos.ordermanagement.model.StatusPedido;
+import com.proteticos.ordermanagement.model.StatusTerceirizacao;
+import com.proteticos.ordermanagement.model.TipoServico;
+import com.proteticos.ordermanagement.model.TipoTerceirizacao;
+import com.proteticos.ordermanagement.model.UserTipo;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Gera um volume de dados próximo ao de produção para testes de carga e benchmarks.
+ *
+ * Só existe no profile "sintetico". Os dados são determinísticos: a mesma semente, a mesma
+ * data de referência e os mesmos volumes produzem exatamente as mesmas linhas (e os mesmos
+ * ids, partindo de um banco vazio), para que rodadas de benchmark sejam comparáveis.
+ *
+ * Distribuições:
+ * - pedidos por laboratório seguem Zipf (poucos laboratórios enormes, cauda longa de pequenos);
+ * - entrada de pedidos com sazonalidade anual, efeito de dia da semana e crescimento no período;
+ * - status do pedido, das etapas e da terceirização coerentes com a idade do pedido.
+ *
+ * As linhas são gravadas com JDBC em lotes; com reWriteBatchedInserts=true na URL o driver
+ * transforma cada lote em INSERTs de várias linhas. Os ids são atribuídos aqui e as
+ * sequences/identities são avançadas no final.
+ */
+@Service
+@Profile("sintetico")
+public class GeradorDadosSinteticosService {
+
+    private static final Logger log = LoggerFactory.getLogger(GeradorDadosSinteticosService.class);
+
+    private static final String DOMINIO_EMAIL = "@sintetico.local";
+    private static final String ALFABETO_CONVITE = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789";
+    private static final long MASCARA_60_BITS = (1L << 60) - 1;
+    private static final DateTimeFormatter FORMATO_CODIGO = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private static final TipoServico[] TIPOS = TipoServico.values();
+
+    // Preço base por tipo de serviço (mesma ordem de TipoServico)
+    private static final int[] PRECO_BASE = {450, 1200, 150, 1800, 1400, 700, 120, 2500, 900, 300};
+
+    private static final String SQL_USUARIO =
+            "INSERT INTO usuarios (id, nome, email, senha, tipo, ativo, data_criacao, data_atualizacao) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int[] TIPOS_USUARIO = {Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+            Types.VARCHAR, Types.BOOLEAN, Types.TIMESTAMP, Types.TIMESTAMP};
+
+    private static final String SQL_DENTISTA =
+            "INSERT INTO dentistas (id, cro, especialidade, telefone, enderecoClinica) VALUES (?, ?, ?, ?, ?)";
+    private static final int[] TIPOS_DENTISTA = {Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+            Types.VARCHAR};
+
+    private static final String SQL_PROTETICO =
+            "INSERT INTO proteticos (usuario_id, telefone, registro_profissional, especializacao, " +
+            "taxa_minima_terceirizacao, nota_terceirizacao, quantidade_terceirizacoes) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final int[] TIPOS_PROTETICO = {Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+            Types.NUMERIC, Types.NUMERIC, Types.INTEGER};
+
+    private static final String SQL_ESPECIALIDADE =
+            "INSERT INTO protetico_especialidades_terceirizacao (protetico_id, especialidade) VALUES (?, ?)";
+    private static final int[] TIPOS_ESPECIALIDADE = {Types.BIGINT, Types.VARCHAR};
+
+    private static final String SQL_SERVICO =
+            "INSERT INTO servicos_protetico (id, protetico_id, tipo_servico, preco, ativo, descricao, " +
+            "tempo_medio_horas, politica_execucao, preco_terceirizado, prazo_terceirizado_horas, " +
+            "data_criacao, data_atualizacao) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int[] TIPOS_SERVICO = {Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.NUMERIC,
+            Types.BOOLEAN, Types.VARCHAR, Types.INTEGER, Types.VARCHAR, Types.NUMERIC, Types.INTEGER,
+            Types.TIMESTAMP, Types.TIMESTAMP};
+
+    private static final String SQL_PEDIDO =
+            "INSERT INTO pedidos (id, codigo, dentista_id, protetico_id, tipoServico, informacoesDetalhadas, " +
+            "valorCobrado, dataEntrada, dataPrevistaEntrega, dataEntrega, dataCancelamento, status_pedido, " +
+            "dataCriacao, dataUltimaAtualizacao, protetico_terceirizado_id, percentual_terceirizado, " +
+            "valor_terceirizado, status_terceirizacao, tipo_terceirizacao, motivo_terceirizacao, " +
+            "data_solicitacao_terceirizacao, data_resposta_terceirizacao, data_conclusao_terceirizacao) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int[] TIPOS_PEDIDO = {Types.BIGINT, Types.VARCHAR, Types.BIGINT, Types.BIGINT,
+            Types.VARCHAR, Types.VARCHAR, Types.NUMERIC, Types.DATE, Types.DATE, Types.DATE, Types.DATE,
+            Types.VARCHAR, Types.TIMESTAMP, Types.TIMESTAMP, Types.BIGINT, Types.NUMERIC, Types.NUMERIC,
+            Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP, Types.TIMESTAMP, Types.TIMESTAMP};
+
+    private static final String SQL_ETAPA =
+            "INSERT INTO etapa_pedido (id, pedido_id, nome_etapa, status, ordem, data_criacao, data_atualizacao, " +
+            "responsavel_id, prazo_estimado, data_conclusao, data_prevista) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int[] TIPOS_ETAPA = {Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.VARCHAR,
+            Types.INTEGER, Types.TIMESTAMP, Types.TIMESTAMP, Types.BIGINT, Types.TIMESTAMP, Types.TIMESTAMP,
+            Types.DATE};
+
+    private static final String SQL_TERCEIRIZACAO =
+            "INSERT INTO terceirizacoes (id, protetico_origem_id, protetico_destino_id, pedido_id, status, " +
+            "servicoSolicitado, observacoes, valorCombinado, solicitadoEm, aceitoEm, concluidoEm) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int[] TIPOS_TERCEIRIZACAO = {Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT,
+            Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.DOUBLE, Types.TIMESTAMP, Types.TIMESTAMP,
+            Types.TIMESTAMP};
+
+    private static final String SQL_CONVITE =
+            "INSERT INTO convites (id, codigo, tipo, emailConvidado, criado_por_id, criadoEm, expiraEm, " +
+            "utilizado, utilizadoEm, utilizado_por_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int[] TIPOS_CONVITE = {Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+            Types.BIGINT, Types.TIMESTAMP, Types.TIMESTAMP, Types.BOOLEAN, Types.TIMESTAMP, Types.BIGINT};
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private RegistroTemplatesEtapaService registroTemplatesEtapaService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Value("${app.sintetico.semente:42}")
+    private long semente;
+
+    @Value("${app.sintetico.data-referencia:}")
+    private String dataReferenciaConfigurada;
+
+    @Value("${app.sintetico.dentistas:20000}")
+    private int quantidadeDentistas;
+
+    @Value("${app.sintetico.proteticos:2000}")
+    private int quantidadeProteticos;
+
+    @Value("${app.sintetico.pedidos:1500000}")
+    private int quantidadePedidos;
+
+    @Value("${app.sintetico.convites:100000}")
+    private int quantidadeConvites;
+
+    @Value("${app.sintetico.dias-historico:730}")
+    private int diasHistorico;
+
+    @Value("${app.sintetico.expoente-zipf:1.1}")
+    private double expoenteZipf;
+
+    @Value("${app.sintetico.percentual-terceirizacao:0.15}")
+    private double percentualTerceirizacao;
+
+    @Value("${app.sintetico.tamanho-lote:5000}")
+    private int tamanhoLote;
+
+    // Estado da geração (uma execução por instância)
+    private SplittableRandom random;
+    private LocalDateTime referencia;
+    private long primeiroDentistaId;
+    private long primeiroProteticoId;
+    private double[] acumuladoLaboratorios;
+    private double[] acumuladoDentistas;
+    private double[] acumuladoDias;
+    private TipoServico[][] tiposPorLaboratorio;
+    private int[][] precoPorLaboratorio;
+    private int[][] destinosPorTipo;
+    private double[][] acumuladoDestinosPorTipo;
+
+    // ============ EXECUÇÃO ============
+
+    public void gerar() {
+        if (jaGerado()) {
+            log.atInfo().addKeyValue("email", emailDentista(1)).log("Dados sintéticos já presentes, geração ignorada");
+            return;
+        }
+
+        random = new SplittableRandom(semente);
+        referencia = (dataReferenciaConfigurada == null || dataReferenciaConfigurada.isBlank()
+                ? LocalDate.now()
+                : LocalDate.parse(dataReferenciaConfigurada)).atStartOfDay();
+        long inicio = System.nanoTime();
+
+        log.atInfo()
+                .addKeyValue("semente", semente)
+                .addKeyValue("referencia", referencia.toLocalDate())
+                .addKeyValue("dentistas", quantidadeDentistas)
+                .addKeyValue("proteticos", quantidadeProteticos)
+                .addKeyValue("pedidos", quantidadePedidos)
+                .addKeyValue("convites", quantidadeConvites)
+                .log("Gerando dados sintéticos");
+
+        acumuladoLaboratorios = acumuladoZipf(quantidadeProteticos, expoenteZipf);
+        acumuladoDentistas = acumuladoZipf(quantidadeDentistas, 0.6);
+        acumuladoDias = acumuladoSazonal();
+
+        gerarUsuarios();
+        gerarServicos();
+        long linhasPedidos = gerarPedidos();
+        gerarConvites();
+        avancarSequencias();
+        // Os INSERTs por JDBC não passam pelo Hibernate: o cache de segundo nível não sabe deles
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+
+        long segundos = Math.max(1, (System.nanoTime() - inicio) / 1_000_000_000L);
+        log.atInfo()
+                .addKeyValue("linhas", linhasPedidos)
+                .addKeyValue("segundos", segundos)
+                .addKeyValue("linhasPorSegundo", linhasPedidos / segundos)
+                .log("Dados sintéticos gerados (pedidos, etapas e terceirizações)");
+    }
+
+    private boolean jaGerado() {
+        Integer existentes = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM usuarios WHERE email = ?", Integer.class, emailDentista(1));
+        return existentes != null && existentes > 0;
+    }
+
+    // ============ USUÁRIOS ============
+
+    private void gerarUsuarios() {
+        // Um único hash para todos: PBKDF2 por usuário tornaria a carga proporcional ao custo do hash
+        String senha = SenhaHasher.gerarHash("123456");
+        long proximoId = proximoId("usuarios");
+        primeiroDentistaId = proximoId;
+        primeiroProteticoId = proximoId + quantidadeDentistas;
+
+        List<Object[]> usuarios = new ArrayList<>(tamanhoLote);
+        List<Object[]> dentistas = new ArrayList<>(tamanhoLote);
+        for (int i = 1; i <= quantidadeDentistas; i++) {
+            long id = primeiroDentistaId + i - 1;
+            Timestamp criadoEm = instante(referencia.minusDays(diasHistorico + random.nextInt(365)));
+            usuarios.add(new Object[]{id, "Dentista Sintético " + i, emailDentista(i), senha,
+                    UserTipo.DENTISTA.name(), true, criadoEm, criadoEm});
+            dentistas.add(new Object[]{id, "SINT" + i, especialidadeDentista(i), telefone(i),
+                    "Rua Sintética, " + i});
+            if (usuarios.size() == tamanhoLote) {
+                gravar(usuarios, dentistas, SQL_DENTISTA, TIPOS_DENTISTA);
+            }
+        }
+        gravar(usuarios, dentistas, SQL_DENTISTA, TIPOS_DENTISTA);
+
+        List<Object[]> proteticos = new ArrayList<>(tamanhoLote);
+        for (int i = 1; i <= quantidadeProteticos; i++) {
+            long id = primeiroProteticoId + i - 1;
+            Timestamp criadoEm = instante(referencia.minusDays(diasHistorico + random.nextInt(365)));
+            usuarios.add(new Object[]{id, "Laboratório Sintético " + i, "protetico" + i + DOMINIO_EMAIL, senha,
+                    UserTipo.PROTETICO.name(), true, criadoEm, criadoEm});
+            proteticos.add(new Object[]{id, telefone(quantidadeDentistas + i), "SINT-PRT" + i,
+                    TIPOS[random.nextInt(TIPOS.length)].getNomeExibicao(),
+                    decimal(25 + random.nextInt(20)), decimal(3 + random.nextDouble() * 2), 0});
+            if (usuarios.size() == tamanhoLote) {
+                gravar(usuarios, proteticos, SQL_PROTETICO, TIPOS_PROTETICO);
+            }
+        }
+        gravar(usuarios, proteticos, SQL_PROTETICO, TIPOS_PROTETICO);
+    }
+
+    // usuarios e a tabela da subclasse na mesma transação (herança JOINED)
+    private void gravar(List<Object[]> usuarios, List<Object[]> subclasse, String sqlSubclasse, int[] tiposSubclasse) {
+        transactionTemplate.executeWithoutResult(status -> {
+            inserir(SQL_USUARIO, usuarios, TIPOS_USUARIO);
+            inserir(sqlSubclasse, subclasse, tiposSubclasse);
+        });
+    }
+
+    // ============ SERVIÇOS DOS LABORATÓRIOS ============
+
+    /**
+     * Cada laboratório oferece alguns tipos de serviço (os maiores oferecem mais).
+     * Guarda em memória o que os pedidos precisam: tipos oferecidos, preço e, por tipo,
+     * os laboratórios que aceitam terceirização.
+     */
+    private void gerarServicos() {
+        tiposPorLaboratorio = new TipoServico[quantidadeProteticos][];
+        precoPorLaboratorio = new int[quantidadeProteticos][TIPOS.length];
+        List<List<Integer>> destinos = new ArrayList<>();
+        for (int t = 0; t < TIPOS.length; t++) {
+            destinos.add(new ArrayList<>());
+        }
+
+        long proximoId = proximoId("servicos_protetico");
+        List<Object[]> servicos = new ArrayList<>(tamanhoLote);
+        List<Object[]> especialidades = new ArrayList<>(tamanhoLote);
+
+        for (int lab = 0; lab < quantidadeProteticos; lab++) {
+            long proteticoId = primeiroProteticoId + lab;
+            int quantidadeTipos = Math.min(TIPOS.length, 2 + random.nextInt(3) + (lab < quantidadeProteticos / 50 ? 5 : 0));
+            TipoServico[] tipos = embaralhar(TIPOS.clone());
+            tiposPorLaboratorio[lab] = Arrays.copyOf(tipos, quantidadeTipos);
+
+            for (TipoServico tipo : tiposPorLaboratorio[lab]) {
+                int preco = (int) Math.round(PRECO_BASE[tipo.ordinal()] * (0.7 + random.nextDouble() * 0.6));
+                precoPorLaboratorio[lab][tipo.ordinal()] = preco;
+                PoliticaExecucaoServico politica = sortearPolitica();
+                boolean aceitaTerceirizacao = politica == PoliticaExecucaoServico.TERCEIRIZADO
+                        || politica == PoliticaExecucaoServico.PROPRIO_OU_TERCEIRIZADO;
+                if (aceitaTerceirizacao) {
+                    destinos.get(tipo.ordinal()).add(lab);
+                    especialidades.add(new Object[]{proteticoId, tipo.name()});
+                }
+                Timestamp criadoEm = instante(referencia.minusDays(random.nextInt(diasHistorico)));
+                servicos.add(new Object[]{proximoId++, proteticoId, tipo.name(), decimal(preco), random.nextInt(20) != 0,
+                        tipo.getNomeExibicao() + " sintético", 24 + random.nextInt(8) * 12, politica.name(),
+                        aceitaTerceirizacao ? decimal(preco * 0.7) : null,
+                        aceitaTerceirizacao ? 48 + random.nextInt(5) * 24 : null,
+                        criadoEm, criadoEm});
+            }
+
+            if (servicos.size() >= tamanhoLote) {
+                gravarServicos(servicos, especialidades);
+            }
+        }
+        gravarServicos(servicos, especialidades);
+
+        // Destinos de terceirização também seguem Zipf: laboratórios grandes recebem mais
+        destinosPorTipo = new int[TIPOS.length][];
+        acumuladoDestinosPorTipo = new double[TIPOS.length][];
+        for (int t = 0; t < TIPOS.length; t++) {
+            destinosPorTipo[t] = destinos.get(t).stream().mapToInt(Integer::intValue).toArray();
+            acumuladoDestinosPorTipo[t] = acumuladoZipf(destinosPorTipo[t].length, expoenteZipf);
+        }
+    }
+
+    private void gravarServicos(List<Object[]> servicos, List<Object[]> especialidades) {
+        transactionTemplate.executeWithoutResult(status -> {
+            inserir(SQL_SERVICO, servicos, TIPOS_SERVICO);
+            inserir(SQL_ESPECIALIDADE, especialidades, TIPOS_ESPECIALIDADE);
+        });
+    }
+
+    // ============ PEDIDOS, ETAPAS E TERCEIRIZAÇÕES ============
+
+    private long gerarPedidos() {
+        long proximoPedidoId = proximoId("pedidos");
+        long proximaEtapaId = proximoId("etapa_pedido");
+        long proximaTerceirizacaoId = proximoId("terceirizacoes");
+        long linhas = 0;
+
+        List<Object[]> pedidos = new ArrayList<>(tamanhoLote);
+        List<Object[]> etapas = new ArrayList<>(tamanhoLote * 8);
+        List<Object[]> terceirizacoes = new ArrayList<>(tamanhoLote / 4);
+
+        for (int i = 0; i < quantidadePedidos; i++) {
+            long pedidoId = proximoPedidoId++;
+            int lab = sortear(acumuladoLaboratorios);
+            long proteticoId = primeiroProteticoId + lab;
+            long dentistaId = primeiroDentistaId + sortear(acumuladoDentistas);
+
+            TipoServico[] oferecidos = tiposPorLaboratorio[lab];
+            TipoServico tipo = oferecidos[random.nextInt(oferecidos.length)];
+            BigDecimal valor = decimal(precoPorLaboratorio[lab][tipo.ordinal()] * (0.9 + random.nextDouble() * 0.2));
+
+            LocalDateTime criadoEm = referencia
+                    .minusDays(sortear(acumuladoDias))
+                    .plusHours(8 + random.nextInt(10))
+                    .plusMinutes(random.nextInt(60));
+            LocalDate entrada = criadoEm.toLocalDate();
+
+            EtapaTemplate[] template = registroTemplatesEtapaService.obterTemplate(tipo, proteticoId);
+            int horasTotais = 0;
+            for (EtapaTemplate etapa : template) {
+                horasTotais += etapa.getDuracaoEstimadaHoras();
+            }
+            LocalDate prevista = entrada.plusDays((horasTotais + 23) / 24 + random.nextInt(4));
+
+            // Progresso: horas decorridas em relação à duração estimada do pedido
+            long horasDecorridas = Duration.between(criadoEm, referencia).toHours();
+            double progresso = (double) horasDecorridas / Math.max(1, horasTotais);
+            StatusPedido status = sortearStatusPedido(progresso);
+
+            LocalDate dataEntrega = status == StatusPedido.FINALIZADO
+                    ? minimo(prevista.plusDays(random.nextInt(7) - 2), referencia.toLocalDate())
+                    : null;
+            LocalDate dataCancelamento = status == StatusPedido.CANCELADO
+                    ? minimo(entrada.plusDays(random.nextInt(10)), referencia.toLocalDate())
+                    : null;
+
+            Object[] pedido = new Object[]{pedidoId, codigo(criadoEm, pedidoId), dentistaId, proteticoId,
+                    tipo.name(), "Pedido sintético " + tipo.getNomeExibicao(), valor,
+                    Date.valueOf(entrada), Date.valueOf(prevista), data(dataEntrega), data(dataCancelamento),
+                    status.name(), instante(criadoEm), instante(criadoEm.plusHours(Math.min(horasDecorridas, horasTotais))),
+                    null, null, null, StatusTerceirizacao.NAO_TERCEIRIZADO.name(), null, null, null, null, null};
+
+            etapas.addAll(montarEtapas(pedidoId, proteticoId, template, status, criadoEm, entrada, horasDecorridas,
+                    proximaEtapaId));
+            proximaEtapaId += template.length;
+
+            if (random.nextDouble() < percentualTerceirizacao && destinosPorTipo[tipo.ordinal()].length > 0) {
+                int destino = destinosPorTipo[tipo.ordinal()][sortear(acumuladoDestinosPorTipo[tipo.ordinal()])];
+                if (destino != lab) {
+                    terceirizacoes.add(montarTerceirizacao(proximaTerceirizacaoId++, pedido, status,
+                            primeiroProteticoId + destino, tipo, valor, criadoEm));
+                }
+            }
+            pedidos.add(pedido);
+
+            if (pedidos.size() == tamanhoLote) {
+                linhas += gravarPedidos(pedidos, etapas, terceirizacoes);
+                if ((i + 1) % (tamanhoLote * 20) == 0) {
+                    log.atDebug().addKeyValue("pedidos", i + 1).log("Geração de pedidos em andamento");
+                }
+            }
+        }
+        linhas += gravarPedidos(pedidos, etapas, terceirizacoes);
+        return linhas;
+    }
+
+    private List<Object[]> montarEtapas(long pedidoId, long proteticoId, EtapaTemplate[] template,
+                                        StatusPedido statusPedido, LocalDateTime criadoEm, LocalDate entrada,
+                                        long horasDecorridas, long primeiroId) {
+        List<Object[]> etapas = new ArrayList<>(template.length);
+        // Pedido cancelado: etapas concluídas até um ponto aleatório, o resto cancelado
+        int concluidasAteCancelamento = random.nextInt(template.length);
+        int horasAcumuladas = 0;
+        boolean andamentoAtribuido = false;
+
+        for (int i = 0; i < template.length; i++) {
+            EtapaTemplate etapa = template[i];
+            horasAcumuladas += etapa.getDuracaoEstimadaHoras();
+            LocalDateTime prazo = criadoEm.plusHours(horasAcumuladas);
+
+            StatusEtapa status;
+            switch (statusPedido) {
+                case FINALIZADO:
+                    status = StatusEtapa.CONCLUIDA;
+                    break;
+                case CANCELADO:
+                    status = i < concluidasAteCancelamento ? StatusEtapa.CONCLUIDA : StatusEtapa.CANCELADA;
+                    break;
+                case EM_PRODUCAO:
+                    if (horasAcumuladas <= horasDecorridas) {
+                        status = StatusEtapa.CONCLUIDA;
+                    } else if (!andamentoAtribuido) {
+                        status = StatusEtapa.EM_ANDAMENTO;
+                        andamentoAtribuido = true;
+                    } else {
+                        status = StatusEtapa.PENDENTE;
+                    }
+                    break;
+                default:
+                    status = StatusEtapa.PENDENTE;
+            }
+
+            LocalDateTime conclusao = status == StatusEtapa.CONCLUIDA
+                    ? minimo(prazo.plusHours(random.nextInt(24) - 8), referencia)
+                    : null;
+            LocalDateTime atualizadoEm = conclusao != null ? conclusao : criadoEm;
+
+            etapas.add(new Object[]{primeiroId + i, pedidoId, etapa.getNome(), status.name(), etapa.getOrdem(),
+                    instante(criadoEm), instante(atualizadoEm), proteticoId, instante(prazo), instante(conclusao),
+                    Date.valueOf(entrada.plusDays((horasAcumuladas + 23) / 24))});
+        }
+        return etapas;
+    }
+
+    // Também preenche os campos de terceirização do próprio pedido
+    private Object[] montarTerceirizacao(long id, Object[] pedido, StatusPedido statusPedido, long destinoId,
+                                         TipoServico tipo, BigDecimal valor, LocalDateTime criadoEm) {
+        StatusTerceirizacao status = sortearStatusTerceirizacao(statusPedido);
+        LocalDateTime solicitadoEm = criadoEm.plusHours(1 + random.nextInt(24));
+        LocalDateTime respondidoEm = status == StatusTerceirizacao.SOLICITADO
+                ? null
+                : minimo(solicitadoEm.plusHours(1 + random.nextInt(48)), referencia);
+        LocalDateTime concluidoEm = status == StatusTerceirizacao.CONCLUIDO
+                ? minimo(respondidoEm.plusDays(1 + random.nextInt(7)), referencia)
+                : null;
+        boolean aceito = status == StatusTerceirizacao.ACEITO
+                || status == StatusTerceirizacao.EM_ANDAMENTO
+                || status == StatusTerceirizacao.CONCLUIDO;
+        BigDecimal percentual = decimal(30 + random.nextInt(50));
+        BigDecimal valorTerceirizado = valor.multiply(percentual).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
+        TipoTerceirizacao tipoTerceirizacao = TipoTerceirizacao.values()[random.nextInt(TipoTerceirizacao.values().length)];
+
+        pedido[14] = aceito ? destinoId : null;
+        pedido[15] = percentual;
+        pedido[16] = valorTerceirizado;
+        pedido[17] = status.name();
+        pedido[18] = tipoTerceirizacao.name();
+        pedido[19] = tipoTerceirizacao.getDescricao();
+        pedido[20] = instante(solicitadoEm);
+        pedido[21] = instante(respondidoEm);
+        pedido[22] = instante(concluidoEm);
+
+        return new Object[]{id, pedido[3], destinoId, pedido[0], status.name(), tipo.getNomeExibicao(),
+                null, valorTerceirizado.doubleValue(), instante(solicitadoEm),
+                aceito ? instante(respondidoEm) : null, instante(concluidoEm)};
+    }
+
+    private long gravarPedidos(List<Object[]> pedidos, List<Object[]> etapas, List<Object[]> terceirizacoes) {
+        long linhas = pedidos.size() + etapas.size() + terceirizacoes.size();
+        transactionTemplate.executeWithoutResult(status -> {
+            inserir(SQL_PEDIDO, pedidos, TIPOS_PEDIDO);
+            inserir(SQL_ETAPA, etapas, TIPOS_ETAPA);
+            inserir(SQL_TERCEIRIZACAO, terceirizacoes, TIPOS_TERCEIRIZACAO);
+        });
+        return linhas;
+    }
+
+    // ============ CONVITES ============
+
+    private void gerarConvites() {
+        long proximoId = proximoId("convites");
+        List<Object[]> convites = new ArrayList<>(tamanhoLote);
+
+        for (int i = 0; i < quantidadeConvites; i++) {
+            boolean paraDentista = random.nextInt(4) != 0;
+            long criadoPor = primeiroProteticoId + sortear(acumuladoLaboratorios);
+            LocalDateTime criadoEm = referencia.minusDays(random.nextInt(diasHistorico)).plusHours(random.nextInt(24));
+            LocalDateTime expiraEm = criadoEm.plusDays(7);
+            boolean utilizado = expiraEm.isBefore(referencia) ? random.nextInt(10) < 6 : random.nextInt(10) < 2;
+            LocalDateTime utilizadoEm = utilizado ? criadoEm.plusHours(1 + random.nextInt(24 * 6)) : null;
+            Long utilizadoPor = !utilizado ? null : paraDentista
+                    ? primeiroDentistaId + random.nextInt(quantidadeDentistas)
+                    : primeiroProteticoId + random.nextInt(quantidadeProteticos);
+
+            convites.add(new Object[]{proximoId++, codigoConvite(i),
+                    (paraDentista ? UserTipo.DENTISTA : UserTipo.PROTETICO).name(),
+                    random.nextBoolean() ? "convidado" + i + DOMINIO_EMAIL : null,
+                    criadoPor, instante(criadoEm), instante(expiraEm), utilizado, instante(utilizadoEm), utilizadoPor});
+
+            if (convites.size() == tamanhoLote) {
+                gravarConvites(convites);
+            }
+        }
+        gravarConvites(convites);
+    }
+
+    private void gravarConvites(List<Object[]> convites) {
+        transactionTemplate.executeWithoutResult(status -> inserir(SQL_CONVITE, convites, TIPOS_CONVITE));
+    }
+
+    // Código único e determinístico: i * ímpar é bijetivo em 60 bits, então não há colisão
+    private String codigoConvite(int indice) {
+        long valor = (indice * 0x9E3779B97F4A7C15L + semente) & MASCARA_60_BITS;
+        char[] codigo = new char[12];
+        for (int i = codigo.length - 1; i >= 0; i--) {
+            codigo[i] = ALFABETO_CONVITE.charAt((int) (valor & 31));
+            valor >>>= 5;
+        }
+        return new String(codigo);
+    }
+
+    // ============ SEQUENCES ============
+
+    // Ids foram atribuídos aqui; as identities/sequences precisam continuar depois deles
+    private void avancarSequencias() {
+        for (String tabela : new String[]{"usuarios", "servicos_protetico", "pedidos", "terceirizacoes"}) {
+            jdbcTemplate.queryForObject("SELECT setval(pg_get_serial_sequence('" + tabela + "', 'id'), " +
+                    "(SELECT COALESCE(MAX(id), 1) FROM " + tabela + "))", Long.class);
+        }
+        jdbcTemplate.queryForObject("SELECT setval('etapa_pedido_seq', (SELECT COALESCE(MAX(id), 1) FROM etapa_pedido))",
+                Long.class);
+        jdbcTemplate.queryForObject("SELECT setval('convites_seq', (SELECT COALESCE(MAX(id), 1) FROM convites))",
+                Long.class);
+    }
+
+    // ============ DISTRIBUIÇÕES ============
+
+    // Pesos 1/(k+1)^s acumulados e normalizados; sorteio por busca binária
+    private static double[] acumuladoZipf(int tamanho, double expoente) {
+        double[] acumulado = new double[tamanho];
+        double soma = 0;
+        for (int k = 0; k < tamanho; k++) {
+            soma += 1.0 / Math.pow(k + 1, expoente);
+            acumulado[k] = soma;
+        }
+        for (int k = 0; k < tamanho; k++) {
+            acumulado[k] /= soma;
+        }
+        return acumulado;
+    }
+
+    /**
+     * Peso de cada dia do histórico (índice = dias antes da referência):
+     * sazonalidade anual (pico no início do ano, vale no fim), fim de semana fraco
+     * e crescimento linear de volume ao longo do período.
+     */
+    private double[] acumuladoSazonal() {
+        double[] acumulado = new double[diasHistorico];
+        double soma = 0;
+        for (int d = 0; d < diasHistorico; d++) {
+            LocalDate dia = referencia.toLocalDate().minusDays(d);
+            double sazonal = 1.0 + 0.3 * Math.cos(2 * Math.PI * (dia.getDayOfYear() - 60) / 365.25);
+            double semana = dia.getDayOfWeek() == DayOfWeek.SUNDAY ? 0.1
+                    : dia.getDayOfWeek() == DayOfWeek.SATURDAY ? 0.4 : 1.0;
+            double crescimento = 1.5 - (double) d / diasHistorico;
+            soma += sazonal * semana * crescimento;
+            acumulado[d] = soma;
+        }
+        for (int d = 0; d < diasHistorico; d++) {
+            acumulado[d] /= soma;
+        }
+        return acumulado;
+    }
+
+    private int sortear(double[] acumulado) {
+        int indice = Arrays.binarySearch(acumulado, random.nextDouble());
+        int posicao = indice >= 0 ? indice : -indice - 1;
+        return Math.min(posicao, acumulado.length - 1);
+    }
+
+    private StatusPedido sortearStatusPedido(double progresso) {
+        int sorteio = random.nextInt(100);
+        if (progresso >= 1.3) {
+            // Antigos: quase todos encerrados, alguns esquecidos em produção (atrasados)
+            return sorteio < 90 ? StatusPedido.FINALIZADO : sorteio < 97 ? StatusPedido.CANCELADO : StatusPedido.EM_PRODUCAO;
+        }
+        if (progresso >= 1.0) {
+            return sorteio < 60 ? StatusPedido.FINALIZADO : sorteio < 65 ? StatusPedido.CANCELADO : StatusPedido.EM_PRODUCAO;
+        }
+        if (progresso < 0.05) {
+            return sorteio < 80 ? StatusPedido.AGUARDANDO_APROVACAO : StatusPedido.APROVADO;
+        }
+        if (progresso < 0.15) {
+            return sorteio < 20 ? StatusPedido.AGUARDANDO_APROVACAO : sorteio < 70 ? StatusPedido.APROVADO
+                    : StatusPedido.EM_PRODUCAO;
+        }
+        return sorteio < 3 ? StatusPedido.CANCELADO : StatusPedido.EM_PRODUCAO;
+    }
+
+    private StatusTerceirizacao sortearStatusTerceirizacao(StatusPedido statusPedido) {
+        int sorteio = random.nextInt(100);
+        switch (statusPedido) {
+            case FINALIZADO:
+                return sorteio < 80 ? StatusTerceirizacao.CONCLUIDO
+                        : sorteio < 92 ? StatusTerceirizacao.RECUSADO : StatusTerceirizacao.CANCELADO;
+            case CANCELADO:
+                return sorteio < 70 ? StatusTerceirizacao.CANCELADO : StatusTerceirizacao.RECUSADO;
+            case EM_PRODUCAO:
+                return sorteio < 15 ? StatusTerceirizacao.SOLICITADO
+                        : sorteio < 35 ? StatusTerceirizacao.ACEITO
+                        : sorteio < 85 ? StatusTerceirizacao.EM_ANDAMENTO
+                        : sorteio < 95 ? StatusTerceirizacao.RECUSADO : StatusTerceirizacao.CANCELADO;
+            default:
+                return sorteio < 85 ? StatusTerceirizacao.SOLICITADO : StatusTerceirizacao.RECUSADO;
+        }
+    }
+
+    private PoliticaExecucaoServico sortearPolitica() {
+        int sorteio = random.nextInt(100);
+        return sorteio < 50 ? PoliticaExecucaoServico.PROPRIO
+                : sorteio < 80 ? PoliticaExecucaoServico.PROPRIO_OU_TERCEIRIZADO
+                : sorteio < 95 ? PoliticaExecucaoServico.TERCEIRIZADO
+                : PoliticaExecucaoServico.NAO_OFERECIDO;
+    }
+
+    // ============ AUXILIARES ============
+
+    private void inserir(String sql, List<Object[]> linhas, int[] tipos) {
+        if (!linhas.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, linhas, tipos);
+            linhas.clear();
+        }
+    }
+
+    private long proximoId(String tabela) {
+        Long maximo = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + tabela, Long.class);
+        return (maximo != null ? maximo : 0) + 1;
+    }
+
+    private TipoServico[] embaralhar(TipoServico[] tipos) {
+        for (int i = tipos.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            TipoServico troca = tipos[i];
+            tipos[i] = tipos[j];
+            tipos[j] = troca;
+        }
+        return tipos;
+    }
+
+    private static String codigo(LocalDateTime criadoEm, long id) {
+        return "S" + criadoEm.format(FORMATO_CODIGO) + String.format("%09d", id);
+    }
+
+    private static String emailDentista(int indice) {
+        return "dentista" + indice + DOMINIO_EMAIL;
+    }
+
+    private static String especialidadeDentista(int indice) {
+        String[] especialidades = {"Clínica Geral", "Ortodontia", "Implante", "Prótese", "Endodontia"};
+        return especialidades[indice % especialidades.length];
+    }
+
+    private static String telefone(int indice) {
+        return String.format("(11) 9%03d-%04d", (indice / 10000) % 1000, indice % 10000);
+    }
+
+    private static BigDecimal decimal(double valor) {
+        return BigDecimal.valueOf(valor).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static Timestamp instante(LocalDateTime valor) {
+        return valor != null ? Timestamp.valueOf(valor) : null;
+    }
+
+    private static Date data(LocalDate valor) {
+        return valor != null ? Date.valueOf(valor) : null;
+    }
+
+    private static LocalDate minimo(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDateTime minimo(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+}
@@ -0,0 +1,169 @@
+package com.proteticos.ordermanagement.service;
+
+import com.proteticos.ordermanagement.DTO.CandidatoTerceirizacaoDTO;
+import com.proteticos.ordermanagement.DTO.ProteticoSimplesDTO;
+import com.proteticos.ordermanagement.model.PoliticaExecucaoServico;
+import com.proteticos.ordermanagement.model.TipoServico;
+import com.proteticos.ordermanagement.repository.ServicoProteticoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Índice em memória dos protéticos aptos a receber terceirização, por tipo de serviço.
+ *
+ * Leitura: sem lock e sem banco (mapa imutável publicado via volatile).
+ * Escrita: copy-on-write por protético, disparada após o commit de alterações
+ * em ServicoProteticoService / ProteticoService.
+ */
+@Service
+public class IndiceTerceirizacaoService {
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceTerceirizacaoService.class);
+
+    @Autowired
+    private ServicoProteticoRepository servicoProteticoRepository;
+
+    private static final List<PoliticaExecucaoServico> POLITICAS_TERCEIRIZACAO = Arrays.asList(
+            PoliticaExecucaoServico.TERCEIRIZADO,
+            PoliticaExecucaoServico.PROPRIO_OU_TERCEIRIZADO
+    );
+
+    private static final Comparator<CandidatoTerceirizacaoDTO> POR_PROTETICO =
+            Comparator.comparing(CandidatoTerceirizacaoDTO::getProteticoId);
+
+    // null enquanto o índice não foi carregado
+    private volatile Map<TipoServico, List<CandidatoTerceirizacaoDTO>> indice;
+
+    // Serializa apenas as escritas; leituras nunca bloqueiam
+    private final ReentrantLock escrita = new ReentrantLock();
+
+    // ============ CARGA INICIAL ============
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregar() {
+        escrita.lock();
+        try {
+            Map<TipoServico, List<CandidatoTerceirizacaoDTO>> novo = new EnumMap<>(TipoServico.class);
+            for (CandidatoTerceirizacaoDTO candidato :
+                    servicoProteticoRepository.buscarTodosCandidatosTerceirizacao(POLITICAS_TERCEIRIZACAO)) {
+                novo.computeIfAbsent(candidato.getTipoServico(), t -> new ArrayList<>()).add(candidato);
+            }
+            novo.replaceAll((tipo, lista) -> congelar(lista));
+            this.indice = novo;
+
+            log.atInfo().addKeyValue("tipos", novo.size()).log("Índice de terceirização carregado");
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    // ============ CONSULTAS ============
+
+    public boolean isCarregado() {
+        return indice != null;
+    }
+
+    /**
+     * Lista os candidatos de um tipo de serviço, excluindo opcionalmente um protético
+     * (normalmente o responsável atual do pedido).
+     */
+    public List<ProteticoSimplesDTO> listar(TipoServico tipoServico, Long excluirProteticoId) {
+        Map<TipoServico, List<CandidatoTerceirizacaoDTO>> atual = indice;
+        if (atual == null) {
+            throw new IllegalStateException("Índice de terceirização ainda não carregado");
+        }
+
+        List<CandidatoTerceirizacaoDTO> candidatos = atual.getOrDefault(tipoServico, Collections.emptyList());
+        List<ProteticoSimplesDTO> resultado = new ArrayList<>(candidatos.size());
+        for (CandidatoTerceirizacaoDTO candidato : candidatos) {
+            if (excluirProteticoId == null || !excluirProteticoId.equals(candidato.getProteticoId())) {
+                resultado.add(candidato.toProteticoSimplesDTO());
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Snapshot imutável dos candidatos de um tipo de serviço (sem cópia); usado pelo ranking.
+     */
+    public List<CandidatoTerceirizacaoDTO> candidatos(TipoServico tipoServico) {
+        Map<TipoServico, List<CandidatoTerceirizacaoDTO>> atual = indice;
+        if (atual == null) {
+            throw new IllegalStateException("Índice de terceirização ainda não carregado");
+        }
+        return atual.getOrDefault(tipoServico, Collections.emptyList());
+    }
+
+    // ============ ATUALIZAÇÃO INCREMENTAL ============
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProteticoAlterado(ProteticoTerceirizacaoAlteradoEvent event) {
+        recarregarProtetico(event.getProteticoId());
+    }
+
+    /**
+     * Substitui todas as entradas de um protético pelas do banco (após o commit).
+     */
+    public void recarregarProtetico(Long proteticoId) {
+        if (proteticoId == null) {
+            return;
+        }
+
+        escrita.lock();
+        try {
+            Map<TipoServico, List<CandidatoTerceirizacaoDTO>> atual = indice;
+            if (atual == null) {
+                return; // A carga inicial ainda vai ler o estado já commitado
+            }
+
+            List<CandidatoTerceirizacaoDTO> novosDoProtetico = servicoProteticoRepository
+                    .buscarCandidatosTerceirizacaoPorProtetico(proteticoId, POLITICAS_TERCEIRIZACAO);
+
+            Map<TipoServico, List<CandidatoTerceirizacaoDTO>> novo = new EnumMap<>(TipoServico.class);
+            novo.putAll(atual);
+
+            // Remove o protético de todos os tipos em que aparecia
+            for (Map.Entry<TipoServico, List<CandidatoTerceirizacaoDTO>> entry : atual.entrySet()) {
+                List<CandidatoTerceirizacaoDTO> lista = entry.getValue();
+                if (lista.stream().anyMatch(c -> proteticoId.equals(c.getProteticoId()))) {
+                    List<CandidatoTerceirizacaoDTO> semProtetico = new ArrayList<>(lista);
+                    semProtetico.removeIf(c -> proteticoId.equals(c.getProteticoId()));
+                    novo.put(entry.getKey(), congelar(semProtetico));
+                }
+            }
+
+            // Reinsere nos tipos em que continua elegível
+            for (CandidatoTerceirizacaoDTO candidato : novosDoProtetico) {
+                List<CandidatoTerceirizacaoDTO> lista = new ArrayList<>(
+                        novo.getOrDefault(candidato.getTipoServico(), Collections.emptyList()));
+                lista.add(candidato);
+                novo.put(candidato.getTipoServico(), congelar(lista));
+            }
+
+            novo.values().removeIf(List::isEmpty);
+            this.indice = novo;
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    private static List<CandidatoTerceirizacaoDTO> congelar(List<CandidatoTerceirizacaoDTO> lista) {
+        lista.sort(POR_PROTETICO);
+        return Collections.unmodifiableList(lista);
+    }
+}
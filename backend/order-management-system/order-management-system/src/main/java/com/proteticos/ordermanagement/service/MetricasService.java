@@ -0,0 +1,181 @@
+package com.proteticos.ordermanagement.service;
+
+import com.proteticos.ordermanagement.model.StatusPedido;
+import com.proteticos.ordermanagement.model.StatusTerceirizacao;
+import com.proteticos.ordermanagement.repository.PedidoRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Métricas de negócio expostas em /actuator/prometheus.
+ *
+ * Latência por endpoint (http.server.requests), por método de repositório
+ * (spring.data.repository.invocations) e as métricas do Hikari vêm da autoconfiguração
+ * do Actuator; histogramas e SLOs são ligados em application.properties.
+ * Aqui ficam as métricas de domínio:
+ * - pedidos.transicoes / terceirizacoes.transicoes (tags de, para): contadores pré-registrados,
+ *   sem lookup no registry por evento;
+ * - pedidos.criacao / terceirizacoes.aceite (tag resultado): timers para os SLOs;
+ * - terceirizacoes.backlog: pedidos com terceirização aguardando resposta (SOLICITADO). A unidade é o
+ *   pedido, não a oferta: um broadcast para N laboratórios conta 1, como os eventos de transição;
+ * - hikaricp.connections.saturacao: conexões ativas / tamanho máximo do pool.
+ */
+@Service
+public class MetricasService {
+
+    private static final String NENHUM = "NENHUM";
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    private final Counter[][] transicoesPedido;
+    private final Counter[][] transicoesTerceirizacao;
+
+    private final Timer criacaoPedidoSucesso;
+    private final Timer criacaoPedidoErro;
+    private final Timer aceiteTerceirizacaoSucesso;
+    private final Timer aceiteTerceirizacaoErro;
+
+    private final AtomicLong backlogTerceirizacoes = new AtomicLong();
+
+    public MetricasService(MeterRegistry registry, DataSource dataSource) {
+        this.transicoesPedido = registrarTransicoes(registry, "pedidos.transicoes",
+                "Mudanças de status de pedido", StatusPedido.values());
+        this.transicoesTerceirizacao = registrarTransicoes(registry, "terceirizacoes.transicoes",
+                "Mudanças de status de terceirização", StatusTerceirizacao.values());
+
+        this.criacaoPedidoSucesso = timer(registry, "pedidos.criacao", "Criação de pedido", "sucesso");
+        this.criacaoPedidoErro = timer(registry, "pedidos.criacao", "Criação de pedido", "erro");
+        this.aceiteTerceirizacaoSucesso = timer(registry, "terceirizacoes.aceite", "Aceite de terceirização", "sucesso");
+        this.aceiteTerceirizacaoErro = timer(registry, "terceirizacoes.aceite", "Aceite de terceirização", "erro");
+
+        Gauge.builder("terceirizacoes.backlog", backlogTerceirizacoes, AtomicLong::get)
+                .description("Pedidos com terceirização SOLICITADO aguardando resposta")
+                .register(registry);
+
+        HikariDataSource hikari = unwrapHikari(dataSource);
+        if (hikari != null) {
+            Gauge.builder("hikaricp.connections.saturacao", hikari, MetricasService::saturacao)
+                    .description("Fração do pool em uso (1.0 = todas as conexões ocupadas)")
+                    .register(registry);
+        }
+    }
+
+    // ============ TIMERS DE SLO ============
+
+    /** Mede a criação de um pedido, incluindo o commit quando chamado fora da transação. */
+    public <T> T cronometrarCriacaoPedido(Supplier<T> operacao) {
+        return cronometrar(criacaoPedidoSucesso, criacaoPedidoErro, operacao);
+    }
+
+    public <T> T cronometrarAceiteTerceirizacao(Supplier<T> operacao) {
+        return cronometrar(aceiteTerceirizacaoSucesso, aceiteTerceirizacaoErro, operacao);
+    }
+
+    private static <T> T cronometrar(Timer sucesso, Timer erro, Supplier<T> operacao) {
+        long inicio = System.nanoTime();
+        boolean ok = false;
+        try {
+            T resultado = operacao.get();
+            ok = true;
+            return resultado;
+        } finally {
+            (ok ? sucesso : erro).record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // ============ TRANSIÇÕES ============
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTransicaoStatus(TransicaoStatusEvent event) {
+        Counter[][] contadores = event.getTipo() == TransicaoStatusEvent.Tipo.PEDIDO
+                ? transicoesPedido
+                : transicoesTerceirizacao;
+        int de = event.getDe() == null ? contadores.length - 1 : event.getDe().ordinal();
+        contadores[de][event.getPara().ordinal()].increment();
+
+        // Eventos de terceirização são do pedido: recusas e retiradas de ofertas individuais não os publicam
+        if (event.getTipo() == TransicaoStatusEvent.Tipo.TERCEIRIZACAO) {
+            if (event.getPara() == StatusTerceirizacao.SOLICITADO) {
+                backlogTerceirizacoes.incrementAndGet();
+            } else if (event.getDe() == StatusTerceirizacao.SOLICITADO) {
+                backlogTerceirizacoes.decrementAndGet();
+            }
+        }
+    }
+
+    // ============ BACKLOG ============
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregarNaInicializacao() {
+        recontarBacklog();
+    }
+
+    // O ajuste incremental acima mantém o gauge em dia; a recontagem corrige
+    // alterações feitas por outros nós ou direto no banco
+    @Scheduled(fixedDelayString = "${app.metricas.backlog-recontagem-ms:60000}",
+            initialDelayString = "${app.metricas.backlog-recontagem-ms:60000}")
+    public void recontarBacklog() {
+        backlogTerceirizacoes.set(pedidoRepository.countByStatusTerceirizacao(StatusTerceirizacao.SOLICITADO));
+    }
+
+    // ============ AUXILIARES ============
+
+    // Matriz [de][para]; a última linha é a criação (de = NENHUM)
+    private static Counter[][] registrarTransicoes(MeterRegistry registry, String nome, String descricao,
+                                                   Enum<?>[] valores) {
+        Counter[][] contadores = new Counter[valores.length + 1][valores.length];
+        for (int de = 0; de <= valores.length; de++) {
+            String nomeDe = de == valores.length ? NENHUM : valores[de].name();
+            for (int para = 0; para < valores.length; para++) {
+                contadores[de][para] = Counter.builder(nome)
+                        .description(descricao)
+                        .tag("de", nomeDe)
+                        .tag("para", valores[para].name())
+                        .register(registry);
+            }
+        }
+        return contadores;
+    }
+
+    private static Timer timer(MeterRegistry registry, String nome, String descricao, String resultado) {
+        return Timer.builder(nome)
+                .description(descricao)
+                .tag("resultado", resultado)
+                .register(registry);
+    }
+
+    // O pool só existe após a primeira conexão; antes disso o gauge fica sem valor (NaN)
+    private static double saturacao(HikariDataSource hikari) {
+        HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+        if (pool == null || hikari.getMaximumPoolSize() <= 0) {
+            return Double.NaN;
+        }
+        return (double) pool.getActiveConnections() / hikari.getMaximumPoolSize();
+    }
+
+    private static HikariDataSource unwrapHikari(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+}
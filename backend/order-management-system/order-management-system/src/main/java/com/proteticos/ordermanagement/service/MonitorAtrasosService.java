@@ -0,0 +1,213 @@
+package com.proteticos.ordermanagement.service;
+
+import com.proteticos.ordermanagement.DTO.PrazoAbertoDTO;
+import com.proteticos.ordermanagement.repository.EtapaPedidoRepository;
+import com.proteticos.ordermanagement.repository.PedidoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Monitor em memória de pedidos e etapas abertos, ordenados por data prevista.
+ *
+ * Guarda todos os itens abertos com prazo (não só os atrasados), porque um item fica
+ * atrasado pela virada do dia, sem evento. A consulta de atrasados percorre o início
+ * do conjunto ordenado até hoje: O(k) para k atrasados, sem ir ao banco.
+ *
+ * Atualizado após o commit de mudanças de status/prazo (PrazoAlteradoEvent) e recarregado
+ * periodicamente para cobrir alterações feitas por outros caminhos ou outros nós. Eventos que
+ * chegam durante a recarga são guardados e reaplicados sobre o resultado dela antes da troca:
+ * a consulta pode ter lido o banco antes do commit que os gerou.
+ */
+@Service
+public class MonitorAtrasosService {
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private EtapaPedidoRepository etapaPedidoRepository;
+
+    private final Indice pedidos = new Indice();
+    private final Indice etapas = new Indice();
+
+    // Carga inicial e recarga agendada não se sobrepõem
+    private final ReentrantLock recarga = new ReentrantLock();
+
+    // ============ CONSULTA ============
+
+    /** Ids de pedidos abertos com prazo antes de hoje, do mais antigo para o mais recente. */
+    public List<Long> listarPedidosAtrasados() {
+        return pedidos.anterioresA(LocalDate.now());
+    }
+
+    /** Ids de etapas abertas com prazo antes de hoje, da mais antiga para a mais recente. */
+    public List<Long> listarEtapasAtrasadas() {
+        return etapas.anterioresA(LocalDate.now());
+    }
+
+    // ============ CARGA / ATUALIZAÇÃO ============
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregarNaInicializacao() {
+        recarregar();
+    }
+
+    @Scheduled(fixedDelayString = "${app.atrasos.recarga-ms:600000}",
+            initialDelayString = "${app.atrasos.recarga-ms:600000}")
+    public void recarregar() {
+        recarga.lock();
+        try {
+            pedidos.iniciarRecarga();
+            pedidos.substituir(pedidoRepository.listarPrazosAbertos());
+            etapas.iniciarRecarga();
+            etapas.substituir(etapaPedidoRepository.listarPrazosAbertos());
+        } finally {
+            // Se a consulta falhou, o conteúdo atual (já com os eventos aplicados) continua valendo
+            pedidos.encerrarRecarga();
+            etapas.encerrarRecarga();
+            recarga.unlock();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPrazoAlterado(PrazoAlteradoEvent event) {
+        Indice indice = event.getTipo() == PrazoAlteradoEvent.Tipo.PEDIDO ? pedidos : etapas;
+        if (event.isAberto() && event.getDataPrevista() != null) {
+            indice.atualizar(event.getId(), event.getDataPrevista());
+        } else {
+            indice.remover(event.getId());
+        }
+    }
+
+    // ============ ESTRUTURA ============
+
+    // Chave de ordenação (data prevista, id); o id desempata itens do mesmo dia
+    private static final class Entrada implements Comparable<Entrada> {
+        final LocalDate data;
+        final long id;
+
+        Entrada(LocalDate data, long id) {
+            this.data = data;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Entrada outra) {
+            int porData = data.compareTo(outra.data);
+            return porData != 0 ? porData : Long.compare(id, outra.id);
+        }
+    }
+
+    /**
+     * Conjunto ordenado por prazo + mapa id -> entrada para remover/atualizar em O(log n).
+     * Leituras são lock-free; escritas são serializadas para manter as duas estruturas coerentes.
+     */
+    private static final class Indice {
+        private volatile ConcurrentSkipListSet<Entrada> ordenado = new ConcurrentSkipListSet<>();
+        private volatile Map<Long, Entrada> porId = new ConcurrentHashMap<>();
+        private final ReentrantLock escrita = new ReentrantLock();
+        // Durante uma recarga: última alteração de cada id (data nula = remoção); protegido por escrita
+        private Map<Long, LocalDate> pendentes;
+
+        List<Long> anterioresA(LocalDate limite) {
+            List<Long> ids = new ArrayList<>();
+            for (Entrada entrada : ordenado.headSet(new Entrada(limite, Long.MIN_VALUE))) {
+                ids.add(entrada.id);
+            }
+            return ids;
+        }
+
+        void atualizar(Long id, LocalDate data) {
+            escrita.lock();
+            try {
+                aplicar(ordenado, porId, id, data);
+                if (pendentes != null) {
+                    pendentes.put(id, data);
+                }
+            } finally {
+                escrita.unlock();
+            }
+        }
+
+        void remover(Long id) {
+            escrita.lock();
+            try {
+                aplicar(ordenado, porId, id, null);
+                if (pendentes != null) {
+                    pendentes.put(id, null);
+                }
+            } finally {
+                escrita.unlock();
+            }
+        }
+
+        // Chamado antes da consulta: daqui até a troca, toda alteração também vai para pendentes
+        void iniciarRecarga() {
+            escrita.lock();
+            try {
+                pendentes = new LinkedHashMap<>();
+            } finally {
+                escrita.unlock();
+            }
+        }
+
+        void encerrarRecarga() {
+            escrita.lock();
+            try {
+                pendentes = null;
+            } finally {
+                escrita.unlock();
+            }
+        }
+
+        // Recarga completa: monta fora do lock; sob o lock reaplica as alterações recebidas
+        // durante a consulta e troca as referências de uma vez
+        void substituir(List<PrazoAbertoDTO> abertos) {
+            ConcurrentSkipListSet<Entrada> novoOrdenado = new ConcurrentSkipListSet<>();
+            Map<Long, Entrada> novoPorId = new ConcurrentHashMap<>(Math.max(16, abertos.size() * 2));
+            for (PrazoAbertoDTO item : abertos) {
+                Entrada entrada = new Entrada(item.getDataPrevista(), item.getId());
+                novoPorId.put(item.getId(), entrada);
+                novoOrdenado.add(entrada);
+            }
+
+            escrita.lock();
+            try {
+                if (pendentes != null) {
+                    pendentes.forEach((id, data) -> aplicar(novoOrdenado, novoPorId, id, data));
+                    pendentes = null;
+                }
+                porId = novoPorId;
+                ordenado = novoOrdenado;
+            } finally {
+                escrita.unlock();
+            }
+        }
+
+        private static void aplicar(ConcurrentSkipListSet<Entrada> ordenado, Map<Long, Entrada> porId,
+                                    Long id, LocalDate data) {
+            Entrada nova = data != null ? new Entrada(data, id) : null;
+            Entrada anterior = nova != null ? porId.put(id, nova) : porId.remove(id);
+            if (anterior != null) {
+                ordenado.remove(anterior);
+            }
+            if (nova != null) {
+                ordenado.add(nova);
+            }
+        }
+    }
+}
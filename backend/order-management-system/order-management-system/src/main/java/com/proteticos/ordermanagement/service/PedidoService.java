@@ -3,11 +3,15 @@ package com.proteticos.ordermanagement.service;
 import com.proteticos.ordermanagement.DTO.*;
 import com.proteticos.ordermanagement.model.*;
 import com.proteticos.ordermanagement.repository.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -16,6 +20,8 @@ import java.util.stream.Collectors;
 @Service
 public class PedidoService {
 
+    private static final Logger log = LoggerFactory.getLogger(PedidoService.class);
+
     @Autowired
     private PedidoRepository pedidoRepository;
 
@@ -26,7 +32,16 @@ public class PedidoService {
     private ProteticoRepository proteticoRepository;
 
     @Autowired
-    private EtapaPedidoRepository etapaPedidoRepository;
+    private EtapaService etapaService;
+
+    @Autowired
+    private MonitorAtrasosService monitorAtrasos;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ControleConcorrenciaService controleConcorrencia;
 
     // ============ MÉTODOS DE CONVERSÃO PARA DTO ============
 
@@ -46,6 +61,7 @@ public class PedidoService {
         dto.setDataEntrega(pedido.getDataEntrega());
         dto.setStatus(pedido.getStatus());
         dto.setDataCriacao(pedido.getDataCriacao());
+        dto.setVersao(pedido.getVersao());
 
         // Converter dentista
         if (pedido.getDentista() != null) {
@@ -87,6 +103,62 @@ public class PedidoService {
                 .collect(Collectors.toList());
     }
 
+    // ============ LISTAGEM PAGINADA POR CURSOR ============
+
+    private static final int LIMITE_PADRAO_PAGINA = 20;
+    private static final int LIMITE_MAXIMO_PAGINA = 100;
+
+    /**
+     * Lista pedidos por cursor (keyset em dataCriacao DESC, id DESC) com filtros combináveis.
+     * Custo por página constante, independente de quantos pedidos já existem.
+     */
+    @Transactional(readOnly = true)
+    public PaginaCursorDTO<PedidoResponseDTO> listarPaginado(FiltroPedidoDTO filtro, String cursor, Integer limite) {
+        int tamanho = (limite == null || limite <= 0)
+                ? LIMITE_PADRAO_PAGINA
+                : Math.min(limite, LIMITE_MAXIMO_PAGINA);
+
+        LocalDateTime cursorData = null;
+        Long cursorId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] partes = decodificarCursor(cursor);
+            cursorData = LocalDateTime.parse(partes[0]);
+            cursorId = Long.valueOf(partes[1]);
+        }
+
+        // Busca um item a mais só para saber se existe próxima página
+        List<PedidoResponseDTO> itens = pedidoRepository
+                .buscarPaginaPorCursor(filtro, cursorData, cursorId, tamanho + 1);
+
+        boolean temMais = itens.size() > tamanho;
+        if (temMais) {
+            itens = new ArrayList<>(itens.subList(0, tamanho));
+        }
+
+        String proximoCursor = temMais ? codificarCursor(itens.get(itens.size() - 1)) : null;
+        return new PaginaCursorDTO<>(itens, proximoCursor, temMais);
+    }
+
+    private String codificarCursor(PedidoResponseDTO ultimo) {
+        String bruto = ultimo.getDataCriacao() + "|" + ultimo.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bruto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodificarCursor(String cursor) {
+        try {
+            String bruto = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] partes = bruto.split("\\|");
+            if (partes.length != 2) {
+                throw new IllegalArgumentException();
+            }
+            LocalDateTime.parse(partes[0]);
+            Long.parseLong(partes[1]);
+            return partes;
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Cursor inválido: " + cursor);
+        }
+    }
+
     // ============ MÉTODOS DE CRIAÇÃO ============
 
     @Transactional
@@ -110,58 +182,92 @@ public class PedidoService {
         pedido.setStatus(StatusPedido.AGUARDANDO_APROVACAO);
         pedido.setDataCriacao(LocalDateTime.now());
 
-        // Salvar pedido
+        return salvarNovoPedido(pedido, request.isCriarEtapasIniciais());
+    }
+
+    // Pedido já montado pelo chamador (POST /api/pedidos), com dentista e protético validados
+    @Transactional
+    public Pedido criarPedido(Pedido pedido) {
+        return salvarNovoPedido(pedido, true);
+    }
+
+    private Pedido salvarNovoPedido(Pedido pedido, boolean criarEtapas) {
         Pedido pedidoSalvo = pedidoRepository.save(pedido);
+        publicarPrazo(pedidoSalvo);
+        eventPublisher.publishEvent(TransicaoStatusEvent.pedido(null, pedidoSalvo.getStatus()));
 
-        // Criar etapas iniciais se necessário
-        if (request.isCriarEtapasIniciais()) {
-            criarEtapasIniciais(pedidoSalvo);
+        // Etapas do template do tipo de serviço, com a primeira já agendada na agenda de produção
+        if (criarEtapas) {
+            etapaService.criarEtapasPadrao(pedidoSalvo);
         }
 
         return pedidoSalvo;
     }
 
     // ============ MÉTODOS DE STATUS (FLUXO CONTROLADO) ============
+    // Sem @Transactional: cada tentativa do ControleConcorrenciaService abre a sua transação.
+    // versaoEsperada vem do If-Match (null = sem verificação, com novas tentativas em conflito)
 
-    @Transactional
     public Pedido aprovarPedido(Long pedidoId) {
-        return mudarStatus(pedidoId, StatusPedido.APROVADO);
+        return aprovarPedido(pedidoId, null);
+    }
+
+    public Pedido aprovarPedido(Long pedidoId, Long versaoEsperada) {
+        return controleConcorrencia.executar("Pedido " + pedidoId, versaoEsperada,
+                () -> mudarStatus(pedidoId, StatusPedido.APROVADO, versaoEsperada));
     }
 
-    @Transactional
     public Pedido iniciarProducao(Long pedidoId) {
-        return mudarStatus(pedidoId, StatusPedido.EM_PRODUCAO);
+        return iniciarProducao(pedidoId, null);
+    }
+
+    public Pedido iniciarProducao(Long pedidoId, Long versaoEsperada) {
+        return controleConcorrencia.executar("Pedido " + pedidoId, versaoEsperada,
+                () -> mudarStatus(pedidoId, StatusPedido.EM_PRODUCAO, versaoEsperada));
     }
 
-    @Transactional
     public Pedido finalizarPedido(Long pedidoId) {
-        Pedido pedido = mudarStatus(pedidoId, StatusPedido.FINALIZADO);
+        return finalizarPedido(pedidoId, null);
+    }
 
-        // Define data de conclusão
-        pedido.setDataEntrega(LocalDate.now());
-        pedido.setDataUltimaAtualizacao(LocalDateTime.now());
+    public Pedido finalizarPedido(Long pedidoId, Long versaoEsperada) {
+        return controleConcorrencia.executar("Pedido " + pedidoId, versaoEsperada, () -> {
+            Pedido pedido = mudarStatus(pedidoId, StatusPedido.FINALIZADO, versaoEsperada);
 
-        return pedidoRepository.save(pedido);
+            // Define data de conclusão
+            pedido.setDataEntrega(LocalDate.now());
+            pedido.setDataUltimaAtualizacao(LocalDateTime.now());
+
+            return pedidoRepository.save(pedido);
+        });
     }
 
-    @Transactional
     public Pedido cancelarPedido(Long pedidoId) {
-        Pedido pedido = mudarStatus(pedidoId, StatusPedido.CANCELADO);
+        return cancelarPedido(pedidoId, null);
+    }
 
-        // Define data de cancelamento
-        pedido.setDataCancelamento(LocalDate.now());
-        pedido.setDataUltimaAtualizacao(LocalDateTime.now());
+    public Pedido cancelarPedido(Long pedidoId, Long versaoEsperada) {
+        return controleConcorrencia.executar("Pedido " + pedidoId, versaoEsperada, () -> {
+            Pedido pedido = mudarStatus(pedidoId, StatusPedido.CANCELADO, versaoEsperada);
 
-        return pedidoRepository.save(pedido);
+            // Define data de cancelamento
+            pedido.setDataCancelamento(LocalDate.now());
+            pedido.setDataUltimaAtualizacao(LocalDateTime.now());
+
+            return pedidoRepository.save(pedido);
+        });
     }
 
     // ============ MÉTODO PRIVADO PARA MUDANÇA DE STATUS ============
 
-    @Transactional
-    private Pedido mudarStatus(Long pedidoId, StatusPedido novoStatus) {
+    // Chamado dentro da transação aberta pelo ControleConcorrenciaService: o UPDATE leva
+    // "where versao = ?", então duas transições concorrentes não podem ambas ter sucesso
+    private Pedido mudarStatus(Long pedidoId, StatusPedido novoStatus, Long versaoEsperada) {
         Pedido pedido = pedidoRepository.findById(pedidoId)
                 .orElseThrow(() -> new RuntimeException("Pedido não encontrado com ID: " + pedidoId));
 
+        ControleConcorrenciaService.verificarVersao("Pedido " + pedidoId, pedido.getVersao(), versaoEsperada);
+
         // Valida se pode fazer a transição
         if (!pedido.getStatus().podeMudarPara(novoStatus)) {
             throw new RuntimeException(
@@ -170,20 +276,45 @@ public class PedidoService {
             );
         }
 
-        System.out.println("✅ Mudando pedido " + pedidoId +
-                " de " + pedido.getStatus() + " para " + novoStatus);
-
+        StatusPedido anterior = pedido.getStatus();
         pedido.setStatus(novoStatus);
         pedido.setDataUltimaAtualizacao(LocalDateTime.now());
 
-        return pedidoRepository.save(pedido);
+        Pedido salvo = pedidoRepository.save(pedido);
+        publicarPrazo(salvo);
+        eventPublisher.publishEvent(TransicaoStatusEvent.pedido(anterior, novoStatus));
+
+        // Pedido encerrado não deixa etapa aberta nem horas reservadas na agenda
+        if (novoStatus.isEstadoFinal()) {
+            etapaService.encerrarEtapasAbertas(pedidoId, novoStatus == StatusPedido.FINALIZADO);
+        }
+
+        log.atInfo()
+                .addKeyValue("pedidoId", pedidoId)
+                .addKeyValue("transicao", () -> anterior + "->" + novoStatus)
+                .log("Status do pedido alterado");
+        return salvo;
+    }
+
+    // Mantém o MonitorAtrasosService em dia (aplicado após o commit)
+    private void publicarPrazo(Pedido pedido) {
+        eventPublisher.publishEvent(new PrazoAlteradoEvent(
+                PrazoAlteradoEvent.Tipo.PEDIDO,
+                pedido.getId(),
+                pedido.getDataPrevistaEntrega(),
+                !pedido.getStatus().isEstadoFinal()
+        ));
     }
 
     // ============ MÉTODO GENÉRICO PARA ATUALIZAÇÃO DE STATUS ============
 
-    @Transactional
     public Pedido atualizarStatus(Long pedidoId, StatusPedido novoStatus) {
-        return mudarStatus(pedidoId, novoStatus);
+        return atualizarStatus(pedidoId, novoStatus, null);
+    }
+
+    public Pedido atualizarStatus(Long pedidoId, StatusPedido novoStatus, Long versaoEsperada) {
+        return controleConcorrencia.executar("Pedido " + pedidoId, versaoEsperada,
+                () -> mudarStatus(pedidoId, novoStatus, versaoEsperada));
     }
 
     // ============ MÉTODOS AUXILIARES ============
@@ -198,32 +329,17 @@ public class PedidoService {
 
     // ============ OUTROS MÉTODOS ============
 
-    private void criarEtapasIniciais(Pedido pedido) {
-        // Usando o método factory (opção 1)
-        EtapaPedido etapa1 = EtapaPedido.criarEtapaInicial(
-                pedido, "Recebimento", "Pedido recebido do dentista", 1
-        );
-        etapaPedidoRepository.save(etapa1); // @PrePersist será chamado aqui!
-
-        // Ou usando construtor normal (opção 2)
-        EtapaPedido etapa2 = new EtapaPedido();
-        etapa2.setPedido(pedido);
-        etapa2.setNomeEtapa("Planejamento");
-        etapa2.setObservacoes("Planejamento do trabalho protético");
-        etapa2.setStatus(StatusEtapa.PENDENTE);
-        etapa2.setOrdem(2);
-        // NÃO precisa mais: etapa2.setDataCriacao(LocalDateTime.now());
-        etapaPedidoRepository.save(etapa2); // @PrePersist será chamado aqui!
-    }
-
+    @Transactional(readOnly = true)
     public List<Pedido> listarTodosPedidos() {
         return pedidoRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     public List<Pedido> listarPedidosPorProtetico(Long proteticoId) {
         return pedidoRepository.findByProteticoId(proteticoId);
     }
 
+    @Transactional(readOnly = true)
     public List<Pedido> listarPedidosPorDentista(Long dentistaId) {
         return pedidoRepository.findByDentistaId(dentistaId);
     }
@@ -237,6 +353,35 @@ public class PedidoService {
                 .orElseThrow(() -> new RuntimeException("Pedido não encontrado com código: " + codigo));
     }
 
+    // Edição geral (PUT /api/pedidos/{id}): campos nulos ficam como estão
+    @Transactional
+    public Pedido atualizarPedido(Long pedidoId, BigDecimal valorCobrado, LocalDate dataPrevistaEntrega,
+                                  String informacoesDetalhadas) {
+        Pedido pedido = pedidoRepository.findById(pedidoId)
+                .orElseThrow(() -> new RuntimeException("Pedido não encontrado com ID: " + pedidoId));
+
+        if (pedido.getStatus().isEstadoFinal()) {
+            throw new RuntimeException("Não é possível editar um pedido finalizado ou cancelado");
+        }
+
+        if (valorCobrado != null) {
+            pedido.setValorCobrado(valorCobrado);
+        }
+        if (dataPrevistaEntrega != null) {
+            pedido.setDataPrevistaEntrega(dataPrevistaEntrega);
+        }
+        if (informacoesDetalhadas != null) {
+            pedido.setInformacoesDetalhadas(informacoesDetalhadas);
+        }
+        pedido.setDataUltimaAtualizacao(LocalDateTime.now());
+
+        Pedido salvo = pedidoRepository.save(pedido);
+        if (dataPrevistaEntrega != null) {
+            publicarPrazo(salvo);
+        }
+        return salvo;
+    }
+
     @Transactional
     public Pedido atualizarValor(Long pedidoId, BigDecimal novoValor) {
         Pedido pedido = pedidoRepository.findById(pedidoId)
@@ -264,7 +409,10 @@ public class PedidoService {
 
         pedido.setDataPrevistaEntrega(novaDataPrevista);
         pedido.setDataUltimaAtualizacao(LocalDateTime.now());
-        return pedidoRepository.save(pedido);
+
+        Pedido salvo = pedidoRepository.save(pedido);
+        publicarPrazo(salvo);
+        return salvo;
     }
 
     @Transactional
@@ -272,19 +420,38 @@ public class PedidoService {
         if (!pedidoRepository.existsById(pedidoId)) {
             throw new RuntimeException("Pedido não encontrado com ID: " + pedidoId);
         }
+        // As etapas saem junto (cascade); canceladas antes, para devolver as horas reservadas na agenda
+        etapaService.encerrarEtapasAbertas(pedidoId, false);
         pedidoRepository.deleteById(pedidoId);
+        eventPublisher.publishEvent(new PrazoAlteradoEvent(PrazoAlteradoEvent.Tipo.PEDIDO, pedidoId, null, false));
     }
 
     // Mudar findByStatus() para findByStatusPedido()
+    @Transactional(readOnly = true)
     public List<Pedido> buscarPorStatus(StatusPedido status) {
         return pedidoRepository.findByStatusPedido(status); // ← CORREÇÃO
     }
 
-    public List<Pedido> buscarAtrasados() {
-        LocalDate hoje = LocalDate.now();
-        return pedidoRepository.findByDataPrevistaEntregaBeforeAndStatusPedidoNot(
-                hoje,
-                StatusPedido.FINALIZADO
-        );
+    // Atrasados a partir do monitor em memória (sem varrer pedidos); ordem: prazo mais antigo primeiro
+    @Transactional(readOnly = true)
+    public List<PedidoResponseDTO> buscarAtrasados() {
+        List<Long> ids = monitorAtrasos.listarPedidosAtrasados();
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<Long, PedidoResponseDTO> porId = new HashMap<>(ids.size() * 2);
+        for (PedidoResponseDTO dto : pedidoRepository.listarDTOPorIds(ids)) {
+            porId.put(dto.getId(), dto);
+        }
+
+        List<PedidoResponseDTO> atrasados = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            PedidoResponseDTO dto = porId.get(id);
+            if (dto != null) {
+                atrasados.add(dto);
+            }
+        }
+        return atrasados;
     }
 }
\ No newline at end of file
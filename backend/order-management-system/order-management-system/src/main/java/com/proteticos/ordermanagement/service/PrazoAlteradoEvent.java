@@ -0,0 +1,30 @@
+package com.proteticos.ordermanagement.service;
+
+import java.time.LocalDate;
+
+/**
+ * Publicado quando muda o prazo ou o status de um pedido/etapa.
+ * O MonitorAtrasosService atualiza o item após o commit.
+ * {@code aberto = false} (status final) ou data nula removem o item do monitor.
+ */
+public class PrazoAlteradoEvent {
+
+    public enum Tipo { PEDIDO, ETAPA }
+
+    private final Tipo tipo;
+    private final Long id;
+    private final LocalDate dataPrevista;
+    private final boolean aberto;
+
+    public PrazoAlteradoEvent(Tipo tipo, Long id, LocalDate dataPrevista, boolean aberto) {
+        this.tipo = tipo;
+        this.id = id;
+        this.dataPrevista = dataPrevista;
+        this.aberto = aberto;
+    }
+
+    public Tipo getTipo() { return tipo; }
+    public Long getId() { return id; }
+    public LocalDate getDataPrevista() { return dataPrevista; }
+    public boolean isAberto() { return aberto; }
+}
@@ -5,6 +5,7 @@ import com.proteticos.ordermanagement.DTO.ProteticoDTO;
 import com.proteticos.ordermanagement.model.Protetico;
 import com.proteticos.ordermanagement.repository.ProteticoRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,6 +19,9 @@ public class ProteticoService {
     @Autowired
     private ProteticoRepository proteticoRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Transactional(readOnly = true)
     public List<ProteticoDTO> listarTodos() {
         return proteticoRepository.findAll().stream()
@@ -76,6 +80,8 @@ public class ProteticoService {
 //        protetico.setAceitaTerceirizacao(proteticoDTO.isAceitaTerceirizacao());
 
         Protetico atualizado = proteticoRepository.save(protetico);
+        // Nome/email/registro aparecem no índice de terceirização
+        eventPublisher.publishEvent(new ProteticoTerceirizacaoAlteradoEvent(id));
         return convertToDTO(atualizado);
     }
 
@@ -99,6 +105,7 @@ public class ProteticoService {
             throw new RuntimeException("Protético não encontrado");
         }
         proteticoRepository.deleteById(id);
+        eventPublisher.publishEvent(new ProteticoTerceirizacaoAlteradoEvent(id));
     }
 
     private ProteticoDTO convertToDTO(Protetico protetico) {
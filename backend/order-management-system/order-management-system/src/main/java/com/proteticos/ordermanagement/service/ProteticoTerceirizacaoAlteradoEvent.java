@@ -0,0 +1,16 @@
+package com.proteticos.ordermanagement.service;
+
+/**
+ * Publicado quando algo que afeta a elegibilidade de um protético para terceirização muda
+ * (serviços, política de execução, status ou dados cadastrais).
+ * O IndiceTerceirizacaoService recarrega apenas esse protético após o commit.
+ */
+public class ProteticoTerceirizacaoAlteradoEvent {
+    private final Long proteticoId;
+
+    public ProteticoTerceirizacaoAlteradoEvent(Long proteticoId) {
+        this.proteticoId = proteticoId;
+    }
+
+    public Long getProteticoId() { return proteticoId; }
+}
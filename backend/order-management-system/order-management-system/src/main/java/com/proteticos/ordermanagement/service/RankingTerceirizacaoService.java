@@ -0,0 +1,201 @@
+package com.proteticos.ordermanagement.service;
+
+import com.proteticos.ordermanagement.DTO.CandidatoRankeadoDTO;
+import com.proteticos.ordermanagement.DTO.CandidatoTerceirizacaoDTO;
+import com.proteticos.ordermanagement.model.TipoServico;
+import com.proteticos.ordermanagement.repository.PedidoRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Ranking dos candidatos à terceirização de um tipo de serviço.
+ *
+ * Roda em memória sobre o snapshot do IndiceTerceirizacaoService: duas passadas lineares
+ * (faixas de preço/prazo e pontuação) e um heap mínimo limitado a K, sem ordenar a lista inteira.
+ *
+ * Pontuação (pesos em app.terceirizacao.ranking.*):
+ *   nota/5 + experiência q/(q+referência) + preço e prazo normalizados (menor = melhor)
+ *   + 1/(1+terceirizações abertas) + bônus se for o terceirizado preferido do serviço de origem.
+ */
+@Service
+public class RankingTerceirizacaoService {
+
+    @Autowired
+    private IndiceTerceirizacaoService indiceTerceirizacaoService;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    private final double pesoNota;
+    private final double pesoExperiencia;
+    private final double pesoPreco;
+    private final double pesoPrazo;
+    private final double pesoCarga;
+    private final double bonusPreferido;
+    private final double experienciaReferencia;
+
+    // Terceirizações ACEITO/EM_ANDAMENTO por laboratório executor (snapshot imutável)
+    private volatile Map<Long, Integer> cargaPorProtetico = Collections.emptyMap();
+
+    public RankingTerceirizacaoService(
+            @Value("${app.terceirizacao.ranking.peso-nota:0.35}") double pesoNota,
+            @Value("${app.terceirizacao.ranking.peso-experiencia:0.15}") double pesoExperiencia,
+            @Value("${app.terceirizacao.ranking.peso-preco:0.20}") double pesoPreco,
+            @Value("${app.terceirizacao.ranking.peso-prazo:0.15}") double pesoPrazo,
+            @Value("${app.terceirizacao.ranking.peso-carga:0.15}") double pesoCarga,
+            @Value("${app.terceirizacao.ranking.bonus-preferido:0.25}") double bonusPreferido,
+            @Value("${app.terceirizacao.ranking.experiencia-referencia:20}") double experienciaReferencia) {
+        if (experienciaReferencia <= 0) {
+            throw new IllegalArgumentException("app.terceirizacao.ranking.experiencia-referencia deve ser positivo");
+        }
+        this.pesoNota = pesoNota;
+        this.pesoExperiencia = pesoExperiencia;
+        this.pesoPreco = pesoPreco;
+        this.pesoPrazo = pesoPrazo;
+        this.pesoCarga = pesoCarga;
+        this.bonusPreferido = bonusPreferido;
+        this.experienciaReferencia = experienciaReferencia;
+    }
+
+    // ============ CARGA DOS LABORATÓRIOS ============
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregarNaInicializacao() {
+        recontarCarga();
+    }
+
+    // A carga muda a cada aceite/conclusão; uma recontagem periódica (uma consulta agregada)
+    // basta para o ranking e mantém o caminho de leitura sem banco
+    @Scheduled(fixedDelayString = "${app.terceirizacao.ranking.carga-recontagem-ms:30000}",
+            initialDelayString = "${app.terceirizacao.ranking.carga-recontagem-ms:30000}")
+    public void recontarCarga() {
+        Map<Long, Integer> nova = new HashMap<>();
+        for (Object[] linha : pedidoRepository.contarTerceirizacoesAbertasPorExecutor()) {
+            nova.put((Long) linha[0], ((Number) linha[1]).intValue());
+        }
+        substituirCarga(nova);
+    }
+
+    public void substituirCarga(Map<Long, Integer> carga) {
+        this.cargaPorProtetico = Collections.unmodifiableMap(new HashMap<>(carga));
+    }
+
+    // ============ RANKING ============
+
+    /**
+     * Os K melhores candidatos do tipo de serviço, da maior para a menor pontuação.
+     * @param excluirProteticoId laboratório de origem (não concorre), pode ser null
+     * @param preferidoId terceirizadoPreferidoId do serviço de origem, pode ser null
+     */
+    public List<CandidatoRankeadoDTO> rankear(TipoServico tipoServico, Long excluirProteticoId,
+                                              Long preferidoId, int k) {
+        if (k < 1) {
+            return Collections.emptyList();
+        }
+        List<CandidatoTerceirizacaoDTO> candidatos = indiceTerceirizacaoService.candidatos(tipoServico);
+        Map<Long, Integer> carga = cargaPorProtetico;
+        int total = candidatos.size();
+
+        // 1ª passada: faixas de preço e prazo para a normalização min-max
+        double precoMin = Double.POSITIVE_INFINITY, precoMax = Double.NEGATIVE_INFINITY;
+        double prazoMin = Double.POSITIVE_INFINITY, prazoMax = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < total; i++) {
+            CandidatoTerceirizacaoDTO c = candidatos.get(i);
+            double preco = c.getPrecoNumerico();
+            double prazo = c.getPrazoHorasNumerico();
+            if (preco == preco) { // != NaN
+                precoMin = Math.min(precoMin, preco);
+                precoMax = Math.max(precoMax, preco);
+            }
+            if (prazo == prazo) {
+                prazoMin = Math.min(prazoMin, prazo);
+                prazoMax = Math.max(prazoMax, prazo);
+            }
+        }
+
+        // 2ª passada: pontuação + heap mínimo de tamanho K (o pior dos K fica no topo)
+        PriorityQueue<Pontuado> melhores = new PriorityQueue<>(Math.min(k, Math.max(total, 1)) + 1);
+        for (int i = 0; i < total; i++) {
+            CandidatoTerceirizacaoDTO c = candidatos.get(i);
+            Long id = c.getProteticoId();
+            if (excluirProteticoId != null && excluirProteticoId.equals(id)) {
+                continue;
+            }
+
+            Integer abertas = carga.get(id);
+            int emAberto = abertas != null ? abertas : 0;
+            boolean preferido = preferidoId != null && preferidoId.equals(id);
+            double pontuacao = pontuar(c, emAberto, preferido, precoMin, precoMax, prazoMin, prazoMax);
+
+            if (melhores.size() < k) {
+                melhores.add(new Pontuado(c, pontuacao, emAberto, preferido));
+            } else if (pontuacao > melhores.peek().pontuacao) {
+                // Só aloca quando entra no top-K
+                melhores.poll();
+                melhores.add(new Pontuado(c, pontuacao, emAberto, preferido));
+            }
+        }
+
+        List<CandidatoRankeadoDTO> resultado = new ArrayList<>(melhores.size());
+        while (!melhores.isEmpty()) {
+            Pontuado p = melhores.poll();
+            resultado.add(new CandidatoRankeadoDTO(p.candidato.toProteticoSimplesDTO(), p.pontuacao,
+                    p.candidato.getPrecoTerceirizado(), p.candidato.getPrazoTerceirizadoHoras(),
+                    p.emAberto, p.preferido));
+        }
+        Collections.reverse(resultado);
+        return resultado;
+    }
+
+    private double pontuar(CandidatoTerceirizacaoDTO c, int emAberto, boolean preferido,
+                           double precoMin, double precoMax, double prazoMin, double prazoMax) {
+        double quantidade = c.getQuantidadeTerceirizacoes() != null ? c.getQuantidadeTerceirizacoes() : 0;
+
+        double pontuacao = pesoNota * (c.getNotaNumerica() / 5.0)
+                + pesoExperiencia * (quantidade / (quantidade + experienciaReferencia))
+                + pesoPreco * menorMelhor(c.getPrecoNumerico(), precoMin, precoMax)
+                + pesoPrazo * menorMelhor(c.getPrazoHorasNumerico(), prazoMin, prazoMax)
+                + pesoCarga * (1.0 / (1.0 + emAberto));
+        return preferido ? pontuacao + bonusPreferido : pontuacao;
+    }
+
+    // 1 = melhor valor da faixa, 0 = pior; neutro (0,5) sem informação ou sem variação
+    private static double menorMelhor(double valor, double min, double max) {
+        if (valor != valor || !(max > min)) {
+            return 0.5;
+        }
+        return (max - valor) / (max - min);
+    }
+
+    // Empate: menor id primeiro (resultado estável entre chamadas)
+    private static final class Pontuado implements Comparable<Pontuado> {
+        final CandidatoTerceirizacaoDTO candidato;
+        final double pontuacao;
+        final int emAberto;
+        final boolean preferido;
+
+        Pontuado(CandidatoTerceirizacaoDTO candidato, double pontuacao, int emAberto, boolean preferido) {
+            this.candidato = candidato;
+            this.pontuacao = pontuacao;
+            this.emAberto = emAberto;
+            this.preferido = preferido;
+        }
+
+        @Override
+        public int compareTo(Pontuado outro) {
+            int cmp = Double.compare(pontuacao, outro.pontuacao);
+            return cmp != 0 ? cmp : outro.candidato.getProteticoId().compareTo(candidato.getProteticoId());
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.proteticos.ordermanagement.service;
+
+import com.proteticos.ordermanagement.DTO.EtapaTemplate;
+import com.proteticos.ordermanagement.model.TemplateEtapa;
+import com.proteticos.ordermanagement.model.TipoServico;
+import com.proteticos.ordermanagement.repository.TemplateEtapaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Registro dos templates de etapas por tipo de serviço, carregado da tabela template_etapa.
+ *
+ * Leitura: sem lock e sem alocação (arrays pré-compilados publicados via volatile).
+ * Escrita: recarga completa do snapshot, na inicialização ou após commit de um override.
+ * Os arrays devolvidos são compartilhados e não devem ser modificados.
+ */
+@Service
+public class RegistroTemplatesEtapaService {
+
+    private static final Logger log = LoggerFactory.getLogger(RegistroTemplatesEtapaService.class);
+
+    @Autowired
+    private TemplateEtapaRepository templateEtapaRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Padrões embutidos: semeiam a tabela vazia e servem até a primeira carga
+    private static final Map<TipoServico, EtapaTemplate[]> PADROES_EMBUTIDOS = criarPadroesEmbutidos();
+
+    private volatile Registro registro = new Registro(PADROES_EMBUTIDOS, Collections.emptyMap());
+
+    private final ReentrantLock escrita = new ReentrantLock();
+
+    // Snapshot imutável: padrões do sistema + overrides por laboratório
+    private static final class Registro {
+        final Map<TipoServico, EtapaTemplate[]> padroes;
+        final Map<Long, Map<TipoServico, EtapaTemplate[]>> overrides;
+
+        Registro(Map<TipoServico, EtapaTemplate[]> padroes,
+                 Map<Long, Map<TipoServico, EtapaTemplate[]>> overrides) {
+            this.padroes = padroes;
+            this.overrides = overrides;
+        }
+    }
+
+    // ============ LEITURA ============
+
+    /**
+     * Template efetivo: override do laboratório, se houver, senão o padrão do tipo
+     * (e por fim o de OUTRO).
+     */
+    public EtapaTemplate[] obterTemplate(TipoServico tipoServico, Long proteticoId) {
+        Registro atual = registro;
+        TipoServico tipo = tipoServico != null ? tipoServico : TipoServico.OUTRO;
+
+        if (proteticoId != null) {
+            Map<TipoServico, EtapaTemplate[]> doLaboratorio = atual.overrides.get(proteticoId);
+            if (doLaboratorio != null) {
+                EtapaTemplate[] override = doLaboratorio.get(tipo);
+                if (override != null) {
+                    return override;
+                }
+            }
+        }
+
+        EtapaTemplate[] padrao = atual.padroes.get(tipo);
+        return padrao != null ? padrao : atual.padroes.get(TipoServico.OUTRO);
+    }
+
+    /** Duração estimada da etapa na posição {@code ordem} (1-based), ou null se não existir. */
+    public Integer obterDuracaoEstimadaHoras(TipoServico tipoServico, Long proteticoId, int ordem) {
+        EtapaTemplate[] template = obterTemplate(tipoServico, proteticoId);
+        if (ordem < 1 || ordem > template.length) {
+            return null;
+        }
+        return template[ordem - 1].getDuracaoEstimadaHoras();
+    }
+
+    // ============ CARGA / RECARGA ============
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregarNaInicializacao() {
+        if (!templateEtapaRepository.existsByProteticoIdIsNull()) {
+            semearPadroes();
+        }
+        recarregar();
+    }
+
+    // Assíncrono: a requisição que salvou o override não espera a releitura da tabela
+    @Async
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTemplatesAlterados(TemplatesEtapaAlteradosEvent event) {
+        recarregar();
+    }
+
+    /** Relê a tabela e publica um novo snapshot, sem reiniciar a aplicação. */
+    public void recarregar() {
+        escrita.lock();
+        try {
+            Map<TipoServico, List<EtapaTemplate>> padroes = new EnumMap<>(TipoServico.class);
+            Map<Long, Map<TipoServico, List<EtapaTemplate>>> overrides = new HashMap<>();
+
+            for (TemplateEtapa linha : templateEtapaRepository.findByAtivoTrueOrderByTipoServicoAscProteticoIdAscOrdemAsc()) {
+                Map<TipoServico, List<EtapaTemplate>> destino = linha.getProteticoId() == null
+                        ? padroes
+                        : overrides.computeIfAbsent(linha.getProteticoId(), id -> new EnumMap<>(TipoServico.class));
+                List<EtapaTemplate> etapas = destino.computeIfAbsent(linha.getTipoServico(), t -> new ArrayList<>());
+                // Reindexa a ordem para ficar contígua (1..n) mesmo com buracos na tabela
+                etapas.add(new EtapaTemplate(etapas.size() + 1, linha.getNomeEtapa(), linha.getDuracaoEstimadaHoras()));
+            }
+
+            Map<TipoServico, EtapaTemplate[]> novosPadroes = new EnumMap<>(PADROES_EMBUTIDOS);
+            novosPadroes.putAll(compilar(padroes));
+
+            Map<Long, Map<TipoServico, EtapaTemplate[]>> novosOverrides = new HashMap<>();
+            overrides.forEach((proteticoId, porTipo) -> novosOverrides.put(proteticoId, compilar(porTipo)));
+
+            registro = new Registro(
+                    Collections.unmodifiableMap(novosPadroes),
+                    Collections.unmodifiableMap(novosOverrides)
+            );
+            log.atInfo()
+                    .addKeyValue("padroes", padroes.size())
+                    .addKeyValue("laboratoriosComOverride", overrides.size())
+                    .log("Templates de etapas carregados");
+        } finally {
+            escrita.unlock();
+        }
+    }
+
+    // ============ OVERRIDES POR LABORATÓRIO ============
+
+    /** Substitui o template do laboratório para o tipo; lista vazia remove o override. */
+    @Transactional
+    public void salvarOverride(Long proteticoId, TipoServico tipoServico, List<TemplateEtapa> etapas) {
+        if (proteticoId == null || tipoServico == null) {
+            throw new RuntimeException("Protético e tipo de serviço são obrigatórios");
+        }
+
+        templateEtapaRepository.removerOverride(tipoServico, proteticoId);
+
+        if (etapas != null && !etapas.isEmpty()) {
+            List<TemplateEtapa> novas = new ArrayList<>(etapas.size());
+            for (int i = 0; i < etapas.size(); i++) {
+                TemplateEtapa origem = etapas.get(i);
+                if (origem.getNomeEtapa() == null || origem.getNomeEtapa().isBlank()) {
+                    throw new RuntimeException("Nome da etapa " + (i + 1) + " é obrigatório");
+                }
+                if (origem.getDuracaoEstimadaHoras() <= 0) {
+                    throw new RuntimeException("Duração estimada da etapa " + (i + 1) + " deve ser positiva");
+                }
+                novas.add(new TemplateEtapa(tipoServico, proteticoId, i + 1,
+                        origem.getNomeEtapa(), origem.getDuracaoEstimadaHoras()));
+            }
+            templateEtapaRepository.saveAll(novas);
+        }
+
+        eventPublisher.publishEvent(new TemplatesEtapaAlteradosEvent());
+    }
+
+    // ============ AUXILIARES ============
+
+    private void semearPadroes() {
+        List<TemplateEtapa> linhas = new ArrayList<>();
+        PADROES_EMBUTIDOS.forEach((tipo, etapas) -> {
+            for (EtapaTemplate etapa : etapas) {
+                linhas.add(new TemplateEtapa(tipo, null, etapa.getOrdem(),
+                        etapa.getNome(), etapa.getDuracaoEstimadaHoras()));
+            }
+        });
+        templateEtapaRepository.saveAll(linhas);
+        log.atInfo().addKeyValue("etapas", linhas.size()).log("Etapas padrão gravadas em template_etapa");
+    }
+
+    private static Map<TipoServico, EtapaTemplate[]> compilar(Map<TipoServico, List<EtapaTemplate>> origem) {
+        Map<TipoServico, EtapaTemplate[]> compilado = new EnumMap<>(TipoServico.class);
+        origem.forEach((tipo, etapas) -> compilado.put(tipo, etapas.toArray(new EtapaTemplate[0])));
+        return compilado;
+    }
+
+    private static EtapaTemplate[] template(Object... nomeEDuracao) {
+        EtapaTemplate[] etapas = new EtapaTemplate[nomeEDuracao.length / 2];
+        for (int i = 0; i < etapas.length; i++) {
+            etapas[i] = new EtapaTemplate(i + 1, (String) nomeEDuracao[2 * i], (Integer) nomeEDuracao[2 * i + 1]);
+        }
+        return etapas;
+    }
+
+    private static Map<TipoServico, EtapaTemplate[]> criarPadroesEmbutidos() {
+        EtapaTemplate[] fixa = template(
+                "📥 Recebimento", 24,
+                "📷 Escaneamento", 8,
+                "🗺️ Planejamento", 8,
+                "⚙️ Usinagem", 24,
+                "🔍 Prova", 48,
+                "✨ Acabamento", 16,
+                "🎨 Glaze", 8,
+                "🚚 Entrega", 24
+        );
+        EtapaTemplate[] simples = template(
+                "📥 Recebimento", 24,
+                "🗺️ Planejamento", 8,
+                "⚙️ Confecção", 24,
+                "✨ Acabamento", 8,
+                "🚚 Entrega", 24
+        );
+        EtapaTemplate[] protese = template(
+                "📥 Recebimento", 24,
+                "📷 Moldagem", 8,
+                "🗺️ Planejamento", 8,
+                "⚙️ Confecção Base", 48,
+                "🔍 Prova Estrutural", 48,
+                "🎨 Aplicação Dentes", 24,
+                "✨ Acabamento", 16,
+                "🚚 Entrega", 24
+        );
+        EtapaTemplate[] implante = template(
+                "📥 Recebimento", 24,
+                "📷 Escaneamento", 8,
+                "🗺️ Planejamento Cirúrgico", 16,
+                "⚙️ Prototipagem", 24,
+                "🔍 Prova Protótipo", 48,
+                "🎨 Confecção Definitiva", 48,
+                "✨ Acabamento", 16,
+                "🚚 Entrega", 24
+        );
+        EtapaTemplate[] generico = template(
+                "📥 Recebimento", 24,
+                "🗺️ Planejamento", 8,
+                "⚙️ Execução", 48,
+                "🚚 Entrega", 24
+        );
+
+        Map<TipoServico, EtapaTemplate[]> padroes = new EnumMap<>(TipoServico.class);
+        padroes.put(TipoServico.COROA, fixa);
+        padroes.put(TipoServico.PONTE_FIXA, fixa);
+        padroes.put(TipoServico.ZIRCONIA, fixa);
+        padroes.put(TipoServico.PROVISORIO, simples);
+        padroes.put(TipoServico.RESINA, simples);
+        padroes.put(TipoServico.PROTESE_TOTAL, protese);
+        padroes.put(TipoServico.PROTESE_PARCIAL, protese);
+        padroes.put(TipoServico.IMPLANTE, implante);
+        padroes.put(TipoServico.ORTODONTIA, generico);
+        padroes.put(TipoServico.OUTRO, generico);
+        return Collections.unmodifiableMap(padroes);
+    }
+}
@@ -0,0 +1,84 @@
+package com.proteticos.ordermanagement.service;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Hash de senhas com PBKDF2-HMAC-SHA256 (apenas JDK).
+ *
+ * Formato armazenado: pbkdf2$iteracoes$salt$hash (salt e hash em base64).
+ * Senhas antigas em texto puro continuam aceitas e são migradas no próximo login.
+ */
+public final class SenhaHasher {
+
+    private static final String PREFIXO = "pbkdf2$";
+    private static final String ALGORITMO = "PBKDF2WithHmacSHA256";
+    private static final int ITERACOES = 210_000;
+    private static final int TAMANHO_SALT = 16;
+    private static final int TAMANHO_HASH_BITS = 256;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private SenhaHasher() {}
+
+    public static boolean isHash(String valor) {
+        return valor != null && valor.startsWith(PREFIXO);
+    }
+
+    public static String gerarHash(String senha) {
+        byte[] salt = new byte[TAMANHO_SALT];
+        RANDOM.nextBytes(salt);
+        byte[] hash = derivar(senha, salt, ITERACOES);
+        Base64.Encoder b64 = Base64.getEncoder();
+        return PREFIXO + ITERACOES + "$" + b64.encodeToString(salt) + "$" + b64.encodeToString(hash);
+    }
+
+    /**
+     * Compara em tempo constante. Para valores legados (texto puro) compara os bytes
+     * diretamente, também em tempo constante.
+     */
+    public static boolean verificar(String senha, String armazenado) {
+        if (senha == null || armazenado == null) {
+            return false;
+        }
+        if (!isHash(armazenado)) {
+            return MessageDigest.isEqual(
+                    senha.getBytes(StandardCharsets.UTF_8),
+                    armazenado.getBytes(StandardCharsets.UTF_8));
+        }
+
+        String[] partes = armazenado.split("\\$");
+        if (partes.length != 4) {
+            return false;
+        }
+        try {
+            int iteracoes = Integer.parseInt(partes[1]);
+            byte[] salt = Base64.getDecoder().decode(partes[2]);
+            byte[] esperado = Base64.getDecoder().decode(partes[3]);
+            return MessageDigest.isEqual(esperado, derivar(senha, salt, iteracoes));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /** Hash ainda não está no formato/custo atual e deve ser regravado. */
+    public static boolean precisaRehash(String armazenado) {
+        return !isHash(armazenado) || !armazenado.startsWith(PREFIXO + ITERACOES + "$");
+    }
+
+    private static byte[] derivar(String senha, byte[] salt, int iteracoes) {
+        PBEKeySpec spec = new PBEKeySpec(senha.toCharArray(), salt, iteracoes, TAMANHO_HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITMO).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Falha ao gerar hash de senha", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
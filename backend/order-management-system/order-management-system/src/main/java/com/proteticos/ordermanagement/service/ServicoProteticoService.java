@@ -10,6 +10,7 @@ import com.proteticos.ordermanagement.model.PoliticaExecucaoServico; // NOVO IMP
 import com.proteticos.ordermanagement.repository.ProteticoRepository;
 import com.proteticos.ordermanagement.repository.ServicoProteticoRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -28,6 +29,9 @@ public class ServicoProteticoService {
     @Autowired
     private ProteticoRepository proteticoRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // POLÍTICAS CONSTANTES PARA REUSO
     private static final List<PoliticaExecucaoServico> POLITICAS_TERCEIRIZACAO = Arrays.asList(
             PoliticaExecucaoServico.TERCEIRIZADO,
@@ -58,6 +62,7 @@ public class ServicoProteticoService {
         }
 
         ServicoProtetico saved = servicoProteticoRepository.save(servico);
+        notificarAlteracao(proteticoId);
         return convertToDTO(saved);
     }
 
@@ -157,6 +162,7 @@ public class ServicoProteticoService {
         }
 
         ServicoProtetico updated = servicoProteticoRepository.save(servico);
+        notificarAlteracao(proteticoId);
         return convertToDTO(updated);
     }
 
@@ -190,6 +196,7 @@ public class ServicoProteticoService {
 
         servico.setPreco(novoPreco);
         ServicoProtetico updated = servicoProteticoRepository.save(servico);
+        notificarAlteracao(proteticoId);
         return convertToDTO(updated);
     }
 
@@ -201,6 +208,7 @@ public class ServicoProteticoService {
 
         servico.setAtivo(ativo);
         ServicoProtetico updated = servicoProteticoRepository.save(servico);
+        notificarAlteracao(proteticoId);
         return convertToDTO(updated);
     }
 
@@ -211,6 +219,7 @@ public class ServicoProteticoService {
                 .orElseThrow(() -> new RuntimeException("Serviço não encontrado"));
 
         servicoProteticoRepository.delete(servico);
+        notificarAlteracao(proteticoId);
     }
 
     @Transactional(readOnly = true)
@@ -295,6 +304,11 @@ public class ServicoProteticoService {
 
     // ============ MÉTODOS AUXILIARES ============
 
+    // Atualiza o índice de terceirização em memória após o commit
+    private void notificarAlteracao(Long proteticoId) {
+        eventPublisher.publishEvent(new ProteticoTerceirizacaoAlteradoEvent(proteticoId));
+    }
+
     private Integer convertDiasParaHoras(Integer dias) {
         if (dias == null) {
             return null;
@@ -0,0 +1,8 @@
+package com.proteticos.ordermanagement.service;
+
+/**
+ * Publicado quando templates de etapas (padrão ou override de laboratório) são alterados.
+ * O RegistroTemplatesEtapaService recarrega o snapshot após o commit.
+ */
+public class TemplatesEtapaAlteradosEvent {
+}
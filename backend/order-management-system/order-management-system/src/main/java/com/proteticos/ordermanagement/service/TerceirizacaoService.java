@@ -3,8 +3,11 @@ package com.proteticos.ordermanagement.service;
 import com.proteticos.ordermanagement.DTO.*;
 import com.proteticos.ordermanagement.model.*;
 import com.proteticos.ordermanagement.repository.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Lazy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
@@ -21,6 +24,9 @@ import java.util.stream.Collectors;
 @Service
 public class TerceirizacaoService {
 
+    // Log assíncrono e amostrado (ver logback-spring.xml); campos estruturados via addKeyValue
+    private static final Logger log = LoggerFactory.getLogger(TerceirizacaoService.class);
+
     @Autowired
     private PedidoRepository pedidoRepository;
 
@@ -34,11 +40,42 @@ public class TerceirizacaoService {
     private PedidoService pedidoService;
 
     @Autowired
-    @Lazy
-    private ServicoProteticoService servicoProteticoService;
+    private ServicoProteticoRepository servicoProteticoRepository;
 
     @Autowired
-    private ServicoProteticoRepository servicoProteticoRepository;
+    private IndiceTerceirizacaoService indiceTerceirizacaoService;
+
+    @Autowired
+    private RankingTerceirizacaoService rankingTerceirizacaoService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ControleConcorrenciaService controleConcorrencia;
+
+    // Oferta em broadcast: laboratórios por oferta (padrão) e teto aceito na requisição
+    @Value("${app.terceirizacao.oferta.candidatos:3}")
+    private int candidatosPorOferta;
+
+    @Value("${app.terceirizacao.oferta.maximo:10}")
+    private int maximoCandidatosPorOferta;
+
+    @Value("${app.terceirizacao.ranking.maximo:50}")
+    private int maximoCandidatosRanking;
+
+    // Status em que o registro de terceirização ainda está em aberto para o laboratório destino
+    private static final List<StatusTerceirizacao> STATUS_EM_ABERTO = Arrays.asList(
+            StatusTerceirizacao.SOLICITADO,
+            StatusTerceirizacao.ACEITO,
+            StatusTerceirizacao.EM_ANDAMENTO
+    );
+
+    // Políticas de execução que permitem receber terceirização
+    private static final List<PoliticaExecucaoServico> POLITICAS_TERCEIRIZACAO = Arrays.asList(
+            PoliticaExecucaoServico.TERCEIRIZADO,
+            PoliticaExecucaoServico.PROPRIO_OU_TERCEIRIZADO
+    );
 
     // ============ MÉTODOS QUE FALTAM ============
 
@@ -47,84 +84,44 @@ public class TerceirizacaoService {
      * Aceita TipoServico enum (necessário para compatibilidade)
      */
     public List<ProteticoSimplesDTO> listarProteticosDisponiveis(Long pedidoId, TipoServico tipoServico) {
-        System.out.println("🔄 listarProteticosDisponiveis (com enum) chamado");
-        System.out.println("📝 pedidoId: " + pedidoId + ", tipoServico: " + tipoServico);
+        log.atDebug().addKeyValue("pedidoId", pedidoId).addKeyValue("tipoServico", tipoServico)
+                .log("listarProteticosDisponiveis");
 
         // Se tipoServico for null, tenta buscar do pedido
         TipoServico tipoParaBusca = tipoServico;
 
+        // Busca o pedido uma única vez: fornece o tipo (se faltar) e o protético atual
+        Optional<Pedido> pedidoOpt = (pedidoId != null) ? pedidoRepository.findById(pedidoId) : Optional.empty();
+
         if (tipoParaBusca == null && pedidoId != null) {
             try {
-                Pedido pedido = pedidoRepository.findById(pedidoId)
+                Pedido pedido = pedidoOpt
                         .orElseThrow(() -> new RuntimeException("Pedido não encontrado: " + pedidoId));
                 tipoParaBusca = pedido.getTipoServico();
-                System.out.println("✅ Tipo obtido do pedido: " + tipoParaBusca);
             } catch (Exception e) {
-                System.err.println("⚠️ Erro ao obter pedido: " + e.getMessage());
+                log.atWarn().addKeyValue("pedidoId", pedidoId).log("Erro ao obter pedido: {}", e.getMessage());
                 throw new RuntimeException("Não foi possível obter tipoServico do pedido", e);
             }
         }
 
         if (tipoParaBusca == null) {
-            System.err.println("❌ Tipo de serviço não especificado");
             throw new RuntimeException("Tipo de serviço não especificado");
         }
 
-        // Buscar o pedido para obter o protético atual (se existir)
-        final Long proteticoAtualId = (pedidoId != null)
-                ? pedidoRepository.findById(pedidoId)
+        // Protético atual do pedido (se existir) - getId() no proxy não dispara SELECT
+        final Long proteticoAtualId = pedidoOpt
                 .map(Pedido::getProtetico)
                 .map(Protetico::getId)
-                .orElse(null)
-                : null;
+                .orElse(null);
 
-        System.out.println("🔍 Protético atual do pedido ID: " + proteticoAtualId);
+        // Uma única consulta indexada em servicos_protetico, já excluindo o protético atual
+        List<ProteticoSimplesDTO> proteticos = buscarCandidatos(tipoParaBusca, proteticoAtualId);
 
-        // Cria uma cópia final para usar na lambda
-        final TipoServico tipoFinal = tipoParaBusca;
+        log.atDebug().addKeyValue("pedidoId", pedidoId).addKeyValue("tipoServico", tipoParaBusca)
+                .addKeyValue("proteticoAtualId", proteticoAtualId)
+                .log("{} protéticos disponíveis", proteticos.size());
 
-        // Busca protéticos que aceitam terceirização para este tipo de serviço
-        // ATUALIZADO: Verifica pelos serviços do protético, não mais pelo campo aceitaTerceirizacao
-        List<Protetico> proteticos = proteticoRepository.findAll()
-                .stream()
-                // NOVA LÓGICA: Filtra protéticos que têm serviço ativo que permite terceirização
-                .filter(p -> {
-                    // Verifica se tem serviços que permitem terceirização para este tipo
-                    return p.getServicosProtetico().stream()
-                            .anyMatch(servico ->
-                                    servico.isAtivo() &&
-                                            servico.getTipoServico() == tipoFinal &&
-                                            servico.getPoliticaExecucao() != null &&
-                                            (servico.getPoliticaExecucao() == PoliticaExecucaoServico.TERCEIRIZADO ||
-                                                    servico.getPoliticaExecucao() == PoliticaExecucaoServico.PROPRIO_OU_TERCEIRIZADO)  // ← CORREÇÃO
-                            );
-                })
-                .filter(p -> {
-                    // Usa a variável final dentro do lambda
-                    if (proteticoAtualId == null) {
-                        return true;
-                    }
-                    return !p.getId().equals(proteticoAtualId);
-                })
-                .collect(Collectors.toList());
-
-        System.out.println("✅ " + proteticos.size() + " protéticos encontrados");
-
-        // Converte para DTO
-        return proteticos.stream()
-                .map(p -> {
-                    ProteticoSimplesDTO dto = new ProteticoSimplesDTO();
-                    dto.setId(p.getId());
-                    dto.setNome(p.getNome());
-                    dto.setEmail(p.getEmail());
-                    dto.setRegistroProfissional(p.getRegistroProfissional());
-                    dto.setEspecializacao(p.getEspecializacao());
-                    dto.setNotaTerceirizacao(p.getNotaTerceirizacao());
-                    dto.setQuantidadeTerceirizacoes(p.getQuantidadeTerceirizacoes());
-                    dto.setTaxaMinimaTerceirizacao(p.getTaxaMinimaTerceirizacao());
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        return proteticos;
     }
 
     /**
@@ -132,50 +129,16 @@ public class TerceirizacaoService {
      * Versão sem pedidoId
      */
     public List<ProteticoSimplesDTO> listarProteticosPorTipoServico(TipoServico tipoServico) {
-        System.out.println("🔄 listarProteticosPorTipoServico (enum)");
-        System.out.println("📝 tipoServico: " + tipoServico);
-
         if (tipoServico == null) {
             throw new RuntimeException("Tipo de serviço não pode ser null");
         }
 
-        // Cria uma cópia final para usar na lambda
-        final TipoServico tipoFinal = tipoServico;
-
         // Busca protéticos que aceitam terceirização para este tipo de serviço
-        // ATUALIZADO: Verifica pelos serviços do protético
-        List<Protetico> proteticos = proteticoRepository.findAll()
-                .stream()
-                // NOVA LÓGICA: Filtra protéticos que têm serviço ativo que permite terceirização
-                .filter(p -> {
-                    return p.getServicosProtetico().stream()
-                            .anyMatch(servico ->
-                                    servico.isAtivo() &&
-                                            servico.getTipoServico() == tipoFinal &&
-                                            servico.getPoliticaExecucao() != null &&
-                                            (servico.getPoliticaExecucao() == PoliticaExecucaoServico.TERCEIRIZADO ||
-                                                    servico.getPoliticaExecucao() == PoliticaExecucaoServico.PROPRIO_OU_TERCEIRIZADO)  // ← CORREÇÃO
-                            );
-                })
-                .collect(Collectors.toList());
-
-        System.out.println("✅ " + proteticos.size() + " protéticos encontrados");
-
-        // Converte para DTO
-        return proteticos.stream()
-                .map(p -> {
-                    ProteticoSimplesDTO dto = new ProteticoSimplesDTO();
-                    dto.setId(p.getId());
-                    dto.setNome(p.getNome());
-                    dto.setEmail(p.getEmail());
-                    dto.setRegistroProfissional(p.getRegistroProfissional());
-                    dto.setEspecializacao(p.getEspecializacao());
-                    dto.setNotaTerceirizacao(p.getNotaTerceirizacao());
-                    dto.setQuantidadeTerceirizacoes(p.getQuantidadeTerceirizacoes());
-                    dto.setTaxaMinimaTerceirizacao(p.getTaxaMinimaTerceirizacao());
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        List<ProteticoSimplesDTO> proteticos = buscarCandidatos(tipoServico, null);
+
+        log.atDebug().addKeyValue("tipoServico", tipoServico).log("{} protéticos disponíveis", proteticos.size());
+
+        return proteticos;
     }
 
     /**
@@ -188,325 +151,399 @@ public class TerceirizacaoService {
             Long pedidoId,
             Long proteticoId,
             SolicitarTerceirizacaoRequest request) {
+        return solicitarTerceirizacao(pedidoId, proteticoId, request, null);
+    }
 
-        System.out.println("🔄 solicitarTerceirizacao (3 parâmetros)");
-        System.out.println("📝 pedidoId: " + pedidoId);
-        System.out.println("📝 proteticoId (solicitante): " + proteticoId);
-        System.out.println("📝 request: " + request);
-
+    // As transições rodam no ControleConcorrenciaService: uma transação por tentativa, com nova
+    // tentativa se outra requisição alterar o pedido antes do commit. versaoEsperada vem do If-Match
+    // (null = sem verificação); conflito não resolvido sai como ConflitoConcorrenciaException (409)
+    public TerceirizacaoResponseDTO solicitarTerceirizacao(Long pedidoId, Long proteticoId,
+                                                          SolicitarTerceirizacaoRequest request,
+                                                          Long versaoEsperada) {
         try {
-            // 1. Validações básicas
-            if (request == null) {
-                throw new RuntimeException("Request não pode ser nulo");
-            }
-
-            if (request.getProteticoTerceirizadoId() == null) {
-                throw new RuntimeException("ID do protético terceirizado é obrigatório");
-            }
+            return controleConcorrencia.executar("Pedido " + pedidoId, versaoEsperada, () -> {
+                // 1. Validações básicas
+                if (request == null) {
+                    throw new RuntimeException("Request não pode ser nulo");
+                }
 
-            // 2. Buscar o pedido
-            Pedido pedido = pedidoRepository.findById(pedidoId)
-                    .orElseThrow(() -> new RuntimeException("Pedido não encontrado: " + pedidoId));
+                if (request.getProteticoTerceirizadoId() == null) {
+                    throw new RuntimeException("ID do protético terceirizado é obrigatório");
+                }
 
-            // 3. Buscar o protético solicitante
-            Protetico proteticoSolicitante = proteticoRepository.findById(proteticoId)
-                    .orElseThrow(() -> new RuntimeException("Protético solicitante não encontrado: " + proteticoId));
+                // 2. Buscar o pedido
+                Pedido pedido = pedidoRepository.findById(pedidoId)
+                        .orElseThrow(() -> new RuntimeException("Pedido não encontrado: " + pedidoId));
+                ControleConcorrenciaService.verificarVersao("Pedido " + pedidoId, pedido.getVersao(), versaoEsperada);
 
-            // 4. Verificar se é o dono do pedido
-            if (pedido.getProtetico() == null) {
-                throw new RuntimeException("Pedido não tem protético responsável");
-            }
+                // 3. Buscar o protético solicitante
+                Protetico proteticoSolicitante = proteticoRepository.findById(proteticoId)
+                        .orElseThrow(() -> new RuntimeException("Protético solicitante não encontrado: " + proteticoId));
 
-            if (!pedido.getProtetico().getId().equals(proteticoId)) {
-                throw new RuntimeException("Apenas o protético responsável pelo pedido pode solicitar terceirização");
-            }
+                // 4. Verificar se é o dono do pedido
+                if (pedido.getProtetico() == null) {
+                    throw new RuntimeException("Pedido não tem protético responsável");
+                }
 
-            // 5. Buscar o protético terceirizado
-            Protetico proteticoTerceirizado = proteticoRepository.findById(request.getProteticoTerceirizadoId())
-                    .orElseThrow(() -> new RuntimeException("Protético terceirizado não encontrado: " +
-                            request.getProteticoTerceirizadoId()));
+                if (!pedido.getProtetico().getId().equals(proteticoId)) {
+                    throw new RuntimeException("Apenas o protético responsável pelo pedido pode solicitar terceirização");
+                }
 
-            // 6. Verificar se não é terceirização para si mesmo
-            if (proteticoId.equals(request.getProteticoTerceirizadoId())) {
-                throw new RuntimeException("Não é possível terceirizar para si mesmo");
-            }
+                // 5. Buscar o protético terceirizado
+                Protetico proteticoTerceirizado = proteticoRepository.findById(request.getProteticoTerceirizadoId())
+                        .orElseThrow(() -> new RuntimeException("Protético terceirizado não encontrado: " +
+                                request.getProteticoTerceirizadoId()));
 
-            // 7. NOVA VERIFICAÇÃO: Verificar se o protético terceirizado oferece o serviço e permite terceirização
-            ServicoProtetico servicoDoProtetico = servicoProteticoRepository
-                    .findByProteticoIdAndTipoServico(
-                            request.getProteticoTerceirizadoId(),
-                            pedido.getTipoServico()
-                    )
-                    .orElseThrow(() -> new RuntimeException(
-                            "Este protético não oferece o serviço: " + pedido.getTipoServico()
-                    ));
-
-            if (!(servicoDoProtetico.getPoliticaExecucao() == PoliticaExecucaoServico.TERCEIRIZADO ||
-                    servicoDoProtetico.getPoliticaExecucao() == PoliticaExecucaoServico.PROPRIO_OU_TERCEIRIZADO)) {
-                throw new RuntimeException(
-                        "Este protético não aceita terceirização para o serviço: " +
-                                pedido.getTipoServico() +
-                                ". Política: " + servicoDoProtetico.getPoliticaExecucao()
-                );
-            }
-            if (!servicoDoProtetico.isAtivo()) {
-                throw new RuntimeException("O serviço não está ativo para terceirização");
-            }
+                // 6. Verificar se não é terceirização para si mesmo
+                if (proteticoId.equals(request.getProteticoTerceirizadoId())) {
+                    throw new RuntimeException("Não é possível terceirizar para si mesmo");
+                }
 
-            // 8. Verificar se o pedido pode ser terceirizado (usando método do Pedido)
-            if (!pedido.podeSerTerceirizado()) {
-                throw new RuntimeException("Este pedido não pode ser terceirizado no momento");
-            }
+                // 7. NOVA VERIFICAÇÃO: Verificar se o protético terceirizado oferece o serviço e permite terceirização
+                ServicoProtetico servicoDoProtetico = servicoProteticoRepository
+                        .findByProteticoIdAndTipoServico(
+                                request.getProteticoTerceirizadoId(),
+                                pedido.getTipoServico()
+                        )
+                        .orElseThrow(() -> new RuntimeException(
+                                "Este protético não oferece o serviço: " + pedido.getTipoServico()
+                        ));
+
+                if (!(servicoDoProtetico.getPoliticaExecucao() == PoliticaExecucaoServico.TERCEIRIZADO ||
+                        servicoDoProtetico.getPoliticaExecucao() == PoliticaExecucaoServico.PROPRIO_OU_TERCEIRIZADO)) {
+                    throw new RuntimeException(
+                            "Este protético não aceita terceirização para o serviço: " +
+                                    pedido.getTipoServico() +
+                                    ". Política: " + servicoDoProtetico.getPoliticaExecucao()
+                    );
+                }
+                if (!servicoDoProtetico.isAtivo()) {
+                    throw new RuntimeException("O serviço não está ativo para terceirização");
+                }
 
-            // 9. Verificar se já existe terceirização em andamento no pedido
-            if (pedido.isTerceirizado() && pedido.isTerceirizacaoAtiva()) {
-                throw new RuntimeException("Já existe uma terceirização em andamento para este pedido");
-            }
+                // 8. Verificar se o pedido pode ser terceirizado (usando método do Pedido)
+                if (!pedido.podeSerTerceirizado()) {
+                    throw new RuntimeException("Este pedido não pode ser terceirizado no momento");
+                }
 
-            // 10. Verificar se já existe solicitação para o mesmo protético (evitar duplicatas)
-            Optional<Terceirizacao> solicitacaoDuplicada = terceirizacaoRepository
-                    .findByPedidoIdAndProteticoDestinoId(pedidoId, request.getProteticoTerceirizadoId());
+                // 9. Verificar se já existe terceirização em andamento no pedido
+                if (pedido.isTerceirizado() && pedido.isTerceirizacaoAtiva()) {
+                    throw new RuntimeException("Já existe uma terceirização em andamento para este pedido");
+                }
 
-            if (solicitacaoDuplicada.isPresent()) {
-                Terceirizacao existente = solicitacaoDuplicada.get();
-                // Verifica se está ativa
-                if (existente.getStatus() == StatusTerceirizacao.SOLICITADO ||
-                        existente.getStatus() == StatusTerceirizacao.ACEITO ||
-                        existente.getStatus() == StatusTerceirizacao.EM_ANDAMENTO) {
+                // 10. Verificar se já existe solicitação em aberto para o mesmo protético (evitar duplicatas);
+                // registros encerrados (recusa, cancelamento) não impedem uma nova solicitação direta
+                if (terceirizacaoRepository.existsByPedidoIdAndProteticoDestinoIdAndStatusIn(
+                        pedidoId, request.getProteticoTerceirizadoId(), STATUS_EM_ABERTO)) {
                     throw new RuntimeException("Já existe uma solicitação de terceirização para este protético");
                 }
-            }
 
-            // 11. Verificar percentual (se aplicável)
-            if (request.getPercentual() != null) {
-                if (request.getPercentual().compareTo(BigDecimal.ZERO) <= 0 ||
-                        request.getPercentual().compareTo(new BigDecimal("100")) > 0) {
-                    throw new RuntimeException("Percentual deve estar entre 0 e 100");
+                // 11. Verificar percentual (se aplicável)
+                if (request.getPercentual() != null) {
+                    if (request.getPercentual().compareTo(BigDecimal.ZERO) <= 0 ||
+                            request.getPercentual().compareTo(new BigDecimal("100")) > 0) {
+                        throw new RuntimeException("Percentual deve estar entre 0 e 100");
+                    }
                 }
-            }
 
-            System.out.println("✅ Validações passadas. Criando terceirização...");
-
-            // 12. Usar o método do Pedido para atualizar seus campos internos
-            pedido.solicitarTerceirizacao(
-                    proteticoTerceirizado,
-                    request.getPercentual(),
-                    request.getTipo(),
-                    request.getMotivo()
-            );
-
-            // 13. Salvar o pedido atualizado
-            Pedido pedidoAtualizado = pedidoRepository.save(pedido);
-
-            System.out.println("✅ Pedido atualizado com terceirização! Status: " +
-                    pedidoAtualizado.getStatusTerceirizacao());
-
-            // 14. Criar registro na tabela terceirizacoes
-            Terceirizacao terceirizacao = new Terceirizacao();
-            terceirizacao.setProteticoOrigem(proteticoSolicitante);
-            terceirizacao.setProteticoDestino(proteticoTerceirizado);
-            terceirizacao.setPedido(pedidoAtualizado);
-            terceirizacao.setServicoSolicitado(request.getDescricaoServico() != null ?
-                    request.getDescricaoServico() : pedido.getTipoServico().getValorJson());
-            terceirizacao.setObservacoes(request.getMotivo());
-            terceirizacao.setStatus(StatusTerceirizacao.SOLICITADO);
-
-            // Calcular valor se tiver percentual
-            if (request.getPercentual() != null && pedido.getValorCobrado() != null) {
-                BigDecimal valorCalculado = pedido.getValorCobrado()
-                        .multiply(request.getPercentual())
-                        .divide(new BigDecimal("100"), 2, java.math.RoundingMode.HALF_UP);
-                terceirizacao.setValorCombinado(valorCalculado.doubleValue());
-            }
+                // 12. Usar o método do Pedido para atualizar seus campos internos
+                StatusTerceirizacao statusAnterior = pedido.getStatusTerceirizacao();
+                pedido.solicitarTerceirizacao(
+                        proteticoTerceirizado,
+                        request.getPercentual(),
+                        request.getTipo(),
+                        request.getMotivo()
+                );
 
-            // 15. Salvar a terceirização
-            Terceirizacao terceirizacaoSalva = terceirizacaoRepository.save(terceirizacao);
-
-            System.out.println("✅ Registro de terceirização criado com ID: " + terceirizacaoSalva.getId());
-
-            // 16. Criar DTO de resposta (AJUSTADO PARA SUA ESTRUTURA)
-            TerceirizacaoResponseDTO response = new TerceirizacaoResponseDTO();
-            response.setId(terceirizacaoSalva.getId());
-            response.setPedidoId(pedidoId);
-            response.setCodigoPedido(pedido.getCodigo());
-
-            // Criar DTO do protético solicitante
-            ProteticoSimplesDTO proteticoSolicitanteDTO = new ProteticoSimplesDTO();
-            proteticoSolicitanteDTO.setId(proteticoSolicitante.getId());
-            proteticoSolicitanteDTO.setNome(proteticoSolicitante.getNome());
-            proteticoSolicitanteDTO.setEmail(proteticoSolicitante.getEmail());
-            proteticoSolicitanteDTO.setRegistroProfissional(proteticoSolicitante.getRegistroProfissional());
-            response.setProteticoSolicitante(proteticoSolicitanteDTO);
-
-            // Criar DTO do protético executor
-            ProteticoSimplesDTO proteticoExecutorDTO = new ProteticoSimplesDTO();
-            proteticoExecutorDTO.setId(proteticoTerceirizado.getId());
-            proteticoExecutorDTO.setNome(proteticoTerceirizado.getNome());
-            proteticoExecutorDTO.setEmail(proteticoTerceirizado.getEmail());
-            proteticoExecutorDTO.setRegistroProfissional(proteticoTerceirizado.getRegistroProfissional());
-            response.setProteticoExecutor(proteticoExecutorDTO);
-
-            // Outros campos
-            response.setPercentualTerceirizado(request.getPercentual());
-            response.setTipoTerceirizacao(request.getTipo());
-            response.setStatus(StatusTerceirizacao.SOLICITADO);
-            response.setMotivo(request.getMotivo());
-            response.setDescricaoServico(request.getDescricaoServico());
-            response.setDataSolicitacao(terceirizacaoSalva.getSolicitadoEm());
-
-            // Calcular valor terceirizado
-            if (request.getPercentual() != null && pedido.getValorCobrado() != null) {
-                BigDecimal valorTerceirizado = pedido.getValorCobrado()
-                        .multiply(request.getPercentual())
-                        .divide(new BigDecimal("100"), 2, java.math.RoundingMode.HALF_UP);
-                response.setValorTerceirizado(valorTerceirizado);
-            }
+                // 13. Salvar o pedido atualizado
+                Pedido pedidoAtualizado = pedidoRepository.saveAndFlush(pedido);
+
+                // 14. Criar registro na tabela terceirizacoes
+                Terceirizacao terceirizacao = new Terceirizacao();
+                terceirizacao.setProteticoOrigem(proteticoSolicitante);
+                terceirizacao.setProteticoDestino(proteticoTerceirizado);
+                terceirizacao.setPedido(pedidoAtualizado);
+                terceirizacao.setServicoSolicitado(request.getDescricaoServico() != null ?
+                        request.getDescricaoServico() : pedido.getTipoServico().getValorJson());
+                terceirizacao.setObservacoes(request.getMotivo());
+                terceirizacao.setStatus(StatusTerceirizacao.SOLICITADO);
+
+                // Calcular valor se tiver percentual
+                if (request.getPercentual() != null && pedido.getValorCobrado() != null) {
+                    BigDecimal valorCalculado = pedido.getValorCobrado()
+                            .multiply(request.getPercentual())
+                            .divide(new BigDecimal("100"), 2, java.math.RoundingMode.HALF_UP);
+                    terceirizacao.setValorCombinado(valorCalculado.doubleValue());
+                }
 
-            System.out.println("✅ Terceirização solicitada com sucesso!");
-            System.out.println("📊 Resposta: " + response);
+                // 15. Salvar a terceirização
+                Terceirizacao terceirizacaoSalva = terceirizacaoRepository.save(terceirizacao);
+
+                eventPublisher.publishEvent(TransicaoStatusEvent.terceirizacao(statusAnterior, StatusTerceirizacao.SOLICITADO));
+
+                // 16. Criar DTO de resposta (AJUSTADO PARA SUA ESTRUTURA)
+                TerceirizacaoResponseDTO response = new TerceirizacaoResponseDTO();
+                response.setId(terceirizacaoSalva.getId());
+                response.setPedidoId(pedidoId);
+                response.setCodigoPedido(pedido.getCodigo());
+                response.setVersao(pedidoAtualizado.getVersao());
+
+                // Criar DTO do protético solicitante
+                ProteticoSimplesDTO proteticoSolicitanteDTO = new ProteticoSimplesDTO();
+                proteticoSolicitanteDTO.setId(proteticoSolicitante.getId());
+                proteticoSolicitanteDTO.setNome(proteticoSolicitante.getNome());
+                proteticoSolicitanteDTO.setEmail(proteticoSolicitante.getEmail());
+                proteticoSolicitanteDTO.setRegistroProfissional(proteticoSolicitante.getRegistroProfissional());
+                response.setProteticoSolicitante(proteticoSolicitanteDTO);
+
+                // Criar DTO do protético executor
+                ProteticoSimplesDTO proteticoExecutorDTO = new ProteticoSimplesDTO();
+                proteticoExecutorDTO.setId(proteticoTerceirizado.getId());
+                proteticoExecutorDTO.setNome(proteticoTerceirizado.getNome());
+                proteticoExecutorDTO.setEmail(proteticoTerceirizado.getEmail());
+                proteticoExecutorDTO.setRegistroProfissional(proteticoTerceirizado.getRegistroProfissional());
+                response.setProteticoExecutor(proteticoExecutorDTO);
+
+                // Outros campos
+                response.setPercentualTerceirizado(request.getPercentual());
+                response.setTipoTerceirizacao(request.getTipo());
+                response.setStatus(StatusTerceirizacao.SOLICITADO);
+                response.setMotivo(request.getMotivo());
+                response.setDescricaoServico(request.getDescricaoServico());
+                response.setDataSolicitacao(terceirizacaoSalva.getSolicitadoEm());
+
+                // Calcular valor terceirizado
+                if (request.getPercentual() != null && pedido.getValorCobrado() != null) {
+                    BigDecimal valorTerceirizado = pedido.getValorCobrado()
+                            .multiply(request.getPercentual())
+                            .divide(new BigDecimal("100"), 2, java.math.RoundingMode.HALF_UP);
+                    response.setValorTerceirizado(valorTerceirizado);
+                }
 
-            return response;
+                log.atInfo().addKeyValue("pedidoId", pedidoId).addKeyValue("proteticoId", proteticoId)
+                        .addKeyValue("proteticoDestinoId", request.getProteticoTerceirizadoId())
+                        .addKeyValue("terceirizacaoId", terceirizacaoSalva.getId())
+                        .addKeyValue("transicao", () -> statusAnterior + "->" + StatusTerceirizacao.SOLICITADO)
+                        .log("Terceirização solicitada");
 
+                return response;
+            });
+
+        } catch (ConflitoConcorrenciaException e) {
+            registrarErro("Erro ao solicitar terceirização", pedidoId, proteticoId, e);
+            throw e;
         } catch (Exception e) {
-            System.err.println("❌ Erro ao solicitar terceirização: " + e.getMessage());
-            e.printStackTrace();
+            registrarErro("Erro ao solicitar terceirização", pedidoId, proteticoId, e);
             throw new RuntimeException("Erro ao solicitar terceirização: " + e.getMessage());
         }
     }
 
-    // ============ MÉTODOS DE GERENCIAMENTO DE TERCEIRIZAÇÃO ============
-
     /**
-     * Aceita uma terceirização (protético terceirizado)
+     * Oferta o pedido em broadcast aos N primeiros candidatos elegíveis para o tipo de serviço.
+     * O pedido fica SOLICITADO sem executor; o primeiro aceitarTerceirizacao ocupa a vaga
+     * (compare-and-set) e as demais ofertas são retiradas no mesmo commit.
+     * @param quantidade número de laboratórios (null = app.terceirizacao.oferta.candidatos)
      */
-    public TerceirizacaoResponseDTO aceitarTerceirizacao(Long pedidoId, Long proteticoId) {
-        System.out.println("🔄 aceitarTerceirizacao");
-        System.out.println("📝 pedidoId: " + pedidoId + ", proteticoId (terceirizado): " + proteticoId);
-
+    public TerceirizacaoResponseDTO ofertarTerceirizacao(Long pedidoId, Long proteticoId,
+                                                         SolicitarTerceirizacaoRequest request,
+                                                         Integer quantidade, Long versaoEsperada) {
         try {
-            // 1. Buscar o pedido
-            Pedido pedido = pedidoRepository.findById(pedidoId)
-                    .orElseThrow(() -> new RuntimeException("Pedido não encontrado: " + pedidoId));
-
-            // 2. Buscar o protético terceirizado
-            Protetico proteticoTerceirizado = proteticoRepository.findById(proteticoId)
-                    .orElseThrow(() -> new RuntimeException("Protético não encontrado: " + proteticoId));
-
-            // 3. Verificar se o pedido está terceirizado para este protético
-            if (!pedido.isTerceirizado() ||
-                    pedido.getProteticoTerceirizado() == null ||
-                    !pedido.getProteticoTerceirizado().getId().equals(proteticoId)) {
-                throw new RuntimeException("Esta terceirização não existe ou não é para você");
-            }
+            return controleConcorrencia.executar("Pedido " + pedidoId, versaoEsperada, () -> {
+                if (request == null) {
+                    throw new RuntimeException("Request não pode ser nulo");
+                }
+                int limite = quantidade != null ? quantidade : candidatosPorOferta;
+                if (limite < 1 || limite > maximoCandidatosPorOferta) {
+                    throw new RuntimeException("Quantidade de laboratórios deve estar entre 1 e " + maximoCandidatosPorOferta);
+                }
+                if (request.getPercentual() != null &&
+                        (request.getPercentual().compareTo(BigDecimal.ZERO) <= 0 ||
+                                request.getPercentual().compareTo(new BigDecimal("100")) > 0)) {
+                    throw new RuntimeException("Percentual deve estar entre 0 e 100");
+                }
 
-            // 4. Verificar se o status permite aceitar
-            if (pedido.getStatusTerceirizacao() != StatusTerceirizacao.SOLICITADO) {
-                throw new RuntimeException("Esta terceirização não pode ser aceita no momento. Status atual: " +
-                        pedido.getStatusTerceirizacao());
-            }
+                // 1. Pedido, dono e situação
+                Pedido pedido = pedidoRepository.findById(pedidoId)
+                        .orElseThrow(() -> new RuntimeException("Pedido não encontrado: " + pedidoId));
+                ControleConcorrenciaService.verificarVersao("Pedido " + pedidoId, pedido.getVersao(), versaoEsperada);
 
-            // 5. Usar o método do Pedido para aceitar
-            pedido.aceitarTerceirizacao();
+                if (pedido.getProtetico() == null || !pedido.getProtetico().getId().equals(proteticoId)) {
+                    throw new RuntimeException("Apenas o protético responsável pelo pedido pode solicitar terceirização");
+                }
+                if (!pedido.podeSerTerceirizado()) {
+                    throw new RuntimeException("Este pedido não pode ser terceirizado no momento");
+                }
 
-            // 6. Salvar o pedido atualizado
-            Pedido pedidoAtualizado = pedidoRepository.save(pedido);
+                // 2. Os melhores candidatos pelo ranking (índice em memória), sem o próprio laboratório
+                // e sem os que já recusaram este pedido
+                List<ProteticoSimplesDTO> ofertados = melhoresCandidatos(pedido.getTipoServico(), proteticoId,
+                        new HashSet<>(terceirizacaoRepository.listarDestinosQueRecusaram(pedidoId)), limite);
+                if (ofertados.isEmpty()) {
+                    throw new RuntimeException("Nenhum protético disponível para o serviço: " + pedido.getTipoServico());
+                }
 
-            // 7. Atualizar a entidade Terceirizacao se existir
-            Optional<Terceirizacao> terceirizacaoOpt =
-                    terceirizacaoRepository.findFirstByPedidoIdOrderByIdDesc(pedidoId);
+                // 3. Pedido em SOLICITADO com a vaga de executor vazia
+                StatusTerceirizacao statusAnterior = pedido.getStatusTerceirizacao();
+                pedido.solicitarTerceirizacao(null, request.getPercentual(), request.getTipo(), request.getMotivo());
+                Pedido pedidoAtualizado = pedidoRepository.saveAndFlush(pedido);
+
+                // 4. Uma terceirização SOLICITADO por laboratório ofertado
+                String servico = request.getDescricaoServico() != null ?
+                        request.getDescricaoServico() : pedido.getTipoServico().getValorJson();
+                Double valorCombinado = pedidoAtualizado.getValorTerceirizado() != null ?
+                        pedidoAtualizado.getValorTerceirizado().doubleValue() : null;
+                List<Terceirizacao> ofertas = new ArrayList<>(ofertados.size());
+                for (ProteticoSimplesDTO candidato : ofertados) {
+                    Terceirizacao oferta = new Terceirizacao();
+                    oferta.setProteticoOrigem(pedido.getProtetico());
+                    oferta.setProteticoDestino(proteticoRepository.getReferenceById(candidato.getId()));
+                    oferta.setPedido(pedidoAtualizado);
+                    oferta.setServicoSolicitado(servico);
+                    oferta.setObservacoes(request.getMotivo());
+                    oferta.setStatus(StatusTerceirizacao.SOLICITADO);
+                    oferta.setValorCombinado(valorCombinado);
+                    ofertas.add(oferta);
+                }
+                terceirizacaoRepository.saveAll(ofertas);
 
-            if (terceirizacaoOpt.isPresent()) {
-                Terceirizacao terceirizacao = terceirizacaoOpt.get();
-                terceirizacao.setStatus(StatusTerceirizacao.ACEITO);
-                terceirizacao.setAceitoEm(LocalDateTime.now());
-                terceirizacaoRepository.save(terceirizacao);
-            }
+                eventPublisher.publishEvent(TransicaoStatusEvent.terceirizacao(statusAnterior, StatusTerceirizacao.SOLICITADO));
 
-            // 8. Criar DTO de resposta
-            TerceirizacaoResponseDTO response = new TerceirizacaoResponseDTO(pedidoAtualizado);
-            response.setId(terceirizacaoOpt.map(Terceirizacao::getId).orElse(null));
+                TerceirizacaoResponseDTO response = new TerceirizacaoResponseDTO(pedidoAtualizado);
+                response.setDescricaoServico(request.getDescricaoServico());
+                response.setOfertas(ofertados);
 
-            System.out.println("✅ Terceirização aceita com sucesso!");
+                log.atInfo().addKeyValue("pedidoId", pedidoId).addKeyValue("proteticoId", proteticoId)
+                        .addKeyValue("ofertas", ofertados.size())
+                        .addKeyValue("transicao", () -> statusAnterior + "->" + StatusTerceirizacao.SOLICITADO)
+                        .log("Terceirização ofertada em broadcast");
 
-            return response;
+                return response;
+            });
 
+        } catch (ConflitoConcorrenciaException e) {
+            registrarErro("Erro ao ofertar terceirização", pedidoId, proteticoId, e);
+            throw e;
         } catch (Exception e) {
-            System.err.println("❌ Erro ao aceitar terceirização: " + e.getMessage());
-            e.printStackTrace();
-            throw new RuntimeException("Erro ao aceitar terceirização: " + e.getMessage());
+            registrarErro("Erro ao ofertar terceirização", pedidoId, proteticoId, e);
+            throw new RuntimeException("Erro ao ofertar terceirização: " + e.getMessage());
         }
     }
 
     /**
-     * Recusa uma terceirização (protético terceirizado)
+     * Ofertas em aberto para um laboratório (broadcast ou solicitação direta ainda sem resposta)
      */
-    public TerceirizacaoResponseDTO recusarTerceirizacao(Long pedidoId, Long proteticoId, String motivo) {
-        System.out.println("🔄 recusarTerceirizacao");
-        System.out.println("📝 pedidoId: " + pedidoId + ", proteticoId (terceirizado): " + proteticoId);
-        System.out.println("📝 motivo: " + motivo);
-
-        try {
-            // 1. Buscar o pedido
-            Pedido pedido = pedidoRepository.findById(pedidoId)
-                    .orElseThrow(() -> new RuntimeException("Pedido não encontrado: " + pedidoId));
-
-            // 2. Buscar o protético terceirizado
-            Protetico proteticoTerceirizado = proteticoRepository.findById(proteticoId)
-                    .orElseThrow(() -> new RuntimeException("Protético não encontrado: " + proteticoId));
+    @Transactional(readOnly = true)
+    public List<TerceirizacaoResponseDTO> listarOfertasAbertas(Long proteticoId) {
+        List<TerceirizacaoResponseDTO> resultado = new ArrayList<>();
+        for (Terceirizacao oferta : terceirizacaoRepository.listarOfertasAbertas(proteticoId)) {
+            TerceirizacaoResponseDTO dto = new TerceirizacaoResponseDTO(oferta.getPedido());
+            dto.setId(oferta.getId());
+            dto.setStatus(oferta.getStatus());
+            dto.setDescricaoServico(oferta.getServicoSolicitado());
+            resultado.add(dto);
+        }
+        return resultado;
+    }
 
-            // 3. Verificar se o pedido está terceirizado para este protético
-            if (!pedido.isTerceirizado() ||
-                    pedido.getProteticoTerceirizado() == null ||
-                    !pedido.getProteticoTerceirizado().getId().equals(proteticoId)) {
-                throw new RuntimeException("Esta terceirização não existe ou não é para você");
-            }
+    // ============ MÉTODOS DE GERENCIAMENTO DE TERCEIRIZAÇÃO ============
 
-            // 4. Verificar se o status permite recusar
-            if (pedido.getStatusTerceirizacao() != StatusTerceirizacao.SOLICITADO) {
-                throw new RuntimeException("Esta terceirização não pode ser recusada no momento. Status atual: " +
-                        pedido.getStatusTerceirizacao());
-            }
+    /**
+     * Aceita uma terceirização (protético terceirizado)
+     */
+    public TerceirizacaoResponseDTO aceitarTerceirizacao(Long pedidoId, Long proteticoId) {
+        return aceitarTerceirizacao(pedidoId, proteticoId, null);
+    }
 
-            // 5. Adicionar motivo se fornecido
-            if (motivo != null && !motivo.trim().isEmpty()) {
-                pedido.setMotivoTerceirizacao(
-                        (pedido.getMotivoTerceirizacao() != null ?
-                                pedido.getMotivoTerceirizacao() + " | Recusa: " : "Recusa: ") + motivo
-                );
-            }
+    public TerceirizacaoResponseDTO aceitarTerceirizacao(Long pedidoId, Long proteticoId, Long versaoEsperada) {
+        try {
+            return controleConcorrencia.executar("Pedido " + pedidoId, versaoEsperada, () -> {
+                LocalDateTime agora = LocalDateTime.now();
+
+                // 1. Compare-and-set no pedido: SOLICITADO -> ACEITO, só pelo protético executor
+                int linhas = pedidoRepository.avancarTerceirizacao(pedidoId, proteticoId,
+                        StatusTerceirizacao.SOLICITADO, StatusTerceirizacao.ACEITO, agora, null, versaoEsperada);
+
+                // 1b. Sem executor definido (oferta em broadcast): o primeiro aceite ocupa a vaga
+                boolean viaOferta = false;
+                if (linhas == 0) {
+                    linhas = pedidoRepository.aceitarOfertaAberta(pedidoId,
+                            proteticoRepository.getReferenceById(proteticoId), agora, versaoEsperada);
+                    viaOferta = linhas > 0;
+                }
+                if (linhas == 0) {
+                    throw falhaTransicao(pedidoId, proteticoId, StatusTerceirizacao.SOLICITADO, "aceita", versaoEsperada);
+                }
 
-            // 6. Usar o método do Pedido para recusar
-            pedido.recusarTerceirizacao();
+                // 2. Mesma transição no registro de terceirização; no broadcast, as demais ofertas
+                // abertas são retiradas no mesmo commit
+                Long terceirizacaoId;
+                if (viaOferta) {
+                    if (terceirizacaoRepository.transicionarOferta(pedidoId, proteticoId,
+                            StatusTerceirizacao.SOLICITADO, StatusTerceirizacao.ACEITO, agora, null) == 0) {
+                        // A oferta foi recusada entre o UPDATE do pedido e este: desfaz tudo
+                        throw new ConflitoConcorrenciaException(
+                                "Pedido " + pedidoId + " foi alterado por outra requisição. Recarregue e tente novamente.",
+                                null);
+                    }
+                    terceirizacaoRepository.retirarOfertasAbertas(pedidoId, proteticoId,
+                            "Oferta retirada: aceita por outro laboratório");
+                    terceirizacaoId = terceirizacaoRepository.buscarUltimaIdPorPedidoEDestino(pedidoId, proteticoId);
+                } else {
+                    terceirizacaoId = transicionarRegistro(pedidoId, proteticoId,
+                            StatusTerceirizacao.SOLICITADO, StatusTerceirizacao.ACEITO, agora, null, null);
+                }
 
-            // 7. Salvar o pedido atualizado
-            Pedido pedidoAtualizado = pedidoRepository.save(pedido);
+                // 3. Evento, log e DTO de resposta
+                return responderTransicao(pedidoId, proteticoId, terceirizacaoId,
+                        StatusTerceirizacao.SOLICITADO, StatusTerceirizacao.ACEITO, "Terceirização aceita");
+            });
 
-            // 8. Atualizar a entidade Terceirizacao se existir
-            Optional<Terceirizacao> terceirizacaoOpt =
-                    terceirizacaoRepository.findFirstByPedidoIdOrderByIdDesc(pedidoId);
+        } catch (ConflitoConcorrenciaException e) {
+            registrarErro("Erro ao aceitar terceirização", pedidoId, proteticoId, e);
+            throw e;
+        } catch (Exception e) {
+            registrarErro("Erro ao aceitar terceirização", pedidoId, proteticoId, e);
+            throw new RuntimeException("Erro ao aceitar terceirização: " + e.getMessage());
+        }
+    }
 
-            if (terceirizacaoOpt.isPresent()) {
-                Terceirizacao terceirizacao = terceirizacaoOpt.get();
-                terceirizacao.setStatus(StatusTerceirizacao.RECUSADO);
-                terceirizacao.setObservacoes(
-                        (terceirizacao.getObservacoes() != null
-                                ? terceirizacao.getObservacoes() + " | Recusado: "
-                                : "Recusado: ") + motivo
-                );
-                terceirizacaoRepository.save(terceirizacao);
-            }
+    /**
+     * Recusa uma terceirização (protético terceirizado)
+     */
+    public TerceirizacaoResponseDTO recusarTerceirizacao(Long pedidoId, Long proteticoId, String motivo) {
+        return recusarTerceirizacao(pedidoId, proteticoId, motivo, null);
+    }
 
-            // 9. Criar DTO de resposta
-            TerceirizacaoResponseDTO response = new TerceirizacaoResponseDTO(pedidoAtualizado);
-            response.setId(terceirizacaoOpt.map(Terceirizacao::getId).orElse(null));
+    public TerceirizacaoResponseDTO recusarTerceirizacao(Long pedidoId, Long proteticoId, String motivo,
+                                                         Long versaoEsperada) {
+        try {
+            return controleConcorrencia.executar("Pedido " + pedidoId, versaoEsperada, () -> {
+                LocalDateTime agora = LocalDateTime.now();
+                boolean temMotivo = motivo != null && !motivo.trim().isEmpty();
+
+                // 1. Compare-and-set no pedido: SOLICITADO -> RECUSADO, anexando o motivo e liberando o executor
+                int linhas = pedidoRepository.recusarTerceirizacao(pedidoId, proteticoId, agora,
+                        temMotivo ? "Recusa: " + motivo : null, versaoEsperada);
+                if (linhas == 0) {
+                    return recusarOferta(pedidoId, proteticoId, agora,
+                            temMotivo ? "Recusado: " + motivo : "Recusado", versaoEsperada);
+                }
 
-            System.out.println("✅ Terceirização recusada com sucesso!");
+                // 2. Mesma transição no registro deste protético
+                Long terceirizacaoId = transicionarRegistro(pedidoId, proteticoId,
+                        StatusTerceirizacao.SOLICITADO, StatusTerceirizacao.RECUSADO, null, null,
+                        temMotivo ? "Recusado: " + motivo : "Recusado");
 
-            return response;
+                // 3. Evento, log e DTO de resposta
+                return responderTransicao(pedidoId, proteticoId, terceirizacaoId,
+                        StatusTerceirizacao.SOLICITADO, StatusTerceirizacao.RECUSADO, "Terceirização recusada");
+            });
 
+        } catch (ConflitoConcorrenciaException e) {
+            registrarErro("Erro ao recusar terceirização", pedidoId, proteticoId, e);
+            throw e;
         } catch (Exception e) {
-            System.err.println("❌ Erro ao recusar terceirização: " + e.getMessage());
-            e.printStackTrace();
+            registrarErro("Erro ao recusar terceirização", pedidoId, proteticoId, e);
             throw new RuntimeException("Erro ao recusar terceirização: " + e.getMessage());
         }
     }
@@ -515,58 +552,33 @@ public class TerceirizacaoService {
      * Inicia a execução da terceirização (protético terceirizado)
      */
     public TerceirizacaoResponseDTO iniciarTerceirizacao(Long pedidoId, Long proteticoId) {
-        System.out.println("🔄 iniciarTerceirizacao");
-        System.out.println("📝 pedidoId: " + pedidoId + ", proteticoId (terceirizado): " + proteticoId);
+        return iniciarTerceirizacao(pedidoId, proteticoId, null);
+    }
 
+    public TerceirizacaoResponseDTO iniciarTerceirizacao(Long pedidoId, Long proteticoId, Long versaoEsperada) {
         try {
-            // 1. Buscar o pedido
-            Pedido pedido = pedidoRepository.findById(pedidoId)
-                    .orElseThrow(() -> new RuntimeException("Pedido não encontrado: " + pedidoId));
-
-            // 2. Buscar o protético terceirizado
-            Protetico proteticoTerceirizado = proteticoRepository.findById(proteticoId)
-                    .orElseThrow(() -> new RuntimeException("Protético não encontrado: " + proteticoId));
-
-            // 3. Verificar se o pedido está terceirizado para este protético
-            if (!pedido.isTerceirizado() ||
-                    pedido.getProteticoTerceirizado() == null ||
-                    !pedido.getProteticoTerceirizado().getId().equals(proteticoId)) {
-                throw new RuntimeException("Esta terceirização não existe ou não é para você");
-            }
-
-            // 4. Verificar se o status permite iniciar
-            if (pedido.getStatusTerceirizacao() != StatusTerceirizacao.ACEITO) {
-                throw new RuntimeException("Esta terceirização não pode ser iniciada no momento. Status atual: " +
-                        pedido.getStatusTerceirizacao());
-            }
-
-            // 5. Usar o método do Pedido para iniciar
-            pedido.iniciarTerceirizacao();
-
-            // 6. Salvar o pedido atualizado
-            Pedido pedidoAtualizado = pedidoRepository.save(pedido);
-
-            // 7. Atualizar a entidade Terceirizacao se existir
-            Optional<Terceirizacao> terceirizacaoOpt =
-                    terceirizacaoRepository.findFirstByPedidoIdOrderByIdDesc(pedidoId);
-
-            if (terceirizacaoOpt.isPresent()) {
-                Terceirizacao terceirizacao = terceirizacaoOpt.get();
-                terceirizacao.setStatus(StatusTerceirizacao.EM_ANDAMENTO);
-                terceirizacaoRepository.save(terceirizacao);
-            }
-
-            // 8. Criar DTO de resposta
-            TerceirizacaoResponseDTO response = new TerceirizacaoResponseDTO(pedidoAtualizado);
-            response.setId(terceirizacaoOpt.map(Terceirizacao::getId).orElse(null));
+            return controleConcorrencia.executar("Pedido " + pedidoId, versaoEsperada, () -> {
+                // 1. Compare-and-set no pedido: ACEITO -> EM_ANDAMENTO, só pelo protético executor
+                int linhas = pedidoRepository.avancarTerceirizacao(pedidoId, proteticoId,
+                        StatusTerceirizacao.ACEITO, StatusTerceirizacao.EM_ANDAMENTO, null, null, versaoEsperada);
+                if (linhas == 0) {
+                    throw falhaTransicao(pedidoId, proteticoId, StatusTerceirizacao.ACEITO, "iniciada", versaoEsperada);
+                }
 
-            System.out.println("✅ Execução da terceirização iniciada!");
+                // 2. Mesma transição no registro do protético executor
+                Long terceirizacaoId = transicionarRegistro(pedidoId, proteticoId,
+                        StatusTerceirizacao.ACEITO, StatusTerceirizacao.EM_ANDAMENTO, null, null, null);
 
-            return response;
+                // 3. Evento, log e DTO de resposta
+                return responderTransicao(pedidoId, proteticoId, terceirizacaoId,
+                        StatusTerceirizacao.ACEITO, StatusTerceirizacao.EM_ANDAMENTO, "Execução da terceirização iniciada");
+            });
 
+        } catch (ConflitoConcorrenciaException e) {
+            registrarErro("Erro ao iniciar terceirização", pedidoId, proteticoId, e);
+            throw e;
         } catch (Exception e) {
-            System.err.println("❌ Erro ao iniciar terceirização: " + e.getMessage());
-            e.printStackTrace();
+            registrarErro("Erro ao iniciar terceirização", pedidoId, proteticoId, e);
             throw new RuntimeException("Erro ao iniciar terceirização: " + e.getMessage());
         }
     }
@@ -575,59 +587,35 @@ public class TerceirizacaoService {
      * Conclui a terceirização (protético terceirizado)
      */
     public TerceirizacaoResponseDTO concluirTerceirizacao(Long pedidoId, Long proteticoId) {
-        System.out.println("🔄 concluirTerceirizacao");
-        System.out.println("📝 pedidoId: " + pedidoId + ", proteticoId (terceirizado): " + proteticoId);
+        return concluirTerceirizacao(pedidoId, proteticoId, null);
+    }
 
+    public TerceirizacaoResponseDTO concluirTerceirizacao(Long pedidoId, Long proteticoId, Long versaoEsperada) {
         try {
-            // 1. Buscar o pedido
-            Pedido pedido = pedidoRepository.findById(pedidoId)
-                    .orElseThrow(() -> new RuntimeException("Pedido não encontrado: " + pedidoId));
-
-            // 2. Buscar o protético terceirizado
-            Protetico proteticoTerceirizado = proteticoRepository.findById(proteticoId)
-                    .orElseThrow(() -> new RuntimeException("Protético não encontrado: " + proteticoId));
-
-            // 3. Verificar se o pedido está terceirizado para este protético
-            if (!pedido.isTerceirizado() ||
-                    pedido.getProteticoTerceirizado() == null ||
-                    !pedido.getProteticoTerceirizado().getId().equals(proteticoId)) {
-                throw new RuntimeException("Esta terceirização não existe ou não é para você");
-            }
-
-            // 4. Verificar se o status permite concluir
-            if (pedido.getStatusTerceirizacao() != StatusTerceirizacao.EM_ANDAMENTO) {
-                throw new RuntimeException("Esta terceirização não pode ser concluída no momento. Status atual: " +
-                        pedido.getStatusTerceirizacao());
-            }
-
-            // 5. Usar o método do Pedido para concluir
-            pedido.concluirTerceirizacao();
-
-            // 6. Salvar o pedido atualizado
-            Pedido pedidoAtualizado = pedidoRepository.save(pedido);
-
-            // 7. Atualizar a entidade Terceirizacao se existir
-            Optional<Terceirizacao> terceirizacaoOpt =
-                    terceirizacaoRepository.findFirstByPedidoIdOrderByIdDesc(pedidoId);
-
-            if (terceirizacaoOpt.isPresent()) {
-                Terceirizacao terceirizacao = terceirizacaoOpt.get();
-                terceirizacao.setStatus(StatusTerceirizacao.CONCLUIDO);
-                terceirizacao.setConcluidoEm(LocalDateTime.now());
-                terceirizacaoRepository.save(terceirizacao);
-            }
-
-            // 8. Criar DTO de resposta
-            TerceirizacaoResponseDTO response = new TerceirizacaoResponseDTO(pedidoAtualizado);
-            response.setId(terceirizacaoOpt.map(Terceirizacao::getId).orElse(null));
+            return controleConcorrencia.executar("Pedido " + pedidoId, versaoEsperada, () -> {
+                LocalDateTime agora = LocalDateTime.now();
+
+                // 1. Compare-and-set no pedido: EM_ANDAMENTO -> CONCLUIDO, só pelo protético executor
+                int linhas = pedidoRepository.avancarTerceirizacao(pedidoId, proteticoId,
+                        StatusTerceirizacao.EM_ANDAMENTO, StatusTerceirizacao.CONCLUIDO, null, agora, versaoEsperada);
+                if (linhas == 0) {
+                    throw falhaTransicao(pedidoId, proteticoId, StatusTerceirizacao.EM_ANDAMENTO, "concluída", versaoEsperada);
+                }
 
-            System.out.println("✅ Terceirização concluída com sucesso!");
+                // 2. Mesma transição no registro do protético executor
+                Long terceirizacaoId = transicionarRegistro(pedidoId, proteticoId,
+                        StatusTerceirizacao.EM_ANDAMENTO, StatusTerceirizacao.CONCLUIDO, null, agora, null);
 
-            return response;
+                // 3. Evento, log e DTO de resposta
+                return responderTransicao(pedidoId, proteticoId, terceirizacaoId,
+                        StatusTerceirizacao.EM_ANDAMENTO, StatusTerceirizacao.CONCLUIDO, "Terceirização concluída");
+            });
 
+        } catch (ConflitoConcorrenciaException e) {
+            registrarErro("Erro ao concluir terceirização", pedidoId, proteticoId, e);
+            throw e;
         } catch (Exception e) {
-            System.err.println("❌ Erro ao concluir terceirização: " + e.getMessage());
-            e.printStackTrace();
+            registrarErro("Erro ao concluir terceirização", pedidoId, proteticoId, e);
             throw new RuntimeException("Erro ao concluir terceirização: " + e.getMessage());
         }
     }
@@ -636,76 +624,91 @@ public class TerceirizacaoService {
      * Cancela uma terceirização (qualquer protético envolvido)
      */
     public TerceirizacaoResponseDTO cancelarTerceirizacao(Long pedidoId, Long proteticoId, String motivo) {
-        System.out.println("🔄 cancelarTerceirizacao");
-        System.out.println("📝 pedidoId: " + pedidoId + ", proteticoId: " + proteticoId);
-        System.out.println("📝 motivo: " + motivo);
+        return cancelarTerceirizacao(pedidoId, proteticoId, motivo, null);
+    }
 
+    public TerceirizacaoResponseDTO cancelarTerceirizacao(Long pedidoId, Long proteticoId, String motivo,
+                                                          Long versaoEsperada) {
         try {
-            // 1. Buscar o pedido
-            Pedido pedido = pedidoRepository.findById(pedidoId)
-                    .orElseThrow(() -> new RuntimeException("Pedido não encontrado: " + pedidoId));
+            return controleConcorrencia.executar("Pedido " + pedidoId, versaoEsperada, () -> {
+                // 1. Buscar o pedido
+                Pedido pedido = pedidoRepository.findById(pedidoId)
+                        .orElseThrow(() -> new RuntimeException("Pedido não encontrado: " + pedidoId));
+                ControleConcorrenciaService.verificarVersao("Pedido " + pedidoId, pedido.getVersao(), versaoEsperada);
 
-            // 2. Buscar o protético
-            Protetico protetico = proteticoRepository.findById(proteticoId)
-                    .orElseThrow(() -> new RuntimeException("Protético não encontrado: " + proteticoId));
+                // 2. Buscar o protético
+                Protetico protetico = proteticoRepository.findById(proteticoId)
+                        .orElseThrow(() -> new RuntimeException("Protético não encontrado: " + proteticoId));
 
-            // 3. Verificar se o protético tem permissão para cancelar
-            // Pode cancelar se for o protético solicitante OU o protético terceirizado
-            boolean isSolicitante = pedido.getProtetico() != null &&
-                    pedido.getProtetico().getId().equals(proteticoId);
-            boolean isTerceirizado = pedido.getProteticoTerceirizado() != null &&
-                    pedido.getProteticoTerceirizado().getId().equals(proteticoId);
+                // 3. Verificar se o protético tem permissão para cancelar
+                // Pode cancelar se for o protético solicitante OU o protético terceirizado
+                boolean isSolicitante = pedido.getProtetico() != null &&
+                        pedido.getProtetico().getId().equals(proteticoId);
+                boolean isTerceirizado = pedido.getProteticoTerceirizado() != null &&
+                        pedido.getProteticoTerceirizado().getId().equals(proteticoId);
 
-            if (!isSolicitante && !isTerceirizado) {
-                throw new RuntimeException("Você não tem permissão para cancelar esta terceirização");
-            }
+                if (!isSolicitante && !isTerceirizado) {
+                    throw new RuntimeException("Você não tem permissão para cancelar esta terceirização");
+                }
 
-            // 4. Verificar se o status permite cancelar
-            StatusTerceirizacao statusAtual = pedido.getStatusTerceirizacao();
-            if (statusAtual == StatusTerceirizacao.CONCLUIDO ||
-                    statusAtual == StatusTerceirizacao.CANCELADO ||
-                    statusAtual == StatusTerceirizacao.RECUSADO) {
-                throw new RuntimeException("Esta terceirização não pode ser cancelada. Status atual: " + statusAtual);
-            }
+                // 4. Verificar se o status permite cancelar
+                StatusTerceirizacao statusAtual = pedido.getStatusTerceirizacao();
+                if (statusAtual == StatusTerceirizacao.CONCLUIDO ||
+                        statusAtual == StatusTerceirizacao.CANCELADO ||
+                        statusAtual == StatusTerceirizacao.RECUSADO) {
+                    throw new RuntimeException("Esta terceirização não pode ser cancelada. Status atual: " + statusAtual);
+                }
 
-            // 5. Adicionar motivo se fornecido
-            if (motivo != null && !motivo.trim().isEmpty()) {
-                String prefixo = isSolicitante ? "Cancelado pelo solicitante: " : "Cancelado pelo executor: ";
-                pedido.setMotivoTerceirizacao(
-                        (pedido.getMotivoTerceirizacao() != null ?
-                                pedido.getMotivoTerceirizacao() + " | " + prefixo : prefixo) + motivo
-                );
-            }
+                // 5. Adicionar motivo se fornecido
+                if (motivo != null && !motivo.trim().isEmpty()) {
+                    String prefixo = isSolicitante ? "Cancelado pelo solicitante: " : "Cancelado pelo executor: ";
+                    pedido.setMotivoTerceirizacao(
+                            (pedido.getMotivoTerceirizacao() != null ?
+                                    pedido.getMotivoTerceirizacao() + " | " + prefixo : prefixo) + motivo
+                    );
+                }
 
-            // 6. Usar o método do Pedido para cancelar
-            pedido.cancelarTerceirizacao();
+                // 6. Usar o método do Pedido para cancelar (limpa o executor: guarda antes)
+                Long executorId = pedido.getProteticoTerceirizado() != null ?
+                        pedido.getProteticoTerceirizado().getId() : null;
+                pedido.cancelarTerceirizacao();
+
+                // 7. Salvar o pedido atualizado
+                Pedido pedidoAtualizado = pedidoRepository.saveAndFlush(pedido);
+                eventPublisher.publishEvent(TransicaoStatusEvent.terceirizacao(statusAtual, StatusTerceirizacao.CANCELADO));
+
+                // 8. Atualizar o registro do executor, se houver (em broadcast sem aceite não há:
+                // as ofertas abertas são retiradas no passo 10)
+                Optional<Terceirizacao> terceirizacaoOpt = executorId == null ? Optional.empty() :
+                        terceirizacaoRepository.findFirstByPedidoIdAndProteticoDestinoIdOrderByIdDesc(pedidoId, executorId);
+                if (terceirizacaoOpt.isPresent()) {
+                    Terceirizacao terceirizacao = terceirizacaoOpt.get();
+                    terceirizacao.setStatus(StatusTerceirizacao.CANCELADO);
+                    terceirizacao.setObservacoes(
+                            (terceirizacao.getObservacoes() != null ?
+                                    terceirizacao.getObservacoes() + " | Cancelado: " : "Cancelado: ") + motivo
+                    );
+                    terceirizacaoRepository.save(terceirizacao);
+                }
 
-            // 7. Salvar o pedido atualizado
-            Pedido pedidoAtualizado = pedidoRepository.save(pedido);
+                // 9. Criar DTO de resposta
+                TerceirizacaoResponseDTO response = new TerceirizacaoResponseDTO(pedidoAtualizado);
+                response.setId(terceirizacaoOpt.map(Terceirizacao::getId).orElse(null));
 
-            // 8. Atualizar a entidade Terceirizacao se existir
-            Optional<Terceirizacao> terceirizacaoOpt = terceirizacaoRepository.findTopByPedidoId(pedidoId);
-            if (terceirizacaoOpt.isPresent()) {
-                Terceirizacao terceirizacao = terceirizacaoOpt.get();
-                terceirizacao.setStatus(StatusTerceirizacao.CANCELADO);
-                terceirizacao.setObservacoes(
-                        (terceirizacao.getObservacoes() != null ?
-                                terceirizacao.getObservacoes() + " | Cancelado: " : "Cancelado: ") + motivo
-                );
-                terceirizacaoRepository.save(terceirizacao);
-            }
+                // 10. Pedido ofertado em broadcast: retira as ofertas que ainda estavam abertas
+                terceirizacaoRepository.retirarOfertasAbertas(pedidoId, null, "Oferta retirada: terceirização cancelada");
 
-            // 9. Criar DTO de resposta
-            TerceirizacaoResponseDTO response = new TerceirizacaoResponseDTO(pedidoAtualizado);
-            response.setId(terceirizacaoOpt.map(Terceirizacao::getId).orElse(null));
+                registrarTransicao("Terceirização cancelada", pedidoId, proteticoId,
+                        statusAtual, StatusTerceirizacao.CANCELADO);
 
-            System.out.println("✅ Terceirização cancelada com sucesso!");
-
-            return response;
+                return response;
+            });
 
+        } catch (ConflitoConcorrenciaException e) {
+            registrarErro("Erro ao cancelar terceirização", pedidoId, proteticoId, e);
+            throw e;
         } catch (Exception e) {
-            System.err.println("❌ Erro ao cancelar terceirização: " + e.getMessage());
-            e.printStackTrace();
+            registrarErro("Erro ao cancelar terceirização", pedidoId, proteticoId, e);
             throw new RuntimeException("Erro ao cancelar terceirização: " + e.getMessage());
         }
     }
@@ -713,9 +716,8 @@ public class TerceirizacaoService {
     /**
      * Busca terceirização por ID do pedido
      */
+    @Transactional(readOnly = true)
     public TerceirizacaoResponseDTO buscarPorPedidoId(Long pedidoId) {
-        System.out.println("🔄 buscarPorPedidoId: " + pedidoId);
-
         try {
             // 1. Buscar o pedido
             Pedido pedido = pedidoRepository.findById(pedidoId)
@@ -726,19 +728,17 @@ public class TerceirizacaoService {
                 throw new RuntimeException("Este pedido não está terceirizado");
             }
 
-            // 3. Buscar a entidade Terceirizacao se existir
-            Optional<Terceirizacao> terceirizacaoOpt = terceirizacaoRepository.findTopByPedidoId(pedidoId);
+            // 3. Id do registro de terceirização atual (o do executor, se houver)
+            List<Object[]> atual = terceirizacaoRepository.buscarTerceirizacaoAtualIdPorPedido(List.of(pedidoId));
 
             // 4. Criar DTO de resposta
             TerceirizacaoResponseDTO response = new TerceirizacaoResponseDTO(pedido);
-            response.setId(terceirizacaoOpt.map(Terceirizacao::getId).orElse(null));
-
-            System.out.println("✅ Terceirização encontrada para pedido: " + pedidoId);
+            response.setId(atual.isEmpty() ? null : (Long) atual.get(0)[1]);
 
             return response;
 
         } catch (Exception e) {
-            System.err.println("❌ Erro ao buscar terceirização: " + e.getMessage());
+            registrarErro("Erro ao buscar terceirização", pedidoId, null, e);
             throw new RuntimeException("Erro ao buscar terceirização: " + e.getMessage());
         }
     }
@@ -746,64 +746,49 @@ public class TerceirizacaoService {
     /**
      * Lista todas terceirizações de um protético
      */
+    @Transactional(readOnly = true)
     public List<TerceirizacaoResponseDTO> listarTerceirizacoesPorProtetico(Long proteticoId) {
-        System.out.println("🔄 listarTerceirizacoesPorProtetico: " + proteticoId);
-
         try {
-            // 1. Buscar o protético
-            Protetico protetico = proteticoRepository.findById(proteticoId)
-                    .orElseThrow(() -> new RuntimeException("Protético não encontrado: " + proteticoId));
-
-            // 2. Buscar pedidos onde o protético está envolvido
-            List<Pedido> pedidosComoOrigem = pedidoRepository.findByProteticoId(proteticoId);
-            List<Pedido> pedidosComoDestino = pedidoRepository.findByProteticoTerceirizadoId(proteticoId);
-
-            // 3. Combinar listas e remover duplicados
-            List<Pedido> todosPedidos = new ArrayList<>();
-            todosPedidos.addAll(pedidosComoOrigem);
-            todosPedidos.addAll(pedidosComoDestino);
-
-            // Filtrar apenas pedidos terceirizados
-            List<Pedido> pedidosTerceirizados = todosPedidos.stream()
-                    .filter(p -> p.isTerceirizado())
-                    .distinct()
-                    .collect(Collectors.toList());
+            // 1. Verificar o protético (sem carregar a entidade)
+            if (!proteticoRepository.existsById(proteticoId)) {
+                throw new RuntimeException("Protético não encontrado: " + proteticoId);
+            }
+
+            // 2. Pedidos terceirizados (como titular ou executor) com os protéticos em uma consulta
+            List<Pedido> pedidosTerceirizados = pedidoRepository.listarTerceirizadosPorProtetico(proteticoId);
 
             if (pedidosTerceirizados.isEmpty()) {
                 return new ArrayList<>();
             }
 
-            // 4. Buscar IDs dos pedidos
+            // 3. Id da terceirização atual de cada pedido, em uma consulta
             List<Long> pedidoIds = pedidosTerceirizados.stream()
                     .map(Pedido::getId)
                     .collect(Collectors.toList());
 
-            // 5. Buscar terceirizações usando o novo método
-            List<Terceirizacao> terceirizacoes = terceirizacaoRepository.findByPedidoIdIn(pedidoIds);
-
-            // 6. Criar mapa para acesso rápido
-            Map<Long, Terceirizacao> terceirizacoesMap = terceirizacoes.stream()
-                    .collect(Collectors.toMap(t -> t.getPedido().getId(), t -> t));
+            Map<Long, Long> terceirizacaoIdPorPedido = new HashMap<>();
+            for (Object[] linha : terceirizacaoRepository.buscarTerceirizacaoAtualIdPorPedido(pedidoIds)) {
+                terceirizacaoIdPorPedido.put((Long) linha[0], (Long) linha[1]);
+            }
 
-            // 7. Criar DTOs de resposta
+            // 4. Criar DTOs de resposta
             List<TerceirizacaoResponseDTO> response = pedidosTerceirizados.stream()
                     .map(pedido -> {
                         TerceirizacaoResponseDTO dto = new TerceirizacaoResponseDTO(pedido);
-                        Terceirizacao terceirizacao = terceirizacoesMap.get(pedido.getId());
-                        if (terceirizacao != null) {
-                            dto.setId(terceirizacao.getId());
+                        Long terceirizacaoId = terceirizacaoIdPorPedido.get(pedido.getId());
+                        if (terceirizacaoId != null) {
+                            dto.setId(terceirizacaoId);
                         }
                         return dto;
                     })
                     .collect(Collectors.toList());
 
-            System.out.println("✅ Encontradas " + response.size() + " terceirizações para protético: " + proteticoId);
+            log.atDebug().addKeyValue("proteticoId", proteticoId).log("{} terceirizações encontradas", response.size());
 
             return response;
 
         } catch (Exception e) {
-            System.err.println("❌ Erro ao listar terceirizações: " + e.getMessage());
-            e.printStackTrace();
+            registrarErro("Erro ao listar terceirizações", null, proteticoId, e);
             throw new RuntimeException("Erro ao listar terceirizações: " + e.getMessage());
         }
     }
@@ -818,190 +803,241 @@ public class TerceirizacaoService {
             Long pedidoId,
             String tipoServicoStr) {
 
-        System.out.println("🔄 listarProteticosDisponiveisPorTipoServico");
-        System.out.println("📝 pedidoId: " + pedidoId + ", tipoServicoStr: " + tipoServicoStr);
-
         // Converte String para TipoServico
         TipoServico tipoServico = TipoServico.fromValue(tipoServicoStr);
         if (tipoServico == null) {
             throw new RuntimeException("Tipo de serviço inválido: " + tipoServicoStr);
         }
 
-        System.out.println("✅ Tipo convertido: " + tipoServico);
-
         // Chama o método existente (que já está funcionando)
         return listarProteticosDisponiveis(pedidoId, tipoServico);
     }
 
     /**
      * NOVO MÉTODO: Lista protéticos por tipo de serviço usando sistema de serviços
-     * Busca protéticos que realmente oferecem o serviço (ativos)
+     * Busca protéticos com serviço ativo que aceita terceirização (índice em memória)
      */
     public List<ProteticoSimplesDTO> listarProteticosPorServicoAtivos(
             String tipoServicoStr,
             Long excluirProteticoId) {
 
-        System.out.println("🔄 listarProteticosPorServicoAtivos");
-        System.out.println("📝 tipoServicoStr: " + tipoServicoStr);
-        System.out.println("📝 excluirProteticoId: " + excluirProteticoId);
-
         // Converte String para TipoServico
         TipoServico tipoServico = TipoServico.fromValue(tipoServicoStr);
         if (tipoServico == null) {
             throw new RuntimeException("Tipo de serviço inválido: " + tipoServicoStr);
         }
 
-        System.out.println("✅ Tipo convertido: " + tipoServico);
+        // Responde a partir do índice em memória (consulta indexada se ainda não carregado)
+        List<ProteticoSimplesDTO> resultado = buscarCandidatos(tipoServico, excluirProteticoId);
 
-        try {
-            // 1. Primeiro tenta usar o sistema de serviços
-            if (servicoProteticoService != null) {
-                System.out.println("🔍 Buscando via ServicoProteticoService...");
-
-                List<ServicoProteticoDTO> servicos = servicoProteticoService
-                        .buscarProteticosPorServico(tipoServico);
+        log.atDebug().addKeyValue("tipoServico", tipoServico).addKeyValue("excluirProteticoId", excluirProteticoId)
+                .log("{} protéticos encontrados", resultado.size());
+        return resultado;
+    }
 
-                System.out.println("📊 Serviços encontrados: " + servicos.size());
+    /**
+     * Ranking dos K melhores laboratórios para terceirizar um tipo de serviço
+     * (nota, experiência, preço/prazo terceirizados, carga atual e preferência do serviço de origem).
+     * @param origemProteticoId laboratório que terceiriza (excluído e fonte da preferência), pode ser null
+     */
+    @Transactional(readOnly = true)
+    public List<CandidatoRankeadoDTO> rankearCandidatos(String tipoServicoStr, Long origemProteticoId, int k) {
+        TipoServico tipoServico = TipoServico.fromValue(tipoServicoStr);
+        if (tipoServico == null) {
+            throw new RuntimeException("Tipo de serviço inválido: " + tipoServicoStr);
+        }
+        if (k < 1 || k > maximoCandidatosRanking) {
+            throw new RuntimeException("k deve estar entre 1 e " + maximoCandidatosRanking);
+        }
+        if (!indiceTerceirizacaoService.isCarregado()) {
+            throw new RuntimeException("Ranking de terceirização indisponível: índice ainda não carregado");
+        }
 
-                // Filtra apenas serviços ativos
-                List<ServicoProteticoDTO> servicosAtivos = servicos.stream()
-                        .filter(ServicoProteticoDTO::isAtivo)
-                        .collect(Collectors.toList());
+        List<CandidatoRankeadoDTO> ranking = rankingTerceirizacaoService.rankear(
+                tipoServico, origemProteticoId, buscarPreferido(origemProteticoId, tipoServico), k);
 
-                System.out.println("✅ Serviços ativos: " + servicosAtivos.size());
+        log.atDebug().addKeyValue("tipoServico", tipoServico).addKeyValue("origemProteticoId", origemProteticoId)
+                .log("{} candidatos ranqueados", ranking.size());
+        return ranking;
+    }
 
-                // Remove protético especificado (se houver)
-                if (excluirProteticoId != null) {
-                    final Long excluirIdFinal = excluirProteticoId;
-                    servicosAtivos = servicosAtivos.stream()
-                            .filter(s -> !excluirIdFinal.equals(s.getProteticoId()))
-                            .collect(Collectors.toList());
+    /**
+     * NOVO MÉTODO: Busca simplificada - apenas por tipo de serviço
+     */
+    public List<ProteticoSimplesDTO> buscarProteticosSimplesPorServico(String tipoServicoStr) {
+        // Converte String para TipoServico
+        TipoServico tipoServico = TipoServico.fromValue(tipoServicoStr);
+        if (tipoServico == null) {
+            throw new RuntimeException("Tipo de serviço inválido: " + tipoServicoStr);
+        }
 
-                    System.out.println("✅ Após exclusão: " + servicosAtivos.size());
-                }
+        // Responde a partir do índice em memória de terceirização
+        return buscarCandidatos(tipoServico, null);
+    }
 
-                // Converte para ProteticoSimplesDTO
-                return servicosAtivos.stream()
-                        .map(this::convertServicoParaProteticoSimples)
-                        .collect(Collectors.toList());
-            }
-        } catch (Exception e) {
-            System.out.println("❌ Erro no sistema de serviços: " + e.getMessage());
-            e.printStackTrace();
+    // ============ APOIO ÀS TRANSIÇÕES (COMPARE-AND-SET) ============
+
+    // Compare-and-set no registro mais recente do protético executor no pedido (não no último do pedido:
+    // depois de um broadcast ele pode ser a oferta retirada de outro laboratório). Se o registro não
+    // estiver no status esperado (dados legados fora de sincronia), o pedido continua sendo a fonte da verdade
+    private Long transicionarRegistro(Long pedidoId, Long proteticoId, StatusTerceirizacao esperado,
+                                      StatusTerceirizacao novo, LocalDateTime aceitoEm, LocalDateTime concluidoEm,
+                                      String nota) {
+        Long terceirizacaoId = terceirizacaoRepository.buscarUltimaIdPorPedidoEDestino(pedidoId, proteticoId);
+        if (terceirizacaoId != null &&
+                terceirizacaoRepository.transicionarStatus(terceirizacaoId, esperado, novo, aceitoEm, concluidoEm, nota) == 0) {
+            log.atWarn()
+                    .addKeyValue("pedidoId", pedidoId)
+                    .addKeyValue("terceirizacaoId", terceirizacaoId)
+                    .addKeyValue("transicao", () -> esperado + "->" + novo)
+                    .log("Registro de terceirização fora do status esperado; mantido como está");
         }
+        return terceirizacaoId;
+    }
 
-        // 2. Fallback: usa a lógica atualizada (baseada em serviços)
-        System.out.println("🔄 Usando fallback (busca por serviços)...");
-
-        // Cria cópias finais para usar nas lambdas
-        final TipoServico tipoFinal = tipoServico;
-        final Long excluirIdFinal = excluirProteticoId;
-
-        List<ProteticoSimplesDTO> resultado = proteticoRepository.findAll().stream()
-                .filter(p -> {
-                    // Verifica se tem serviços que permitem terceirização para este tipo
-                    return p.getServicosProtetico().stream()
-                            .anyMatch(servico ->
-                                    servico.isAtivo() &&
-                                            servico.getTipoServico() == tipoFinal &&
-                                            servico.getPoliticaExecucao() != null &&
-                                            (servico.getPoliticaExecucao() == PoliticaExecucaoServico.TERCEIRIZADO ||
-                                                    servico.getPoliticaExecucao() == PoliticaExecucaoServico.PROPRIO_OU_TERCEIRIZADO)  // ← CORREÇÃO
-                            );
-                })
-                .filter(p -> excluirIdFinal == null || !p.getId().equals(excluirIdFinal))
-                .map(p -> {
-                    ProteticoSimplesDTO dto = new ProteticoSimplesDTO();
-                    dto.setId(p.getId());
-                    dto.setNome(p.getNome());
-                    dto.setEmail(p.getEmail());
-                    dto.setEspecializacao(p.getEspecializacao());
-                    dto.setRegistroProfissional(p.getRegistroProfissional());
-                    dto.setNotaTerceirizacao(p.getNotaTerceirizacao());
-                    dto.setQuantidadeTerceirizacoes(p.getQuantidadeTerceirizacoes());
-                    dto.setTaxaMinimaTerceirizacao(p.getTaxaMinimaTerceirizacao());
-                    return dto;
-                })
-                .collect(Collectors.toList());
-
-        System.out.println("✅ Fallback encontrou: " + resultado.size() + " protéticos");
-        return resultado;
+    private TerceirizacaoResponseDTO responderTransicao(Long pedidoId, Long proteticoId, Long terceirizacaoId,
+                                                        StatusTerceirizacao de, StatusTerceirizacao para,
+                                                        String mensagem) {
+        eventPublisher.publishEvent(TransicaoStatusEvent.terceirizacao(de, para));
+
+        // Releitura única, já com os dois protéticos (os UPDATEs limparam o contexto de persistência)
+        Pedido pedido = pedidoRepository.buscarComProteticos(pedidoId)
+                .orElseThrow(() -> new RuntimeException("Pedido não encontrado: " + pedidoId));
+        TerceirizacaoResponseDTO response = new TerceirizacaoResponseDTO(pedido);
+        response.setId(terceirizacaoId);
+
+        registrarTransicao(mensagem, pedidoId, proteticoId, de, para);
+        return response;
     }
 
-    /**
-     * NOVO MÉTODO: Converte ServicoProteticoDTO para ProteticoSimplesDTO
-     */
-    private ProteticoSimplesDTO convertServicoParaProteticoSimples(ServicoProteticoDTO servico) {
-        ProteticoSimplesDTO dto = new ProteticoSimplesDTO();
+    // Recusa de uma oferta em broadcast: só a oferta deste laboratório sai de SOLICITADO; o pedido
+    // passa a RECUSADO apenas quando não resta nenhuma oferta aberta
+    private TerceirizacaoResponseDTO recusarOferta(Long pedidoId, Long proteticoId, LocalDateTime agora,
+                                                   String nota, Long versaoEsperada) {
+        if (pedidoRepository.travarOfertaAberta(pedidoId, versaoEsperada) == 0 ||
+                terceirizacaoRepository.transicionarOferta(pedidoId, proteticoId,
+                        StatusTerceirizacao.SOLICITADO, StatusTerceirizacao.RECUSADO, null, nota) == 0) {
+            throw falhaTransicao(pedidoId, proteticoId, StatusTerceirizacao.SOLICITADO, "recusada", versaoEsperada);
+        }
+        Long terceirizacaoId = terceirizacaoRepository.buscarUltimaIdPorPedidoEDestino(pedidoId, proteticoId);
 
-        // Informações do protético
-        dto.setId(servico.getProteticoId());
-        dto.setNome(servico.getProteticoNome());
+        if (pedidoRepository.encerrarOfertaSemAceite(pedidoId, agora) > 0) {
+            return responderTransicao(pedidoId, proteticoId, terceirizacaoId,
+                    StatusTerceirizacao.SOLICITADO, StatusTerceirizacao.RECUSADO, "Última oferta recusada");
+        }
 
-        // Informações do serviço
-        dto.setEspecializacao(servico.getDescricao());
+        log.atInfo().addKeyValue("pedidoId", pedidoId).addKeyValue("proteticoId", proteticoId)
+                .log("Oferta de terceirização recusada");
+        Pedido pedido = pedidoRepository.buscarComProteticos(pedidoId)
+                .orElseThrow(() -> new RuntimeException("Pedido não encontrado: " + pedidoId));
+        TerceirizacaoResponseDTO response = new TerceirizacaoResponseDTO(pedido);
+        response.setId(terceirizacaoId);
+        response.setStatus(StatusTerceirizacao.RECUSADO); // status da oferta; o pedido segue ofertado aos demais
+        return response;
+    }
 
-        // Busca informações adicionais do protético
-        try {
-            Protetico protetico = proteticoRepository.findById(servico.getProteticoId()).orElse(null);
-            if (protetico != null) {
-                dto.setEmail(protetico.getEmail());
-                dto.setRegistroProfissional(protetico.getRegistroProfissional());
-                dto.setNotaTerceirizacao(protetico.getNotaTerceirizacao());
-                dto.setQuantidadeTerceirizacoes(protetico.getQuantidadeTerceirizacoes());
-                dto.setTaxaMinimaTerceirizacao(protetico.getTaxaMinimaTerceirizacao());
+    // UPDATE sem linhas afetadas: uma leitura (só no caminho de erro) para explicar o motivo
+    private RuntimeException falhaTransicao(Long pedidoId, Long proteticoId, StatusTerceirizacao esperado,
+                                            String acao, Long versaoEsperada) {
+        Pedido pedido = pedidoRepository.findById(pedidoId)
+                .orElseThrow(() -> new RuntimeException("Pedido não encontrado: " + pedidoId));
+        ControleConcorrenciaService.verificarVersao("Pedido " + pedidoId, pedido.getVersao(), versaoEsperada);
+
+        boolean executor = pedido.getProteticoTerceirizado() != null &&
+                pedido.getProteticoTerceirizado().getId().equals(proteticoId);
+        if (!pedido.isTerceirizado() || !executor) {
+            if (!terceirizacaoRepository.existsByPedidoIdAndProteticoDestinoId(pedidoId, proteticoId)) {
+                return new RuntimeException("Esta terceirização não existe ou não é para você");
+            }
+            if (pedido.getProteticoTerceirizado() != null) {
+                return new RuntimeException("Esta oferta já foi aceita por outro laboratório");
+            }
+            if (pedido.getStatusTerceirizacao() != StatusTerceirizacao.SOLICITADO || esperado == StatusTerceirizacao.SOLICITADO) {
+                return new RuntimeException("Esta oferta não está mais disponível");
             }
-        } catch (Exception e) {
-            System.out.println("⚠️ Não foi possível buscar detalhes do protético: " + e.getMessage());
         }
+        if (pedido.getStatusTerceirizacao() != esperado) {
+            return new RuntimeException("Esta terceirização não pode ser " + acao + " no momento. Status atual: " +
+                    pedido.getStatusTerceirizacao());
+        }
+        // Estado compatível na releitura: outra requisição mudou e desfez o pedido entre o UPDATE e a leitura
+        return new ConflitoConcorrenciaException(
+                "Pedido " + pedidoId + " foi alterado por outra requisição. Recarregue e tente novamente.",
+                pedido.getVersao());
+    }
+
+    // ============ LOG ============
+
+    private static void registrarTransicao(String mensagem, Long pedidoId, Long proteticoId,
+                                           StatusTerceirizacao de, StatusTerceirizacao para) {
+        log.atInfo()
+                .addKeyValue("pedidoId", pedidoId)
+                .addKeyValue("proteticoId", proteticoId)
+                .addKeyValue("transicao", () -> de + "->" + para)
+                .log(mensagem);
+    }
 
-        return dto;
+    // Erros de regra de negócio são esperados: só a mensagem; a stack trace fica no nível DEBUG
+    private static void registrarErro(String mensagem, Long pedidoId, Long proteticoId, Exception e) {
+        log.atWarn()
+                .addKeyValue("pedidoId", pedidoId)
+                .addKeyValue("proteticoId", proteticoId)
+                .log("{}: {}", mensagem, e.getMessage());
+        log.debug(mensagem, e);
     }
 
     /**
-     * NOVO MÉTODO: Busca simplificada - apenas por tipo de serviço
+     * Os N melhores candidatos fora de {@code excluidos}: delega o Top-K ao RankingTerceirizacaoService,
+     * pedindo {@code limite + excluidos.size()} para que sobrem N depois de pular os excluídos.
+     * Antes da carga do índice, ficam os N primeiros de buscarCandidatos (consulta indexada, sem ranking).
      */
-    public List<ProteticoSimplesDTO> buscarProteticosSimplesPorServico(String tipoServicoStr) {
-        System.out.println("🔄 buscarProteticosSimplesPorServico: " + tipoServicoStr);
+    private List<ProteticoSimplesDTO> melhoresCandidatos(TipoServico tipoServico, Long origemProteticoId,
+                                                         Set<Long> excluidos, int limite) {
+        List<ProteticoSimplesDTO> candidatos;
+        if (!indiceTerceirizacaoService.isCarregado()) {
+            candidatos = buscarCandidatos(tipoServico, origemProteticoId);
+        } else {
+            // Pede ao ranking o bastante para sobrarem N depois de tirar os excluídos
+            List<CandidatoRankeadoDTO> ranking = rankingTerceirizacaoService.rankear(tipoServico, origemProteticoId,
+                    buscarPreferido(origemProteticoId, tipoServico), limite + excluidos.size());
+            candidatos = new ArrayList<>(ranking.size());
+            for (CandidatoRankeadoDTO candidato : ranking) {
+                candidatos.add(candidato.getProtetico());
+            }
+        }
 
-        // Converte String para TipoServico
-        TipoServico tipoServico = TipoServico.fromValue(tipoServicoStr);
-        if (tipoServico == null) {
-            throw new RuntimeException("Tipo de serviço inválido: " + tipoServicoStr);
+        List<ProteticoSimplesDTO> melhores = new ArrayList<>(limite);
+        for (ProteticoSimplesDTO candidato : candidatos) {
+            if (melhores.size() == limite) {
+                break;
+            }
+            if (!excluidos.contains(candidato.getId())) {
+                melhores.add(candidato);
+            }
         }
+        return melhores;
+    }
 
-        // Usa o sistema de serviços se disponível
-        try {
-            return listarProteticosPorServicoAtivos(tipoServicoStr, null);
-        } catch (Exception e) {
-            System.out.println("⚠️ Fallback para método original: " + e.getMessage());
-
-            // Fallback: busca todos e filtra por serviços
-            List<Protetico> todos = proteticoRepository.findAll();
-
-            // Cria cópia final para usar na lambda
-            final TipoServico tipoFinal = tipoServico;
-
-            return todos.stream()
-                    .filter(p -> {
-                        return p.getServicosProtetico().stream()
-                                .anyMatch(servico ->
-                                        servico.isAtivo() &&
-                                                servico.getTipoServico() == tipoFinal &&
-                                                servico.getPoliticaExecucao() != null &&
-                                                (servico.getPoliticaExecucao() == PoliticaExecucaoServico.TERCEIRIZADO ||
-                                                        servico.getPoliticaExecucao() == PoliticaExecucaoServico.PROPRIO_OU_TERCEIRIZADO)  // ← CORREÇÃO
-                                );
-                    })
-                    .map(p -> {
-                        ProteticoSimplesDTO dto = new ProteticoSimplesDTO();
-                        dto.setId(p.getId());
-                        dto.setNome(p.getNome());
-                        dto.setEmail(p.getEmail());
-                        dto.setEspecializacao(p.getEspecializacao());
-                        return dto;
-                    })
-                    .collect(Collectors.toList());
+    // terceirizadoPreferidoId do serviço equivalente no laboratório de origem
+    private Long buscarPreferido(Long origemProteticoId, TipoServico tipoServico) {
+        if (origemProteticoId == null) {
+            return null;
+        }
+        return servicoProteticoRepository.findByProteticoIdAndTipoServico(origemProteticoId, tipoServico)
+                .map(ServicoProtetico::getTerceirizadoPreferidoId)
+                .orElse(null);
+    }
+
+    /**
+     * Busca candidatos à terceirização para um tipo de serviço:
+     * serviço ativo com política TERCEIRIZADO ou PROPRIO_OU_TERCEIRIZADO.
+     * Usa o índice em memória; antes da carga inicial, cai na consulta indexada.
+     */
+    private List<ProteticoSimplesDTO> buscarCandidatos(TipoServico tipoServico, Long excluirProteticoId) {
+        if (indiceTerceirizacaoService.isCarregado()) {
+            return indiceTerceirizacaoService.listar(tipoServico, excluirProteticoId);
         }
+        return servicoProteticoRepository.buscarCandidatosTerceirizacao(
+                tipoServico, POLITICAS_TERCEIRIZACAO, excluirProteticoId);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,36 @@
+package com.proteticos.ordermanagement.service;
+
+import com.proteticos.ordermanagement.model.StatusPedido;
+import com.proteticos.ordermanagement.model.StatusTerceirizacao;
+
+/**
+ * Publicado a cada mudança de status de pedido ou de terceirização.
+ * Consumido após o commit, para que só transições efetivadas sejam contadas.
+ * {@code de} é null quando o registro acabou de ser criado.
+ */
+public class TransicaoStatusEvent {
+
+    public enum Tipo { PEDIDO, TERCEIRIZACAO }
+
+    private final Tipo tipo;
+    private final Enum<?> de;
+    private final Enum<?> para;
+
+    private TransicaoStatusEvent(Tipo tipo, Enum<?> de, Enum<?> para) {
+        this.tipo = tipo;
+        this.de = de;
+        this.para = para;
+    }
+
+    public static TransicaoStatusEvent pedido(StatusPedido de, StatusPedido para) {
+        return new TransicaoStatusEvent(Tipo.PEDIDO, de, para);
+    }
+
+    public static TransicaoStatusEvent terceirizacao(StatusTerceirizacao de, StatusTerceirizacao para) {
+        return new TransicaoStatusEvent(Tipo.TERCEIRIZACAO, de, para);
+    }
+
+    public Tipo getTipo() { return tipo; }
+    public Enum<?> getDe() { return de; }
+    public Enum<?> getPara() { return para; }
+}
@@ -0,0 +1,191 @@
+-- Esquema inicial: o mesmo que o Hibernate gerava com ddl-auto=update a partir das entidades.
+-- Bancos já existentes não executam este script: o Flyway marca a versão 1 como baseline
+-- (spring.flyway.baseline-on-migrate) e o V2 completa o que pode faltar neles.
+
+-- ============ USUÁRIOS (herança JOINED) ============
+
+CREATE TABLE usuarios (
+    id               bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    nome             varchar(255) NOT NULL,
+    email            varchar(255) NOT NULL,
+    senha            varchar(255) NOT NULL,
+    tipo             varchar(255) NOT NULL,
+    ativo            boolean      NOT NULL DEFAULT true,
+    data_criacao     timestamp(6),
+    data_atualizacao timestamp(6),
+    CONSTRAINT uk_usuarios_email UNIQUE (email)
+);
+
+CREATE TABLE dentistas (
+    id              bigint PRIMARY KEY,
+    cro             varchar(255),
+    especialidade   varchar(255),
+    telefone        varchar(255),
+    enderecoClinica varchar(255),
+    CONSTRAINT fk_dentistas_usuario FOREIGN KEY (id) REFERENCES usuarios (id)
+);
+
+CREATE TABLE proteticos (
+    usuario_id                bigint PRIMARY KEY,
+    telefone                  varchar(255),
+    registro_profissional     varchar(255),
+    especializacao            varchar(255),
+    taxa_minima_terceirizacao numeric(5, 2),
+    nota_terceirizacao        numeric(3, 2),
+    quantidade_terceirizacoes integer,
+    CONSTRAINT uk_proteticos_registro_profissional UNIQUE (registro_profissional),
+    CONSTRAINT fk_proteticos_usuario FOREIGN KEY (usuario_id) REFERENCES usuarios (id)
+);
+
+CREATE TABLE protetico_especialidades_terceirizacao (
+    protetico_id bigint       NOT NULL,
+    especialidade varchar(255) NOT NULL,
+    PRIMARY KEY (protetico_id, especialidade),
+    CONSTRAINT fk_especialidades_protetico FOREIGN KEY (protetico_id) REFERENCES proteticos (usuario_id)
+);
+
+-- ============ SERVIÇOS E TEMPLATES ============
+
+CREATE TABLE servicos_protetico (
+    id                        bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    protetico_id              bigint         NOT NULL,
+    tipo_servico              varchar(255)   NOT NULL,
+    preco                     numeric(10, 2) NOT NULL,
+    ativo                     boolean        NOT NULL DEFAULT true,
+    descricao                 varchar(500),
+    tempo_medio_horas         integer,
+    politica_execucao         varchar(255)   NOT NULL,
+    preco_terceirizado        numeric(10, 2),
+    prazo_terceirizado_horas  integer,
+    terceirizado_preferido_id bigint,
+    observacoes_terceirizacao varchar(1000),
+    data_criacao              timestamp(6),
+    data_atualizacao          timestamp(6),
+    CONSTRAINT uk_servicos_protetico_protetico_tipo UNIQUE (protetico_id, tipo_servico),
+    CONSTRAINT fk_servicos_protetico_protetico FOREIGN KEY (protetico_id) REFERENCES proteticos (usuario_id)
+);
+
+CREATE INDEX idx_servicos_protetico_candidatos
+    ON servicos_protetico (tipo_servico, politica_execucao, ativo, protetico_id);
+
+-- protetico_id nulo = template padrão do sistema; preenchido = override do laboratório (sem FK na entidade)
+CREATE TABLE template_etapa (
+    id                     bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    tipo_servico           varchar(255) NOT NULL,
+    protetico_id           bigint,
+    ordem                  integer      NOT NULL,
+    nome_etapa             varchar(255) NOT NULL,
+    duracao_estimada_horas integer      NOT NULL,
+    ativo                  boolean      NOT NULL DEFAULT true,
+    CONSTRAINT uk_template_etapa_tipo_protetico_ordem UNIQUE (tipo_servico, protetico_id, ordem)
+);
+
+CREATE INDEX idx_template_etapa_tipo_protetico ON template_etapa (tipo_servico, protetico_id, ordem);
+
+-- ============ PEDIDOS ============
+
+CREATE TABLE pedidos (
+    id                             bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    versao                         bigint       NOT NULL DEFAULT 0,
+    codigo                         varchar(255),
+    dentista_id                    bigint       NOT NULL,
+    protetico_id                   bigint       NOT NULL,
+    tipoServico                    varchar(255) NOT NULL,
+    informacoesDetalhadas          varchar(255),
+    valorCobrado                   numeric(10, 2),
+    dataEntrada                    date,
+    dataPrevistaEntrega            date,
+    dataEntrega                    date,
+    dataCancelamento               date,
+    status_pedido                  varchar(50)  NOT NULL,
+    dataCriacao                    timestamp(6),
+    dataUltimaAtualizacao          timestamp(6),
+    protetico_terceirizado_id      bigint,
+    percentual_terceirizado        numeric(5, 2),
+    valor_terceirizado             numeric(10, 2),
+    status_terceirizacao           varchar(255),
+    tipo_terceirizacao             varchar(255),
+    motivo_terceirizacao           text,
+    data_solicitacao_terceirizacao timestamp(6),
+    data_resposta_terceirizacao    timestamp(6),
+    data_conclusao_terceirizacao   timestamp(6),
+    CONSTRAINT uk_pedidos_codigo UNIQUE (codigo),
+    CONSTRAINT fk_pedidos_dentista FOREIGN KEY (dentista_id) REFERENCES dentistas (id),
+    CONSTRAINT fk_pedidos_protetico FOREIGN KEY (protetico_id) REFERENCES proteticos (usuario_id),
+    CONSTRAINT fk_pedidos_protetico_terceirizado FOREIGN KEY (protetico_terceirizado_id)
+        REFERENCES proteticos (usuario_id)
+);
+
+-- Paginação por cursor (dataCriacao DESC, id DESC), com e sem filtro (declarados em Pedido)
+CREATE INDEX idx_pedidos_data_criacao_id ON pedidos (dataCriacao, id);
+CREATE INDEX idx_pedidos_protetico_data_criacao ON pedidos (protetico_id, dataCriacao, id);
+CREATE INDEX idx_pedidos_dentista_data_criacao ON pedidos (dentista_id, dataCriacao, id);
+CREATE INDEX idx_pedidos_status_data_criacao ON pedidos (status_pedido, dataCriacao, id);
+
+-- Ids em blocos de 50 (allocationSize de EtapaPedido): INSERTs das etapas em batch JDBC
+CREATE SEQUENCE etapa_pedido_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE etapa_pedido (
+    id               bigint       PRIMARY KEY,
+    versao           bigint       NOT NULL DEFAULT 0,
+    pedido_id        bigint       NOT NULL,
+    nome_etapa       varchar(255) NOT NULL,
+    observacoes      varchar(1000),
+    status           varchar(255) NOT NULL,
+    ordem            integer      NOT NULL,
+    data_criacao     timestamp(6) NOT NULL,
+    data_atualizacao timestamp(6),
+    responsavel_id   bigint,
+    prazo_estimado   timestamp(6),
+    data_inicio      timestamp(6),
+    data_conclusao   timestamp(6),
+    data_prevista    date,
+    horas_estimadas  integer,
+    CONSTRAINT fk_etapa_pedido_pedido FOREIGN KEY (pedido_id) REFERENCES pedidos (id),
+    CONSTRAINT fk_etapa_pedido_responsavel FOREIGN KEY (responsavel_id) REFERENCES proteticos (usuario_id)
+);
+
+-- ============ TERCEIRIZAÇÕES ============
+
+CREATE TABLE terceirizacoes (
+    id                   bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    versao               bigint NOT NULL DEFAULT 0,
+    protetico_origem_id  bigint,
+    protetico_destino_id bigint,
+    pedido_id            bigint,
+    status               varchar(255),
+    servicoSolicitado    varchar(255),
+    observacoes          varchar(255),
+    valorCombinado       double precision,
+    solicitadoEm         timestamp(6),
+    aceitoEm             timestamp(6),
+    concluidoEm          timestamp(6),
+    CONSTRAINT fk_terceirizacoes_origem FOREIGN KEY (protetico_origem_id) REFERENCES proteticos (usuario_id),
+    CONSTRAINT fk_terceirizacoes_destino FOREIGN KEY (protetico_destino_id) REFERENCES proteticos (usuario_id),
+    CONSTRAINT fk_terceirizacoes_pedido FOREIGN KEY (pedido_id) REFERENCES pedidos (id)
+);
+
+-- ============ CONVITES ============
+
+CREATE SEQUENCE convites_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE convites (
+    id               bigint       PRIMARY KEY,
+    codigo           varchar(255) NOT NULL,
+    tipo             varchar(255) NOT NULL,
+    emailConvidado   varchar(255),
+    criado_por_id    bigint       NOT NULL,
+    criadoEm         timestamp(6) NOT NULL,
+    expiraEm         timestamp(6) NOT NULL,
+    utilizado        boolean      NOT NULL DEFAULT false,
+    utilizadoEm      timestamp(6),
+    utilizado_por_id bigint,
+    CONSTRAINT uk_convites_codigo UNIQUE (codigo),
+    CONSTRAINT fk_convites_criado_por FOREIGN KEY (criado_por_id) REFERENCES usuarios (id),
+    CONSTRAINT fk_convites_utilizado_por FOREIGN KEY (utilizado_por_id) REFERENCES usuarios (id)
+);
+
+-- ============ CÓDIGOS DE PEDIDO ============
+
+-- Um valor por inicialização identifica o nó nos códigos de pedido (CodigoPedidoConfig)
+CREATE SEQUENCE pedido_codigo_no_seq;
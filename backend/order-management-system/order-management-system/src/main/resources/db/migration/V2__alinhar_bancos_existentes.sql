@@ -0,0 +1,41 @@
+-- Bancos criados pelo ddl-auto=update (baseline na versão 1) podem vir de versões anteriores da
+-- aplicação: completa tabelas, colunas e sequences que o Hibernate acrescentava na inicialização.
+-- Idempotente; num banco criado pelo V1 não altera nada. Os índices dos @Index das entidades
+-- ficam no V3 (CONCURRENTLY, sem bloquear escritas em tabelas já populadas).
+
+-- Templates de etapas por tipo de serviço (mesma definição do V1)
+CREATE TABLE IF NOT EXISTS template_etapa (
+    id                     bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    tipo_servico           varchar(255) NOT NULL,
+    protetico_id           bigint,
+    ordem                  integer      NOT NULL,
+    nome_etapa             varchar(255) NOT NULL,
+    duracao_estimada_horas integer      NOT NULL,
+    ativo                  boolean      NOT NULL DEFAULT true,
+    CONSTRAINT uk_template_etapa_tipo_protetico_ordem UNIQUE (tipo_servico, protetico_id, ordem)
+);
+
+CREATE INDEX IF NOT EXISTS idx_template_etapa_tipo_protetico ON template_etapa (tipo_servico, protetico_id, ordem);
+
+-- Controle otimista de concorrência (@Version)
+ALTER TABLE pedidos ADD COLUMN IF NOT EXISTS versao bigint NOT NULL DEFAULT 0;
+ALTER TABLE etapa_pedido ADD COLUMN IF NOT EXISTS versao bigint NOT NULL DEFAULT 0;
+ALTER TABLE terceirizacoes ADD COLUMN IF NOT EXISTS versao bigint NOT NULL DEFAULT 0;
+
+-- Agenda de produção e estatísticas de duração das etapas
+ALTER TABLE etapa_pedido ADD COLUMN IF NOT EXISTS horas_estimadas integer;
+ALTER TABLE etapa_pedido ADD COLUMN IF NOT EXISTS data_inicio timestamp(6);
+
+CREATE SEQUENCE IF NOT EXISTS etapa_pedido_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS convites_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS pedido_codigo_no_seq;
+
+-- etapa_pedido e convites já tiveram ids IDENTITY: a sequence começa depois do maior id gravado.
+-- Só avança, nunca recua (o que antes o SequenciaConfig fazia a cada inicialização)
+SELECT setval('etapa_pedido_seq', GREATEST((SELECT MAX(id) FROM etapa_pedido),
+                                           (SELECT last_value FROM etapa_pedido_seq)))
+WHERE EXISTS (SELECT 1 FROM etapa_pedido);
+
+SELECT setval('convites_seq', GREATEST((SELECT MAX(id) FROM convites),
+                                       (SELECT last_value FROM convites_seq)))
+WHERE EXISTS (SELECT 1 FROM convites);
@@ -0,0 +1,136 @@
+-- Índices das consultas dos repositórios (finders derivados e @Query), incluindo os parciais que o
+-- @Index do JPA não declara. Cada índice cita as consultas que atende.
+--
+-- CONCURRENTLY: não bloqueia escritas em bancos já populados. Só comandos não transacionais neste
+-- script, então o Flyway o executa fora de transação. Se um CREATE falhar no meio, o índice fica
+-- INVALID e o IF NOT EXISTS o pularia: remover com DROP INDEX CONCURRENTLY antes de repetir.
+--
+-- Sem índice de propósito: usuarios.tipo/ativo (poucos valores, tabela pequena) e
+-- proteticos.especializacao/nome (busca por LIKE '%...%').
+
+-- ============ PEDIDOS ============
+
+-- @Index de Pedido (paginação por cursor em dataCriacao, id), já criados pelo V1 num banco novo.
+-- Bancos com baseline na versão 1 vieram do ddl-auto=update, que não cria índices
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_pedidos_data_criacao_id
+    ON pedidos (dataCriacao, id);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_pedidos_protetico_data_criacao
+    ON pedidos (protetico_id, dataCriacao, id);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_pedidos_dentista_data_criacao
+    ON pedidos (dentista_id, dataCriacao, id);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_pedidos_status_data_criacao
+    ON pedidos (status_pedido, dataCriacao, id);
+
+-- PedidoRepository.listarPrazosAbertos (MonitorAtrasosService): só pedidos abertos com prazo
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_pedidos_abertos_prazo
+    ON pedidos (dataPrevistaEntrega, id)
+    WHERE dataPrevistaEntrega IS NOT NULL AND status_pedido NOT IN ('FINALIZADO', 'CANCELADO');
+
+-- findByTipoServico; paginação por cursor com filtro de tipo (mesmo formato dos índices de Pedido)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_pedidos_tipo_servico_data_criacao
+    ON pedidos (tipoServico, dataCriacao, id);
+
+-- findByDataPrevistaEntregaBeforeAndStatusPedidoNot, findByDataPrevistaEntregaAndStatusPedido
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_pedidos_prazo_status
+    ON pedidos (dataPrevistaEntrega, status_pedido);
+
+-- findByProteticoTerceirizadoId, contarTerceirizacoesAbertasPorExecutor,
+-- listarTerceirizadosPorProtetico (lado executor) e a FK; só pedidos com executor
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_pedidos_terceirizado_status
+    ON pedidos (protetico_terceirizado_id, status_terceirizacao)
+    WHERE protetico_terceirizado_id IS NOT NULL;
+
+-- findComTerceirizacao, findByStatusTerceirizacao, countByStatusTerceirizacao (backlog de MetricasService)
+-- (exceto NAO_TERCEIRIZADO, a maioria da tabela)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_pedidos_status_terceirizacao
+    ON pedidos (status_terceirizacao)
+    WHERE status_terceirizacao <> 'NAO_TERCEIRIZADO';
+
+-- ============ ETAPAS ============
+
+-- EtapaPedidoRepository.listarPrazosAbertos (MonitorAtrasosService): só etapas abertas com prazo
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_etapa_pedido_abertas_prazo
+    ON etapa_pedido (data_prevista, id)
+    WHERE data_prevista IS NOT NULL AND status NOT IN ('CONCLUIDA', 'CANCELADA');
+
+-- findByPedidoId, findByPedidoIdOrderByOrdemAsc, findByPedidoIdAndOrdem,
+-- listarHistoricoDuracoes (JOIN por pedido) e a FK
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_etapa_pedido_pedido_ordem
+    ON etapa_pedido (pedido_id, ordem);
+
+-- listarEtapasRestantes (previsão de entrega): só etapas PENDENTE/EM_ANDAMENTO
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_etapa_pedido_restantes
+    ON etapa_pedido (pedido_id, ordem)
+    WHERE status IN ('PENDENTE', 'EM_ANDAMENTO');
+
+-- listarReservasAbertas (carga da agenda de produção), já na ordem da consulta
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_etapa_pedido_reservas_abertas
+    ON etapa_pedido (prazo_estimado, id)
+    WHERE status = 'EM_ANDAMENTO' AND responsavel_id IS NOT NULL AND horas_estimadas IS NOT NULL;
+
+-- findByResponsavelId e a FK
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_etapa_pedido_responsavel
+    ON etapa_pedido (responsavel_id);
+
+-- findByStatus
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_etapa_pedido_status
+    ON etapa_pedido (status);
+
+-- findEtapasAtrasadas, findByDataPrevistaAndStatusNot
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_etapa_pedido_prazo_status
+    ON etapa_pedido (data_prevista, status);
+
+-- ============ TERCEIRIZAÇÕES ============
+
+-- findByPedidoId, findByPedidoIdIn, findTopByPedidoId, findFirstByPedidoIdOrderByIdDesc,
+-- buscarUltimaIdPorPedido, buscarUltimaTerceirizacaoIdPorPedido e a FK
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_terceirizacoes_pedido_id
+    ON terceirizacoes (pedido_id, id);
+
+-- Ofertas por laboratório (compare-and-set): findByPedidoIdAndProteticoDestinoId,
+-- existsByPedidoIdAndProteticoDestinoId, buscarUltimaIdPorPedidoEDestino, transicionarOferta,
+-- EXISTS de PedidoRepository.aceitarOfertaAberta
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_terceirizacoes_pedido_destino_status
+    ON terceirizacoes (pedido_id, protetico_destino_id, status);
+
+-- findByProteticoDestinoId, findByProteticoDestinoIdAndStatus, listarOfertasAbertas (ORDER BY id) e a FK
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_terceirizacoes_destino_status
+    ON terceirizacoes (protetico_destino_id, status, id);
+
+-- findByProteticoOrigemId e a FK
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_terceirizacoes_origem
+    ON terceirizacoes (protetico_origem_id);
+
+-- findByStatus, countByStatus, findByStatusIn
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_terceirizacoes_status
+    ON terceirizacoes (status);
+
+-- ============ CONVITES ============
+
+-- findByCriadoPorId, countByCriadoPorIdAndUtilizadoFalse (só no índice) e a FK.
+-- findByCodigo/findByCodigoAndUtilizadoFalse/existsByCodigo usam uk_convites_codigo
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_convites_criado_por_utilizado
+    ON convites (criado_por_id, utilizado);
+
+-- FK utilizado_por_id (exclusão de usuário); só convites já utilizados
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_convites_utilizado_por
+    ON convites (utilizado_por_id)
+    WHERE utilizado_por_id IS NOT NULL;
+
+-- ============ CADASTROS ============
+
+-- @Index de ServicoProtetico (busca de candidatos à terceirização), já criado pelo V1 num banco novo
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_servicos_protetico_candidatos
+    ON servicos_protetico (tipo_servico, politica_execucao, ativo, protetico_id);
+
+-- DentistaRepository.findByCro
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_dentistas_cro
+    ON dentistas (cro);
+
+-- ServicoProteticoRepository.findByTerceirizadoPreferidoId
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_servicos_protetico_preferido
+    ON servicos_protetico (terceirizado_preferido_id)
+    WHERE terceirizado_preferido_id IS NOT NULL;
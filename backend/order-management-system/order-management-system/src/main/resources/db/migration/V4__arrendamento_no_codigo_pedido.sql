@@ -0,0 +1,15 @@
+-- Identificador de nó dos códigos de pedido por arrendamento (CodigoPedidoConfig), no lugar de
+-- nextval('pedido_codigo_no_seq') % 1000, que repete o nó a cada 1000 inicializações.
+-- Uma linha por nó possível (0..999, GeradorCodigoPedido.MAXIMO_NOS): a instância em execução
+-- grava nela o seu identificador e renova renovado_em; linha liberada (nula) ou sem renovação
+-- dentro da validade pode ser arrendada por outra instância.
+--
+-- pedido_codigo_no_seq fica: instâncias da versão anterior ainda a usam durante a troca de versão.
+
+CREATE TABLE no_codigo_pedido (
+    numero      integer PRIMARY KEY,
+    instancia   varchar(64),
+    renovado_em timestamp(6)
+);
+
+INSERT INTO no_codigo_pedido (numero) SELECT generate_series(0, 999);
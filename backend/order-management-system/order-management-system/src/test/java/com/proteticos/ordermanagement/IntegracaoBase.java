@@ -0,0 +1,47 @@
+package com.proteticos.ordermanagement;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Base dos testes de integração: a aplicação inteira, em porta aleatória, contra um PostgreSQL
+ * embutido com o esquema das migrações do Flyway e a massa do profile "sintetico" reduzida
+ * (application-teste.properties).
+ *
+ * O banco sobe uma vez por JVM e é compartilhado entre as classes de teste; o gerador pula a
+ * carga quando os dados já existem, então contextos com configurações diferentes usam a mesma massa.
+ * O contexto fecha ao fim de cada classe, com o banco ainda no ar: no desligamento da JVM o hook
+ * do banco embutido correria junto com o do Spring e o @PreDestroy que libera o nó dos códigos de
+ * pedido ficaria esperando conexão.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({"sintetico", "teste"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public abstract class IntegracaoBase {
+
+    private static final EmbeddedPostgres BANCO = iniciarBanco();
+
+    @DynamicPropertySource
+    static void configurarBanco(DynamicPropertyRegistry registro) {
+        registro.add("spring.datasource.url",
+                () -> "jdbc:postgresql://localhost:" + BANCO.getPort() + "/postgres?reWriteBatchedInserts=true");
+        registro.add("spring.datasource.username", () -> "postgres");
+        registro.add("spring.datasource.password", () -> "postgres");
+    }
+
+    // O próprio EmbeddedPostgres encerra o processo no desligamento da JVM
+    private static EmbeddedPostgres iniciarBanco() {
+        try {
+            return EmbeddedPostgres.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível iniciar o PostgreSQL embutido", e);
+        }
+    }
+}
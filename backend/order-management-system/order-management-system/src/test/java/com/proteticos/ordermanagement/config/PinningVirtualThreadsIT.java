@@ -0,0 +1,162 @@
+package com.proteticos.ordermanagement.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.proteticos.ordermanagement.IntegracaoBase;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Requisições em virtual threads (configuração de produção) sob concorrência maior que o pool de
+ * conexões, com o JFR gravando jdk.VirtualThreadPinned sem limite de duração: nenhuma virtual
+ * thread pode ficar presa à carrier thread (ver DiagnosticoPinningConfig). Vale também para pinning
+ * em bibliotecas: com a pilha do Spring/Hibernate a frame da aplicação pode nem estar no evento.
+ *
+ * Também confere que, nessas threads, o orçamento de bytes aparece como não medido em vez de
+ * passar como cumprido (RegistroOrcamentos).
+ */
+@TestPropertySource(properties = "spring.threads.virtual.enabled=true")
+class PinningVirtualThreadsIT extends IntegracaoBase {
+
+    private static final Logger log = LoggerFactory.getLogger(PinningVirtualThreadsIT.class);
+
+    private static final String EVENTO_PINNING = "jdk.VirtualThreadPinned";
+
+    // Bem acima do pool do Hikari (10): requisições esperam conexão, e é aí que o pinning apareceria
+    private static final int CLIENTES = 32;
+    private static final int RODADAS = 10;
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private RegistroOrcamentos registro;
+
+    @Test
+    void requisicoesNaoPrendemVirtualThreadsNaCarrier() throws Exception {
+        long proteticoId = jdbcTemplate.queryForObject(
+                "SELECT protetico_id FROM pedidos GROUP BY protetico_id ORDER BY COUNT(*) DESC LIMIT 1", Long.class);
+        long dentistaId = jdbcTemplate.queryForObject(
+                "SELECT dentista_id FROM pedidos GROUP BY dentista_id ORDER BY COUNT(*) DESC LIMIT 1", Long.class);
+        String tipoServico = jdbcTemplate.queryForObject(
+                "SELECT tipo_servico FROM servicos_protetico WHERE protetico_id = ? ORDER BY id LIMIT 1",
+                String.class, proteticoId);
+
+        List<String> pinning = new CopyOnWriteArrayList<>();
+
+        try (RecordingStream stream = new RecordingStream()) {
+            stream.enable(EVENTO_PINNING).withThreshold(Duration.ZERO).withStackTrace();
+            stream.onEvent(EVENTO_PINNING, evento -> {
+                String pilha = pilha(evento);
+                log.atWarn().log("Virtual thread presa à carrier thread:\n{}", pilha);
+                pinning.add(pilha);
+            });
+            stream.startAsync();
+
+            ExecutorService clientes = Executors.newFixedThreadPool(CLIENTES);
+            try {
+                List<Future<?>> execucoes = new ArrayList<>();
+                for (int c = 0; c < CLIENTES; c++) {
+                    execucoes.add(clientes.submit(() -> {
+                        for (int i = 0; i < RODADAS; i++) {
+                            rodada(proteticoId, dentistaId, tipoServico);
+                        }
+                    }));
+                }
+                for (Future<?> execucao : execucoes) {
+                    execucao.get();
+                }
+            } finally {
+                clientes.shutdownNow();
+            }
+
+            // Entrega os eventos ainda no buffer antes de encerrar
+            stream.stop();
+        }
+
+        assertThat(pinning).as("Virtual threads presas à carrier thread").isEmpty();
+    }
+
+    @Test
+    void alocacaoEmVirtualThreadFicaComoNaoMedida() {
+        registro.limpar();
+        chamar(HttpMethod.GET, "/api/pedidos/pagina?limite=20", null);
+
+        Map<String, Object> resumo = registro.relatorio().get("GET /api/pedidos/pagina");
+        assertThat(resumo)
+                .containsEntry("bytesMedidos", false)
+                .containsEntry("violacoesBytes", 0L);
+    }
+
+    // Leituras, login (BCrypt) e o ciclo de um pedido novo até a finalização
+    private void rodada(long proteticoId, long dentistaId, String tipoServico) {
+        chamar(HttpMethod.GET, "/api/pedidos/pagina?proteticoId=" + proteticoId, null);
+        chamar(HttpMethod.GET, "/api/pedidos/atrasados", null);
+        chamar(HttpMethod.GET, "/api/terceirizacoes/ranking?tipoServico=" + tipoServico.toLowerCase(), null);
+        chamar(HttpMethod.POST, "/api/usuarios/login", Map.of("email", "dentista1@sintetico.local", "senha", "123456"));
+
+        Map<String, Object> request = new HashMap<>();
+        request.put("dentistaId", dentistaId);
+        request.put("proteticoId", proteticoId);
+        request.put("tipoServico", tipoServico);
+        request.put("valorCobrado", 600);
+        request.put("dataPrevistaEntrega", LocalDate.now().plusDays(15).toString());
+        long pedidoId = chamar(HttpMethod.POST, "/api/pedidos/novo", request).path("id").asLong();
+
+        chamar(HttpMethod.PUT, "/api/pedidos/" + pedidoId + "/aprovar", null);
+        chamar(HttpMethod.PUT, "/api/pedidos/" + pedidoId + "/iniciar-producao", null);
+        chamar(HttpMethod.PUT, "/api/pedidos/" + pedidoId + "/finalizar", null);
+    }
+
+    private JsonNode chamar(HttpMethod metodo, String url, Object corpo) {
+        ResponseEntity<JsonNode> resposta = rest.exchange(url, metodo,
+                corpo != null ? new HttpEntity<>(corpo) : HttpEntity.EMPTY, JsonNode.class);
+        assertThat(resposta.getStatusCode().is2xxSuccessful())
+                .as("%s %s -> %s %s", metodo, url, resposta.getStatusCode(), resposta.getBody())
+                .isTrue();
+        return resposta.getBody();
+    }
+
+    private static String pilha(RecordedEvent evento) {
+        if (evento.getStackTrace() == null) {
+            return "    (sem pilha)";
+        }
+        StringBuilder texto = new StringBuilder();
+        for (RecordedFrame frame : evento.getStackTrace().getFrames()) {
+            texto.append("    at ")
+                    .append(frame.getMethod().getType().getName())
+                    .append('.')
+                    .append(frame.getMethod().getName())
+                    .append(':')
+                    .append(frame.getLineNumber())
+                    .append('\n');
+        }
+        return texto.toString();
+    }
+}
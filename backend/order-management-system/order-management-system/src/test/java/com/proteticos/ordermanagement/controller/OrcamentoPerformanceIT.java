@@ -0,0 +1,336 @@
+package com.proteticos.ordermanagement.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.proteticos.ordermanagement.IntegracaoBase;
+import com.proteticos.ordermanagement.config.OrcamentoPerformance;
+import com.proteticos.ordermanagement.config.RegistroOrcamentos;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Orçamentos de performance (@OrcamentoPerformance) dos controladores de pedidos, terceirizações,
+ * protéticos e usuários, cobrados no build: todo endpoint precisa declarar orçamento e, exercitado
+ * contra a massa sintética, ficar dentro dele (comandos SQL, p95 e bytes alocados por requisição).
+ * Nas listagens sem limite o p95 só é relatado (p95Informativo) e o de /pagina vale por elas.
+ *
+ * As leituras são repetidas o bastante para o p95 ser cobrado (mínimo de amostras do
+ * RegistroOrcamentos); as escritas percorrem o fluxo completo de pedido e terceirização, um
+ * pedido novo por rodada. Uma rodada de aquecimento é descartada antes da medição.
+ */
+class OrcamentoPerformanceIT extends IntegracaoBase {
+
+    private static final Logger log = LoggerFactory.getLogger(OrcamentoPerformanceIT.class);
+
+    private static final List<String> PREFIXOS =
+            List.of("/api/pedidos", "/api/terceirizacoes", "/api/proteticos", "/api/usuarios");
+
+    private static final int RODADAS_AQUECIMENTO = 5;
+    private static final int RODADAS_MEDICAO = 40;
+
+    private static final String SENHA_SINTETICA = "123456";
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RegistroOrcamentos registro;
+
+    @Autowired
+    @Qualifier("requestMappingHandlerMapping")
+    private RequestMappingHandlerMapping mapeamentos;
+
+    private final AtomicInteger sequencia = new AtomicInteger();
+
+    @Test
+    void todoEndpointDeclaraOrcamento() {
+        List<String> semOrcamento = endpointsCobertos().entrySet().stream()
+                .filter(e -> !e.getValue().hasMethodAnnotation(OrcamentoPerformance.class))
+                .map(Map.Entry::getKey)
+                .toList();
+
+        assertThat(semOrcamento).as("Endpoints sem @OrcamentoPerformance").isEmpty();
+    }
+
+    @Test
+    void endpointsFicamDentroDoOrcamento() {
+        Massa massa = carregarMassa();
+
+        exercitar(massa, RODADAS_AQUECIMENTO);
+        registro.limpar();
+        exercitar(massa, RODADAS_MEDICAO);
+
+        Map<String, Map<String, Object>> relatorio = new TreeMap<>(registro.relatorio());
+        relatorio.forEach((endpoint, resumo) -> log.atInfo()
+                .addKeyValue("endpoint", endpoint)
+                .addKeyValue("resumo", resumo)
+                .log("Orçamento de performance"));
+
+        assertThat(relatorio.keySet()).as("Endpoints não exercitados").containsAll(endpointsCobertos().keySet());
+
+        List<String> estourados = new ArrayList<>();
+        List<String> semMedicaoBytes = new ArrayList<>();
+        relatorio.forEach((endpoint, resumo) -> {
+            if (!Boolean.TRUE.equals(resumo.get("dentroDoOrcamento"))) {
+                estourados.add(endpoint + " " + resumo);
+            }
+            if (!Boolean.TRUE.equals(resumo.get("bytesMedidos"))) {
+                semMedicaoBytes.add(endpoint);
+            }
+        });
+        assertThat(estourados).as("Endpoints fora do orçamento").isEmpty();
+        // Orçamento maxBytes que passou sem ser verificado não conta como cumprido
+        assertThat(semMedicaoBytes).as("Endpoints com alocação não medida").isEmpty();
+    }
+
+    // ============ ROTEIRO ============
+
+    private void exercitar(Massa massa, int rodadas) {
+        for (int i = 0; i < rodadas; i++) {
+            lerPedidos(massa);
+            lerTerceirizacoes(massa);
+            lerProteticosEUsuarios(massa);
+            fluxoTerceirizacaoDireta(massa, massa.destinos.get(i % massa.destinos.size()));
+            fluxoCancelamento(massa);
+            fluxoOfertaRecusada(massa);
+            cadastros();
+        }
+    }
+
+    private void lerPedidos(Massa massa) {
+        chamar(HttpMethod.GET, "/api/pedidos", null);
+        // Mesmos filtros das listagens sem limite: é aqui que o p95 delas é cobrado
+        chamar(HttpMethod.GET, "/api/pedidos/pagina", null);
+        chamar(HttpMethod.GET, "/api/pedidos/pagina?proteticoId=" + massa.proteticoId, null);
+        chamar(HttpMethod.GET, "/api/pedidos/pagina?dentistaId=" + massa.dentistaId, null);
+        chamar(HttpMethod.GET, "/api/pedidos/pagina?status=EM_PRODUCAO", null);
+        chamar(HttpMethod.GET, "/api/pedidos/atrasados", null);
+        chamar(HttpMethod.GET, "/api/pedidos/previsoes", null);
+        chamar(HttpMethod.GET, "/api/pedidos/" + massa.pedidoId + "/previsao", null);
+        chamar(HttpMethod.GET, "/api/pedidos/teste/" + massa.pedidoId, null);
+        chamar(HttpMethod.GET, "/api/pedidos/" + massa.pedidoId, null);
+        chamar(HttpMethod.GET, "/api/pedidos/codigo/" + massa.pedidoCodigo, null);
+        chamar(HttpMethod.GET, "/api/pedidos/" + massa.pedidoId + "/proximos-status", null);
+        chamar(HttpMethod.GET, "/api/pedidos/dentista/" + massa.dentistaId, null);
+        chamar(HttpMethod.GET, "/api/pedidos/protetico/" + massa.proteticoId, null);
+        chamar(HttpMethod.GET, "/api/pedidos/status/EM_PRODUCAO", null);
+    }
+
+    private void lerTerceirizacoes(Massa massa) {
+        String tipo = massa.tipoServico.toLowerCase();
+        chamar(HttpMethod.GET, "/api/terceirizacoes/pedido/" + massa.pedidoTerceirizadoId, null);
+        chamar(HttpMethod.GET, "/api/terceirizacoes/protetico/" + massa.proteticoId, null);
+        chamar(HttpMethod.GET, "/api/terceirizacoes/ofertas/protetico/" + massa.destinos.get(0), null);
+        chamar(HttpMethod.GET, "/api/terceirizacoes/disponiveis?tipoServico=" + tipo, null);
+        chamar(HttpMethod.GET, "/api/terceirizacoes/disponiveis-por-servico?tipoServico=" + tipo
+                + "&excluirProteticoId=" + massa.proteticoId, null);
+        chamar(HttpMethod.GET, "/api/terceirizacoes/ranking?tipoServico=" + tipo
+                + "&proteticoId=" + massa.proteticoId, null);
+    }
+
+    private void lerProteticosEUsuarios(Massa massa) {
+        chamar(HttpMethod.GET, "/api/proteticos", null);
+        chamar(HttpMethod.GET, "/api/proteticos/" + massa.proteticoId, null);
+        chamar(HttpMethod.GET, "/api/proteticos/buscar?especializacao=" + massa.especializacao, null);
+        chamar(HttpMethod.GET, "/api/proteticos/buscar/nome?nome=Sintético 1", null);
+        chamar(HttpMethod.GET, "/api/proteticos/aceitam-terceirizacao", null);
+
+        chamar(HttpMethod.GET, "/api/usuarios", null);
+        chamar(HttpMethod.GET, "/api/usuarios/dentistas", null);
+        chamar(HttpMethod.GET, "/api/usuarios/proteticos", null);
+        chamar(HttpMethod.GET, "/api/usuarios/teste", null);
+        chamar(HttpMethod.POST, "/api/usuarios/login",
+                Map.of("email", "dentista1@sintetico.local", "senha", SENHA_SINTETICA));
+    }
+
+    // Pedido novo, editado, aprovado, em produção, terceirizado direto a um laboratório e finalizado
+    private void fluxoTerceirizacaoDireta(Massa massa, long destinoId) {
+        long pedidoId = criarPedidoNovo(massa);
+        Map<String, Object> alteracoes = new HashMap<>();
+        alteracoes.put("valorCobrado", 750);
+        alteracoes.put("dataPrevistaEntrega", LocalDate.now().plusDays(12).toString());
+        alteracoes.put("informacoesDetalhadas", "Cor A2, ajuste oclusal");
+        chamar(HttpMethod.PUT, "/api/pedidos/" + pedidoId, alteracoes);
+        chamar(HttpMethod.PUT, "/api/pedidos/" + pedidoId + "/aprovar", null);
+        chamar(HttpMethod.PUT, "/api/pedidos/" + pedidoId + "/iniciar-producao", null);
+
+        String terceirizacao = "/api/terceirizacoes/pedido/" + pedidoId;
+        chamar(HttpMethod.POST, terceirizacao + "/solicitar?proteticoId=" + massa.proteticoId,
+                solicitacao(destinoId));
+        chamar(HttpMethod.PUT, terceirizacao + "/aceitar?proteticoId=" + destinoId, null);
+        chamar(HttpMethod.PUT, terceirizacao + "/iniciar?proteticoId=" + destinoId, null);
+        chamar(HttpMethod.PUT, terceirizacao + "/concluir?proteticoId=" + destinoId, null);
+
+        chamar(HttpMethod.PUT, "/api/pedidos/" + pedidoId + "/finalizar", null);
+    }
+
+    // Pedido pelo cadastro direto, aprovado pela troca genérica de status e cancelado
+    private void fluxoCancelamento(Massa massa) {
+        Map<String, Object> pedido = new HashMap<>();
+        pedido.put("dentista", Map.of("id", massa.dentistaId));
+        pedido.put("protetico", Map.of("id", massa.proteticoId));
+        pedido.put("tipoServico", massa.tipoServico);
+        pedido.put("valorCobrado", 500);
+        pedido.put("dataPrevistaEntrega", LocalDate.now().plusDays(10).toString());
+        long pedidoId = chamar(HttpMethod.POST, "/api/pedidos", pedido).path("id").asLong();
+
+        chamar(HttpMethod.PUT, "/api/pedidos/" + pedidoId + "/status?status=APROVADO", null);
+        chamar(HttpMethod.PUT, "/api/pedidos/" + pedidoId + "/cancelar", null);
+    }
+
+    // Oferta em broadcast a dois laboratórios: um recusa e o dono retira a oferta
+    private void fluxoOfertaRecusada(Massa massa) {
+        long pedidoId = criarPedidoNovo(massa);
+        chamar(HttpMethod.PUT, "/api/pedidos/" + pedidoId + "/aprovar", null);
+
+        String terceirizacao = "/api/terceirizacoes/pedido/" + pedidoId;
+        JsonNode oferta = chamar(HttpMethod.POST, terceirizacao + "/ofertar?proteticoId=" + massa.proteticoId
+                + "&quantidade=2", solicitacao(null));
+        long recusou = oferta.path("data").path("ofertas").path(0).path("id").asLong();
+
+        chamar(HttpMethod.PUT, terceirizacao + "/recusar?proteticoId=" + recusou + "&motivo=Sem capacidade", null);
+        chamar(HttpMethod.PUT, terceirizacao + "/cancelar?proteticoId=" + massa.proteticoId
+                + "&motivo=Produção própria", null);
+    }
+
+    private void cadastros() {
+        int n = sequencia.incrementAndGet();
+
+        Map<String, Object> laboratorio = new HashMap<>();
+        laboratorio.put("nome", "Laboratório Orçamento " + n);
+        laboratorio.put("email", "laboratorio" + n + "@orcamento.local");
+        laboratorio.put("senha", SENHA_SINTETICA);
+        laboratorio.put("tipo", "PROTETICO");
+        laboratorio.put("registroProfissional", "ORC-" + n);
+        laboratorio.put("especializacao", "Zircônia");
+        long laboratorioId = chamar(HttpMethod.POST, "/api/proteticos", laboratorio).path("id").asLong();
+        chamar(HttpMethod.PUT, "/api/proteticos/" + laboratorioId,
+                Map.of("nome", "Laboratório Orçamento " + n + " Ltda", "telefone", "(11) 90000-0000"));
+        chamar(HttpMethod.DELETE, "/api/proteticos/" + laboratorioId, null);
+
+        chamar(HttpMethod.POST, "/api/usuarios/dentistas", Map.of("nome", "Dentista Orçamento " + n,
+                "email", "dentista" + n + "@orcamento.local", "senha", SENHA_SINTETICA, "cro", "ORC-" + n));
+        chamar(HttpMethod.POST, "/api/usuarios/proteticos", Map.of("nome", "Protético Orçamento " + n,
+                "email", "protetico" + n + "@orcamento.local", "senha", SENHA_SINTETICA));
+    }
+
+    private long criarPedidoNovo(Massa massa) {
+        Map<String, Object> request = new HashMap<>();
+        request.put("dentistaId", massa.dentistaId);
+        request.put("proteticoId", massa.proteticoId);
+        request.put("tipoServico", massa.tipoServico);
+        request.put("valorCobrado", 600);
+        request.put("dataPrevistaEntrega", LocalDate.now().plusDays(15).toString());
+        return chamar(HttpMethod.POST, "/api/pedidos/novo", request).path("id").asLong();
+    }
+
+    private static Map<String, Object> solicitacao(Long destinoId) {
+        Map<String, Object> request = new HashMap<>();
+        request.put("proteticoTerceirizadoId", destinoId);
+        request.put("percentual", 50);
+        request.put("tipo", "CAPACIDADE");
+        request.put("motivo", "Excesso de demanda");
+        return request;
+    }
+
+    // ============ APOIO ============
+
+    private JsonNode chamar(HttpMethod metodo, String url, Object corpo) {
+        ResponseEntity<String> resposta = rest.exchange(url, metodo,
+                corpo != null ? new HttpEntity<>(corpo) : HttpEntity.EMPTY, String.class);
+        assertThat(resposta.getStatusCode().is2xxSuccessful())
+                .as("%s %s -> %s %s", metodo, url, resposta.getStatusCode(), resposta.getBody())
+                .isTrue();
+        try {
+            String corpoResposta = resposta.getBody();
+            return corpoResposta != null && corpoResposta.startsWith("{")
+                    ? objectMapper.readTree(corpoResposta) : objectMapper.nullNode();
+        } catch (Exception e) {
+            throw new RuntimeException("Resposta inválida de " + metodo + " " + url, e);
+        }
+    }
+
+    // "MÉTODO padrão" -> handler, no mesmo formato das chaves do RegistroOrcamentos
+    private Map<String, HandlerMethod> endpointsCobertos() {
+        Map<String, HandlerMethod> endpoints = new TreeMap<>();
+        for (Map.Entry<RequestMappingInfo, HandlerMethod> entrada : mapeamentos.getHandlerMethods().entrySet()) {
+            RequestMappingInfo info = entrada.getKey();
+            for (String padrao : info.getPatternValues()) {
+                if (PREFIXOS.stream().noneMatch(padrao::startsWith)) {
+                    continue;
+                }
+                info.getMethodsCondition().getMethods()
+                        .forEach(metodo -> endpoints.put(metodo.name() + " " + padrao, entrada.getValue()));
+            }
+        }
+        return endpoints;
+    }
+
+    private Massa carregarMassa() {
+        Massa massa = new Massa();
+        // Tipo de serviço com mais laboratórios aceitando terceirização
+        massa.tipoServico = jdbcTemplate.queryForObject(
+                "SELECT tipo_servico FROM servicos_protetico WHERE ativo " +
+                "AND politica_execucao IN ('TERCEIRIZADO', 'PROPRIO_OU_TERCEIRIZADO') " +
+                "GROUP BY tipo_servico ORDER BY COUNT(*) DESC, tipo_servico LIMIT 1", String.class);
+        // Laboratório e dentista com mais pedidos: as listagens por dono são as mais pesadas
+        massa.proteticoId = jdbcTemplate.queryForObject(
+                "SELECT protetico_id FROM pedidos GROUP BY protetico_id ORDER BY COUNT(*) DESC LIMIT 1", Long.class);
+        massa.dentistaId = jdbcTemplate.queryForObject(
+                "SELECT dentista_id FROM pedidos GROUP BY dentista_id ORDER BY COUNT(*) DESC LIMIT 1", Long.class);
+        massa.destinos = jdbcTemplate.queryForList(
+                "SELECT protetico_id FROM servicos_protetico WHERE ativo AND tipo_servico = ? " +
+                "AND politica_execucao IN ('TERCEIRIZADO', 'PROPRIO_OU_TERCEIRIZADO') AND protetico_id <> ? " +
+                "ORDER BY protetico_id", Long.class, massa.tipoServico, massa.proteticoId);
+        Map<String, Object> pedido = jdbcTemplate.queryForMap(
+                "SELECT id, codigo FROM pedidos WHERE protetico_id = ? AND status_pedido = 'EM_PRODUCAO' " +
+                "ORDER BY id LIMIT 1", massa.proteticoId);
+        massa.pedidoId = ((Number) pedido.get("id")).longValue();
+        massa.pedidoCodigo = (String) pedido.get("codigo");
+        massa.pedidoTerceirizadoId = jdbcTemplate.queryForObject(
+                "SELECT MIN(pedido_id) FROM terceirizacoes", Long.class);
+        massa.especializacao = jdbcTemplate.queryForObject(
+                "SELECT especializacao FROM proteticos WHERE usuario_id = ?", String.class, massa.proteticoId);
+
+        assertThat(massa.destinos).as("Laboratórios que aceitam terceirizar " + massa.tipoServico).hasSizeGreaterThan(2);
+        return massa;
+    }
+
+    private static class Massa {
+        String tipoServico;
+        long proteticoId;
+        long dentistaId;
+        List<Long> destinos;
+        long pedidoId;
+        String pedidoCodigo;
+        long pedidoTerceirizadoId;
+        String especializacao;
+    }
+}
@@ -0,0 +1,49 @@
+package com.proteticos.ordermanagement.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.proteticos.ordermanagement.IntegracaoBase;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * GET /api/usuarios com o open-in-view desligado: a resposta vem inteira das consultas do
+ * controlador, sem lazy loading na serialização (serviços e especialidades dos protéticos).
+ */
+@TestPropertySource(properties = "spring.jpa.open-in-view=false")
+class UsuarioControllerIT extends IntegracaoBase {
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void listarTodosNaoDependeDoOpenInView() {
+        ResponseEntity<JsonNode> resposta = rest.getForEntity("/api/usuarios", JsonNode.class);
+
+        assertThat(resposta.getStatusCode().is2xxSuccessful())
+                .as("GET /api/usuarios -> %s", resposta.getStatusCode())
+                .isTrue();
+        JsonNode usuarios = resposta.getBody();
+        List<Long> ids = new ArrayList<>();
+        usuarios.forEach(usuario -> ids.add(usuario.path("id").asLong()));
+
+        assertThat(ids).containsExactlyElementsOf(
+                jdbcTemplate.queryForList("SELECT id FROM usuarios ORDER BY id", Long.class));
+        assertThat(usuarios).anySatisfy(usuario -> assertThat(usuario.path("tipo").asText()).isEqualTo("dentista"));
+        assertThat(usuarios).anySatisfy(usuario -> {
+            assertThat(usuario.path("tipo").asText()).isEqualTo("protetico");
+            assertThat(usuario.path("servicosProtetico")).isNotEmpty();
+        });
+    }
+}
@@ -0,0 +1,90 @@
+package com.proteticos.ordermanagement.repository;
+
+import com.proteticos.ordermanagement.DTO.PedidoResponseDTO;
+import com.proteticos.ordermanagement.IntegracaoBase;
+import com.proteticos.ordermanagement.model.StatusPedido;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Listagens de pedidos pela projeção SELECT_PEDIDO_DTO: um único comando SQL por listagem,
+ * qualquer que seja o tamanho do resultado (sem os SELECTs de dentista e protético por pedido).
+ * Contado pelo Hibernate Statistics, ligado só neste contexto.
+ */
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class PedidoRepositoryIT extends IntegracaoBase {
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics estatisticas;
+
+    @BeforeEach
+    void prepararEstatisticas() {
+        estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void listarTodosDTOUsaUmComando() {
+        verificarUmComando(pedidoRepository::listarTodosDTO);
+    }
+
+    @Test
+    void listarDTOPorDentistaUsaUmComando() {
+        long dentistaId = jdbcTemplate.queryForObject(
+                "SELECT dentista_id FROM pedidos GROUP BY dentista_id ORDER BY COUNT(*) DESC LIMIT 1", Long.class);
+        verificarUmComando(() -> pedidoRepository.listarDTOPorDentista(dentistaId));
+    }
+
+    @Test
+    void listarDTOPorProteticoUsaUmComando() {
+        long proteticoId = jdbcTemplate.queryForObject(
+                "SELECT protetico_id FROM pedidos GROUP BY protetico_id ORDER BY COUNT(*) DESC LIMIT 1", Long.class);
+        verificarUmComando(() -> pedidoRepository.listarDTOPorProtetico(proteticoId));
+    }
+
+    @Test
+    void listarDTOPorStatusUsaUmComando() {
+        verificarUmComando(() -> pedidoRepository.listarDTOPorStatus(StatusPedido.EM_PRODUCAO));
+    }
+
+    @Test
+    void listarDTOPorIdsUsaUmComando() {
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM pedidos ORDER BY id LIMIT 500", Long.class);
+        List<PedidoResponseDTO> pedidos = verificarUmComando(() -> pedidoRepository.listarDTOPorIds(ids));
+        assertThat(pedidos).hasSize(ids.size());
+    }
+
+    // Fora de transação, como nos controladores: dentista e protético já vêm preenchidos no mesmo SELECT
+    private List<PedidoResponseDTO> verificarUmComando(Supplier<List<PedidoResponseDTO>> listagem) {
+        estatisticas.clear();
+
+        List<PedidoResponseDTO> pedidos = listagem.get();
+
+        assertThat(pedidos).as("Listagem sem resultados não prova nada").hasSizeGreaterThan(1);
+        assertThat(pedidos).allSatisfy(pedido -> {
+            assertThat(pedido.getDentista().getNome()).isNotNull();
+            assertThat(pedido.getProtetico().getNome()).isNotNull();
+        });
+        assertThat(estatisticas.getPrepareStatementCount()).as("Comandos SQL da listagem").isEqualTo(1);
+        assertThat(estatisticas.getEntityLoadCount()).as("Entidades carregadas").isZero();
+        return pedidos;
+    }
+}
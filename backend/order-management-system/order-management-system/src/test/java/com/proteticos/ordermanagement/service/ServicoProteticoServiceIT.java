@@ -0,0 +1,70 @@
+package com.proteticos.ordermanagement.service;
+
+import com.proteticos.ordermanagement.DTO.CandidatoRankeadoDTO;
+import com.proteticos.ordermanagement.IntegracaoBase;
+import com.proteticos.ordermanagement.model.TipoServico;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Alterações de serviço chegam ao ranking de terceirização: o índice em memória recarrega as
+ * entradas do laboratório após o commit (ProteticoTerceirizacaoAlteradoEvent).
+ */
+class ServicoProteticoServiceIT extends IntegracaoBase {
+
+    private static final int TODOS = 1000;
+
+    @Autowired
+    private ServicoProteticoService servicoProteticoService;
+
+    @Autowired
+    private RankingTerceirizacaoService rankingTerceirizacaoService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void novoPrecoReordenaRanking() {
+        TipoServico tipoServico = TipoServico.valueOf(jdbcTemplate.queryForObject(
+                "SELECT tipo_servico FROM servicos_protetico " +
+                "WHERE politica_execucao IN ('TERCEIRIZADO', 'PROPRIO_OU_TERCEIRIZADO') AND ativo = true " +
+                "GROUP BY tipo_servico ORDER BY COUNT(*) DESC LIMIT 1", String.class));
+
+        List<CandidatoRankeadoDTO> antes = rankingTerceirizacaoService.rankear(tipoServico, null, null, TODOS);
+        assertThat(antes).as("Candidatos do tipo %s", tipoServico).hasSizeGreaterThan(2);
+        Long ultimoId = antes.get(antes.size() - 1).getProtetico().getId();
+
+        Map<String, Object> original = jdbcTemplate.queryForMap(
+                "SELECT preco, preco_terceirizado FROM servicos_protetico WHERE protetico_id = ? AND tipo_servico = ?",
+                ultimoId, tipoServico.name());
+        try {
+            // Sem preço próprio para terceirização, o ranking usa o preço base do serviço
+            jdbcTemplate.update(
+                    "UPDATE servicos_protetico SET preco_terceirizado = NULL WHERE protetico_id = ? AND tipo_servico = ?",
+                    ultimoId, tipoServico.name());
+            servicoProteticoService.atualizarPrecoServico(ultimoId, tipoServico, BigDecimal.ONE);
+
+            List<CandidatoRankeadoDTO> depois = rankingTerceirizacaoService.rankear(tipoServico, null, null, TODOS);
+            CandidatoRankeadoDTO alterado = depois.stream()
+                    .filter(c -> c.getProtetico().getId().equals(ultimoId))
+                    .findFirst()
+                    .orElseThrow();
+
+            assertThat(alterado.getPrecoTerceirizado()).isEqualByComparingTo(BigDecimal.ONE);
+            assertThat(depois.indexOf(alterado)).as("Posição do mais barato no ranking")
+                    .isLessThan(antes.size() - 1);
+        } finally {
+            jdbcTemplate.update(
+                    "UPDATE servicos_protetico SET preco_terceirizado = ? WHERE protetico_id = ? AND tipo_servico = ?",
+                    original.get("preco_terceirizado"), ultimoId, tipoServico.name());
+            servicoProteticoService.atualizarPrecoServico(ultimoId, tipoServico, (BigDecimal) original.get("preco"));
+        }
+    }
+}